@@ -392,12 +392,8 @@ public class AxisConfigurationController implements IEventHandler {
 		acv.setSelectedHierarchyLevel(cons.getHierarchyLevel().getName());
 		currentHierarchyLevel = cons.getHierarchyLevel();
 
-		List<String> valueNames = new ArrayList<String>();
-		for (IHierarchyLevelValue val : (Iterable<IHierarchyLevelValue>) cons.getHierarchyLevel()) {
-			valueNames.add(val.getValue());
-		}
-		acv.setValues(valueNames);
-		List<String> selectedValues = new ArrayList<String>();
+		acv.setValues(getValueNames(cons.getHierarchyLevel()));
+		List<String> selectedValues = new ArrayList<String>(cons.getValues().size());
 		for (IHierarchyLevelValue val : cons.getValues()) {
 			selectedValues.add(val.getValue());
 		}
@@ -445,26 +441,33 @@ public class AxisConfigurationController implements IEventHandler {
 			throw new IllegalStateException("HierarchyLevel suddenly disappeared");
 		}
 
-		List<String> valueNames = new ArrayList<String>();
-		for (IHierarchyLevelValue value : (Iterable<IHierarchyLevelValue>) currentHierarchyLevel) {
+		acv.setValues(getValueNames(currentHierarchyLevel));
+	}
+
+	// Returns the names of the values of a level, in one list sized for all of them.
+	private static List<String> getValueNames(final IHierarchyLevel level) {
+		Collection<IHierarchyLevelValue> values = level.getValues();
+		List<String> valueNames = new ArrayList<String>(values.size());
+		for (IHierarchyLevelValue value : values) {
 			valueNames.add(value.getValue());
 		}
-		acv.setValues(valueNames);
+		return valueNames;
 	}
 
 	// Handles a change in HierarchyLevelValue selection in an i-Dimension.
+	// The values are looked up by name in the index of the cube.
 	private void iHandleValueChange(final IAxisConfigurationView acv) {
-		currentValues = new ArrayList<IHierarchyLevelValue>(acv.getSelectedValues().size());
-
-		for (String name : acv.getSelectedValues()) {
-			for (IHierarchyLevelValue value : (Iterable<IHierarchyLevelValue>) currentHierarchyLevel) {
-				if (value.getValue().equals(name)) {
-					currentValues.add(value);
-					break;
-				}
+		CubeIndex index = controller.getCubeIndex();
+		List<String> selectedNames = acv.getSelectedValues();
+		currentValues = new ArrayList<IHierarchyLevelValue>(selectedNames.size());
+
+		for (String name : selectedNames) {
+			IHierarchyLevelValue value = index.getValue(currentHierarchyLevel, name);
+			if (value != null) {
+				currentValues.add(value);
 			}
 		}
-		if (currentValues.size() != acv.getSelectedValues().size()) {
+		if (currentValues.size() != selectedNames.size()) {
 			throw new IllegalStateException("HierarchyLevelValue suddenly disappeared");
 		}
 	}
@@ -555,11 +558,9 @@ public class AxisConfigurationController implements IEventHandler {
 		currentTopologyLevels = new ArrayList<IHierarchyLevel>(acv.getSelectedValues().size());
 
 		for (String name : acv.getSelectedValues()) {
-			for (IHierarchyLevel level : (Iterable<IHierarchyLevel>) currentHierarchy) {
-				if (level.getName().equals(name)) {
-					currentTopologyLevels.add(level);
-					break;
-				}
+			IHierarchyLevel level = currentHierarchy.getLevel(name);
+			if (level != null) {
+				currentTopologyLevels.add(level);
 			}
 		}
 		if (currentTopologyLevels.size() != acv.getSelectedValues().size()) {
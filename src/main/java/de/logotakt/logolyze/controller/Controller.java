@@ -1,5 +1,6 @@
 package de.logotakt.logolyze.controller;
 
+import java.awt.EventQueue;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -7,6 +8,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 
@@ -15,16 +22,25 @@ import de.logotakt.logolyze.model.config.ConnectionConfig;
 import de.logotakt.logolyze.model.interfaces.BogusDbConnectionException;
 import de.logotakt.logolyze.model.interfaces.DbConnectFailedException;
 import de.logotakt.logolyze.model.interfaces.DbMalformedException;
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.RequestValidationFailedException;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.ICube;
 import de.logotakt.logolyze.model.interfaces.IDbStructure;
+import de.logotakt.logolyze.model.interfaces.IHierarchyLevel;
+import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.ILogolyzeModel;
 import de.logotakt.logolyze.model.interfaces.IMeasureType;
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
 import de.logotakt.logolyze.model.interfaces.IRequest;
 import de.logotakt.logolyze.model.interfaces.IResponse;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
+import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
+import de.logotakt.logolyze.model.interfaces.MeasureClass;
 import de.logotakt.logolyze.view.interfaces.EventArgs;
 import de.logotakt.logolyze.view.interfaces.EventType;
+import de.logotakt.logolyze.view.interfaces.IAxisConfigurationView;
 import de.logotakt.logolyze.view.interfaces.IErrorReporter;
 import de.logotakt.logolyze.view.interfaces.IEventHandler;
 import de.logotakt.logolyze.view.interfaces.ILogolyzeView;
@@ -36,6 +52,21 @@ import de.logotakt.logolyze.view.interfaces.IViewState;
  */
 public class Controller implements IEventHandler {
     private static final Logger logger = Logger.getLogger(Controller.class);
+    // Requests for more graphs than this are shown as an overview first.
+    private static final int OVERVIEW_GRAPHS = Integer.getInteger("logolyze.overviewGraphs", 256);
+    private static final String REFINEMENT_ERROR = "The complete graphs could not be loaded, only previews are shown:\n";
+    // How long shutting down waits for the complete graphs being loaded, in seconds. Their statement is cancelled
+    // first, so this only matters for database drivers that cannot cancel statements.
+    private static final long SHUTDOWN_TIMEOUT = 1;
+    // Loads the complete graphs in the background, one request at a time.
+    private final ExecutorService refiner = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(r, "Graph refiner");
+            t.setDaemon(true);
+            return t;
+        }
+    });
 
     /* References to model and view */
     private ILogolyzeView myView;
@@ -58,10 +89,31 @@ public class Controller implements IEventHandler {
     private Collection<IMeasureType> measures;
     // The cube which is currently active.
     private ICube cube;
+    // The lookup structures of the selected cube.
+    private CubeIndex cubeIndex;
 
     // While loading state, a lot of spurious graphs are requested from the view. This flag
     // disables them.
     private boolean suspendGraphs = false;
+    // The filter for the edges to load, or null to load all of them.
+    private EdgeFilter edgeFilter = null;
+    // Whether the view hides isolated nodes, so that they need not be loaded at all.
+    private boolean onlyConnectedNodes = false;
+    // The loading of complete graphs going on, and the token identifying it, which is set to cancel it. Only accessed
+    // on the event thread.
+    private Future<?> refinement = null;
+    private AtomicBoolean refinementToken = null;
+    // Set to cancel loading the graphs of the overview cells opened since the last request. Only accessed on the
+    // event thread.
+    private AtomicBoolean overviewToken = null;
+    // Coalesces the graph requests of quick successive changes. The error reporter of the latest change reports for
+    // the request answering it.
+    private final RequestScheduler scheduler;
+    private IErrorReporter pendingReporter = null;
+    // The request whose graphs are shown, or null if the view shows anything else.
+    private IRequest displayedRequest = null;
+    // The hierarchy level value selected last in the hierarchy tree, the most likely one to be drilled into next.
+    private IHierarchyLevelValue lastSelectedValue = null;
 
     /**
      * Constructs a new instance of the Controller class. This method takes an already initialized view and model and
@@ -89,6 +141,13 @@ public class Controller implements IEventHandler {
         measures = new ArrayList<IMeasureType>();
         cube = null;
 
+        scheduler = new RequestScheduler(new Runnable() {
+            @Override
+            public void run() {
+                loadNewGraphs(pendingReporter);
+            }
+        });
+
         makeSubcontrollers();
         setupEvents();
         pushLastConnections();
@@ -129,6 +188,8 @@ public class Controller implements IEventHandler {
         myView.addEventListener(hierarchyTreeContr, EventType.treeLoad);
         myView.addEventListener(hierarchyTreeContr, EventType.treeNodeSelected);
         myView.addEventListener(this, EventType.shutdownTriggered);
+        myView.addEventListener(this, EventType.isolatedNodesChanged);
+        myView.addEventListener(this, EventType.overviewCellsOpened);
     }
 
     /* Makes the view display the list of last connections. */
@@ -145,7 +206,7 @@ public class Controller implements IEventHandler {
     /**
      * Dispatches the events this class can handle. Controller implements this from the IEventHandler interface. The
      * Controller class accepts the following events: viewStateSave, viewStateLoad, cubeSelected, dbDisconnect
-     * shutdownTriggered.
+     * shutdownTriggered, isolatedNodesChanged, overviewCellsOpened.
      * @param e The arguments for the current event.
      */
     @Override
@@ -166,6 +227,12 @@ public class Controller implements IEventHandler {
         case shutdownTriggered:
             handleShutdown(e);
             break;
+        case isolatedNodesChanged:
+            handleIsolatedNodesChanged(e);
+            break;
+        case overviewCellsOpened:
+            handleOverviewCellsOpened(e);
+            break;
         default:
             throw new IllegalArgumentException("Wrong event was sent to Controller.");
         }
@@ -195,24 +262,54 @@ public class Controller implements IEventHandler {
         logger.debug("StateLoad event received");
 
         String path = (String) e.getDetails();
-        IErrorReporter er = (IErrorReporter) e.getCaller();
+        final IErrorReporter er = (IErrorReporter) e.getCaller();
 
         if (!myModel.isConnected()) {
             er.displayError("Cannot load the view state without a database connection.");
-        } else {
-            try {
-                suspendGraphs = true;
-                myView.setViewState((IViewState) ConfigManager.getInstance().loadViewConfig(path));
-                suspendGraphs = false;
-
-                displayNewGraphs(er);
-            } catch (IOException ex) {
-                er.displayError("The View state could not be loaded because of the following reason:\n"
-                        + ex.getMessage());
-                logger.warn("Could not load view state:", ex);
-                logger.warn("\tPath: " + path);
-            }
+            return;
+        }
+
+        IViewState state;
+        try {
+            state = (IViewState) ConfigManager.getInstance().loadViewConfig(path);
+        } catch (IOException ex) {
+            er.displayError("The View state could not be loaded because of the following reason:\n"
+                    + ex.getMessage());
+            logger.warn("Could not load view state:", ex);
+            logger.warn("\tPath: " + path);
+            return;
         }
+
+        // Restoring the view replays the saved settings to the subcontrollers. None of their changes may request
+        // graphs; the graphs are requested once, for the whole state, after it has been restored.
+        suspendGraphs = true;
+        scheduler.cancel();
+        cancelRefinement();
+        try {
+            myView.setViewState(state);
+        } catch (RuntimeException ex) {
+            // Nothing has been restored completely, so nothing is requested either.
+            suspendGraphs = false;
+            throw ex;
+        }
+
+        // Coalesced changes, like hiding isolated nodes, reach the subcontrollers later on the event thread. They are
+        // queued already, so this runs after all of them.
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                finishStateLoad(er);
+            }
+        });
+    }
+
+    // Requests the graphs of a restored view state, in a single request built from all of its settings.
+    private void finishStateLoad(final IErrorReporter er) {
+        suspendGraphs = false;
+        // The view has been reset, so the graphs have to be shown again even if the request is the same.
+        displayedRequest = null;
+        scheduler.cancel();
+        loadNewGraphs(er);
     }
 
     // This event is fired when a new cube is selected to work on.
@@ -231,6 +328,7 @@ public class Controller implements IEventHandler {
             if (c.getName().equals(cubeName)) {
                 logger.debug("Cube found, refreshing view.");
                 this.cube = c;
+                this.cubeIndex = new CubeIndex(c);
                 // Refresh the view to force the interface
                 // to be reloaded.
                 myView.getFresh();
@@ -241,19 +339,178 @@ public class Controller implements IEventHandler {
         logger.error("Selected cube " + cubeName + " not found");
     }
 
+    // This event is fired when isolated nodes are hidden or shown again.
+    // Hidden isolated nodes are not loaded at all, so the graphs are requested again if there are any.
+    private void handleIsolatedNodesChanged(final EventArgs e) {
+        logger.debug("IsolatedNodesChanged event received");
+
+        boolean onlyConnected = (Boolean) e.getDetails();
+        if (onlyConnected == this.onlyConnectedNodes) {
+            return;
+        }
+        this.onlyConnectedNodes = onlyConnected;
+
+        if (this.cube != null && myModel.isConnected()) {
+            displayNewGraphs((IErrorReporter) e.getCaller());
+        }
+    }
+
+    // This event is fired when the user zooms into cells of the overview.
+    // The graphs of the cells are loaded in the background, as their plans say, and put into the overview. Previews
+    // are replaced by the complete graphs once those are loaded, too.
+    @SuppressWarnings("unchecked")
+    private void handleOverviewCellsOpened(final EventArgs e) {
+        logger.debug("OverviewCellsOpened event received");
+
+        final IErrorReporter er = (IErrorReporter) e.getCaller();
+        // The requests are made here, the controller's state is only accessed on the event thread. Each cell gets a
+        // second one for its complete graphs, which is not restricted by a plan.
+        final List<IRequest> cells = new ArrayList<IRequest>();
+        final List<IRequest> completeCells = new ArrayList<IRequest>();
+        for (IRequest cell : (Collection<IRequest>) e.getDetails()) {
+            cells.add(makeCellRequest(cell));
+            completeCells.add(makeCellRequest(cell));
+        }
+
+        // Cells opened meanwhile are loaded after these; a new request cancels all of them.
+        if (overviewToken == null) {
+            overviewToken = new AtomicBoolean();
+        }
+        final AtomicBoolean token = overviewToken;
+
+        refiner.execute(new Runnable() {
+            @Override
+            public void run() {
+                loadOverviewCells(cells, completeCells, token, er);
+            }
+        });
+    }
+
+    // Makes the request for the graphs of an overview cell, with the options of the current request.
+    private IRequest makeCellRequest(final IRequest cell) {
+        IRequest req = getModel().getDataFactory().makeRequest(cube);
+        for (IConstraint c : cell) {
+            req.addConstraint(c);
+        }
+        applyRequestOptions(req);
+        return req;
+    }
+
+    // Loads the graphs of overview cells, on the refiner thread. Nothing is added to the overview if loading fails.
+    private void loadOverviewCells(final List<IRequest> cells, final List<IRequest> completeCells,
+            final AtomicBoolean token, final IErrorReporter er) {
+        final Collection<IOLAPGraph> graphs = new ArrayList<IOLAPGraph>();
+        List<IRequest> previewed = new ArrayList<IRequest>();
+        long startTime = System.currentTimeMillis();
+
+        try {
+            for (int i = 0; i < cells.size(); i++) {
+                ILoadPlan plan = myModel.planRequest(cells.get(i));
+                IResponse response = myModel.handleRequest(cells.get(i), token);
+                if (response == null) {
+                    return;
+                }
+                graphs.addAll(response.getGraphs());
+                if (plan.getStrategy() == LoadStrategy.preview && containsPreview(response.getGraphs())) {
+                    previewed.add(completeCells.get(i));
+                }
+            }
+        } catch (BogusDbConnectionException ex) {
+            reportOverviewError(er, token, "Database connection problem:\n", ex);
+            return;
+        } catch (DbMalformedException ex) {
+            reportOverviewError(er, token, "The Database was not in the expected format:\n", ex);
+            return;
+        } catch (RequestValidationFailedException ex) {
+            reportOverviewError(er, token, "The Request validation failed:\n", ex);
+            return;
+        }
+
+        final String responseTime = "Loading " + graphs.size() + " graphs of the overview took "
+                + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.";
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (overviewToken == token) {
+                    myView.addGraphs(graphs);
+                    myView.setResponseTime(responseTime);
+                }
+            }
+        });
+
+        final Collection<IOLAPGraph> completeGraphs = new ArrayList<IOLAPGraph>();
+        try {
+            for (IRequest req : previewed) {
+                IResponse response = myModel.handleRequest(req, token);
+                if (response == null) {
+                    return;
+                }
+                completeGraphs.addAll(response.getGraphs());
+            }
+        } catch (BogusDbConnectionException ex) {
+            reportOverviewError(er, token, REFINEMENT_ERROR, ex);
+            return;
+        } catch (DbMalformedException ex) {
+            reportOverviewError(er, token, REFINEMENT_ERROR, ex);
+            return;
+        } catch (RequestValidationFailedException ex) {
+            reportOverviewError(er, token, REFINEMENT_ERROR, ex);
+            return;
+        }
+        if (completeGraphs.isEmpty()) {
+            return;
+        }
+
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (overviewToken == token) {
+                    myView.refineGraphs(completeGraphs);
+                }
+            }
+        });
+    }
+
+    // Reports a failure to load the graphs of overview cells, unless they are not needed anymore anyway.
+    private void reportOverviewError(final IErrorReporter er, final AtomicBoolean token, final String message,
+            final Exception ex) {
+        logger.error(message.trim(), ex);
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (overviewToken == token) {
+                    er.displayError(message + ex.getMessage());
+                }
+            }
+        });
+    }
+
     // This event is fired when the application shuts down.
     // Only the last connections are saved to their standard location.
     private void handleShutdown(final EventArgs e) {
         logger.debug("Shutdown event received");
 
+        // The complete graphs being loaded are not needed anymore, but they are loaded through the connection that is
+        // closed next.
+        scheduler.cancel();
+        cancelRefinement();
+        refiner.shutdown();
+        try {
+            if (!refiner.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                logger.warn("Loading the complete graphs did not stop in time.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
         myModel.shutdown();
         myView.shutdown();
         try {
             ConfigManager.getInstance().saveLastConnections(lastConnections);
         } catch (IOException ex) {
-            // The ConfigManager has already done a dump to stderr.
+            // The previously saved connections are left intact.
             // We can't do much more here except exit even earlier!
-            logger.error("Could not save last connections.");
+            logger.error("Could not save last connections.", ex);
         }
 
         logger.debug("Logolyze is exiting.");
@@ -274,8 +531,14 @@ public class Controller implements IEventHandler {
         measureConfigContr.clean();
 
         this.cube = null;
+        this.cubeIndex = null;
         this.constraintsByView = new HashMap<Object, Collection<IConstraint>>();
         this.measures = new ArrayList<IMeasureType>();
+        this.edgeFilter = null;
+        this.displayedRequest = null;
+        this.lastSelectedValue = null;
+        scheduler.cancel();
+        cancelRefinement();
     }
 
     // This event is fired when a disconnection from the database has been requested
@@ -319,6 +582,11 @@ public class Controller implements IEventHandler {
         return cube;
     }
 
+    // Returns the lookup structures of the selected cube
+    CubeIndex getCubeIndex() {
+        return cubeIndex;
+    }
+
     // Stores a new collection of constraints for a given view. If the collection is null,
     // the entry is removed.
     void setConstraintsForView(final Object view, final Collection<IConstraint> constraints) {
@@ -329,6 +597,11 @@ public class Controller implements IEventHandler {
         }
     }
 
+    // Remembers the hierarchy level value selected last.
+    void setLastSelectedValue(final IHierarchyLevelValue value) {
+        lastSelectedValue = value;
+    }
+
     // Returns the selected measures
     Collection<IMeasureType> getMeasures() {
         return Collections.unmodifiableCollection(measures);
@@ -339,6 +612,16 @@ public class Controller implements IEventHandler {
         measures = new ArrayList<IMeasureType>(newMeasures);
     }
 
+    // Returns the filter for the edges to load.
+    EdgeFilter getEdgeFilter() {
+        return edgeFilter;
+    }
+
+    // Sets the filter for the edges to load, null to load all edges.
+    void setEdgeFilter(final EdgeFilter filter) {
+        edgeFilter = filter;
+    }
+
     // Adds a specific MeasureType to the selected measures.
     void addMeasureType(final IMeasureType type) {
         measures.add(type);
@@ -397,41 +680,73 @@ public class Controller implements IEventHandler {
         }
     }
 
-    // Executes a request for a new set of graphs with the model, using the constraints collected from
-    // the different views and the selected measures. The resulting set of graphs is passed on to the view
-    // to display.
+    // Tells the controller that the graphs shown are outdated. Changes coming in quick succession are coalesced:
+    // the graphs are requested once they settle down, for the state at that time.
     void displayNewGraphs(final IErrorReporter er) {
         if (suspendGraphs) {
             logger.debug("graph request dropped");
             return;
         }
 
-        logger.debug("Requesting new graphs.");
+        pendingReporter = er;
+        scheduler.schedule();
+    }
 
-        IRequest req = getModel().getDataFactory().makeRequest(cube);
+    // Like displayNewGraphs, but the graphs are shown again even if the request selects the same graphs. The settings
+    // of the measures decide how the graphs are drawn, which the request knows nothing of.
+    void redisplayGraphs(final IErrorReporter er) {
+        displayedRequest = null;
+        displayNewGraphs(er);
+    }
 
-        // Add Constraints
-        for (Collection<IConstraint> cs : constraintsByView.values()) {
-            for (IConstraint c : cs) {
-                logger.debug("Adding constraint " + c);
-                req.addConstraint(c);
-            }
+    // Executes a request for a new set of graphs with the model, using the constraints collected from
+    // the different views and the selected measures. The resulting set of graphs is passed on to the view
+    // to display. A request for the graphs that are shown already is skipped.
+    // The size of the graphs is estimated first. Graphs with many edges are shown as a preview first, and the complete
+    // graphs replace them once they are loaded, unless they are too large to be loaded at all. Too many graphs are
+    // only summarized, and loaded when the user zooms into them.
+    private void loadNewGraphs(final IErrorReporter er) {
+        IRequest req = buildRequest();
+        if (displayedRequest != null && req.selectsSameGraphs(displayedRequest)) {
+            logger.debug("graph request skipped, the graphs are shown already");
+            return;
         }
 
-        // Add measure types
-        for (IMeasureType m : measures) {
-            logger.debug("Adding measure type " + m);
-            req.addMeasureType(m);
-        }
+        logger.debug("Requesting new graphs.");
+
+        // The complete graphs of an older request are not needed anymore.
+        cancelRefinement();
+        displayedRequest = null;
 
         try {
+            ILoadPlan plan = myModel.planRequest(req);
+            myView.setLoadPlan(plan);
+
+            if (plan.getGraphCount() > OVERVIEW_GRAPHS) {
+                logger.debug("Requesting an overview of " + plan.getGraphCount() + " graphs");
+                long startTime = System.currentTimeMillis();
+                myView.setGraphSummaries(myModel.summarizeRequest(req, getOverviewMeasure()));
+                displayedRequest = req;
+                myView.setResponseTime("Overview took " + ((System.currentTimeMillis() - startTime) / 1000.0)
+                        + " seconds.");
+                return;
+            }
+
             // Request the new Graphs and push them in.
             logger.debug("Sending request to model");
             IResponse response = myModel.handleRequest(req);
 
             logger.debug("Sending graphs to view");
             myView.setGraphs(response.getGraphs());
+            displayedRequest = req;
             myView.setResponseTime("Last request took " + (response.getRequestDuration() / 1000.0) + " seconds.");
+            myView.setResponseMetrics(response.getMetrics());
+
+            if (plan.getStrategy() == LoadStrategy.preview && containsPreview(response.getGraphs())) {
+                refineGraphs(er);
+            } else {
+                prefetchLikelyRequests();
+            }
 
         } catch (BogusDbConnectionException ex) {
             er.displayError("Database connection problem:\n" + ex.getMessage());
@@ -448,4 +763,221 @@ public class Controller implements IEventHandler {
                     + "conflict with each other.", ex);
         }
     }
+
+    // Returns whether some of the graphs are only previews.
+    private static boolean containsPreview(final Collection<IOLAPGraph> graphs) {
+        for (IOLAPGraph g : graphs) {
+            if (g.getResultOf() != null && g.getResultOf().getEdgeSampleRate() > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Loads the complete graphs in the background and has the view replace the previews with them. Only the
+    // refinement started last may reach the view.
+    private void refineGraphs(final IErrorReporter er) {
+        final IRequest req = buildRequest();
+        final AtomicBoolean token = new AtomicBoolean();
+        refinementToken = token;
+
+        logger.debug("Loading the complete graphs in the background.");
+        refinement = refiner.submit(new Runnable() {
+            @Override
+            public void run() {
+                final IResponse response;
+                try {
+                    response = myModel.handleRequest(req, token);
+                } catch (BogusDbConnectionException ex) {
+                    reportRefinementError(er, token, ex);
+                    return;
+                } catch (DbMalformedException ex) {
+                    reportRefinementError(er, token, ex);
+                    return;
+                } catch (RequestValidationFailedException ex) {
+                    reportRefinementError(er, token, ex);
+                    return;
+                }
+                if (response == null) {
+                    logger.debug("Loading the complete graphs cancelled.");
+                    return;
+                }
+
+                EventQueue.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (refinementToken != token) {
+                            logger.debug("Complete graphs of an outdated request dropped.");
+                            return;
+                        }
+                        refinementToken = null;
+                        refinement = null;
+
+                        logger.debug("Sending complete graphs to view");
+                        myView.refineGraphs(response.getGraphs());
+                        myView.setResponseTime("Loading the complete graphs took "
+                                + (response.getRequestDuration() / 1000.0) + " seconds.");
+                        myView.setResponseMetrics(response.getMetrics());
+                        prefetchLikelyRequests();
+                    }
+                });
+            }
+        });
+    }
+
+    // Reports a failure to load the complete graphs, unless they are not needed anymore anyway.
+    private void reportRefinementError(final IErrorReporter er, final AtomicBoolean token, final Exception ex) {
+        logger.error("Could not load the complete graphs:", ex);
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (refinementToken == token) {
+                    refinementToken = null;
+                    refinement = null;
+                    er.displayError(REFINEMENT_ERROR + ex.getMessage());
+                }
+            }
+        });
+    }
+
+    // Stops loading complete graphs and the graphs of overview cells, if that is going on. The model cancels the
+    // statement being executed; the thread is not interrupted, since that would also interrupt the database driver.
+    private void cancelRefinement() {
+        if (refinementToken != null) {
+            myModel.cancelRequest(refinementToken);
+            refinementToken = null;
+        }
+        if (overviewToken != null) {
+            myModel.cancelRequest(overviewToken);
+            overviewToken = null;
+        }
+        if (refinement != null) {
+            refinement.cancel(false);
+            refinement = null;
+        }
+    }
+
+    // Returns the measure the overview is colored by: the one the edges are filtered by, or else the first numerical
+    // edge measure selected. Without either, the overview is colored by the number of edges.
+    private IMeasureType getOverviewMeasure() {
+        if (edgeFilter != null) {
+            return edgeFilter.getMeasure();
+        }
+        for (IMeasureType m : measures) {
+            if (m.getAssoc() == MeasureAssociation.edgeMeasure && m.getMeasureClass() == MeasureClass.NumeralMeasure) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    // Has the model prefetch the requests the user is likely to make next: drilling down into the hierarchy level value
+    // selected last, and stepping to the next or the previous values on each axis.
+    private void prefetchLikelyRequests() {
+        List<IRequest> likely = new ArrayList<IRequest>();
+
+        if (lastSelectedValue != null) {
+            IRequest drillDown = buildDrillDownRequest(lastSelectedValue);
+            if (drillDown != null) {
+                likely.add(drillDown);
+            }
+        }
+        for (Map.Entry<Object, Collection<IConstraint>> e : constraintsByView.entrySet()) {
+            if (!(e.getKey() instanceof IAxisConfigurationView)) {
+                continue;
+            }
+            for (IConstraint c : e.getValue()) {
+                IRequest next = buildStepRequest(c, 1);
+                if (next != null) {
+                    likely.add(next);
+                }
+                IRequest previous = buildStepRequest(c, -1);
+                if (previous != null) {
+                    likely.add(previous);
+                }
+            }
+        }
+
+        if (!likely.isEmpty()) {
+            logger.debug("Prefetching " + likely.size() + " likely requests");
+            myModel.prefetchRequests(likely);
+        }
+    }
+
+    // Builds the request for the graphs shown if the constraint selecting a value is replaced by one selecting the
+    // children of the value. Returns null if the value is not selected anymore or has no children.
+    private IRequest buildDrillDownRequest(final IHierarchyLevelValue value) {
+        IHierarchyLevel childLevel = value.getLevel().childLevel();
+        if (childLevel == null || value.childValues().isEmpty()) {
+            return null;
+        }
+
+        for (Collection<IConstraint> cs : constraintsByView.values()) {
+            for (IConstraint c : cs) {
+                if (c.getHierarchyLevel() == value.getLevel() && c.getValues().contains(value)) {
+                    IConstraint children = getModel().getDataFactory().makeConstraint(c.getDimension(),
+                            c.getHierarchy(), childLevel, new ArrayList<IHierarchyLevelValue>(value.childValues()));
+                    return buildRequest(c, children);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Builds the request for the graphs shown if all values selected by a constraint are moved by some steps within
+    // their hierarchy level. Returns null if the constraint selects no values or they cannot be moved that far.
+    private IRequest buildStepRequest(final IConstraint c, final int step) {
+        if (c.getValues().isEmpty()) {
+            return null;
+        }
+
+        List<IHierarchyLevelValue> moved = new ArrayList<IHierarchyLevelValue>(c.getValues().size());
+        for (IHierarchyLevelValue v : c.getValues()) {
+            int index = cubeIndex.getPosition(c.getHierarchyLevel(), v);
+            IHierarchyLevelValue next = index < 0 ? null : cubeIndex.getValueAt(c.getHierarchyLevel(), index + step);
+            if (next == null) {
+                return null;
+            }
+            moved.add(next);
+        }
+
+        return buildRequest(c, getModel().getDataFactory().makeConstraint(c.getDimension(), c.getHierarchy(),
+                c.getHierarchyLevel(), moved));
+    }
+
+    // Builds a request for the graphs to show, from the constraints collected from the different views, the
+    // selected measures and the filters.
+    private IRequest buildRequest() {
+        return buildRequest(null, null);
+    }
+
+    // Builds a request like buildRequest(), but with one of the constraints replaced by another one.
+    private IRequest buildRequest(final IConstraint replaced, final IConstraint replacement) {
+        IRequest req = getModel().getDataFactory().makeRequest(cube);
+
+        // Add Constraints
+        for (Collection<IConstraint> cs : constraintsByView.values()) {
+            for (IConstraint c : cs) {
+                IConstraint added = c == replaced ? replacement : c;
+                logger.debug("Adding constraint " + added);
+                req.addConstraint(added);
+            }
+        }
+
+        applyRequestOptions(req);
+
+        return req;
+    }
+
+    // Adds the selected measures and the filters to a request.
+    private void applyRequestOptions(final IRequest req) {
+        // Add measure types
+        for (IMeasureType m : measures) {
+            logger.debug("Adding measure type " + m);
+            req.addMeasureType(m);
+        }
+
+        req.setOnlyConnectedNodes(onlyConnectedNodes);
+        req.setEdgeFilter(edgeFilter);
+    }
 }
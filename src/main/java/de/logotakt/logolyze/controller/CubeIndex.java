@@ -0,0 +1,119 @@
+package de.logotakt.logolyze.controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.logotakt.logolyze.model.interfaces.ICube;
+import de.logotakt.logolyze.model.interfaces.IDimension;
+import de.logotakt.logolyze.model.interfaces.IHierarchy;
+import de.logotakt.logolyze.model.interfaces.IHierarchyLevel;
+import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
+
+/**
+ * Indexes the elements of a cube for the lookups done while handling the events of the view, so that none of them has
+ * to walk the cube. It is built once when the cube is selected. The values of a level are only indexed when one of
+ * them is looked up first, so that selecting a cube with large levels stays cheap.
+ */
+final class CubeIndex {
+    private final Map<IHierarchyLevel, IHierarchy> hierarchies = new HashMap<IHierarchyLevel, IHierarchy>();
+    private final Map<IHierarchy, IDimension> dimensions = new HashMap<IHierarchy, IDimension>();
+    /* The levels whose values were indexed so far. */
+    private final Map<IHierarchyLevel, LevelIndex> levels = new HashMap<IHierarchyLevel, LevelIndex>();
+
+    /**
+     * Indexes a cube.
+     * @param cube The cube to index.
+     */
+    CubeIndex(final ICube cube) {
+        for (IDimension d : (Iterable<IDimension>) cube) {
+            for (IHierarchy h : (Iterable<IHierarchy>) d) {
+                dimensions.put(h, d);
+                for (IHierarchyLevel l : (Iterable<IHierarchyLevel>) h) {
+                    hierarchies.put(l, h);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param level A level of the cube.
+     * @return The hierarchy the level belongs to, or null if it is not part of the cube.
+     */
+    IHierarchy getHierarchy(final IHierarchyLevel level) {
+        return hierarchies.get(level);
+    }
+
+    /**
+     * @param level A level of the cube.
+     * @return The dimension the level belongs to, or null if it is not part of the cube.
+     */
+    IDimension getDimension(final IHierarchyLevel level) {
+        return dimensions.get(hierarchies.get(level));
+    }
+
+    /**
+     * Finds a value of a level by its name.
+     * @param level A level of the cube.
+     * @param name The name of the value.
+     * @return The value, or null if the level has no value of that name.
+     */
+    IHierarchyLevelValue getValue(final IHierarchyLevel level, final String name) {
+        return getLevelIndex(level).byName.get(name);
+    }
+
+    /**
+     * Finds the position of a value in its level.
+     * @param level The level of the value.
+     * @param value The value.
+     * @return The index of the value in the values of the level, or -1 if it is not one of them.
+     */
+    int getPosition(final IHierarchyLevel level, final IHierarchyLevelValue value) {
+        Integer position = getLevelIndex(level).positions.get(value);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Returns the value at a position of a level.
+     * @param level A level of the cube.
+     * @param position The index of the value in the values of the level.
+     * @return The value, or null if the level has no value at that position.
+     */
+    IHierarchyLevelValue getValueAt(final IHierarchyLevel level, final int position) {
+        List<IHierarchyLevelValue> values = getLevelIndex(level).values;
+        return position < 0 || position >= values.size() ? null : values.get(position);
+    }
+
+    private LevelIndex getLevelIndex(final IHierarchyLevel level) {
+        LevelIndex index = levels.get(level);
+        if (index == null) {
+            index = new LevelIndex(level);
+            levels.put(level, index);
+        }
+        return index;
+    }
+
+    /**
+     * The values of one level, by name and by position.
+     */
+    private static final class LevelIndex {
+        private final List<IHierarchyLevelValue> values;
+        private final Map<String, IHierarchyLevelValue> byName = new HashMap<String, IHierarchyLevelValue>();
+        private final Map<IHierarchyLevelValue, Integer> positions = new HashMap<IHierarchyLevelValue, Integer>();
+
+        LevelIndex(final IHierarchyLevel level) {
+            values = new ArrayList<IHierarchyLevelValue>(level.getValues());
+            for (int i = 0; i < values.size(); i++) {
+                IHierarchyLevelValue v = values.get(i);
+                // Like a linear search, the first value of a name wins.
+                if (!byName.containsKey(v.getValue())) {
+                    byName.put(v.getValue(), v);
+                }
+                if (!positions.containsKey(v)) {
+                    positions.put(v, i);
+                }
+            }
+        }
+    }
+}
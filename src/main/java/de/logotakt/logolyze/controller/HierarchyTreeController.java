@@ -2,9 +2,14 @@ package de.logotakt.logolyze.controller;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import de.logotakt.logolyze.model.interfaces.DimensionType;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.ICube;
 import de.logotakt.logolyze.model.interfaces.IDimension;
@@ -68,11 +73,9 @@ public class HierarchyTreeController implements IEventHandler {
 				for (IHierarchyLevel l : (Iterable<IHierarchyLevel>) h) {
 					switch (d.getType()) {
 					case iDimension:
-						// Make the values in the level selectable.
-						htv.addNode(h, l, false, false);
-						for (IHierarchyLevelValue v : (Iterable<IHierarchyLevelValue>) l) {
-							htv.addNode(l, v, true, false);
-						}
+						// Make the values in the level selectable. They are only added to the tree
+						// when the level is expanded, since a level may have lots of them.
+						htv.addLazyNode(h, l, l.getValues());
 						break;
 					case tDimension:
 						// Make the level directly selectable.
@@ -90,9 +93,11 @@ public class HierarchyTreeController implements IEventHandler {
 	// Here, the newly (de)selected Node is searched and the constraints for this view are
 	// updates appropriately. Conflicting previous selections are undone.
 	// In addition, a graph update is done.
+	// The selection is compared with the nodes the constraints were made for, and the new node
+	// is looked up in the index of the cube, so that a click does not walk the whole cube.
 	private void handleNodeSelected(final EventArgs e) {
 		IHierarchyTreeView htv = (IHierarchyTreeView) e.getDetails();
-		ICube cube = controller.getSelectedCube();
+		CubeIndex index = controller.getCubeIndex();
 		Collection<IConstraint> constraints  = controller.getConstraintsForView(htv);
 
 		boolean constraintAdded = false;
@@ -102,84 +107,84 @@ public class HierarchyTreeController implements IEventHandler {
 			controller.setConstraintsForView(htv, constraints);
 		}
 
-		for (IDimension d : (Iterable<IDimension>) cube) {
-			for (IHierarchy h : (Iterable<IHierarchy>) d) {
-				for (IHierarchyLevel l : (Iterable<IHierarchyLevel>) h) {
-
-					switch (d.getType()) {
-					case iDimension:
-						for (IHierarchyLevelValue v : (Iterable<IHierarchyLevelValue>) l) {
-
-							IConstraint nodeConstraint = null;
-							for (IConstraint c : (Iterable<IConstraint>) constraints) {
-								if (c.getValues().contains(v)
-								    && c.getHierarchyLevel() == l
-								    && c.getHierarchy() == h
-								    && c.getDimension() == d) {
-									nodeConstraint = c;
-									break;
-								}
-							}
-
-							if (htv.getSelected().contains(v) && nodeConstraint == null) {
-								// Verify that only one Constraint was added
-								if (constraintAdded) {
-									throw new IllegalArgumentException(
-									        "Two nodes in the hierarchy tree "
-									      + "changed simultaneously.");
-								}
-
-								List<IHierarchyLevelValue> newValues =
-									new ArrayList<IHierarchyLevelValue>(1);
-								newValues.add(v);
-								addConstraint(controller.getModel().getDataFactory().
-									      makeConstraint(d, h, l, newValues),
-									      constraints, htv);
-								constraintAdded = true;
-
-							} else if (!htv.getSelected().contains(v)
-								   && nodeConstraint != null) {
-								constraints.remove(nodeConstraint);
-							}
-						}
-						break;
+		Set<Object> selected = new HashSet<Object>(htv.getSelected());
 
-					case tDimension:
-						IConstraint nodeConstraint = null;
-						for (IConstraint c : (Iterable<IConstraint>) constraints) {
-							if (c.getHierarchyLevel() == l
-							    && c.getHierarchy() == h
-							    && c.getDimension() == d) {
-								nodeConstraint = c;
-								break;
-							}
-						}
-
-						if (htv.getSelected().contains(l) && nodeConstraint == null) {
-							// Verify that only one Constraint was added
-							if (constraintAdded) {
-								throw new IllegalArgumentException(
-								          "Two nodes in the hierarchy "
-								        + "tree changed simultaneously.");
-							}
-
-							addConstraint(controller.getModel().getDataFactory().
-								      makeConstraint(d, h, l,
-										     java.util.Collections.EMPTY_LIST),
-								      constraints, htv);
-							constraintAdded = true;
-
-						} else if (!htv.getSelected().contains(l) && nodeConstraint != null) {
-							constraints.remove(nodeConstraint);
-						}
-					}
+		// The tree nodes the constraints were made for: values in i-Dimensions, levels in t-Dimensions.
+		Map<Object, IConstraint> constraintsByNode = new HashMap<Object, IConstraint>();
+		for (IConstraint c : constraints) {
+			if (c.getDimension().getType() == DimensionType.tDimension) {
+				constraintsByNode.put(c.getHierarchyLevel(), c);
+			} else {
+				for (IHierarchyLevelValue v : c.getValues()) {
+					constraintsByNode.put(v, c);
 				}
 			}
 		}
 
+		// Deselected nodes
+		for (Map.Entry<Object, IConstraint> entry : constraintsByNode.entrySet()) {
+			if (!selected.contains(entry.getKey())) {
+				constraints.remove(entry.getValue());
+			}
+		}
+
+		// Newly selected nodes
+		for (Object node : selected) {
+			if (constraintsByNode.containsKey(node)) {
+				continue;
+			}
+
+			IConstraint nodeConstraint = makeNodeConstraint(node, index);
+			if (nodeConstraint == null) {
+				// Not an element of the cube that can be selected.
+				continue;
+			}
+
+			// Verify that only one Constraint was added
+			if (constraintAdded) {
+				throw new IllegalArgumentException(
+					"Two nodes in the hierarchy tree "
+				      + "changed simultaneously.");
+			}
+
+			addConstraint(nodeConstraint, constraints, htv);
+			constraintAdded = true;
+			if (node instanceof IHierarchyLevelValue) {
+				controller.setLastSelectedValue((IHierarchyLevelValue) node);
+			}
+		}
+
 		controller.displayNewGraphs(htv);
 	}
 
+	// Makes the constraint for a selected node of the tree: a value of an i-Dimension, or a level
+	// of a t-Dimension. Returns null if the node is neither.
+	private IConstraint makeNodeConstraint(final Object node, final CubeIndex index) {
+		if (node instanceof IHierarchyLevelValue) {
+			IHierarchyLevelValue v = (IHierarchyLevelValue) node;
+			IHierarchyLevel l = v.getLevel();
+			IDimension d = index.getDimension(l);
+			if (d == null || d.getType() != DimensionType.iDimension) {
+				return null;
+			}
+
+			List<IHierarchyLevelValue> newValues = new ArrayList<IHierarchyLevelValue>(1);
+			newValues.add(v);
+			return controller.getModel().getDataFactory().makeConstraint(d, index.getHierarchy(l), l, newValues);
+		}
+		if (node instanceof IHierarchyLevel) {
+			IHierarchyLevel l = (IHierarchyLevel) node;
+			IDimension d = index.getDimension(l);
+			if (d == null || d.getType() != DimensionType.tDimension) {
+				return null;
+			}
+
+			return controller.getModel().getDataFactory().makeConstraint(d, index.getHierarchy(l), l,
+				new ArrayList<IHierarchyLevelValue>());
+		}
+		return null;
+	}
+
 	/* Adds the Constraint newConstraint to the Collection constraints, removing any
 	   conflicting Constraints already in the Collection. */
 	private void addConstraint(final IConstraint newConstraint, final Collection<IConstraint> constraints,
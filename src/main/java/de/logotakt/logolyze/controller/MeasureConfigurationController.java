@@ -51,6 +51,7 @@ public class MeasureConfigurationController implements IEventHandler {
 		if (controller.getSelectedCube() != null) {
 			mcv.setMeasures(controller.getSelectedCube().getMeasureTypes());
 			mcv.setSelectedMeasures(controller.getMeasures());
+			mcv.setEdgeFilter(controller.getEdgeFilter());
 		} else {
 			mcv.displayError("Cannot configure the axes unless there is a cube selected.");
 		}
@@ -62,7 +63,9 @@ public class MeasureConfigurationController implements IEventHandler {
 	private void handleMeasuresChanged(final EventArgs e) {
 		IMeasureConfigurationView mcv = (IMeasureConfigurationView) e.getDetails();
 		controller.setMeasures(mcv.getSelectedMeasures());
-		controller.displayNewGraphs(mcv);
+		controller.setEdgeFilter(mcv.getEdgeFilter());
+		// The display types of the measures may have changed, even if the graphs did not.
+		controller.redisplayGraphs(mcv);
 	}
 
 	/**
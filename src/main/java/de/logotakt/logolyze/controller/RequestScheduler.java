@@ -0,0 +1,71 @@
+package de.logotakt.logolyze.controller;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Coalesces the requests for new graphs caused by quick successive changes in the view, like clicking several
+ * checkboxes of the hierarchy tree in a row. The first change after a quiet period is answered right away. Changes
+ * following it are collected until nothing changed for a quiet period, and are then answered by a single request,
+ * which is built from the state at that time.
+ * <p>
+ * All methods are meant to be called on the event dispatch thread, which is also where the request is run.
+ */
+final class RequestScheduler {
+    private static final Logger logger = Logger.getLogger(RequestScheduler.class);
+
+    /* The quiet period in milliseconds. A request is only delayed if another one ran less than this ago. */
+    static final int QUIET_PERIOD = Integer.getInteger("logolyze.quietPeriod", 250);
+
+    private final Runnable request;
+    private final Timer timer;
+
+    /* When the last request finished, in milliseconds. */
+    private long lastRun = 0;
+
+    /**
+     * Creates a new scheduler.
+     * @param request Requests the graphs for the current state.
+     */
+    RequestScheduler(final Runnable request) {
+        this.request = request;
+        this.timer = new Timer(QUIET_PERIOD, new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                run();
+            }
+        });
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Tells the scheduler that the graphs shown are outdated. The request is either run right away or once the changes
+     * have settled down.
+     */
+    void schedule() {
+        if (!timer.isRunning() && System.currentTimeMillis() - lastRun >= QUIET_PERIOD) {
+            run();
+        } else {
+            logger.debug("Graph request deferred until the changes settle down");
+            timer.restart();
+        }
+    }
+
+    /**
+     * Drops a request that was deferred, e.g. because the state it would be built from is gone.
+     */
+    void cancel() {
+        timer.stop();
+    }
+
+    private void run() {
+        timer.stop();
+        request.run();
+        // Counting from the end, a slow request does not let the changes made meanwhile through one by one.
+        lastRun = System.currentTimeMillis();
+    }
+}
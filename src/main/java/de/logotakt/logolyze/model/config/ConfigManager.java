@@ -1,12 +1,23 @@
 package de.logotakt.logolyze.model.config;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
 
@@ -31,6 +42,11 @@ public class ConfigManager { // NO! NO! NO! do NOT turn this class final, all te
     private static final String LAST_CONNECTIONS_PATH = CONFIG_DIRECTORY + System.getProperty("file.separator")
             + "last_connections.xml";
 
+    // Whether view configurations are saved compressed with gzip. Large ones shrink a lot.
+    private static final boolean COMPRESS_VIEW_CONFIG = Boolean.getBoolean("logolyze.compressViewConfig");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ENCODING = "UTF-8";
+
     /**
      * Get the directory where all configuration is stored.
      * @return The configuration directory.
@@ -55,62 +71,142 @@ public class ConfigManager { // NO! NO! NO! do NOT turn this class final, all te
         return instance;
     }
 
-    private void writeWholeFile(final String pathname, final String content) throws IOException {
-        FileWriter writer = null;
+    /*
+     * Writes an object as XML to a file. The XML is streamed to a temporary file next to the target, which then
+     * replaces the target, so that a failure leaves the old file intact.
+     */
+    private void writeFile(final String pathname, final Object content, final boolean compressed) throws IOException {
+        File target = new File(pathname).getAbsoluteFile();
+        File dir = target.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Configuration directory could not be created");
+        }
 
+        File temp = File.createTempFile(target.getName(), ".tmp", dir);
+        Closeable stream = null;
+        boolean written = false;
         try {
-            File confDir = new File(CONFIG_DIRECTORY);
-            if (!confDir.exists() && !confDir.mkdirs()) {
-                throw new IOException("Configuration directory could not be created");
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE);
+            stream = out;
+            if (compressed) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+                stream = out;
             }
-
-            writer = new FileWriter(pathname, false);
-            writer.write(content, 0, content.length());
+            Writer writer = new OutputStreamWriter(out, ENCODING);
+            stream = writer;
+            xstream.toXML(content, writer);
+            stream = null;
+            writer.close();
+            written = true;
         } catch (IOException ex) {
-            // Make sure the data does not get lost.
-            logger.error("IOException while saving configuration data.", ex);
-            logger.info("Dumping configuration data:");
-            logger.info(content);
-
+            logger.error("IOException while saving configuration data to " + pathname, ex);
+            dump(content);
             throw ex;
         } finally {
-            try {
-                if (writer != null) {
-                    writer.close();
-                }
-            } catch (IOException ex) {
-                logger.error("Could not close file to write configuration to.", ex);
-                // Not being able to close the file is not as bad as crashing the whole program.
+            close(stream);
+            if (!written && !temp.delete()) {
+                logger.warn("Could not delete the temporary file " + temp);
+            }
+        }
+
+        try {
+            replace(temp, target, new File(dir, target.getName() + ".bak"));
+        } catch (IOException ex) {
+            logger.error("IOException while saving configuration data to " + pathname, ex);
+            if (!temp.exists()) {
+                dump(content);
+            }
+            throw ex;
+        }
+    }
+
+    /* Makes sure the data does not get lost. */
+    private void dump(final Object content) {
+        logger.info("Dumping configuration data:");
+        logger.info(xstream.toXML(content));
+    }
+
+    /**
+     * Replaces a file by another one. Renaming does not replace an existing file on every platform, so there the old
+     * file is moved to a backup first, which is put back if the new file cannot take its place. The new file is only
+     * deleted once the old one is back in place: if even the backup cannot be put back, both are kept where they are.
+     * @param source The file to move.
+     * @param target The file to replace.
+     * @param backup Where to keep the old file while it is replaced.
+     * @throws IOException If the target could not be replaced. The message tells where the files were left.
+     */
+    static void replace(final File source, final File target, final File backup) throws IOException {
+        if (source.renameTo(target)) {
+            return;
+        }
+        if (!target.exists()) {
+            throw new IOException("Could not move " + source + " to " + target);
+        }
+
+        if ((backup.exists() && !backup.delete()) || !target.renameTo(backup)) {
+            deleteTemporary(source);
+            throw new IOException("Could not replace " + target);
+        }
+
+        if (source.renameTo(target)) {
+            if (!backup.delete()) {
+                logger.warn("Could not delete the backup " + backup);
             }
+        } else if (backup.renameTo(target)) {
+            deleteTemporary(source);
+            throw new IOException("Could not replace " + target);
+        } else {
+            throw new IOException("Could not replace " + target + ". The old file was kept as " + backup
+                    + ", the new one as " + source);
         }
     }
 
-    private String readWholeFile(final String pathname) throws IOException {
-        FileReader reader = null;
+    private static void deleteTemporary(final File source) {
+        if (!source.delete()) {
+            logger.warn("Could not delete the temporary file " + source);
+        }
+    }
 
-        if (!new File(LAST_CONNECTIONS_PATH).exists()) {
-            return "";
+    /*
+     * Reads an object from a file written by writeFile, compressed or not. Returns null if the file does not exist or
+     * is empty.
+     */
+    private Object readFile(final String pathname) throws IOException {
+        File file = new File(pathname);
+        if (!file.exists() || file.length() == 0) {
+            return null;
         }
 
+        Closeable stream = null;
         try {
-            reader = new FileReader(pathname);
-            StringBuffer buffer = new StringBuffer();
-            int lastChar = reader.read();
+            InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+            stream = in;
 
-            while (lastChar != -1) {
-                buffer.append((char) lastChar);
-                lastChar = reader.read();
+            // Compressed files are recognized by the magic number of gzip at their start.
+            in.mark(2);
+            int magic = in.read() | (in.read() << 8);
+            in.reset();
+            if (magic == GZIPInputStream.GZIP_MAGIC) {
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+                stream = in;
             }
 
-            return buffer.toString();
+            Reader reader = new InputStreamReader(in, ENCODING);
+            stream = reader;
+            return xstream.fromXML(reader);
         } finally {
-            try {
-                if (reader != null) {
-                    reader.close();
-                }
-            } catch (IOException ex) {
-                logger.error("Could not close file where configuration was loaded from.", ex);
+            close(stream);
+        }
+    }
+
+    private static void close(final Closeable stream) {
+        try {
+            if (stream != null) {
+                stream.close();
             }
+        } catch (IOException ex) {
+            // Not being able to close the file is not as bad as crashing the whole program.
+            logger.error("Could not close configuration file.", ex);
         }
     }
 
@@ -120,9 +216,7 @@ public class ConfigManager { // NO! NO! NO! do NOT turn this class final, all te
      * @throws IOException if an IO error ocurred.
      */
     public void saveLastConnections(final Collection<ConnectionConfig> connections) throws IOException {
-        String xmlContent = xstream.toXML(connections);
-
-        writeWholeFile(LAST_CONNECTIONS_PATH, xmlContent);
+        writeFile(LAST_CONNECTIONS_PATH, connections, false);
     }
 
     /**
@@ -132,41 +226,41 @@ public class ConfigManager { // NO! NO! NO! do NOT turn this class final, all te
      */
     @SuppressWarnings("unchecked")
     public Collection<ConnectionConfig> loadLastConnections() throws IOException {
-        String xmlContent = readWholeFile(LAST_CONNECTIONS_PATH);
+        Object connections = readFile(LAST_CONNECTIONS_PATH);
 
-        if (xmlContent.equals("")) {
+        if (connections == null) {
             return new ArrayList<ConnectionConfig>();
         }
 
-        return (Collection<ConnectionConfig>) xstream.fromXML(xmlContent);
+        return (Collection<ConnectionConfig>) connections;
     }
 
     /**
-     * Saves the configuration of the view to the specified path. The View configuration may be any object.
+     * Saves the configuration of the view to the specified path. The View configuration may be any object. It is
+     * compressed if the system property logolyze.compressViewConfig is set to true.
      * @param path The path to save the view configuration to.
      * @param config The configuration to save.
      * @throws IOException if an IO error ocurred.
      */
     public void saveViewConfig(final String path, final Object config) throws IOException {
-        String xmlContent = xstream.toXML(config);
-
-        writeWholeFile(path, xmlContent);
+        writeFile(path, config, COMPRESS_VIEW_CONFIG);
     }
 
     /**
      * Loads the configuration of the view form the specified path. By means of reflection the returned object's actual
-     * type will be the same as the type of the Object passed to {@link saveViewConfig}.
+     * type will be the same as the type of the Object passed to {@link saveViewConfig}. Compressed and uncompressed
+     * files are both loaded.
      * @param path The path to load the view configuration from.
      * @return The configuration loaded from the given path.
      * @throws IOException if an IO error ocurred.
      */
     public Object loadViewConfig(final String path) throws IOException {
-        String xmlContent = readWholeFile(path);
+        Object config = readFile(path);
 
-        if (xmlContent.equals("")) {
+        if (config == null) {
             throw new FileNotFoundException("File to load view config from has not been found.");
         }
 
-        return xstream.fromXML(xmlContent);
+        return config;
     }
 }
@@ -0,0 +1,27 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * An EdgeAggregation specifies how the measures of parallel edges are combined when they are aggregated into one
+ * edge. See IAggregatedEdge documentation for details.
+ */
+public enum EdgeAggregation {
+	/**
+	 * The values are added up.
+	 */
+	sum,
+
+	/**
+	 * The arithmetic mean of the values is used.
+	 */
+	average,
+
+	/**
+	 * The smallest value is used.
+	 */
+	minimum,
+
+	/**
+	 * The largest value is used.
+	 */
+	maximum
+}
@@ -0,0 +1,102 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * An EdgeFilter restricts the edges loaded for every graph by the value of one numerical edge measure. Either only the
+ * edges with the largest values are loaded, or only those whose value reaches a threshold. The filtering is done by
+ * the database, so edges that are filtered out are never transferred.
+ */
+public final class EdgeFilter {
+    /**
+     * The ways an EdgeFilter can select edges.
+     */
+    public enum Mode {
+        /**
+         * Only the given number of edges with the largest values are loaded per graph.
+         */
+        topK,
+
+        /**
+         * Only the edges whose value is at least the given one are loaded.
+         */
+        threshold
+    }
+
+    private final IMeasureType measure;
+    private final Mode mode;
+    private final double value;
+
+    /**
+     * Creates a new EdgeFilter.
+     * @param measure The numerical edge measure to filter by.
+     * @param mode How to select edges by the values of the measure.
+     * @param value The number of edges to load for topK, the smallest value to load for threshold.
+     */
+    public EdgeFilter(final IMeasureType measure, final Mode mode, final double value) {
+        if (measure == null || mode == null) {
+            throw new IllegalArgumentException("An edge filter needs a measure and a mode");
+        }
+        if (measure.getAssoc() != MeasureAssociation.edgeMeasure
+                || measure.getMeasureClass() != MeasureClass.NumeralMeasure) {
+            throw new IllegalArgumentException("Edges can only be filtered by a numerical edge measure, not by "
+                    + measure.getKey());
+        }
+        if (mode == Mode.topK && value < 1) {
+            throw new IllegalArgumentException("At least one edge has to be loaded per graph");
+        }
+
+        this.measure = measure;
+        this.mode = mode;
+        this.value = value;
+    }
+
+    /**
+     * @return The measure the edges are filtered by.
+     */
+    public IMeasureType getMeasure() {
+        return measure;
+    }
+
+    /**
+     * @return How the edges are selected by the values of the measure.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return The number of edges to load for topK, the smallest value to load for threshold.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return The number of edges to load per graph for topK.
+     */
+    public int getCount() {
+        return (int) value;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof EdgeFilter)) {
+            return false;
+        }
+        EdgeFilter other = (EdgeFilter) o;
+        return measure.equals(other.measure) && mode == other.mode && value == other.value;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(value);
+        return (measure.hashCode() * 31 + mode.hashCode()) * 31 + (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        if (mode == Mode.topK) {
+            return "top " + getCount() + " edges by " + measure.getKey();
+        }
+        return "edges with " + measure.getKey() + " >= " + value;
+    }
+}
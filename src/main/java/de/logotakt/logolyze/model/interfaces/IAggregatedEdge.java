@@ -0,0 +1,42 @@
+package de.logotakt.logolyze.model.interfaces;
+
+import java.util.Collection;
+
+/**
+ * An edge that stands for all edges from one node to another, i.e. for a set of parallel edges. Its measures (as
+ * returned by getMeasures()) are the aggregates of the parallel edges' measures, as selected by getAggregation().
+ * Numerical measures are also available with the other aggregations; non-numerical measures are represented by their
+ * smallest value.
+ */
+public interface IAggregatedEdge extends IEdge {
+
+    /**
+     * Returns the aggregation used for the measures returned by getMeasures().
+     *
+     * @return The aggregation of this edge's measures
+     */
+    EdgeAggregation getAggregation();
+
+    /**
+     * Returns the number of parallel edges this edge stands for.
+     *
+     * @return The number of aggregated edges
+     */
+    int getCount();
+
+    /**
+     * Returns an aggregate of a numerical measure of the parallel edges.
+     *
+     * @param key The name of the measure's type
+     * @param aggregation The aggregate to return
+     * @return The aggregated value, or null if there is no numerical measure of that name
+     */
+    Double getAggregate(String key, EdgeAggregation aggregation);
+
+    /**
+     * Returns the parallel edges this edge stands for, so that they can be shown separately again.
+     *
+     * @return The aggregated edges
+     */
+    Collection<IEdge> getAggregatedEdges();
+}
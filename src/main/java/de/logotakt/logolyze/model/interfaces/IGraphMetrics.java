@@ -0,0 +1,31 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * The share of a single graph in the metrics of a request.
+ */
+public interface IGraphMetrics {
+	/**
+	 * @return The ID of the graph in the database.
+	 */
+	String getGraphId();
+
+	/**
+	 * @return How long loading the nodes and edges of the graph took, in nanoseconds.
+	 */
+	long getNanos();
+
+	/**
+	 * @return The number of node rows fetched for the graph.
+	 */
+	long getNodeRows();
+
+	/**
+	 * @return The number of edge rows fetched for the graph.
+	 */
+	long getEdgeRows();
+
+	/**
+	 * @return The sample rate the edges of the graph were loaded with, 1 if all of them were loaded.
+	 */
+	int getEdgeSampleRate();
+}
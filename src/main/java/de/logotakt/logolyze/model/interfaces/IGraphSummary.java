@@ -0,0 +1,39 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * A summary of one graph: how large it is and how much of a measure its edges carry, without any of its nodes or
+ * edges. Summaries of all graphs of a request are computed by the database in a single query, which makes them cheap
+ * enough to give an overview of grids with thousands of graphs.
+ */
+public interface IGraphSummary {
+    /**
+     * @return The request the summarized graph would be the result of. Like the request of a graph, it has one
+     *         constraint per hierarchy, naming the value of the graph.
+     */
+    IRequest getResultOf();
+
+    /**
+     * @return The number of nodes of the graph.
+     */
+    long getNodeCount();
+
+    /**
+     * @return The number of edges of the graph.
+     */
+    long getEdgeCount();
+
+    /**
+     * @return The measure summed up over the edges, or null if only the sizes were summarized.
+     */
+    IMeasureType getMeasure();
+
+    /**
+     * @return The sum of the measure over all edges having a value of it, 0 if there is no measure.
+     */
+    double getMeasureSum();
+
+    /**
+     * @return The average of the measure over all edges having a value of it, NaN if there is no such edge.
+     */
+    double getMeasureAverage();
+}
@@ -0,0 +1,43 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * A load plan tells how large the graphs of a request are estimated to be, before any of them is loaded, and how they
+ * are going to be loaded because of that.
+ */
+public interface ILoadPlan {
+	/**
+	 * @return How the graphs are loaded.
+	 */
+	LoadStrategy getStrategy();
+
+	/**
+	 * @return The number of graphs the request matches.
+	 */
+	int getGraphCount();
+
+	/**
+	 * @return The estimated number of nodes of all graphs together.
+	 */
+	long getNodeCount();
+
+	/**
+	 * @return The estimated number of edges of all graphs together.
+	 */
+	long getEdgeCount();
+
+	/**
+	 * @return The estimated number of edges of the largest graph.
+	 */
+	long getLargestGraphEdges();
+
+	/**
+	 * @return The number of edges a preview of a graph has, or 0 if the graphs are loaded
+	 *         completely at once.
+	 */
+	int getPreviewEdges();
+
+	/**
+	 * @return The budget the strategy was chosen by.
+	 */
+	LoadBudget getBudget();
+}
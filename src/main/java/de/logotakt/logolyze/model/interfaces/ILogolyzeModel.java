@@ -1,6 +1,7 @@
 package de.logotakt.logolyze.model.interfaces;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The main interface to the model of Logolyze. The whole model is hidden behind this interface, the controller
@@ -22,7 +23,8 @@ public interface ILogolyzeModel {
             DbMalformedException;
 
     /**
-     * Handles a request for a set of graphs.
+     * Handles a request for a set of graphs. The complete graphs of recent and prefetched requests are kept, so asking
+     * for them again does not touch the database.
      *
      * @param request An object specifying the request
      * @return A collection of <code>OLAPGraph</code>-objects which satisfy the request.
@@ -36,6 +38,81 @@ public interface ILogolyzeModel {
             throws BogusDbConnectionException, DbMalformedException,
             RequestValidationFailedException;
 
+    /**
+     * Handles a request for a set of graphs like {@link #handleRequest(IRequest)}, unless it is cancelled meanwhile.
+     * This is meant for requests handled in the background, whose graphs may not be needed anymore once they are
+     * loaded. Setting the flag takes effect between two graphs; {@link #cancelRequest(AtomicBoolean)} also cancels the
+     * database statement running. The thread handling the request is never interrupted.
+     *
+     * @param request An object specifying the request
+     * @param cancelled Set to cancel handling the request.
+     * @return A collection of <code>OLAPGraph</code>-objects which satisfy the request, or null if handling the request
+     *         was cancelled.
+     * @throws DbMalformedException In case the database structure does not comply with our
+     *         expectations.
+     * @throws BogusDbConnectionException In case the database connection behaves oddly.
+     * @throws RequestValidationFailedException This exception is thrown if any of the validators could not validate the
+     *         request
+     */
+    IResponse handleRequest(IRequest request, AtomicBoolean cancelled)
+            throws BogusDbConnectionException, DbMalformedException,
+            RequestValidationFailedException;
+
+    /**
+     * Cancels a request handled by {@link #handleRequest(IRequest, AtomicBoolean)}. The flag is set and the database
+     * statement the request is executing, if any, is cancelled, so the request stops right away and does not hold up
+     * the next one. This may be called from any thread, and also when no request is handled with the flag.
+     *
+     * @param cancelled The flag the request is handled with.
+     */
+    void cancelRequest(AtomicBoolean cancelled);
+
+    /**
+     * Estimates how large the graphs of a request are and decides how to load them, without loading any of them. The
+     * plan is remembered by the request: a later call of handleRequest with it loads the graphs as planned, i.e.
+     * previews first if the graphs are large.
+     *
+     * @param request An object specifying the request
+     * @return The plan for loading the graphs of the request.
+     * @throws BogusDbConnectionException In case the database connection behaves oddly.
+     * @throws RequestValidationFailedException This exception is thrown if any of the validators could not validate the
+     *         request
+     */
+    ILoadPlan planRequest(IRequest request)
+            throws BogusDbConnectionException, RequestValidationFailedException;
+
+    /**
+     * Summarizes the graphs of a request without loading any of them: for every graph, its number of nodes and edges
+     * and optionally the sum and average of a measure over its edges. This gives an overview of requests with far too
+     * many graphs to show them all.
+     *
+     * @param request An object specifying the request
+     * @param measure A numerical edge measure to sum up, or null to count nodes and edges only.
+     * @return The summaries of all graphs satisfying the request.
+     * @throws BogusDbConnectionException In case the database connection behaves oddly.
+     * @throws RequestValidationFailedException This exception is thrown if any of the validators could not validate the
+     *         request
+     */
+    Collection<IGraphSummary> summarizeRequest(IRequest request, IMeasureType measure)
+            throws BogusDbConnectionException, RequestValidationFailedException;
+
+    /**
+     * Loads the graphs of requests that are likely to be made next in the background, so that they can be answered
+     * without touching the database. The requests are given most likely first; only a few of them are prefetched, and
+     * only if their graphs fit completely into the load budget. Prefetching is cancelled by the next call to this
+     * method and by every real request.
+     *
+     * @param requests The requests to prefetch.
+     */
+    void prefetchRequests(Collection<? extends IRequest> requests);
+
+    /**
+     * Sets the budget by which requests are planned. Without one, the budget is read from the system properties.
+     *
+     * @param budget The budget for planning requests.
+     */
+    void setLoadBudget(LoadBudget budget);
+
     /**
      * Returns the <code>DbStructure</code>-object that represents the structure of the currently connected database.
      *
@@ -15,4 +15,14 @@ public interface IOLAPGraph extends Graph<INode, IEdge> {
 	IRequest getResultOf();
 	
 	void setResultOf(IRequest req);
+
+	/**
+	 * Returns a copy of this graph in which all edges from one node to another are replaced by a single
+	 * <code>IAggregatedEdge</code>. The nodes are the same as in this graph; the measures of the new edges form new
+	 * measure sets, so their minimum and maximum values refer to the aggregated values.
+	 *
+	 * @param aggregation The aggregate to use as the measures of the new edges.
+	 * @return The aggregated copy of this graph.
+	 */
+	IOLAPGraph aggregateParallelEdges(EdgeAggregation aggregation);
 }
@@ -44,4 +44,68 @@ public interface IRequest extends Iterable<IConstraint> {
 	 *           the measure to be removed.
 	 */
 	void removeMeasureType(IMeasureType mt);
+
+	/**
+	 * Asks for only those nodes to be loaded that are connected to at least one edge
+	 * of their graph. Isolated nodes are then left out by the database already.
+	 *
+	 * @param onlyConnected <code>true</code> to leave out isolated nodes,
+	 *           <code>false</code> to load all nodes (the default).
+	 */
+	void setOnlyConnectedNodes(boolean onlyConnected);
+
+	/**
+	 * @return Whether isolated nodes are left out when loading the graphs.
+	 */
+	boolean isOnlyConnectedNodes();
+
+	/**
+	 * Restricts the edges to load for every graph by the value of one of their measures.
+	 * The filter is applied by the database.
+	 *
+	 * @param filter The filter to apply, or <code>null</code> to load all edges (the default).
+	 */
+	void setEdgeFilter(EdgeFilter filter);
+
+	/**
+	 * @return The filter applied to the edges of every graph, or <code>null</code> if all
+	 *         edges are loaded.
+	 */
+	EdgeFilter getEdgeFilter();
+
+	/**
+	 * Asks for a quick preview of the graphs instead of the complete ones. All nodes are
+	 * loaded, but of graphs with more edges than the given number only a deterministic
+	 * sample of about that many edges is. The sample rate used for each graph is returned
+	 * by <code>getEdgeSampleRate()</code> of the request the graph is the result of.
+	 *
+	 * @param edges The number of edges to load per graph at most, roughly, or 0 to
+	 *           load all edges (the default).
+	 */
+	void setPreviewEdges(int edges);
+
+	/**
+	 * @return The number of edges a preview should have per graph, or 0 if the
+	 *         complete graphs are requested.
+	 */
+	int getPreviewEdges();
+
+	/**
+	 * Returns which part of the edges of a graph was loaded. For the request a graph is
+	 * the result of, a rate of k means that every k-th edge was loaded, so the graph is
+	 * only a preview if k is larger than 1.
+	 *
+	 * @return The edge sample rate, 1 if all edges were loaded.
+	 */
+	int getEdgeSampleRate();
+
+	/**
+	 * Checks whether another request asks for the same graphs as this one: the same
+	 * constraints, in any order, the same measures and the same filters. How the graphs
+	 * are loaded, e.g. as previews, does not matter.
+	 *
+	 * @param other The request to compare this one with.
+	 * @return true if both requests result in the same graphs.
+	 */
+	boolean selectsSameGraphs(IRequest other);
 }
@@ -0,0 +1,46 @@
+package de.logotakt.logolyze.model.interfaces;
+
+import java.util.List;
+
+/**
+ * A breakdown of the work done to answer a request, to find out why a request is slow. All times are in nanoseconds.
+ * The phases do not overlap, but they need not add up to the total time: whatever is not part of a phase, like
+ * looking up the result cache, only counts towards the total.
+ */
+public interface IRequestMetrics {
+	/**
+	 * @return How long answering the request took.
+	 */
+	long getTotalNanos();
+
+	/**
+	 * @param phase A phase of answering requests.
+	 * @return How long the phase took for this request, summed up over all graphs.
+	 */
+	long getPhaseNanos(RequestPhase phase);
+
+	/**
+	 * @return The number of SQL statements executed.
+	 */
+	int getStatementCount();
+
+	/**
+	 * @return The number of rows fetched from the database.
+	 */
+	long getRowCount();
+
+	/**
+	 * @return About how many bytes of data the rows fetched held.
+	 */
+	long getBytesEstimate();
+
+	/**
+	 * @return true if the graphs were taken from the result cache, without touching the database.
+	 */
+	boolean isCacheHit();
+
+	/**
+	 * @return The metrics of the graphs loaded, in the order they were loaded.
+	 */
+	List<IGraphMetrics> getGraphMetrics();
+}
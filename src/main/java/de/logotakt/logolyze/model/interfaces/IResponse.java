@@ -5,4 +5,9 @@ import java.util.Collection;
 public interface IResponse {
 	Collection<IOLAPGraph> getGraphs();
 	long getRequestDuration();
+
+	/**
+	 * @return Where the time answering the request went.
+	 */
+	IRequestMetrics getMetrics();
 }
@@ -0,0 +1,70 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * A LoadBudget holds the limits by which the load strategy of a request is chosen. The defaults can be changed with
+ * the system properties logolyze.fullEdges, logolyze.previewEdges and logolyze.maxEdges.
+ */
+public final class LoadBudget {
+    /**
+     * The default number of edges that are loaded at once without a preview.
+     */
+    public static final long DEFAULT_FULL_EDGES = 200000;
+    /**
+     * The default number of edges of a graph in a preview.
+     */
+    public static final int DEFAULT_PREVIEW_EDGES = 20000;
+    /**
+     * The default number of edges that are loaded for one request at most.
+     */
+    public static final long DEFAULT_MAX_EDGES = 2000000;
+
+    private final long fullEdges;
+    private final int previewEdges;
+    private final long maxEdges;
+
+    /**
+     * Creates a new LoadBudget.
+     * @param fullEdges Up to this many edges of all graphs together are loaded at once, without a preview.
+     * @param previewEdges A preview of a graph has about this many edges.
+     * @param maxEdges More edges than this are never loaded for one request, only previews of them.
+     */
+    public LoadBudget(final long fullEdges, final int previewEdges, final long maxEdges) {
+        if (fullEdges < 0 || previewEdges < 1 || maxEdges < fullEdges) {
+            throw new IllegalArgumentException("Inconsistent load budget: " + fullEdges + ", " + previewEdges + ", "
+                    + maxEdges);
+        }
+        this.fullEdges = fullEdges;
+        this.previewEdges = previewEdges;
+        this.maxEdges = maxEdges;
+    }
+
+    /**
+     * Creates the LoadBudget given by the system properties, or the default one where they are not set.
+     * @return The configured LoadBudget.
+     */
+    public static LoadBudget fromSystemProperties() {
+        return new LoadBudget(Long.getLong("logolyze.fullEdges", DEFAULT_FULL_EDGES), Integer.getInteger(
+                "logolyze.previewEdges", DEFAULT_PREVIEW_EDGES), Long.getLong("logolyze.maxEdges", DEFAULT_MAX_EDGES));
+    }
+
+    /**
+     * @return Up to this many edges of all graphs together are loaded at once.
+     */
+    public long getFullEdges() {
+        return fullEdges;
+    }
+
+    /**
+     * @return The number of edges of a graph in a preview.
+     */
+    public int getPreviewEdges() {
+        return previewEdges;
+    }
+
+    /**
+     * @return The number of edges that are loaded for one request at most.
+     */
+    public long getMaxEdges() {
+        return maxEdges;
+    }
+}
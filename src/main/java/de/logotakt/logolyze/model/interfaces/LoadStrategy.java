@@ -0,0 +1,24 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * A LoadStrategy specifies how the graphs of a request are loaded, depending on how large they are estimated to be.
+ * See ILoadPlan documentation for details.
+ */
+public enum LoadStrategy {
+	/**
+	 * The graphs are small enough to be loaded completely at once.
+	 */
+	full,
+
+	/**
+	 * Samples of the edges are loaded first, so that previews can be shown quickly. The complete graphs are loaded
+	 * afterwards.
+	 */
+	preview,
+
+	/**
+	 * The graphs are too large to be loaded completely. Only samples of their edges are loaded, and the request should
+	 * be narrowed down or its edges filtered to see all of them.
+	 */
+	previewOnly
+}
@@ -0,0 +1,36 @@
+package de.logotakt.logolyze.model.interfaces;
+
+/**
+ * A RequestPhase is one of the steps of answering a request with graphs loaded from the database. See IRequestMetrics.
+ */
+public enum RequestPhase {
+	/**
+	 * The validators check the request.
+	 */
+	validation,
+
+	/**
+	 * The SQL statements are generated and prepared.
+	 */
+	sqlGeneration,
+
+	/**
+	 * The graphs matching the request are queried, and their constraints are read.
+	 */
+	graphQuery,
+
+	/**
+	 * The nodes of the graphs are fetched.
+	 */
+	nodeFetch,
+
+	/**
+	 * The edges of the graphs are fetched.
+	 */
+	edgeFetch,
+
+	/**
+	 * The measures of the nodes and edges are read from the rows fetched.
+	 */
+	measureDecoding
+}
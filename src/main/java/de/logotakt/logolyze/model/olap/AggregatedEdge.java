@@ -0,0 +1,78 @@
+package de.logotakt.logolyze.model.olap;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+import de.logotakt.logolyze.model.interfaces.IAggregatedEdge;
+import de.logotakt.logolyze.model.interfaces.IEdge;
+
+/**
+ * This class represents an edge that stands for a set of parallel edges. See IAggregatedEdge documentation for
+ * details.
+ */
+public class AggregatedEdge extends Edge implements IAggregatedEdge {
+
+	private final EdgeAggregation aggregation;
+	private final List<IEdge> edges;
+
+	/* For every numerical measure, its aggregates, indexed by the ordinal of the EdgeAggregation. */
+	private final Map<String, double[]> aggregates;
+
+	/**
+	 * Creates an aggregated edge without measures.
+	 *
+	 * @param aggregation The aggregation that the measures of this edge will represent
+	 * @param edges The parallel edges
+	 */
+	AggregatedEdge(final EdgeAggregation aggregation, final List<IEdge> edges) {
+		this.aggregation = aggregation;
+		this.edges = edges;
+		this.aggregates = new HashMap<String, double[]>();
+	}
+
+	/**
+	 * Adds a numerical measure, given all its aggregates. The measure itself, as returned by getMeasures(), is
+	 * created in the set passed, using this edge's aggregation.
+	 *
+	 * @param set The set the measure should belong to
+	 * @param sum The sum of the values
+	 * @param min The smallest value
+	 * @param max The largest value
+	 */
+	void addAggregates(final MeasureSet set, final double sum, final double min, final double max) {
+		double[] values = new double[EdgeAggregation.values().length];
+		values[EdgeAggregation.sum.ordinal()] = sum;
+		values[EdgeAggregation.average.ordinal()] = sum / this.edges.size();
+		values[EdgeAggregation.minimum.ordinal()] = min;
+		values[EdgeAggregation.maximum.ordinal()] = max;
+
+		this.aggregates.put(set.getType().getKey(), values);
+		this.addMeasure(new DoubleMeasure(set, values[this.aggregation.ordinal()]));
+	}
+
+	@Override
+	public EdgeAggregation getAggregation() {
+		return this.aggregation;
+	}
+
+	@Override
+	public int getCount() {
+		return this.edges.size();
+	}
+
+	@Override
+	public Double getAggregate(final String key, final EdgeAggregation agg) {
+		double[] values = this.aggregates.get(key);
+		return values == null ? null : values[agg.ordinal()];
+	}
+
+	@Override
+	public Collection<IEdge> getAggregatedEdges() {
+		return Collections.unmodifiableList(this.edges);
+	}
+
+}
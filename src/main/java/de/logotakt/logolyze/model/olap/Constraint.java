@@ -1,6 +1,7 @@
 package de.logotakt.logolyze.model.olap;
 
 import java.util.Collection;
+import java.util.HashSet;
 
 import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.IDimension;
@@ -54,4 +55,24 @@ public class Constraint implements IConstraint {
         return this.values;
     }
 
+    /**
+     * Two constraints are equal if they constrain the same HierarchyLevel to the same values, in any order.
+     * @param o The object to compare with.
+     * @return true if o is an equal constraint.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof Constraint)) {
+            return false;
+        }
+        Constraint other = (Constraint) o;
+        return this.dimension == other.dimension && this.hierarchy == other.hierarchy && this.level == other.level
+                && new HashSet<IHierarchyLevelValue>(this.values).equals(
+                        new HashSet<IHierarchyLevelValue>(other.values));
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this.level) * 31 + new HashSet<IHierarchyLevelValue>(this.values).hashCode();
+    }
 }
@@ -13,13 +13,20 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
 
 import de.logotakt.logolyze.model.interfaces.BogusDbConnectionException;
 import de.logotakt.logolyze.model.interfaces.DbMalformedException;
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.LoadBudget;
 import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
+import de.logotakt.logolyze.model.interfaces.RequestPhase;
 import de.logotakt.logolyze.model.interfaces.RequestValidationFailedException;
 
 /**
@@ -27,8 +34,17 @@ import de.logotakt.logolyze.model.interfaces.RequestValidationFailedException;
  * the graphs for this request.
  */
 public class DataAbstraction {
+    private static final Logger logger = Logger.getLogger(DataAbstraction.class);
 
     private final Connection c;
+    /*
+     * The statement a cancellable load is executing right now, and the token cancelling that load. Both are only
+     * accessed while holding runningLock, never the lock of the connection, so a load can be cancelled while it holds
+     * the latter.
+     */
+    private final Object runningLock = new Object();
+    private Statement running = null;
+    private AtomicBoolean runningToken = null;
 
     /**
      * Creates a new DataAbstraction for a given connection.
@@ -48,6 +64,9 @@ public class DataAbstraction {
         String levelValue;
 
         ret = new Request(orig.getCube(), orig.getValidators());
+        ret.setOnlyConnectedNodes(orig.isOnlyConnectedNodes());
+        ret.setEdgeFilter(orig.getEdgeFilter());
+        ret.setPreviewEdges(orig.getPreviewEdges());
 
         hs = new HashSet<Hierarchy>();
         hierarchiesToHandle = new HashSet<Hierarchy>();
@@ -112,23 +131,109 @@ public class DataAbstraction {
         return ret;
     }
 
+    /**
+     * Estimates how large the graphs matching a request are, without loading any of them, and chooses how to load
+     * them. The edges and nodes are counted by the database; edge filters keeping the top K edges are taken into
+     * account, other filters are not, so the estimate is an upper bound.
+     * @param r The request to plan.
+     * @param budget The budget to choose the strategy by.
+     * @return The plan for the request.
+     * @throws BogusDbConnectionException A problem with the database connection has occured.
+     * @throws RequestValidationFailedException The request is invalid.
+     */
+    public LoadPlan planGraphs(final Request r, final LoadBudget budget) throws BogusDbConnectionException,
+            RequestValidationFailedException {
+        Map<String, Long> edgesByGraph = new HashMap<String, Long>();
+        long nodeCount = 0;
+
+        r.validate();
+
+        EdgeFilter filter = r.getEdgeFilter();
+        PreparedStatement planStmt = RequestTranslator.renderToPlanSQL(c, r);
+
+        try {
+            ResultSet planRS = planStmt.executeQuery();
+
+            while (planRS.next()) {
+                long edges = planRS.getLong(RequestTranslator.EDGE_COUNT_ALIAS);
+                if (filter != null && filter.getMode() == EdgeFilter.Mode.topK) {
+                    edges = Math.min(edges, filter.getCount());
+                }
+                edgesByGraph.put(planRS.getString(DbStructureStrings.GRAPH_ID), edges);
+                nodeCount += planRS.getLong(RequestTranslator.NODE_COUNT_ALIAS);
+            }
+            planStmt.close();
+        } catch (SQLException exception) {
+            throw new BogusDbConnectionException("Something went wrong estimating the graph sizes: "
+                    + exception.toString(), exception);
+        }
+
+        return new LoadPlan(budget, edgesByGraph, nodeCount);
+    }
+
+    /**
+     * Summarizes the graphs matching a request, without loading any of them. All summaries are computed by a single
+     * query.
+     * @param r The request to summarize the graphs of.
+     * @param measure The numerical edge measure to sum up, or null to count nodes and edges only.
+     * @return The summaries of the graphs.
+     * @throws BogusDbConnectionException A problem with the database connection has occured.
+     * @throws RequestValidationFailedException The request is invalid.
+     */
+    public Collection<IGraphSummary> summarizeGraphs(final Request r, final MeasureType measure)
+            throws BogusDbConnectionException, RequestValidationFailedException {
+        List<IGraphSummary> ret = new LinkedList<IGraphSummary>();
+
+        r.validate();
+
+        PreparedStatement summaryStmt = RequestTranslator.renderToSummarySQL(c, r, measure);
+
+        try {
+            ResultSet summaryRS = summaryStmt.executeQuery();
+
+            while (summaryRS.next()) {
+                double sum = 0;
+                long count = 0;
+                if (measure != null) {
+                    sum = summaryRS.getDouble(RequestTranslator.MEASURE_SUM_ALIAS);
+                    count = summaryRS.getLong(RequestTranslator.MEASURE_COUNT_ALIAS);
+                }
+                ret.add(new GraphSummary(this.getGraphRequest(summaryRS, r),
+                        summaryRS.getLong(RequestTranslator.NODE_COUNT_ALIAS),
+                        summaryRS.getLong(RequestTranslator.EDGE_COUNT_ALIAS), measure, sum, count));
+            }
+            summaryStmt.close();
+        } catch (SQLException exception) {
+            throw new BogusDbConnectionException("Something went wrong summarizing the graphs: "
+                    + exception.toString(), exception);
+        }
+
+        return ret;
+    }
+
     private Map<Integer, Node> addNodes(final Request r, final Connection c, final OLAPGraph g,
-            final PreparedStatement nodeStmt, final Map<String, MeasureSet> nodeSetMap) throws SQLException,
-            DbMalformedException {
+            final PreparedStatement nodeStmt, final Map<String, MeasureSet> nodeSetMap, final RequestMetrics metrics,
+            final GraphMetrics graphMetrics) throws SQLException, DbMalformedException {
         HashMap<Integer, Node> nodeIDMap;
         Iterator<MeasureType> it;
         MeasureType mt;
         Measure m;
+        long startTime = System.nanoTime();
+        long decodingTime = 0;
 
         nodeIDMap = new HashMap<Integer, Node>();
 
         nodeStmt.execute();
+        metrics.addStatement();
         ResultSet nodeRS = nodeStmt.getResultSet();
 
         while (nodeRS.next()) {
 
-            Node n = new Node(nodeRS.getString(DbStructureStrings.NODE_LABEL_ATTR));
+            String label = nodeRS.getString(DbStructureStrings.NODE_LABEL_ATTR);
+            Node n = new Node(label);
             nodeIDMap.put(nodeRS.getInt(DbStructureStrings.NODE_ID), n);
+            long rowBytes = RequestMetrics.INT_BYTES + RequestMetrics.bytesOf(label);
+            long decodingStart = System.nanoTime();
 
             it = r.getMeasures().iterator();
 
@@ -148,9 +253,12 @@ public class DataAbstraction {
                 switch (mt.getMeasureClass()) {
                 case NumeralMeasure:
                     m = new DoubleMeasure(ms, nodeRS.getDouble(mt.getKey()));
+                    rowBytes += RequestMetrics.DOUBLE_BYTES;
                     break;
                 case OtherMeasure:
-			m = new StringMeasure(ms, nodeRS.getString(mt.getKey()));
+			String value = nodeRS.getString(mt.getKey());
+			m = new StringMeasure(ms, value);
+			rowBytes += RequestMetrics.bytesOf(value);
                     break;
                 default:
                     throw new IllegalArgumentException("There is a strange type of measure in the request");
@@ -158,26 +266,34 @@ public class DataAbstraction {
 
                 n.addMeasure(m);
             }
+            decodingTime += System.nanoTime() - decodingStart;
 
             g.addVertex(n);
+            metrics.addRow(rowBytes);
+            graphMetrics.addNodeRow();
         }
 
         nodeRS.close();
         nodeStmt.close();
 
+        metrics.addPhase(RequestPhase.measureDecoding, decodingTime);
+        metrics.addPhase(RequestPhase.nodeFetch, System.nanoTime() - startTime - decodingTime);
         return nodeIDMap;
     }
 
     private void addEdges(final Request r, final Connection c, final OLAPGraph g, final PreparedStatement stmt,
-            final Map<Integer, Node> nodeIDMap, final Map<String, MeasureSet> edgeSetMap) throws SQLException,
-            DbMalformedException {
+            final Map<Integer, Node> nodeIDMap, final Map<String, MeasureSet> edgeSetMap,
+            final RequestMetrics metrics, final GraphMetrics graphMetrics) throws SQLException, DbMalformedException {
         ResultSet edgeRS;
         Edge e;
         Iterator<MeasureType> it;
         MeasureType mt;
         Measure m;
+        long startTime = System.nanoTime();
+        long decodingTime = 0;
 
         edgeRS = stmt.executeQuery();
+        metrics.addStatement();
 
         while (edgeRS.next()) {
             Node n1, n2;
@@ -195,6 +311,8 @@ public class DataAbstraction {
                         + edgeRS.getInt(DbStructureStrings.EDGE_N2_FK) + "!");
             }
 
+            long rowBytes = 2 * RequestMetrics.INT_BYTES;
+            long decodingStart = System.nanoTime();
             it = r.getMeasures().iterator();
 
             while (it.hasNext()) {
@@ -213,9 +331,12 @@ public class DataAbstraction {
                 switch (mt.getMeasureClass()) {
                 case NumeralMeasure:
                     m = new DoubleMeasure(ms, edgeRS.getDouble(mt.getColumn()));
+                    rowBytes += RequestMetrics.DOUBLE_BYTES;
                     break;
                 case OtherMeasure:
-                    m = new StringMeasure(ms, edgeRS.getString(mt.getColumn()));
+                    String value = edgeRS.getString(mt.getColumn());
+                    m = new StringMeasure(ms, value);
+                    rowBytes += RequestMetrics.bytesOf(value);
                     break;
                 default:
                     throw new IllegalArgumentException("There is a strange type of measure in the request");
@@ -223,12 +344,18 @@ public class DataAbstraction {
 
                 e.addMeasure(m);
             }
+            decodingTime += System.nanoTime() - decodingStart;
 
             g.addEdge(e, n1, n2);
+            metrics.addRow(rowBytes);
+            graphMetrics.addEdgeRow();
         }
 
         edgeRS.close();
         stmt.close();
+
+        metrics.addPhase(RequestPhase.measureDecoding, decodingTime);
+        metrics.addPhase(RequestPhase.edgeFetch, System.nanoTime() - startTime - decodingTime);
     }
 
     /**
@@ -242,6 +369,68 @@ public class DataAbstraction {
      */
     public Collection<IOLAPGraph> loadGraphs(final Request r) throws BogusDbConnectionException, DbMalformedException,
             RequestValidationFailedException {
+        return loadGraphs(r, new AtomicBoolean(), new RequestMetrics());
+    }
+
+    /**
+     * Cancels loading graphs with {@link #loadGraphs(Request, AtomicBoolean)}. The statement the load is executing is
+     * cancelled as well, so that the load stops right away instead of before the next graph, if the database driver
+     * supports it. This may be called from any thread.
+     * @param cancelled The token the graphs are loaded with.
+     */
+    void cancel(final AtomicBoolean cancelled) {
+        cancelled.set(true);
+        synchronized (runningLock) {
+            if (running == null || runningToken != cancelled) {
+                return;
+            }
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                // The load stops before its next graph anyway.
+                logger.debug("Could not cancel the running statement", e);
+            }
+        }
+    }
+
+    /* Marks a statement as executed for a load, so that cancelling the load cancels it. */
+    private void setRunning(final Statement stmt, final AtomicBoolean cancelled) {
+        synchronized (runningLock) {
+            running = stmt;
+            runningToken = stmt == null ? null : cancelled;
+        }
+    }
+
+    /**
+     * Loads and returns the graphs asked for in the request passed, unless loading them is cancelled. Cancelling takes
+     * effect before the next graph is loaded, or right away if the database driver can cancel statements.
+     * @param r The request specifying which graphs to load
+     * @param cancelled Set to cancel loading the graphs.
+     * @return The graphs you asked for, or null if loading them was cancelled
+     * @throws BogusDbConnectionException If anything with the db connections goes wrong
+     * @throws DbMalformedException If the structure of data in the database is malformed
+     * @throws RequestValidationFailedException This exception will be thrown with an error message if the request could
+     *         not be validated by all validators
+     */
+    Collection<IOLAPGraph> loadGraphs(final Request r, final AtomicBoolean cancelled)
+            throws BogusDbConnectionException, DbMalformedException, RequestValidationFailedException {
+        return loadGraphs(r, cancelled, new RequestMetrics());
+    }
+
+    /**
+     * Loads and returns the graphs asked for in the request passed, unless loading them is cancelled, and records
+     * where the time went.
+     * @param r The request specifying which graphs to load
+     * @param cancelled Set to cancel loading the graphs.
+     * @param metrics Collects the timings, row counts and statement counts of loading the graphs.
+     * @return The graphs you asked for, or null if loading them was cancelled
+     * @throws BogusDbConnectionException If anything with the db connections goes wrong
+     * @throws DbMalformedException If the structure of data in the database is malformed
+     * @throws RequestValidationFailedException This exception will be thrown with an error message if the request could
+     *         not be validated by all validators
+     */
+    Collection<IOLAPGraph> loadGraphs(final Request r, final AtomicBoolean cancelled, final RequestMetrics metrics)
+            throws BogusDbConnectionException, DbMalformedException, RequestValidationFailedException {
         OLAPGraph g;
         HashMap<String, MeasureSet> nodeSetMap, edgeSetMap;
         Map<Integer, Node> nodeIDMap;
@@ -251,24 +440,58 @@ public class DataAbstraction {
         List<IOLAPGraph> ret = new LinkedList<IOLAPGraph>();
 
         // Before doing anything else, validate the request
+        long phaseStart = System.nanoTime();
         r.validate();
+        metrics.addPhase(RequestPhase.validation, System.nanoTime() - phaseStart);
 
+        // Previews need the sizes of the graphs. Usually they were planned already.
+        LoadPlan plan = r.getLoadPlan();
+        if (plan == null && r.getPreviewEdges() > 0) {
+            plan = planGraphs(r, new LoadBudget(0, r.getPreviewEdges(), Long.MAX_VALUE));
+        }
+
+        phaseStart = System.nanoTime();
         PreparedStatement getGraphStmt = RequestTranslator.renderToGetGraphSQL(c, r);
+        metrics.addPhase(RequestPhase.sqlGeneration, System.nanoTime() - phaseStart);
 
         try {
+            phaseStart = System.nanoTime();
+            setRunning(getGraphStmt, cancelled);
+            if (cancelled.get()) {
+                getGraphStmt.close();
+                return null;
+            }
             ResultSet graphRS = getGraphStmt.executeQuery();
+            metrics.addStatement();
 
             while (graphRS.next()) {
+                if (cancelled.get()) {
+                    getGraphStmt.close();
+                    return null;
+                }
+
                 Request graphRequest = this.getGraphRequest(graphRS, r);
 
+                String graphID = graphRS.getString(DbStructureStrings.GRAPH_ID);
+                metrics.addRow(RequestMetrics.INT_BYTES + RequestMetrics.bytesOf(graphID));
+                metrics.addPhase(RequestPhase.graphQuery, System.nanoTime() - phaseStart);
+
+                int sampleRate = plan == null ? 1 : plan.getSampleRate(graphID);
+                graphRequest.setEdgeSampleRate(sampleRate);
+
+                long graphStart = System.nanoTime();
+                GraphMetrics graphMetrics = metrics.addGraph(graphID, sampleRate);
                 g = new OLAPGraph(graphRequest);
 
                 // Attention: Assure that the next calls do not touch the row of the ResultSet
                 // RequestTranslator and DataAbstraction somehow belong together.
                 PreparedStatement getNodesStmt;
                 PreparedStatement getEdgesStmt;
-                getEdgesStmt = RequestTranslator.renderToGetEdgeSQL(c, r, graphRS.getString(DbStructureStrings.GRAPH_ID));
-                getNodesStmt = RequestTranslator.renderToGetNodeSQL(c, r, graphRS.getInt(DbStructureStrings.GRAPH_TOPO_ATTR));
+                phaseStart = System.nanoTime();
+                getEdgesStmt = RequestTranslator.renderToGetEdgeSQL(c, r, graphID, sampleRate);
+                getNodesStmt = RequestTranslator.renderToGetNodeSQL(c, r,
+                        graphRS.getInt(DbStructureStrings.GRAPH_TOPO_ATTR), graphID);
+                metrics.addPhase(RequestPhase.sqlGeneration, System.nanoTime() - phaseStart);
 
                 nodeSetMap = new HashMap<String, MeasureSet>();
                 edgeSetMap = new HashMap<String, MeasureSet>();
@@ -301,26 +524,50 @@ public class DataAbstraction {
                 }
 
                 try {
-                    nodeIDMap = this.addNodes(r, c, g, getNodesStmt, nodeSetMap);
+                    setRunning(getNodesStmt, cancelled);
+                    nodeIDMap = this.addNodes(r, c, g, getNodesStmt, nodeSetMap, metrics, graphMetrics);
                 } catch (SQLException exception) {
+                    if (cancelled.get()) {
+                        getNodesStmt.close();
+                        getEdgesStmt.close();
+                        getGraphStmt.close();
+                        return null;
+                    }
                     throw new BogusDbConnectionException("Something went wrong retrieving nodes: "
                             + exception.toString(), exception);
                 }
 
                 try {
-                    this.addEdges(r, c, g, getEdgesStmt, nodeIDMap, edgeSetMap);
+                    setRunning(getEdgesStmt, cancelled);
+                    this.addEdges(r, c, g, getEdgesStmt, nodeIDMap, edgeSetMap, metrics, graphMetrics);
                 } catch (SQLException exception) {
+                    if (cancelled.get()) {
+                        getEdgesStmt.close();
+                        getGraphStmt.close();
+                        return null;
+                    }
                     throw new BogusDbConnectionException("Something went wrong retrieving edges: "
                             + exception.toString(), exception);
+                } finally {
+                    setRunning(getGraphStmt, cancelled);
                 }
 
                 ret.add(g);
+                graphMetrics.setNanos(System.nanoTime() - graphStart);
 
+                // Fetching the next graph belongs to the graph query again.
+                phaseStart = System.nanoTime();
             }
+            metrics.addPhase(RequestPhase.graphQuery, System.nanoTime() - phaseStart);
             getGraphStmt.close();
         } catch (SQLException exception) {
+            if (cancelled.get()) {
+                return null;
+            }
             throw new BogusDbConnectionException("Something with the database connection is wrong: "
                     + exception.toString(), exception);
+        } finally {
+            setRunning(null, cancelled);
         }
 
         return ret;
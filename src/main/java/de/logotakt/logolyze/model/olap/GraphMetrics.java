@@ -0,0 +1,56 @@
+package de.logotakt.logolyze.model.olap;
+
+import de.logotakt.logolyze.model.interfaces.IGraphMetrics;
+
+/**
+ * Collects the metrics of a single graph while it is loaded.
+ */
+final class GraphMetrics implements IGraphMetrics {
+    private final String graphId;
+    private final int edgeSampleRate;
+    private long nanos = 0;
+    private long nodeRows = 0;
+    private long edgeRows = 0;
+
+    GraphMetrics(final String graphId, final int edgeSampleRate) {
+        this.graphId = graphId;
+        this.edgeSampleRate = edgeSampleRate;
+    }
+
+    void setNanos(final long nanos) {
+        this.nanos = nanos;
+    }
+
+    void addNodeRow() {
+        nodeRows++;
+    }
+
+    void addEdgeRow() {
+        edgeRows++;
+    }
+
+    @Override
+    public String getGraphId() {
+        return graphId;
+    }
+
+    @Override
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public long getNodeRows() {
+        return nodeRows;
+    }
+
+    @Override
+    public long getEdgeRows() {
+        return edgeRows;
+    }
+
+    @Override
+    public int getEdgeSampleRate() {
+        return edgeSampleRate;
+    }
+}
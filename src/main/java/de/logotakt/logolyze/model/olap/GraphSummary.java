@@ -0,0 +1,69 @@
+package de.logotakt.logolyze.model.olap;
+
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
+import de.logotakt.logolyze.model.interfaces.IMeasureType;
+import de.logotakt.logolyze.model.interfaces.IRequest;
+
+/**
+ * The summary of a graph, as read from the summary query.
+ */
+public class GraphSummary implements IGraphSummary {
+    private final Request resultOf;
+    private final long nodeCount;
+    private final long edgeCount;
+    private final MeasureType measure;
+    private final double measureSum;
+    private final long measureCount;
+
+    /**
+     * Creates a new summary.
+     * @param resultOf The request the graph would be the result of.
+     * @param nodeCount The number of nodes of the graph.
+     * @param edgeCount The number of edges of the graph.
+     * @param measure The summed up measure, or null.
+     * @param measureSum The sum of the measure over the edges.
+     * @param measureCount The number of edges having a value of the measure.
+     */
+    GraphSummary(final Request resultOf, final long nodeCount, final long edgeCount, final MeasureType measure,
+            final double measureSum, final long measureCount) {
+        this.resultOf = resultOf;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.measure = measure;
+        this.measureSum = measureSum;
+        this.measureCount = measureCount;
+    }
+
+    @Override
+    public IRequest getResultOf() {
+        return resultOf;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public IMeasureType getMeasure() {
+        return measure;
+    }
+
+    @Override
+    public double getMeasureSum() {
+        return measureSum;
+    }
+
+    @Override
+    public double getMeasureAverage() {
+        if (measureCount == 0) {
+            return Double.NaN;
+        }
+        return measureSum / measureCount;
+    }
+}
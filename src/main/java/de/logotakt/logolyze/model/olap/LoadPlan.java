@@ -0,0 +1,107 @@
+package de.logotakt.logolyze.model.olap;
+
+import java.util.Map;
+
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
+import de.logotakt.logolyze.model.interfaces.LoadBudget;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
+
+/**
+ * The load plan of a request, made from the estimated sizes of its graphs. Besides the totals, it knows the estimated
+ * number of edges of every graph, from which the sample rate of its preview follows.
+ */
+public class LoadPlan implements ILoadPlan {
+    private final LoadBudget budget;
+    private final Map<String, Long> edgesByGraph;
+    private final long nodeCount;
+    private final long edgeCount;
+    private final long largestGraphEdges;
+    private final LoadStrategy strategy;
+    private final int previewEdges;
+
+    /**
+     * Makes the plan for graphs of the given sizes.
+     * @param budget The budget to choose the strategy by.
+     * @param edgesByGraph The estimated number of edges of every graph, by graph id.
+     * @param nodeCount The estimated number of nodes of all graphs together.
+     */
+    LoadPlan(final LoadBudget budget, final Map<String, Long> edgesByGraph, final long nodeCount) {
+        this.budget = budget;
+        this.edgesByGraph = edgesByGraph;
+        this.nodeCount = nodeCount;
+
+        long sum = 0;
+        long largest = 0;
+        for (long edges : edgesByGraph.values()) {
+            sum += edges;
+            largest = Math.max(largest, edges);
+        }
+        this.edgeCount = sum;
+        this.largestGraphEdges = largest;
+
+        if (sum <= budget.getFullEdges()) {
+            this.strategy = LoadStrategy.full;
+            this.previewEdges = 0;
+        } else {
+            // All previews together must fit into the budget as well.
+            long perGraph = budget.getMaxEdges() / Math.max(1, edgesByGraph.size());
+            this.previewEdges = (int) Math.max(1, Math.min(budget.getPreviewEdges(), perGraph));
+            this.strategy = sum <= budget.getMaxEdges() ? LoadStrategy.preview : LoadStrategy.previewOnly;
+        }
+    }
+
+    /**
+     * Returns which part of the edges of a graph is loaded: every k-th edge for a sample rate of k. A graph with n
+     * edges has a sample rate of n / previewEdges, rounded up, so that its preview has about previewEdges edges.
+     * @param graphID The graph to get the sample rate of.
+     * @return The sample rate, 1 if all edges are loaded.
+     */
+    int getSampleRate(final String graphID) {
+        Long edges = edgesByGraph.get(graphID);
+        if (previewEdges == 0 || edges == null) {
+            return 1;
+        }
+        return (int) Math.max(1, (edges + previewEdges - 1) / previewEdges);
+    }
+
+    @Override
+    public LoadStrategy getStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public int getGraphCount() {
+        return edgesByGraph.size();
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public long getLargestGraphEdges() {
+        return largestGraphEdges;
+    }
+
+    @Override
+    public int getPreviewEdges() {
+        return previewEdges;
+    }
+
+    @Override
+    public LoadBudget getBudget() {
+        return budget;
+    }
+
+    @Override
+    public String toString() {
+        return strategy + " load of " + getGraphCount() + " graphs with about " + nodeCount + " nodes and "
+                + edgeCount + " edges";
+    }
+}
@@ -4,7 +4,10 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 
@@ -12,11 +15,17 @@ import de.logotakt.logolyze.model.interfaces.BogusDbConnectionException;
 import de.logotakt.logolyze.model.interfaces.DbConnectFailedException;
 import de.logotakt.logolyze.model.interfaces.DbMalformedException;
 import de.logotakt.logolyze.model.interfaces.IDbStructure;
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.ILogolyzeModel;
+import de.logotakt.logolyze.model.interfaces.IMeasureType;
 import de.logotakt.logolyze.model.interfaces.IModelDataFactory;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
 import de.logotakt.logolyze.model.interfaces.IRequest;
 import de.logotakt.logolyze.model.interfaces.IResponse;
+import de.logotakt.logolyze.model.interfaces.LoadBudget;
+import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
+import de.logotakt.logolyze.model.interfaces.MeasureClass;
 import de.logotakt.logolyze.model.interfaces.RequestValidationFailedException;
 
 /**
@@ -29,7 +38,15 @@ public class OLAPEngine implements ILogolyzeModel {
     private ModelDataFactory modelDataFactory = null;
     private DbStructure dbStructure = null;
     private DataAbstraction dataAbstraction = null;
-    private boolean connected = false;
+    private volatile boolean connected = false;
+    /*
+     * Held while using the database connection. A JDBC connection need not be safe for concurrent use, but the
+     * prefetcher and the loading of complete graphs in the background use it from threads of their own.
+     */
+    private final Object connectionLock = new Object();
+    private LoadBudget loadBudget = LoadBudget.fromSystemProperties();
+    private final ResultCache resultCache = new ResultCache(ResultCache.DEFAULT_MAX_EDGES);
+    private Prefetcher prefetcher = null;
 
     @Override
     public void openDbConnection(final String cstring, final String initDb) throws DbConnectFailedException,
@@ -64,6 +81,7 @@ public class OLAPEngine implements ILogolyzeModel {
 
         dbStructure = MetadataParser.parseMetadata(dbConnection);
         dataAbstraction = new DataAbstraction(dbConnection);
+        prefetcher = new Prefetcher(dataAbstraction, resultCache, connectionLock);
         modelDataFactory = new ModelDataFactory(dbStructure);
         connected = true;
     }
@@ -71,16 +89,112 @@ public class OLAPEngine implements ILogolyzeModel {
     @Override
     public IResponse handleRequest(final IRequest request) throws BogusDbConnectionException, DbMalformedException,
             RequestValidationFailedException {
+        return handleRequest(request, new AtomicBoolean());
+    }
+
+    @Override
+    public IResponse handleRequest(final IRequest request, final AtomicBoolean cancelled)
+            throws BogusDbConnectionException, DbMalformedException, RequestValidationFailedException {
+        Request req = (Request) request;
+
+        if (!connected) {
+            throw new IllegalStateException("The model is not connected to a database");
+        }
+
+        // A real request goes first.
+        this.prefetcher.cancel();
+
+        long startTime = System.nanoTime();
+        RequestMetrics metrics = new RequestMetrics();
+        RequestKey key = new RequestKey(req);
+        Collection<IOLAPGraph> resultGraphs = this.resultCache.get(key);
+        if (resultGraphs != null) {
+            logger.debug("Request answered from the result cache");
+            metrics.setCacheHit(true);
+        } else {
+            synchronized (connectionLock) {
+                resultGraphs = this.dataAbstraction.loadGraphs(req, cancelled, metrics);
+            }
+            if (resultGraphs == null) {
+                logger.debug("Request cancelled");
+                return null;
+            }
+            this.resultCache.put(key, resultGraphs);
+        }
+        metrics.setTotalNanos(System.nanoTime() - startTime);
+        logger.debug(metrics);
+
+        return new Response(resultGraphs, metrics);
+    }
+
+    @Override
+    public void cancelRequest(final AtomicBoolean cancelled) {
+        if (dataAbstraction == null) {
+            cancelled.set(true);
+            return;
+        }
+        this.dataAbstraction.cancel(cancelled);
+    }
+
+    @Override
+    public ILoadPlan planRequest(final IRequest request) throws BogusDbConnectionException,
+            RequestValidationFailedException {
+        Request req = (Request) request;
+
+        if (!connected) {
+            throw new IllegalStateException("The model is not connected to a database");
+        }
+
+        this.prefetcher.cancel();
+        LoadPlan plan;
+        synchronized (connectionLock) {
+            plan = this.dataAbstraction.planGraphs(req, this.loadBudget);
+        }
+        logger.debug("Planned " + plan);
+        req.setLoadPlan(plan);
+        req.setPreviewEdges(plan.getPreviewEdges());
+        return plan;
+    }
+
+    @Override
+    public Collection<IGraphSummary> summarizeRequest(final IRequest request, final IMeasureType measure)
+            throws BogusDbConnectionException, RequestValidationFailedException {
         Request req = (Request) request;
 
         if (!connected) {
             throw new IllegalStateException("The model is not connected to a database");
         }
+        if (measure != null && (measure.getAssoc() != MeasureAssociation.edgeMeasure
+                || measure.getMeasureClass() != MeasureClass.NumeralMeasure)) {
+            throw new IllegalArgumentException("Only numerical edge measures can be summed up, not "
+                    + measure.getKey());
+        }
 
-        long startTime = System.currentTimeMillis();
-        Collection<IOLAPGraph> resultGraphs = this.dataAbstraction.loadGraphs(req);
+        this.prefetcher.cancel();
+        synchronized (connectionLock) {
+            return this.dataAbstraction.summarizeGraphs(req, (MeasureType) measure);
+        }
+    }
 
-        return new Response(resultGraphs, System.currentTimeMillis() - startTime);
+    @Override
+    public void prefetchRequests(final Collection<? extends IRequest> requests) {
+        if (!connected) {
+            throw new IllegalStateException("The model is not connected to a database");
+        }
+
+        List<Request> reqs = new ArrayList<Request>(requests.size());
+        for (IRequest r : requests) {
+            reqs.add((Request) r);
+        }
+        this.prefetcher.prefetch(reqs, this.loadBudget);
+    }
+
+    @Override
+    public void setLoadBudget(final LoadBudget budget) {
+        if (budget == null) {
+            throw new IllegalArgumentException("The load budget must not be null");
+        }
+        this.loadBudget = budget;
     }
 
     @Override
@@ -107,16 +221,24 @@ public class OLAPEngine implements ILogolyzeModel {
             return;
         }
 
+        // Nothing may use the connection once it is closed. Requests in the background are cancelled by their owners,
+        // the prefetcher is cancelled here; their statements are cancelled, too, so the lock is free again soon.
+        connected = false;
+        prefetcher.shutdown();
+
         /*
          * Close the database connection. We cannot sensibly handle an exception for close(), so we drop it.
          */
-        try {
-            dbConnection.close();
-        } catch (Exception e) {
-            logger.error("Could not close the database connection", e);
-        } finally {
-            connected = false;
+        synchronized (connectionLock) {
+            try {
+                dbConnection.close();
+            } catch (Exception e) {
+                logger.error("Could not close the database connection", e);
+            }
         }
+
+        // The cached graphs belong to this database.
+        resultCache.clear();
     }
 
     @Override
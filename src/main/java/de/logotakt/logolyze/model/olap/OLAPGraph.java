@@ -1,9 +1,19 @@
 package de.logotakt.logolyze.model.olap;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+import de.logotakt.logolyze.model.interfaces.IAggregatedEdge;
 import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.IMeasure;
 import de.logotakt.logolyze.model.interfaces.INode;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
 import de.logotakt.logolyze.model.interfaces.IRequest;
+import de.logotakt.logolyze.model.interfaces.MeasureClass;
 import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
 
 /**
@@ -48,6 +58,82 @@ public class OLAPGraph extends DirectedSparseMultigraph
     public void setResultOf(IRequest req) {
         this.resultOf = (Request) req;
     }
+
+    @Override
+    public IOLAPGraph aggregateParallelEdges(final EdgeAggregation aggregation) {
+        OLAPGraph result = new OLAPGraph(this.resultOf);
+        Map<String, MeasureSet> sets = new HashMap<String, MeasureSet>();
+
+        for (INode n : this.getVertices()) {
+            result.addVertex(n);
+        }
+
+        for (INode source : this.getVertices()) {
+            // Group the outgoing edges by their destination, keeping their order.
+            Map<INode, List<IEdge>> byDest = new LinkedHashMap<INode, List<IEdge>>();
+            for (IEdge e : this.getOutEdges(source)) {
+                INode dest = this.getDest(e);
+                List<IEdge> parallel = byDest.get(dest);
+                if (parallel == null) {
+                    parallel = new ArrayList<IEdge>();
+                    byDest.put(dest, parallel);
+                }
+                parallel.add(e);
+            }
+
+            for (Map.Entry<INode, List<IEdge>> ent : byDest.entrySet()) {
+                List<IEdge> parallel = ent.getValue();
+                if (parallel.size() == 1 && parallel.get(0) instanceof IAggregatedEdge) {
+                    // Already aggregated, e.g. when aggregating an aggregated graph again.
+                    result.addEdge(parallel.get(0), source, ent.getKey());
+                } else {
+                    result.addEdge(aggregate(parallel, aggregation, sets), source, ent.getKey());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /* Combines parallel edges into one. All of them carry the same measure types. */
+    private static AggregatedEdge aggregate(final List<IEdge> parallel, final EdgeAggregation aggregation,
+            final Map<String, MeasureSet> sets) {
+        AggregatedEdge agg = new AggregatedEdge(aggregation, parallel);
+
+        for (Map.Entry<String, ? extends IMeasure> ent : parallel.get(0).getMeasures().entrySet()) {
+            MeasureType type = (MeasureType) ent.getValue().getSet().getType();
+            MeasureSet set = sets.get(ent.getKey());
+            if (set == null) {
+                set = new MeasureSet(type);
+                sets.put(ent.getKey(), set);
+            }
+
+            if (type.getMeasureClass() == MeasureClass.NumeralMeasure) {
+                double sum = 0;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (IEdge e : parallel) {
+                    double value = e.getMeasures().get(ent.getKey()).getNumber();
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                agg.addAggregates(set, sum, min, max);
+            } else {
+                // Like MIN() in SQL, the smallest text stands for all of them.
+                String min = null;
+                for (IEdge e : parallel) {
+                    String text = e.getMeasures().get(ent.getKey()).getText();
+                    if (min == null || (text != null && text.compareTo(min) < 0)) {
+                        min = text;
+                    }
+                }
+                agg.addMeasure(new StringMeasure(set, min));
+            }
+        }
+
+        return agg;
+    }
 	
 	
 
@@ -0,0 +1,145 @@
+package de.logotakt.logolyze.model.olap;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.LoadBudget;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
+
+/**
+ * Loads the graphs of requests that are likely to be made next into a {@link ResultCache}, in the background. Only
+ * requests whose graphs can be loaded completely within the load budget are prefetched, one after the other and on a
+ * thread of low priority. Prefetching makes way for real requests: scheduling a new batch or cancelling stops the
+ * running one, cancelling the statement it is executing. The database connection is only used while holding the lock of the
+ * engine, like every other use of it.
+ */
+final class Prefetcher {
+    private static final Logger logger = Logger.getLogger(Prefetcher.class);
+
+    /* How many requests are prefetched at most after every real one. */
+    static final int BUDGET = Integer.getInteger("logolyze.prefetchBudget", 4);
+    /* How long shutting down waits for the graph being prefetched, in seconds. Its statement is cancelled first. */
+    private static final long SHUTDOWN_TIMEOUT = 1;
+
+    /*
+     * A single thread is enough: all requests go through the same database connection, so loading several at once
+     * would only make them wait for each other.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(r, "Prefetch graphs");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+
+    private final DataAbstraction dataAbstraction;
+    private final ResultCache cache;
+    private final Object connectionLock;
+    /* Set to cancel the batch scheduled last. */
+    private AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * Creates a new prefetcher.
+     * @param dataAbstraction Loads the graphs.
+     * @param cache Keeps the graphs loaded.
+     * @param connectionLock Held while using the database connection.
+     */
+    Prefetcher(final DataAbstraction dataAbstraction, final ResultCache cache, final Object connectionLock) {
+        this.dataAbstraction = dataAbstraction;
+        this.cache = cache;
+        this.connectionLock = connectionLock;
+    }
+
+    /**
+     * Cancels the prefetching going on and schedules a new batch of requests, most likely first. Only the first
+     * {@link #BUDGET} of them are prefetched.
+     * @param requests The requests to prefetch.
+     * @param budget The budget the graphs of a request have to fit in completely.
+     */
+    synchronized void prefetch(final Collection<Request> requests, final LoadBudget budget) {
+        cancel();
+        final AtomicBoolean batch = new AtomicBoolean();
+        cancelled = batch;
+
+        int scheduled = 0;
+        for (final Request r : requests) {
+            if (scheduled++ >= BUDGET) {
+                break;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(r, budget, batch);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancels the prefetching going on.
+     */
+    synchronized void cancel() {
+        dataAbstraction.cancel(cancelled);
+    }
+
+    /**
+     * Cancels the prefetching going on and waits a moment for the graph being loaded to stop, so that the database
+     * connection can be closed. Nothing can be prefetched afterwards.
+     */
+    void shutdown() {
+        cancel();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                logger.warn("Prefetching did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load(final Request r, final LoadBudget budget, final AtomicBoolean batch) {
+        if (batch.get()) {
+            return;
+        }
+        RequestKey key = new RequestKey(r);
+        if (cache.contains(key)) {
+            return;
+        }
+
+        try {
+            Collection<IOLAPGraph> graphs;
+            synchronized (connectionLock) {
+                // A real request may have gone first.
+                if (batch.get()) {
+                    return;
+                }
+                LoadPlan plan = dataAbstraction.planGraphs(r, budget);
+                if (plan.getStrategy() != LoadStrategy.full) {
+                    logger.debug("Not prefetching " + plan);
+                    return;
+                }
+                r.setLoadPlan(plan);
+
+                graphs = dataAbstraction.loadGraphs(r, batch);
+            }
+            if (graphs != null) {
+                logger.debug("Prefetched " + graphs.size() + " graphs");
+                cache.put(key, graphs);
+            }
+        } catch (Exception e) {
+            // Nobody asked for these graphs yet, so there is nobody to tell. A real request will report the problem.
+            logger.debug("Prefetching failed", e);
+        }
+    }
+}
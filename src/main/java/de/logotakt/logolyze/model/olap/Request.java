@@ -2,10 +2,12 @@ package de.logotakt.logolyze.model.olap;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.ICube;
 import de.logotakt.logolyze.model.interfaces.IMeasureType;
@@ -21,6 +23,11 @@ public class Request implements IRequest {
     private final Collection<Validator> validators;
     private List<MeasureType> measures;
     private Cube cube;
+    private boolean onlyConnectedNodes = false;
+    private EdgeFilter edgeFilter = null;
+    private int previewEdges = 0;
+    private int edgeSampleRate = 1;
+    private LoadPlan loadPlan = null;
 
     /**
      * Creates a new, empty Request with the given validators.
@@ -100,4 +107,74 @@ public class Request implements IRequest {
         }
     }
 
+    @Override
+    public void setOnlyConnectedNodes(final boolean onlyConnected) {
+        this.onlyConnectedNodes = onlyConnected;
+    }
+
+    @Override
+    public boolean isOnlyConnectedNodes() {
+        return this.onlyConnectedNodes;
+    }
+
+    @Override
+    public void setEdgeFilter(final EdgeFilter filter) {
+        this.edgeFilter = filter;
+    }
+
+    @Override
+    public EdgeFilter getEdgeFilter() {
+        return this.edgeFilter;
+    }
+
+    @Override
+    public void setPreviewEdges(final int edges) {
+        this.previewEdges = edges;
+    }
+
+    @Override
+    public int getPreviewEdges() {
+        return this.previewEdges;
+    }
+
+    /**
+     * Records which part of the edges was loaded for the graph this request belongs to.
+     * @param rate Every rate-th edge was loaded.
+     */
+    void setEdgeSampleRate(final int rate) {
+        this.edgeSampleRate = rate;
+    }
+
+    @Override
+    public int getEdgeSampleRate() {
+        return this.edgeSampleRate;
+    }
+
+    @Override
+    public boolean selectsSameGraphs(final IRequest other) {
+        if (!(other instanceof Request)) {
+            return false;
+        }
+        Request o = (Request) other;
+        return this.cube == o.cube && this.onlyConnectedNodes == o.onlyConnectedNodes
+                && (this.edgeFilter == null ? o.edgeFilter == null : this.edgeFilter.equals(o.edgeFilter))
+                && new HashSet<IConstraint>(this.constraints).equals(new HashSet<IConstraint>(o.constraints))
+                && new HashSet<MeasureType>(this.measures).equals(new HashSet<MeasureType>(o.measures));
+    }
+
+    /**
+     * Remembers the plan made for this request, so that loading it does not have to estimate the sizes again.
+     * @param plan The plan made for this request, or null to forget it.
+     */
+    void setLoadPlan(final LoadPlan plan) {
+        this.loadPlan = plan;
+    }
+
+    /**
+     * @return The plan made for this request, or null if none was made.
+     */
+    LoadPlan getLoadPlan() {
+        return this.loadPlan;
+    }
+
 }
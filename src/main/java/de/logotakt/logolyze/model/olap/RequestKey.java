@@ -0,0 +1,58 @@
+package de.logotakt.logolyze.model.olap;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
+import de.logotakt.logolyze.model.interfaces.IConstraint;
+
+/**
+ * A snapshot of the parts of a request that decide which graphs it results in, usable as a key of a map. Two requests
+ * have equal keys exactly if they select the same graphs, see {@link Request#selectsSameGraphs}. Since the key is a
+ * copy, changing the request afterwards does not change it.
+ */
+final class RequestKey {
+    private final Cube cube;
+    private final boolean onlyConnectedNodes;
+    private final EdgeFilter edgeFilter;
+    private final Set<IConstraint> constraints;
+    private final Set<MeasureType> measures;
+    private final int hashCode;
+
+    /**
+     * Creates the key of a request.
+     * @param r The request.
+     */
+    RequestKey(final Request r) {
+        this.cube = (Cube) r.getCube();
+        this.onlyConnectedNodes = r.isOnlyConnectedNodes();
+        this.edgeFilter = r.getEdgeFilter();
+        this.constraints = new HashSet<IConstraint>();
+        for (IConstraint c : r) {
+            this.constraints.add(c);
+        }
+        this.measures = new HashSet<MeasureType>(r.getMeasures());
+
+        int h = System.identityHashCode(cube);
+        h = h * 31 + (onlyConnectedNodes ? 1 : 0);
+        h = h * 31 + (edgeFilter == null ? 0 : edgeFilter.hashCode());
+        h = h * 31 + constraints.hashCode();
+        this.hashCode = h * 31 + measures.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof RequestKey)) {
+            return false;
+        }
+        RequestKey other = (RequestKey) o;
+        return cube == other.cube && onlyConnectedNodes == other.onlyConnectedNodes
+                && (edgeFilter == null ? other.edgeFilter == null : edgeFilter.equals(other.edgeFilter))
+                && constraints.equals(other.constraints) && measures.equals(other.measures);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,111 @@
+package de.logotakt.logolyze.model.olap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.logotakt.logolyze.model.interfaces.IGraphMetrics;
+import de.logotakt.logolyze.model.interfaces.IRequestMetrics;
+import de.logotakt.logolyze.model.interfaces.RequestPhase;
+
+/**
+ * Collects the metrics of a request while it is answered. It is filled by a single thread and handed out once the
+ * request is done.
+ */
+final class RequestMetrics implements IRequestMetrics {
+    /* The estimated sizes of the values read from the database, in bytes. */
+    static final int INT_BYTES = 4;
+    static final int DOUBLE_BYTES = 8;
+    private static final int CHAR_BYTES = 2;
+
+    private final long[] phaseNanos = new long[RequestPhase.values().length];
+    private long totalNanos = 0;
+    private int statements = 0;
+    private long rows = 0;
+    private long bytes = 0;
+    private boolean cacheHit = false;
+    private final List<IGraphMetrics> graphs = new ArrayList<IGraphMetrics>();
+
+    /**
+     * @param s A string read from the database, may be null.
+     * @return The estimated size of the string, in bytes.
+     */
+    static long bytesOf(final String s) {
+        return s == null ? 0 : (long) CHAR_BYTES * s.length();
+    }
+
+    void addPhase(final RequestPhase phase, final long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    void addStatement() {
+        statements++;
+    }
+
+    void addRow(final long rowBytes) {
+        rows++;
+        bytes += rowBytes;
+    }
+
+    void setTotalNanos(final long nanos) {
+        totalNanos = nanos;
+    }
+
+    void setCacheHit(final boolean hit) {
+        cacheHit = hit;
+    }
+
+    GraphMetrics addGraph(final String graphId, final int edgeSampleRate) {
+        GraphMetrics g = new GraphMetrics(graphId, edgeSampleRate);
+        graphs.add(g);
+        return g;
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    @Override
+    public long getPhaseNanos(final RequestPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    @Override
+    public int getStatementCount() {
+        return statements;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public long getBytesEstimate() {
+        return bytes;
+    }
+
+    @Override
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    @Override
+    public List<IGraphMetrics> getGraphMetrics() {
+        return Collections.unmodifiableList(graphs);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder("Request took ").append(totalNanos / 1000000).append(" ms");
+        if (cacheHit) {
+            return b.append(", answered from the result cache").toString();
+        }
+        for (RequestPhase phase : RequestPhase.values()) {
+            b.append(", ").append(phase).append(' ').append(phaseNanos[phase.ordinal()] / 1000000).append(" ms");
+        }
+        return b.append("; ").append(graphs.size()).append(" graphs, ").append(statements).append(" statements, ")
+                .append(rows).append(" rows, ~").append(bytes / 1024).append(" KiB").toString();
+    }
+}
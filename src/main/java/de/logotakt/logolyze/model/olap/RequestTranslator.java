@@ -9,13 +9,16 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import de.logotakt.logolyze.model.interfaces.BogusDbConnectionException;
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.IDimension;
 import de.logotakt.logolyze.model.interfaces.IHierarchy;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
 import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
+import de.logotakt.logolyze.model.interfaces.MeasureClass;
 import edu.umd.cs.findbugs.annotations.SuppressWarnings;
 
 /**
@@ -23,6 +26,20 @@ import edu.umd.cs.findbugs.annotations.SuppressWarnings;
  * Request object.
  */
 public final class RequestTranslator {
+    /**
+     * The alias of the edge count in the planning query and the summary query.
+     */
+    static final String EDGE_COUNT_ALIAS = "EDGE_COUNT";
+    /**
+     * The alias of the node count in the planning query and the summary query.
+     */
+    static final String NODE_COUNT_ALIAS = "NODE_COUNT";
+    /**
+     * The aliases of the sum of the summarized measure and of the number of its values in the summary query.
+     */
+    static final String MEASURE_SUM_ALIAS = "MEASURE_SUM";
+    static final String MEASURE_COUNT_ALIAS = "MEASURE_COUNT";
+
     /**
      * This class is a utility class, i.e. should not be instantiated.
      */
@@ -206,16 +223,18 @@ public final class RequestTranslator {
     }
 
     /**
-     * Renders the SQL to retrieve all nodes for a given topologyId.
+     * Renders the SQL to retrieve all nodes for a given topologyId. If the request only wants connected nodes, only
+     * those nodes are retrieved that are an end of at least one edge of the given graph.
      * @param r The request to be fulfilled.
      * @param c The used database connection.
      * @param graphTopoID The topology id of the fetched graph.
+     * @param graphID The fetched graph, whose edges decide which nodes are connected.
      * @return A SQL query to retrieve the requested data.
      * @throws BogusDbConnectionException A problem with the database connection has occured.
      */
     @SuppressWarnings("SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING")
-    public static PreparedStatement renderToGetNodeSQL(final Connection c, final Request r, final int graphTopoID)
-            throws BogusDbConnectionException {
+    public static PreparedStatement renderToGetNodeSQL(final Connection c, final Request r, final int graphTopoID,
+            final String graphID) throws BogusDbConnectionException {
         StringBuilder ret = new StringBuilder(50);
         String fields;
         PreparedStatement stmt;
@@ -232,9 +251,19 @@ public final class RequestTranslator {
                 .append(DbStructureStrings.NODE_TABLE).append(" WHERE ").append(DbStructureStrings.NODE_TABLE)
                 .append(".").append(DbStructureStrings.NODE_TOPO_FK).append(" = ?");
 
+        if (r.isOnlyConnectedNodes()) {
+            // One semi-join per end, so that each can use an index on (G_ID, N1_ID) or (G_ID, N2_ID).
+            ret.append(" AND (").append(renderEdgeExists(DbStructureStrings.EDGE_N1_FK)).append(" OR ")
+                    .append(renderEdgeExists(DbStructureStrings.EDGE_N2_FK)).append(")");
+        }
+
         try {
             stmt = c.prepareStatement(ret.toString());
             stmt.setInt(1, graphTopoID);
+            if (r.isOnlyConnectedNodes()) {
+                stmt.setString(2, graphID);
+                stmt.setString(3, graphID);
+            }
         } catch (SQLException e) {
             throw new BogusDbConnectionException("Could not prepare statement in renderToGetNodeSQL.", e);
         }
@@ -242,17 +271,31 @@ public final class RequestTranslator {
         return stmt;
     }
 
+    /* Renders an EXISTS clause that holds if the current node is the given end of an edge of the graph bound to it. */
+    private static String renderEdgeExists(final String endColumn) {
+        StringBuilder ret = new StringBuilder(100);
+
+        ret.append("EXISTS (SELECT 1 FROM ").append(DbStructureStrings.EDGE_TABLE).append(" WHERE ")
+                .append(DbStructureStrings.EDGE_TABLE).append(".").append(DbStructureStrings.EDGE_GRAPH_FK)
+                .append(" = ? AND ").append(DbStructureStrings.EDGE_TABLE).append(".").append(endColumn).append(" = ")
+                .append(DbStructureStrings.NODE_TABLE).append(".").append(DbStructureStrings.NODE_ID).append(")");
+
+        return ret.toString();
+    }
+
     /**
-     * Renders the SQL to retrieve all edges for a given graphId.
+     * Renders the SQL to retrieve all edges for a given graphId. If the request has an edge filter, only the edges
+     * passing it are retrieved.
      * @param r The request to be fulfilled.
      * @param c The used database connection.
      * @param graphID The graph to get nodes for.
+     * @param sampleRate Only every sampleRate-th edge is retrieved; 1 to retrieve all edges.
      * @return A SQL query to retrieve the requested data.
      * @throws BogusDbConnectionException A problem with the database connection has occured.
      */
     @SuppressWarnings("SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING")
-    public static PreparedStatement renderToGetEdgeSQL(final Connection c, final Request r, final String graphID)
-            throws BogusDbConnectionException {
+    public static PreparedStatement renderToGetEdgeSQL(final Connection c, final Request r, final String graphID,
+            final int sampleRate) throws BogusDbConnectionException {
         StringBuilder ret = new StringBuilder(100);
         String fields;
         PreparedStatement stmt;
@@ -268,7 +311,17 @@ public final class RequestTranslator {
                 .append(", ").append(DbStructureStrings.EDGE_TABLE).append(".").append(DbStructureStrings.EDGE_N2_FK)
                 .append(fields).append(" FROM ").append(DbStructureStrings.EDGE_TABLE).append(" WHERE ")
                 .append(DbStructureStrings.EDGE_TABLE).append(".").append(DbStructureStrings.EDGE_GRAPH_FK)
-                .append(" = ?");
+                .append(" = ?").append(renderEdgeSample(sampleRate));
+
+        EdgeFilter filter = r.getEdgeFilter();
+        if (filter != null) {
+            String column = DbStructureStrings.EDGE_TABLE + "." + ((MeasureType) filter.getMeasure()).getColumn();
+            if (filter.getMode() == EdgeFilter.Mode.threshold) {
+                ret.append(" AND ").append(column).append(" >= ?");
+            } else {
+                ret.append(" AND ").append(column).append(" IS NOT NULL ORDER BY ").append(column).append(" DESC");
+            }
+        }
 
         try {
             stmt = c.prepareStatement(ret.toString());
@@ -282,9 +335,59 @@ public final class RequestTranslator {
             throw new BogusDbConnectionException("Could not set String Nr. 1 in renderToGetEdgeSQL", e);
         }
 
+        applyEdgeFilterArguments(stmt, filter, applyEdgeSampleArguments(stmt, sampleRate, 2));
+
         return stmt;
     }
 
+    /*
+     * Renders the condition that picks a deterministic sample of the edges: those whose id is a multiple of the sample
+     * rate. Edge ids are not related to the edge measures, so this is a fair sample. Empty if all edges are wanted.
+     */
+    private static String renderEdgeSample(final int sampleRate) {
+        if (sampleRate <= 1) {
+            return "";
+        }
+        return " AND MOD(" + DbStructureStrings.EDGE_TABLE + "." + DbStructureStrings.EDGE_ID + ", ?) = 0";
+    }
+
+    /* Sets the argument of renderEdgeSample() if there is one, and returns the index of the next argument. */
+    private static int applyEdgeSampleArguments(final PreparedStatement stmt, final int sampleRate, final int index)
+            throws BogusDbConnectionException {
+        if (sampleRate <= 1) {
+            return index;
+        }
+
+        try {
+            stmt.setInt(index, sampleRate);
+        } catch (SQLException e) {
+            throw new BogusDbConnectionException("Could not set the edge sample rate", e);
+        }
+        return index + 1;
+    }
+
+    /*
+     * Sets the arguments of an edge filter rendered into a statement: the threshold, or the maximum number of rows for
+     * topK. The rows are sorted by the database, so the first rows are the largest ones. Limiting them through JDBC
+     * works on every database, unlike FETCH FIRST or LIMIT.
+     */
+    private static void applyEdgeFilterArguments(final PreparedStatement stmt, final EdgeFilter filter,
+            final int index) throws BogusDbConnectionException {
+        if (filter == null) {
+            return;
+        }
+
+        try {
+            if (filter.getMode() == EdgeFilter.Mode.threshold) {
+                stmt.setDouble(index, filter.getValue());
+            } else {
+                stmt.setMaxRows(filter.getCount());
+            }
+        } catch (SQLException e) {
+            throw new BogusDbConnectionException("Could not apply the edge filter " + filter, e);
+        }
+    }
+
     /**
      * Creates a SQL query to retrieve graphs matching the request.
      * @param r The request to find matching graphs for.
@@ -298,7 +401,6 @@ public final class RequestTranslator {
         StringBuilder ret = new StringBuilder(30);
         PreparedStatement stmt;
         List<SQLArgument> arglist;
-        int i = 0;
 
         arglist = new LinkedList<SQLArgument>();
 
@@ -313,6 +415,126 @@ public final class RequestTranslator {
             throw new BogusDbConnectionException("Could not prepare statement in renderToGetGraphSQL.", e);
         }
 
+        bindArguments(stmt, arglist);
+
+        return stmt;
+    }
+
+    /**
+     * Creates a SQL query that counts the edges and the nodes of every graph matching the request, without loading
+     * any of them. Every row holds the graph id, the number of its edges (as EDGE_COUNT_ALIAS) and the number of nodes
+     * of its topology (as NODE_COUNT_ALIAS).
+     * @param r The request to count the graphs of.
+     * @param c The used database connection.
+     * @return The request translated to a SQL query.
+     * @throws BogusDbConnectionException A problem with the database connection has occured.
+     */
+    @SuppressWarnings("SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING")
+    public static PreparedStatement renderToPlanSQL(final Connection c, final Request r)
+            throws BogusDbConnectionException {
+        StringBuilder ret = new StringBuilder(300);
+        PreparedStatement stmt;
+        List<SQLArgument> arglist = new LinkedList<SQLArgument>();
+        String graphID = DbStructureStrings.GRAPH_TABLE + "." + DbStructureStrings.GRAPH_ID;
+        String topologyID = DbStructureStrings.GRAPH_TABLE + "." + DbStructureStrings.GRAPH_TOPO_ATTR;
+
+        // Both counts can be answered from the indexes on the foreign keys, without touching any rows.
+        ret.append("SELECT ").append(graphID).append(", (SELECT COUNT(*) FROM ").append(DbStructureStrings.EDGE_TABLE)
+                .append(" WHERE ").append(DbStructureStrings.EDGE_TABLE).append(".")
+                .append(DbStructureStrings.EDGE_GRAPH_FK).append(" = ").append(graphID).append(") AS ")
+                .append(EDGE_COUNT_ALIAS).append(", (SELECT COUNT(*) FROM ").append(DbStructureStrings.NODE_TABLE)
+                .append(" WHERE ").append(DbStructureStrings.NODE_TABLE).append(".")
+                .append(DbStructureStrings.NODE_TOPO_FK).append(" = ").append(topologyID).append(") AS ")
+                .append(NODE_COUNT_ALIAS).append(" FROM ").append(DbStructureStrings.GRAPH_TABLE).append(" WHERE ");
+        ret.append(RequestTranslator.generateWhere(r, arglist));
+
+        try {
+            stmt = c.prepareStatement(ret.toString());
+        } catch (SQLException e) {
+            throw new BogusDbConnectionException("Could not prepare statement in renderToPlanSQL.", e);
+        }
+
+        bindArguments(stmt, arglist);
+
+        return stmt;
+    }
+
+    /**
+     * Creates a SQL query that summarizes every graph matching the request in one row, grouped by graph: the columns
+     * of the graph that tell its place in the hierarchies, the number of its edges (as EDGE_COUNT_ALIAS) and nodes (as
+     * NODE_COUNT_ALIAS) and, if a measure is given, the sum of the measure over the edges (as MEASURE_SUM_ALIAS) and the
+     * number of edges having a value of it (as MEASURE_COUNT_ALIAS). Edge filters and sampling are not applied.
+     * @param r The request to summarize the graphs of.
+     * @param c The used database connection.
+     * @param measure The numerical edge measure to sum up, or null to count only.
+     * @return The request translated to a SQL query.
+     * @throws BogusDbConnectionException A problem with the database connection has occured.
+     */
+    @SuppressWarnings("SQL_PREPARED_STATEMENT_GENERATED_FROM_NONCONSTANT_STRING")
+    public static PreparedStatement renderToSummarySQL(final Connection c, final Request r, final MeasureType measure)
+            throws BogusDbConnectionException {
+        StringBuilder ret = new StringBuilder(500);
+        PreparedStatement stmt;
+        List<SQLArgument> arglist = new LinkedList<SQLArgument>();
+        String topologyID = DbStructureStrings.GRAPH_TABLE + "." + DbStructureStrings.GRAPH_TOPO_ATTR;
+
+        // Everything that is selected from GRAPH has to be grouped by, so only the columns needed to tell which cell a
+        // graph belongs to are selected.
+        StringBuilder graphColumns = new StringBuilder(100);
+        graphColumns.append(DbStructureStrings.GRAPH_TABLE).append(".").append(DbStructureStrings.GRAPH_ID)
+                .append(", ").append(topologyID);
+        Set<String> columns = new HashSet<String>();
+        for (IDimension d : r.getCube()) {
+            for (IHierarchy ih : d) {
+                Hierarchy h = (Hierarchy) ih;
+                for (String column : new String[] {h.getGraphColumn(), h.getGraphColumnValue() }) {
+                    if (column != null && columns.add(column)) {
+                        graphColumns.append(", ").append(DbStructureStrings.GRAPH_TABLE).append(".").append(column);
+                    }
+                }
+            }
+        }
+
+        ret.append("SELECT ").append(graphColumns).append(", COUNT(").append(DbStructureStrings.EDGE_TABLE)
+                .append(".").append(DbStructureStrings.EDGE_ID).append(") AS ").append(EDGE_COUNT_ALIAS)
+                .append(", MAX(NODES.").append(NODE_COUNT_ALIAS).append(") AS ").append(NODE_COUNT_ALIAS);
+        if (measure != null) {
+            String column = DbStructureStrings.EDGE_TABLE + "." + measure.getColumn();
+            // Summing up in DOUBLE, since the sum over a large graph easily overflows an INTEGER column.
+            ret.append(", SUM(CAST(").append(column).append(" AS DOUBLE)) AS ").append(MEASURE_SUM_ALIAS)
+                    .append(", COUNT(").append(column).append(") AS ").append(MEASURE_COUNT_ALIAS);
+        }
+
+        // The nodes belong to the topology, not to the graph, so they are counted once per topology.
+        ret.append(" FROM ").append(DbStructureStrings.GRAPH_TABLE).append(" LEFT OUTER JOIN ")
+                .append(DbStructureStrings.EDGE_TABLE).append(" ON ").append(DbStructureStrings.EDGE_TABLE)
+                .append(".").append(DbStructureStrings.EDGE_GRAPH_FK).append(" = ")
+                .append(DbStructureStrings.GRAPH_TABLE).append(".").append(DbStructureStrings.GRAPH_ID)
+                .append(" LEFT OUTER JOIN (SELECT ").append(DbStructureStrings.NODE_TABLE).append(".")
+                .append(DbStructureStrings.NODE_TOPO_FK).append(", COUNT(*) AS ").append(NODE_COUNT_ALIAS)
+                .append(" FROM ").append(DbStructureStrings.NODE_TABLE).append(" GROUP BY ")
+                .append(DbStructureStrings.NODE_TABLE).append(".").append(DbStructureStrings.NODE_TOPO_FK)
+                .append(") NODES ON NODES.").append(DbStructureStrings.NODE_TOPO_FK).append(" = ").append(topologyID)
+                .append(" WHERE ");
+        ret.append(RequestTranslator.generateWhere(r, arglist));
+        ret.append(" GROUP BY ").append(graphColumns);
+
+        try {
+            stmt = c.prepareStatement(ret.toString());
+        } catch (SQLException e) {
+            throw new BogusDbConnectionException("Could not prepare statement in renderToSummarySQL.", e);
+        }
+
+        bindArguments(stmt, arglist);
+
+        return stmt;
+    }
+
+    /* Binds the arguments collected by generateWhere() to a statement. */
+    private static void bindArguments(final PreparedStatement stmt, final List<SQLArgument> arglist)
+            throws BogusDbConnectionException {
+        int i = 0;
+
         try {
             i = 1;
             for (SQLArgument arg : arglist) {
@@ -333,7 +555,5 @@ public final class RequestTranslator {
             throw new BogusDbConnectionException("Could not assign field Nr. " + String.valueOf(i) + ": "
                     + e.getMessage(), e);
         }
-
-        return stmt;
     }
 }
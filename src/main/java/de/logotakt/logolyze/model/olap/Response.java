@@ -1,24 +1,30 @@
 package de.logotakt.logolyze.model.olap;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.IRequestMetrics;
 import de.logotakt.logolyze.model.interfaces.IResponse;
 
 public class Response implements IResponse {
-    private long requestDuration;
     private Collection<IOLAPGraph> graphs;
+    private IRequestMetrics metrics;
 
-    public Response(Collection<IOLAPGraph> graphs, long requestDuration) {
+    public Response(Collection<IOLAPGraph> graphs, IRequestMetrics metrics) {
         this.graphs = graphs;
-        this.requestDuration = requestDuration;
+        this.metrics = metrics;
     }
 
     public long getRequestDuration() {
-        return requestDuration;
+        return TimeUnit.NANOSECONDS.toMillis(metrics.getTotalNanos());
     }
 
     public Collection<IOLAPGraph> getGraphs() {
         return graphs;
     }
+
+    public IRequestMetrics getMetrics() {
+        return metrics;
+    }
 }
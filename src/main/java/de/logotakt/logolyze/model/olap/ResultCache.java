@@ -0,0 +1,97 @@
+package de.logotakt.logolyze.model.olap;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+
+/**
+ * Keeps the complete graphs of recent requests, so that asking for them again does not touch the database. Previews
+ * are never kept. The cache is bounded by the number of edges of the graphs it keeps; the graphs used least recently
+ * are dropped first. All methods may be called from any thread.
+ */
+final class ResultCache {
+    /* How many edges the cached graphs may have in total, by default. */
+    static final long DEFAULT_MAX_EDGES = Long.getLong("logolyze.resultCacheEdges", 500000);
+
+    private final long maxEdges;
+    private long edges = 0;
+    private final LinkedHashMap<RequestKey, Collection<IOLAPGraph>> results =
+            new LinkedHashMap<RequestKey, Collection<IOLAPGraph>>(16, 0.75f, true);
+
+    /**
+     * Creates a new, empty cache.
+     * @param maxEdges How many edges the cached graphs may have in total.
+     */
+    ResultCache(final long maxEdges) {
+        this.maxEdges = maxEdges;
+    }
+
+    /**
+     * Returns the graphs of a request, if they are cached.
+     * @param key The key of the request.
+     * @return The complete graphs of the request, or null if they are not cached.
+     */
+    synchronized Collection<IOLAPGraph> get(final RequestKey key) {
+        return results.get(key);
+    }
+
+    /**
+     * Returns whether the graphs of a request are cached, without counting this as a use of them.
+     * @param key The key of the request.
+     * @return true if the graphs are cached.
+     */
+    synchronized boolean contains(final RequestKey key) {
+        return results.containsKey(key);
+    }
+
+    /**
+     * Keeps the graphs of a request. Graphs that are only previews are not kept, neither are graphs larger than the
+     * whole cache.
+     * @param key The key of the request.
+     * @param graphs The graphs loaded for the request.
+     */
+    synchronized void put(final RequestKey key, final Collection<IOLAPGraph> graphs) {
+        long size = 0;
+        for (IOLAPGraph g : graphs) {
+            if (g.getResultOf() != null && g.getResultOf().getEdgeSampleRate() > 1) {
+                return;
+            }
+            size += g.getEdgeCount();
+        }
+        if (size > maxEdges) {
+            return;
+        }
+
+        Collection<IOLAPGraph> old = results.put(key, graphs);
+        if (old != null) {
+            edges -= countEdges(old);
+        }
+        edges += size;
+
+        Iterator<Map.Entry<RequestKey, Collection<IOLAPGraph>>> it = results.entrySet().iterator();
+        while (edges > maxEdges && it.hasNext()) {
+            Map.Entry<RequestKey, Collection<IOLAPGraph>> eldest = it.next();
+            edges -= countEdges(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops all cached graphs.
+     */
+    synchronized void clear() {
+        results.clear();
+        edges = 0;
+    }
+
+    private static long countEdges(final Collection<IOLAPGraph> graphs) {
+        long ret = 0;
+        for (IOLAPGraph g : graphs) {
+            ret += g.getEdgeCount();
+        }
+        return ret;
+    }
+}
@@ -94,5 +94,16 @@ public enum EventType {
     /**
      * The measures for the Graph have changed. Details: {@link IMeasureConfigurationView}
      */
-    measuresChanged
+    measuresChanged,
+
+    /**
+     * The user switched between showing and hiding isolated nodes. Details: {@link Boolean}, true if they are hidden.
+     */
+    isolatedNodesChanged,
+
+    /**
+     * The user zoomed into cells of the overview, so their graphs are to be loaded. Details: {@link java.util.Collection}
+     * of {@link de.logotakt.logolyze.model.interfaces.IRequest}, the requests of the summaries shown in the cells.
+     */
+    overviewCellsOpened
 }
@@ -15,6 +15,15 @@ public interface IHierarchyTreeView extends IErrorReporter {
      */
     void addNode(Object parent, Object child, boolean selectable, boolean selected);
 
+    /**
+     * Add a node to the tree whose children are only added once they are needed, e.g. when the node is expanded. The
+     * children are selectable.
+     * @param parent The parent node, if null, than this is a root node
+     * @param child The child that should be added to the tree
+     * @param children The children of the new node. The collection is kept and read when they are added.
+     */
+    void addLazyNode(Object parent, Object child, Collection<?> children);
+
     /**
      * Clear the tree structure.
      */
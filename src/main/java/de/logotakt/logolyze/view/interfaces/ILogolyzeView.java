@@ -3,7 +3,10 @@ package de.logotakt.logolyze.view.interfaces;
 import java.util.Collection;
 import java.util.List;
 
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.IRequestMetrics;
 
 /**
  * Main interaction interface of the view. Used to register events and push specific data.
@@ -29,6 +32,31 @@ public interface ILogolyzeView extends IErrorReporter {
      */
     void setGraphs(Collection<? extends IOLAPGraph> graphs);
 
+    /**
+     * Replace previews of graphs that are shown by the complete graphs, keeping the nodes where they are.
+     * @param graphs The complete graphs, matching the graphs that were set last.
+     */
+    void refineGraphs(Collection<? extends IOLAPGraph> graphs);
+
+    /**
+     * Display an overview of graphs instead of the graphs themselves, because there are too many of them. Every graph
+     * is shown by its summary; once the user zooms in, the graphs are asked for by an overviewCellsOpened event.
+     * @param summaries The summaries of the graphs that should now be shown.
+     */
+    void setGraphSummaries(Collection<? extends IGraphSummary> summaries);
+
+    /**
+     * Show some graphs of the overview, keeping the rest of it.
+     * @param graphs The graphs whose cells were opened.
+     */
+    void addGraphs(Collection<? extends IOLAPGraph> graphs);
+
+    /**
+     * Tell the user how large the graphs of the current request are estimated to be and how they are loaded.
+     * @param plan The plan of the current request.
+     */
+    void setLoadPlan(ILoadPlan plan);
+
     /**
      * Update the list of known database connections.
      * @param names The names of all known database connections.
@@ -75,6 +103,13 @@ public interface ILogolyzeView extends IErrorReporter {
      */
     void setResponseTime(String time);
 
+    /**
+     * Offer the user a breakdown of the request whose response time was set last. Setting a new response time drops
+     * it, so this has to be called after {@link #setResponseTime(String)}.
+     * @param metrics The metrics of the request, or null if there are none.
+     */
+    void setResponseMetrics(IRequestMetrics metrics);
+
     /**
      * Gets the view in a fresh state.
      */
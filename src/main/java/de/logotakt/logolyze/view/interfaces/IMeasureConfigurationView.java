@@ -2,6 +2,7 @@ package de.logotakt.logolyze.view.interfaces;
 
 import java.util.Collection;
 
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.IMeasureType;
 
 /**
@@ -25,4 +26,16 @@ public interface IMeasureConfigurationView extends IErrorReporter {
      * @param sels selected Measures to set.
      */
     void setSelectedMeasures(Collection<? extends IMeasureType> sels);
+
+    /**
+     * Get the filter the user chose for the edges to load.
+     * @return The edge filter, or null if all edges are to be loaded.
+     */
+    EdgeFilter getEdgeFilter();
+
+    /**
+     * Set the filter for the edges to load.
+     * @param filter The edge filter to show, or null if all edges are loaded.
+     */
+    void setEdgeFilter(EdgeFilter filter);
 }
@@ -12,8 +12,10 @@ import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JPanel;
 import javax.swing.UIManager;
@@ -26,6 +28,8 @@ public class Axis extends JPanel implements MouseListener, MouseMotionListener,
 
     private AxisOrientation orientation;
     private List<String> values;
+    /* The positions of the values, built when a position is asked for first. */
+    private Map<String, Integer> indexes = null;
     private boolean highlighted = false;
     private double panelwidth = 0;
 
@@ -229,6 +233,7 @@ public class Axis extends JPanel implements MouseListener, MouseMotionListener,
         OffsetEvent e;
 
         this.values = values;
+        this.indexes = null;
 
         // Also, reset the offset
         this.offset = 0;
@@ -254,12 +259,17 @@ public class Axis extends JPanel implements MouseListener, MouseMotionListener,
      * @return The position where the string is placed.
      */
     public int getIndexOf(final String object) {
-        for (int i = 0; i < values.size(); i++) {
-            if (values.get(i).equals(object)) {
-                return i;
+        if (indexes == null) {
+            indexes = new HashMap<String, Integer>();
+            for (int i = 0; i < values.size(); i++) {
+                // Like a linear search, the first position of a value wins.
+                if (!indexes.containsKey(values.get(i))) {
+                    indexes.put(values.get(i), i);
+                }
             }
         }
-        return -1;
+        Integer index = indexes.get(object);
+        return index == null ? -1 : index;
     }
 
     /**
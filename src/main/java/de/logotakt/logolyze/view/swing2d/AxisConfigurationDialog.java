@@ -1,6 +1,8 @@
 package de.logotakt.logolyze.view.swing2d;
 
+import java.awt.Component;
 import java.awt.FlowLayout;
+import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
@@ -10,10 +12,10 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
 
-import javax.swing.DefaultListModel;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JFrame;
@@ -21,14 +23,16 @@ import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import de.logotakt.logolyze.view.interfaces.EventType;
 import de.logotakt.logolyze.view.interfaces.IAxisConfigurationView;
-import de.logotakt.logolyze.view.interfaces.IEventHandler;
 
 /**
  * Used for changing the parameters of an axis.
@@ -39,8 +43,15 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
     private JComboBox dimensionComboBox;
     private JComboBox hierarchyComboBox;
     private JComboBox levelComboBox;
+    private JTextField searchField;
     private JList valuesList;
-    private DefaultListModel listModel;
+    private ValueListModel listModel;
+    /* The index of the values shown, or null if there are none. */
+    private ValueSearchIndex searchIndex;
+    /* The values matching the search, as positions in the list. */
+    private final BitSet matched = new BitSet();
+    private int[] matches = new int[0];
+    private int currentMatch;
     private String noneItem = "";
     private Axis axis;
 
@@ -55,18 +66,19 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
         super(owner, "Axis Configuration");
 
         for (EventType type : TRIGGERED_EVENTS) {
-            getListeners().put(type, new HashSet<IEventHandler>());
+            declareEvent(type);
         }
 
         // Init layout
         GridBagLayout gridBagLayout = new GridBagLayout();
-        gridBagLayout.rowWeights = new double[] {0.0, 0.0, 0.0, 1.0, 0.0, 0.0 };
+        gridBagLayout.rowWeights = new double[] {0.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0 };
         gridBagLayout.columnWeights = new double[] {0.0, 1.0 };
         getContentPane().setLayout(gridBagLayout);
 
         initDimensionsBox();
         initHierarchyBox();
         initLevelBox();
+        initSearchField();
         initValuesList();
         initButtonPanel();
         pack();
@@ -172,6 +184,73 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
         getContentPane().add(levelComboBox, gbcLevelComboBox);
     }
 
+    /**
+     * Initialize the field to search the hierarchy values with. The values matching are shown in bold, the list scrolls
+     * to the first of them and Enter to the next one. The selection is left alone.
+     */
+    private void initSearchField() {
+        JLabel searchLabel = new JLabel("Search:");
+        GridBagConstraints gbcSearchLabel = new GridBagConstraints();
+        gbcSearchLabel.anchor = GridBagConstraints.EAST;
+        gbcSearchLabel.insets = new Insets(5, 0, 5, 5);
+        gbcSearchLabel.gridx = 0;
+        gbcSearchLabel.gridy = 3;
+        getContentPane().add(searchLabel, gbcSearchLabel);
+
+        searchField = new JTextField();
+        searchField.setName("searchField");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(final DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(final DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(final DocumentEvent e) {
+                search();
+            }
+        });
+        searchField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                if (matches.length > 0) {
+                    currentMatch = (currentMatch + 1) % matches.length;
+                    valuesList.ensureIndexIsVisible(matches[currentMatch]);
+                }
+            }
+        });
+        GridBagConstraints gbcSearchField = new GridBagConstraints();
+        gbcSearchField.insets = new Insets(5, 3, 5, 0);
+        gbcSearchField.fill = GridBagConstraints.HORIZONTAL;
+        gbcSearchField.gridx = 1;
+        gbcSearchField.gridy = 3;
+        getContentPane().add(searchField, gbcSearchField);
+    }
+
+    /**
+     * Finds the values matching the text of the search field and scrolls to the first of them.
+     */
+    private void search() {
+        matched.clear();
+        matches = new int[0];
+        currentMatch = 0;
+        if (searchIndex != null) {
+            matches = searchIndex.find(searchField.getText(), listModel.getSize());
+            for (int pos : matches) {
+                matched.set(pos);
+            }
+            if (matches.length > 0) {
+                valuesList.ensureIndexIsVisible(matches[0]);
+            }
+        }
+        valuesList.repaint();
+    }
+
     /**
      * Initialize list with hierarchy values.
      */
@@ -181,7 +260,7 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
         gbcValuesLabel.anchor = GridBagConstraints.NORTHEAST;
         gbcValuesLabel.insets = new Insets(5, 0, 5, 5);
         gbcValuesLabel.gridx = 0;
-        gbcValuesLabel.gridy = 3;
+        gbcValuesLabel.gridy = 4;
         getContentPane().add(valuesLabel, gbcValuesLabel);
 
         JScrollPane scrollPane = new JScrollPane();
@@ -190,10 +269,11 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
         gbcScrollPane.insets = new Insets(5, 3, 2, 2);
         gbcScrollPane.fill = GridBagConstraints.BOTH;
         gbcScrollPane.gridx = 1;
-        gbcScrollPane.gridy = 3;
+        gbcScrollPane.gridy = 4;
         getContentPane().add(scrollPane, gbcScrollPane);
 
-        listModel = new DefaultListModel();
+        // The cells all have the size of the longest value, so that the list does not have to measure every one.
+        listModel = new ValueListModel();
         valuesList = new JList(listModel);
         valuesList.setVisibleRowCount(5);
         valuesList.setName("valuesList");
@@ -208,6 +288,18 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
             }
         });
         valuesList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        valuesList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(final JList list, final Object value, final int index,
+                    final boolean isSelected, final boolean cellHasFocus) {
+                Component c = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                // The prototype cell is measured with an index of -1.
+                if (index >= 0 && matched.get(index)) {
+                    c.setFont(c.getFont().deriveFont(Font.BOLD));
+                }
+                return c;
+            }
+        });
         scrollPane.setViewportView(valuesList);
     }
 
@@ -219,7 +311,7 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
         GridBagConstraints gbcPanel = new GridBagConstraints();
         gbcPanel.gridwidth = 2;
         gbcPanel.gridx = 0;
-        gbcPanel.gridy = 5;
+        gbcPanel.gridy = 6;
         getContentPane().add(panel, gbcPanel);
         panel.setLayout(new FlowLayout(FlowLayout.CENTER, 5, 5));
 
@@ -370,18 +462,21 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
     @Override
     public void setValues(final List<String> v) {
         listModel.clear();
+        searchIndex = null;
 
         // If we should only clear, we're done.
         if (v == null) {
+            search();
             return;
         }
 
         // Add the new values.
         suspendEvents();
-        for (String string : v) {
-            listModel.addElement(string);
-        }
+        listModel.setValues(v);
+        valuesList.setPrototypeCellValue(listModel.getLongestValue());
         resumeEvents();
+        searchIndex = new ValueSearchIndex(listModel.getValues());
+        search();
     }
 
     /**
@@ -389,10 +484,15 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
      */
     @Override
     public List<String> getSelectedValues() {
-        Object[] selected = valuesList.getSelectedValues();
-        ArrayList<String> result = new ArrayList<String>(selected.length);
-        for (Object obj : selected) {
-            result.add(obj.toString());
+        ListSelectionModel selection = valuesList.getSelectionModel();
+        ArrayList<String> result = new ArrayList<String>();
+        if (selection.isSelectionEmpty()) {
+            return result;
+        }
+        for (int i = selection.getMinSelectionIndex(); i <= selection.getMaxSelectionIndex(); i++) {
+            if (selection.isSelectedIndex(i)) {
+                result.add(listModel.getElementAt(i).toString());
+            }
         }
         return result;
     }
@@ -402,17 +502,29 @@ public class AxisConfigurationDialog extends Swing2DEventedModalDialog implement
      */
     @Override
     public void setSelectedValues(final List<String> v) {
+        // We need to look up the indices as it is not guaranteed that we will be given the same objects.
         int[] indices = new int[v.size()];
-
-        // We need to search the indices as it is not guaranteed that we will be given the same objects.
-        for (int i = 0; i < v.size(); i++) {
-            for (int j = 0; j < listModel.size(); j++) {
-                if (listModel.get(j).equals(v.get(i))) {
-                    indices[i] = j;
-                }
+        int count = 0;
+        for (String value : v) {
+            int index = listModel.indexOf(value);
+            if (index >= 0) {
+                indices[count++] = index;
+            }
+        }
+        Arrays.sort(indices, 0, count);
+
+        // Select runs of adjacent values as one interval, and tell the listeners only once.
+        ListSelectionModel selection = valuesList.getSelectionModel();
+        selection.setValueIsAdjusting(true);
+        selection.clearSelection();
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || indices[i] > indices[i - 1] + 1) {
+                selection.addSelectionInterval(indices[start], indices[i - 1]);
+                start = i;
             }
         }
-        valuesList.setSelectedIndices(indices);
+        selection.setValueIsAdjusting(false);
     }
 
     /**
@@ -0,0 +1,488 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import edu.uci.ics.jung.algorithms.layout.AbstractLayout;
+import edu.uci.ics.jung.algorithms.util.IterativeContext;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Pair;
+
+/**
+ * A force-directed layout in the spirit of Fruchterman-Reingold that approximates the repulsion between all vertices
+ * with a Barnes-Hut quadtree. One iteration costs O(n log n + m) instead of O(n^2), and the forces are computed on
+ * several cores at once.
+ * <p>
+ * All work is done on primitive coordinate arrays indexed by vertex ordinals; the positions are only copied back into
+ * the layout when they are published. The layout stops after a fixed number of iterations, or earlier once the
+ * vertices hardly move any more. Like JUNG's iterative layouts, it is driven by the viewer's relaxer, which repaints
+ * after every step. When streaming is enabled, every iteration is published, so the graph can be watched settling;
+ * otherwise only the final positions are.
+ * @param <V> The type of vertices in the graph to layout.
+ * @param <E> The type of edges in the graph to layout.
+ */
+class BarnesHutLayout<V, E> extends AbstractLayout<V, E> implements IterativeContext {
+    private static Logger logger = Logger.getLogger(BarnesHutLayout.class);
+
+    /* The default number of iterations until the layout stops. */
+    static final int DEFAULT_MAX_ITERATIONS = 500;
+
+    /* Opening criterion: a quadtree cell is approximated by its center of mass if size / distance is below this. */
+    private static final double THETA = 0.8;
+    /* The layout has converged when the mean movement per iteration falls below this fraction of the ideal distance. */
+    private static final double CONVERGENCE = 0.002;
+    /* Scales the ideal edge length, like FRLayout's attraction and repulsion multipliers. */
+    private static final double FORCE_MULTIPLIER = 0.75;
+    /* Vertices closer than this are treated as being this far apart, to keep the forces finite. */
+    private static final double MIN_DISTANCE = 0.01;
+    /* Fewer vertices than this are not worth splitting across threads. */
+    private static final int MIN_CHUNK = 256;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(r, "Barnes-Hut layout");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final int maxIterations;
+    private final boolean streaming;
+
+    /* The vertices, by ordinal, and the undirected adjacency in compressed form. */
+    private V[] vertices;
+    private int[] offset;
+    private int[] adjacent;
+
+    /* Positions and this iteration's displacements. */
+    private double[] x, y;
+    private double[] dx, dy;
+    private boolean[] locked;
+
+    private int iteration;
+    private double initialTemperature;
+    private double temperature;
+    private double idealDistance;
+    private boolean converged;
+    private boolean initialized = false;
+    /* Whether the arrays need to be reloaded from the layout, because the positions were moved from outside. */
+    private boolean reload = false;
+
+    /* The quadtree, rebuilt in every iteration. Cell i has children child[4i..4i+3]; -1 means none. */
+    private int cells;
+    private int[] child;
+    private double[] cellX, cellY, cellHalf;
+    private double[] mass, massX, massY;
+    /* For leaves holding a single vertex, that vertex; -1 for inner or empty cells. */
+    private int[] leafVertex;
+
+    /**
+     * Creates a new layout that publishes every iteration and stops after {@link #DEFAULT_MAX_ITERATIONS}.
+     * @param graph The graph to layout.
+     */
+    BarnesHutLayout(final Graph<V, E> graph) {
+        this(graph, DEFAULT_MAX_ITERATIONS, true);
+    }
+
+    /**
+     * Creates a new layout.
+     * @param graph The graph to layout.
+     * @param maxIterations The number of iterations after which the layout stops, even if it has not converged.
+     * @param streaming Whether intermediate positions should be published after every iteration.
+     */
+    BarnesHutLayout(final Graph<V, E> graph, final int maxIterations, final boolean streaming) {
+        super(graph);
+        this.maxIterations = maxIterations;
+        this.streaming = streaming;
+    }
+
+    @Override
+    public void setSize(final Dimension size) {
+        super.setSize(size);
+        this.initialized = true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized void initialize() {
+        Graph<V, E> graph = getGraph();
+        Dimension d = getSize();
+        if (graph == null || d == null) {
+            return;
+        }
+
+        int n = graph.getVertexCount();
+        vertices = (V[]) graph.getVertices().toArray();
+        Map<V, Integer> ordinals = new HashMap<V, Integer>(n * 2);
+        for (int i = 0; i < n; i++) {
+            ordinals.put(vertices[i], i);
+        }
+
+        // Compressed adjacency. Self-loops exert no force and are left out.
+        int[] degree = new int[n];
+        int[] from = new int[graph.getEdgeCount()];
+        int[] to = new int[graph.getEdgeCount()];
+        int edgeCount = 0;
+        for (E e : graph.getEdges()) {
+            Pair<V> ends = graph.getEndpoints(e);
+            int a = ordinals.get(ends.getFirst());
+            int b = ordinals.get(ends.getSecond());
+            if (a != b) {
+                from[edgeCount] = a;
+                to[edgeCount] = b;
+                edgeCount++;
+                degree[a]++;
+                degree[b]++;
+            }
+        }
+        offset = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offset[i + 1] = offset[i] + degree[i];
+            degree[i] = 0;
+        }
+        adjacent = new int[offset[n]];
+        for (int i = 0; i < edgeCount; i++) {
+            adjacent[offset[from[i]] + degree[from[i]]++] = to[i];
+            adjacent[offset[to[i]] + degree[to[i]]++] = from[i];
+        }
+
+        // Start from random positions, unless the layout was already running and is only resized.
+        Random random = new Random();
+        x = new double[n];
+        y = new double[n];
+        dx = new double[n];
+        dy = new double[n];
+        locked = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            locked[i] = isLocked(vertices[i]);
+            if (locked[i] || initialized) {
+                Point2D p = transform(vertices[i]);
+                x[i] = p.getX();
+                y[i] = p.getY();
+            } else {
+                x[i] = random.nextDouble() * d.width;
+                y[i] = random.nextDouble() * d.height;
+            }
+        }
+
+        idealDistance = FORCE_MULTIPLIER * Math.sqrt((double) d.width * d.height / Math.max(1, n));
+        initialTemperature = d.width / 10.0;
+        temperature = initialTemperature;
+        iteration = 0;
+        converged = n == 0;
+        reload = initialized;
+
+        // A quadtree over n points has fewer than 2n inner cells plus their children, unless points coincide.
+        ensureTreeCapacity(Math.max(16, 8 * n));
+
+        publish();
+    }
+
+    @Override
+    public synchronized void reset() {
+        initialize();
+    }
+
+    @Override
+    public synchronized boolean done() {
+        return !initialized || converged || iteration >= maxIterations;
+    }
+
+    @Override
+    public synchronized void step() {
+        if (vertices == null || done()) {
+            return;
+        }
+
+        int n = vertices.length;
+        if (reload) {
+            // AbstractLayout moves the vertices after a resize, so pick up their new positions.
+            for (int i = 0; i < n; i++) {
+                Point2D p = transform(vertices[i]);
+                x[i] = p.getX();
+                y[i] = p.getY();
+            }
+            reload = false;
+        }
+
+        buildTree();
+        computeForces();
+
+        double moved = 0;
+        Dimension d = getSize();
+        for (int i = 0; i < n; i++) {
+            if (locked[i]) {
+                continue;
+            }
+
+            // Limit the movement to the current temperature, like FRLayout does.
+            double length = Math.max(MIN_DISTANCE, Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]));
+            double step = Math.min(length, temperature);
+            double nx = Math.min(d.width, Math.max(0, x[i] + dx[i] / length * step));
+            double ny = Math.min(d.height, Math.max(0, y[i] + dy[i] / length * step));
+
+            moved += Math.abs(nx - x[i]) + Math.abs(ny - y[i]);
+            x[i] = nx;
+            y[i] = ny;
+        }
+
+        iteration++;
+        temperature = initialTemperature * (1.0 - (double) iteration / maxIterations);
+        converged = moved / Math.max(1, n) < CONVERGENCE * idealDistance;
+
+        if (streaming || done()) {
+            publish();
+        }
+        if (done()) {
+            logger.debug("Barnes-Hut layout of " + n + " vertices finished after " + iteration + " iterations"
+                    + (converged ? " (converged)" : ""));
+        }
+    }
+
+    /* Copies the positions from the arrays into the layout. */
+    private void publish() {
+        for (int i = 0; i < vertices.length; i++) {
+            if (!locked[i]) {
+                transform(vertices[i]).setLocation(x[i], y[i]);
+            }
+        }
+    }
+
+    /* Computes the displacement of every vertex, split into chunks across the worker threads. */
+    private void computeForces() {
+        int n = vertices.length;
+        int chunks = Math.min(THREADS, Math.max(1, n / MIN_CHUNK));
+
+        if (chunks == 1) {
+            computeForces(0, n);
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int start = (int) ((long) n * c / chunks);
+            final int end = (int) ((long) n * (c + 1) / chunks);
+            futures.add(WORKERS.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    computeForces(start, end);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (Future<Void> f : futures) {
+                f.cancel(true);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Computing the layout forces failed", e.getCause());
+        }
+    }
+
+    /* Computes the displacements of the vertices start (inclusive) to end (exclusive). Only writes dx, dy there. */
+    private void computeForces(final int start, final int end) {
+        double k2 = idealDistance * idealDistance;
+        int[] stack = new int[4 * 64 + 1];
+
+        for (int i = start; i < end; i++) {
+            double fx = 0, fy = 0;
+            double px = x[i], py = y[i];
+
+            // Repulsion from all other vertices, approximated through the quadtree.
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int c = stack[--top];
+                if (mass[c] == 0 || leafVertex[c] == i) {
+                    continue;
+                }
+
+                double ddx = px - massX[c];
+                double ddy = py - massY[c];
+                if (ddx == 0 && ddy == 0) {
+                    // Vertices on the same spot have no direction to repel each other in, so each gets one of its own.
+                    ddx = MIN_DISTANCE * Math.cos(i);
+                    ddy = MIN_DISTANCE * Math.sin(i);
+                }
+                double dist = Math.max(MIN_DISTANCE, Math.sqrt(ddx * ddx + ddy * ddy));
+
+                if (child[4 * c] == -1 || 2 * cellHalf[c] / dist < THETA) {
+                    double force = mass[c] * k2 / dist;
+                    fx += ddx / dist * force;
+                    fy += ddy / dist * force;
+                } else {
+                    if (top + 4 > stack.length) {
+                        int[] larger = new int[stack.length * 2];
+                        System.arraycopy(stack, 0, larger, 0, top);
+                        stack = larger;
+                    }
+                    for (int q = 0; q < 4; q++) {
+                        stack[top++] = child[4 * c + q];
+                    }
+                }
+            }
+
+            // Attraction along the edges.
+            for (int k = offset[i]; k < offset[i + 1]; k++) {
+                int j = adjacent[k];
+                double ddx = px - x[j];
+                double ddy = py - y[j];
+                double dist = Math.max(MIN_DISTANCE, Math.sqrt(ddx * ddx + ddy * ddy));
+                double force = dist * dist / idealDistance;
+                fx -= ddx / dist * force;
+                fy -= ddy / dist * force;
+            }
+
+            dx[i] = fx;
+            dy[i] = fy;
+        }
+    }
+
+    private void ensureTreeCapacity(final int capacity) {
+        if (child != null && child.length >= 4 * capacity) {
+            return;
+        }
+        child = new int[4 * capacity];
+        cellX = new double[capacity];
+        cellY = new double[capacity];
+        cellHalf = new double[capacity];
+        mass = new double[capacity];
+        massX = new double[capacity];
+        massY = new double[capacity];
+        leafVertex = new int[capacity];
+    }
+
+    /* Creates an empty leaf cell and returns its index. */
+    private int newCell(final double cx, final double cy, final double half) {
+        if (cells == mass.length) {
+            growTree();
+        }
+        int c = cells++;
+        cellX[c] = cx;
+        cellY[c] = cy;
+        cellHalf[c] = half;
+        mass[c] = 0;
+        massX[c] = 0;
+        massY[c] = 0;
+        leafVertex[c] = -1;
+        for (int q = 0; q < 4; q++) {
+            child[4 * c + q] = -1;
+        }
+        return c;
+    }
+
+    private void growTree() {
+        int capacity = mass.length * 2;
+        int[] oldChild = child;
+        double[] oldCellX = cellX, oldCellY = cellY, oldCellHalf = cellHalf;
+        double[] oldMass = mass, oldMassX = massX, oldMassY = massY;
+        int[] oldLeafVertex = leafVertex;
+
+        child = null;
+        ensureTreeCapacity(capacity);
+
+        System.arraycopy(oldChild, 0, child, 0, oldChild.length);
+        System.arraycopy(oldCellX, 0, cellX, 0, cells);
+        System.arraycopy(oldCellY, 0, cellY, 0, cells);
+        System.arraycopy(oldCellHalf, 0, cellHalf, 0, cells);
+        System.arraycopy(oldMass, 0, mass, 0, cells);
+        System.arraycopy(oldMassX, 0, massX, 0, cells);
+        System.arraycopy(oldMassY, 0, massY, 0, cells);
+        System.arraycopy(oldLeafVertex, 0, leafVertex, 0, cells);
+    }
+
+    /* Builds the quadtree over the current positions. Cell 0 is the root. */
+    private void buildTree() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < x.length; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double half = Math.max(MIN_DISTANCE, Math.max(maxX - minX, maxY - minY) / 2 + MIN_DISTANCE);
+
+        cells = 0;
+        newCell((minX + maxX) / 2, (minY + maxY) / 2, half);
+        for (int i = 0; i < x.length; i++) {
+            insert(i);
+        }
+
+        // Turn the summed weighted positions into centers of mass.
+        for (int c = 0; c < cells; c++) {
+            if (mass[c] > 0) {
+                massX[c] /= mass[c];
+                massY[c] /= mass[c];
+            }
+        }
+    }
+
+    private void insert(final int v) {
+        double px = x[v], py = y[v];
+        int c = 0;
+
+        while (true) {
+            mass[c] += 1;
+            massX[c] += px;
+            massY[c] += py;
+
+            if (child[4 * c] == -1) {
+                if (leafVertex[c] == -1 && mass[c] == 1) {
+                    // The leaf was empty.
+                    leafVertex[c] = v;
+                    return;
+                }
+                if (cellHalf[c] <= MIN_DISTANCE) {
+                    // Coincident vertices stay together in one leaf instead of splitting forever.
+                    leafVertex[c] = -1;
+                    return;
+                }
+
+                // Split the leaf and push its vertex down one level.
+                int old = leafVertex[c];
+                leafVertex[c] = -1;
+                double h = cellHalf[c] / 2;
+                for (int q = 0; q < 4; q++) {
+                    int nc = newCell(cellX[c] + ((q & 1) == 0 ? -h : h), cellY[c] + ((q & 2) == 0 ? -h : h), h);
+                    child[4 * c + q] = nc;
+                }
+                if (old != -1) {
+                    int oc = child[4 * c + quadrant(c, x[old], y[old])];
+                    mass[oc] = 1;
+                    massX[oc] = x[old];
+                    massY[oc] = y[old];
+                    leafVertex[oc] = old;
+                }
+            }
+
+            c = child[4 * c + quadrant(c, px, py)];
+        }
+    }
+
+    private int quadrant(final int c, final double px, final double py) {
+        return (px < cellX[c] ? 0 : 1) | (py < cellY[c] ? 0 : 2);
+    }
+}
@@ -0,0 +1,99 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.renderers.VertexLabelAsShapeRenderer;
+
+/**
+ * A VertexLabelAsShapeRenderer that remembers the size of every label it has measured. JUNG measures a label by
+ * preparing a label component and asking it for its preferred size, which means laying out the (possibly HTML) text
+ * again for every vertex in every paint and every relayout. The sizes only depend on the label text and its font, so
+ * they are cached by these, in one cache shared by all panels.
+ */
+final class CachedLabelShapeRenderer extends VertexLabelAsShapeRenderer<INode, IEdge> {
+    /* The number of label sizes to keep. Beyond that, the least recently used ones are dropped. */
+    private static final int MAX_ENTRIES = 65536;
+
+    /**
+     * Key of a cached label size: the label text and its font.
+     */
+    private static final class LabelKey {
+        private final String label;
+        private final Font font;
+
+        LabelKey(final String label, final Font font) {
+            this.label = label;
+            this.font = font;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof LabelKey)) {
+                return false;
+            }
+            LabelKey other = (LabelKey) o;
+            return label.equals(other.label) && (font == null ? other.font == null : font.equals(other.font));
+        }
+
+        @Override
+        public int hashCode() {
+            return label.hashCode() * 31 + (font == null ? 0 : font.hashCode());
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final Map<LabelKey, Rectangle> SIZES = new LinkedHashMap<LabelKey, Rectangle>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<LabelKey, Rectangle> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private final RenderContext<INode, IEdge> context;
+
+    /**
+     * Creates a new renderer.
+     * @param rc The render context whose label and font transformers are used.
+     */
+    CachedLabelShapeRenderer(final RenderContext<INode, IEdge> rc) {
+        super(rc);
+        this.context = rc;
+    }
+
+    /**
+     * Returns the shape of a vertex, which is the bounds of its label. Sizes of labels that were measured before are
+     * looked up instead of being measured again.
+     * @param v The vertex.
+     * @return The bounds of its label, centered on the vertex.
+     */
+    @Override
+    public Shape transform(final INode v) {
+        String label = context.getVertexLabelTransformer().transform(v);
+        if (label == null) {
+            return super.transform(v);
+        }
+
+        LabelKey key = new LabelKey(label, context.getVertexFontTransformer().transform(v));
+        Rectangle bounds;
+        synchronized (SIZES) {
+            bounds = SIZES.get(key);
+        }
+
+        if (bounds == null) {
+            bounds = super.transform(v).getBounds();
+            synchronized (SIZES) {
+                SIZES.put(key, bounds);
+            }
+        }
+
+        // Callers may modify the shape they get, the cached one must stay as it is.
+        return new Rectangle(bounds);
+    }
+}
@@ -0,0 +1,137 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.IRequest;
+import edu.uci.ics.jung.graph.GraphDecorator;
+
+/**
+ * A view of a graph that hides its isolated nodes. Nothing is copied: the nodes are filtered whenever they are asked
+ * for, and everything else is passed on to the underlying graph. Since only nodes without edges are hidden, the edges
+ * and the neighbours of every visible node are the same as in the underlying graph.
+ */
+final class ConnectedNodesGraph extends GraphDecorator<INode, IEdge> implements IOLAPGraph {
+    private static final long serialVersionUID = -4616380135232893317L;
+
+    /**
+     * Creates a new view of a graph.
+     * @param graph The graph whose isolated nodes are to be hidden.
+     */
+    ConnectedNodesGraph(final IOLAPGraph graph) {
+        super(graph);
+    }
+
+    private IOLAPGraph getGraph() {
+        return (IOLAPGraph) this.delegate;
+    }
+
+    /* Whether a node of the underlying graph is visible in this one. */
+    private boolean isConnected(final INode node) {
+        return this.delegate.degree(node) > 0;
+    }
+
+    @Override
+    public Collection<INode> getVertices() {
+        return new AbstractCollection<INode>() {
+            @Override
+            public Iterator<INode> iterator() {
+                return new ConnectedIterator(delegate.getVertices().iterator());
+            }
+
+            @Override
+            public int size() {
+                return getVertexCount();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o instanceof INode && containsVertex((INode) o);
+            }
+        };
+    }
+
+    @Override
+    public int getVertexCount() {
+        int count = 0;
+        for (INode node : this.delegate.getVertices()) {
+            if (isConnected(node)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean containsVertex(final INode vertex) {
+        return this.delegate.containsVertex(vertex) && isConnected(vertex);
+    }
+
+    @Override
+    public IRequest getResultOf() {
+        return getGraph().getResultOf();
+    }
+
+    @Override
+    public void setResultOf(final IRequest req) {
+        getGraph().setResultOf(req);
+    }
+
+    /**
+     * {@inheritDoc} Aggregating keeps every edge between the same nodes, so the aggregated graph is again a view
+     * without isolated nodes.
+     */
+    @Override
+    public IOLAPGraph aggregateParallelEdges(final EdgeAggregation aggregation) {
+        return new ConnectedNodesGraph(getGraph().aggregateParallelEdges(aggregation));
+    }
+
+    /**
+     * Iterates over the connected nodes among those of another iterator.
+     */
+    private final class ConnectedIterator implements Iterator<INode> {
+        private final Iterator<INode> nodes;
+        private INode next = null;
+
+        ConnectedIterator(final Iterator<INode> nodes) {
+            this.nodes = nodes;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && nodes.hasNext()) {
+                INode node = nodes.next();
+                if (isConnected(node)) {
+                    next = node;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public INode next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            INode ret = next;
+            advance();
+            return ret;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("The nodes of a filtered graph cannot be removed");
+        }
+    }
+}
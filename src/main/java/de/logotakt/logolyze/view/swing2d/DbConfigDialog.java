@@ -6,7 +6,6 @@ import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Collection;
-import java.util.HashSet;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
@@ -51,7 +50,7 @@ public class DbConfigDialog extends Swing2DEventedModalDialog implements IConnec
 
 
         for (EventType type : TRIGGERED_EVENTS) {
-            getListeners().put(type, new HashSet<IEventHandler>());
+            declareEvent(type);
         }
 
         GridBagLayout gridBagLayout = new GridBagLayout();
@@ -194,9 +193,7 @@ public class DbConfigDialog extends Swing2DEventedModalDialog implements IConnec
     @Override
     public void event(final EventArgs e) {
         // Proxy the event to all known listeners.
-        for (IEventHandler handler : getListeners().get(e.getType())) {
-            handler.event(e);
-        }
+        forwardEvent(e);
 
         // when a config changes, refresh the list.
         if (e.getType() == EventType.dbConfigChanged || e.getType() == EventType.dbConfigCreated) {
@@ -6,7 +6,6 @@ import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.HashSet;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -16,7 +15,6 @@ import javax.swing.JTextField;
 
 import de.logotakt.logolyze.view.interfaces.EventType;
 import de.logotakt.logolyze.view.interfaces.IConnectionEditView;
-import de.logotakt.logolyze.view.interfaces.IEventHandler;
 
 /**
  * The DbConfigEditDialog allows the user to create or edit a connection with its name, connection string and
@@ -52,7 +50,7 @@ public class DbConfigEditDialog extends Swing2DEventedModalDialog implements ICo
 
     private void constructInterface() {
         for (EventType type : TRIGGERED_EVENTS) {
-            getListeners().put(type, new HashSet<IEventHandler>());
+            declareEvent(type);
         }
 
         constructLayout();
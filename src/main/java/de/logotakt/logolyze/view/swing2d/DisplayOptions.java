@@ -2,6 +2,8 @@ package de.logotakt.logolyze.view.swing2d;
 
 import java.awt.Color;
 
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+
 /**
  * This class holds options for displaying graphs.
  */
@@ -12,6 +14,7 @@ public class DisplayOptions {
     private boolean forceLabels;
     private boolean removeIsolated;
     private boolean showLegend;
+    private EdgeAggregation edgeAggregation = null;
 
     /**
      * Get the layout used for graphs.
@@ -93,6 +96,22 @@ public class DisplayOptions {
         return this.showLegend;
     }
 
+    /**
+     * Set how parallel edges are aggregated into one edge.
+     * @param edgeAggregation The aggregate to show for parallel edges, or null to draw every edge on its own.
+     */
+    public void setEdgeAggregation(final EdgeAggregation edgeAggregation) {
+        this.edgeAggregation = edgeAggregation;
+    }
+
+    /**
+     * Get how parallel edges are aggregated into one edge.
+     * @return The aggregate shown for parallel edges, or null if every edge is drawn on its own.
+     */
+    public EdgeAggregation getEdgeAggregation() {
+        return this.edgeAggregation;
+    }
+
     /**
      * Construct a new DisplayOptions object.
      * @param layout The layout to use for graphs.
@@ -128,6 +147,7 @@ public class DisplayOptions {
         this.forceLabels = from.isLabelDisplayForced();
         this.removeIsolated = from.isRemoveIsolatedNodesWanted();
         this.showLegend = from.isShowLegendWanted();
+        this.edgeAggregation = from.getEdgeAggregation();
     }
 
     // This is a method on its own because we might do this via some configuration manager.
@@ -0,0 +1,237 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.EventQueue;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+import de.logotakt.logolyze.view.interfaces.EventArgs;
+import de.logotakt.logolyze.view.interfaces.EventType;
+import de.logotakt.logolyze.view.interfaces.IEventHandler;
+
+/**
+ * Delivers the events of one component of the view to their listeners. How an event is delivered depends on the
+ * dispatch policy of its type, which is the same for all components:
+ * <ul>
+ * <li>inline: the listeners are called right away, by the thread firing the event. This is the default.</li>
+ * <li>coalesced: the listeners are called later on the event dispatch thread, after the component has finished
+ * reacting to the user. If the component fires the same type again in the meantime, only the latest event is
+ * delivered.</li>
+ * </ul>
+ * Listeners are kept in copy-on-write sets, so events can be delivered while listeners are added or removed, without
+ * any lock held during delivery. Every delivery is measured; see {@link #getMetrics()}.
+ */
+final class EventBus {
+    private static final Logger logger = Logger.getLogger(EventBus.class);
+
+    /**
+     * The ways an event can be delivered.
+     */
+    enum Policy {
+        /**
+         * Deliver right away, by the firing thread.
+         */
+        inline,
+
+        /**
+         * Deliver later on the event dispatch thread, dropping events superseded in the meantime.
+         */
+        coalesced
+    }
+
+    /* Listeners taking longer than this (in nanoseconds) are logged, since they block the thread delivering. */
+    private static final long SLOW_HANDLER = 200L * 1000 * 1000;
+
+    private static final Map<EventType, Policy> POLICIES = new ConcurrentHashMap<EventType, Policy>();
+
+    static {
+        // This only leads to new graphs being requested, for the state of the view at the time of delivery. Events
+        // whose handlers work out what changed since the last one, like treeNodeSelected, must stay inline: merging
+        // them would hand several changes to a handler expecting one.
+        POLICIES.put(EventType.isolatedNodesChanged, Policy.coalesced);
+    }
+
+    /* Metrics of all buses, by event type. */
+    private static final int TYPES = EventType.values().length;
+    private static final AtomicInteger QUEUE_DEPTH = new AtomicInteger();
+    private static final AtomicLongArray DELIVERED = new AtomicLongArray(TYPES);
+    private static final AtomicLongArray DROPPED = new AtomicLongArray(TYPES);
+    private static final AtomicLongArray TOTAL_NANOS = new AtomicLongArray(TYPES);
+    private static final AtomicLongArray MAX_NANOS = new AtomicLongArray(TYPES);
+
+    private final Map<EventType, CopyOnWriteArraySet<IEventHandler>> listeners =
+            new EnumMap<EventType, CopyOnWriteArraySet<IEventHandler>>(EventType.class);
+    /* For coalesced types, the latest event not delivered yet. */
+    private final Map<EventType, EventArgs> pending = new EnumMap<EventType, EventArgs>(EventType.class);
+
+    /**
+     * Declares that the component fires events of a type, so listeners can be added for it. All types have to be
+     * declared before the bus is used.
+     * @param type The type of the events fired.
+     */
+    void declare(final EventType type) {
+        if (!listeners.containsKey(type)) {
+            listeners.put(type, new CopyOnWriteArraySet<IEventHandler>());
+        }
+    }
+
+    /**
+     * Returns whether the component fires events of a type.
+     * @param type The event type.
+     * @return true if the type was declared.
+     */
+    boolean isDeclared(final EventType type) {
+        return listeners.containsKey(type);
+    }
+
+    /**
+     * Adds a listener to a given {@link EventType}.
+     * @param l The listener for this event.
+     * @param type The {@link EventType} this listener should be called on.
+     */
+    void addListener(final IEventHandler l, final EventType type) {
+        getListeners(type).add(l);
+    }
+
+    /**
+     * Removes a listener from an event.
+     * @param l The listener that should be removed.
+     * @param type The {@link EventType} this listener was called on.
+     */
+    void removeListener(final IEventHandler l, final EventType type) {
+        getListeners(type).remove(l);
+    }
+
+    private CopyOnWriteArraySet<IEventHandler> getListeners(final EventType type) {
+        CopyOnWriteArraySet<IEventHandler> set = listeners.get(type);
+        if (set == null) {
+            throw new IllegalArgumentException(type.toString() + " is not triggered by this module.");
+        }
+        return set;
+    }
+
+    /**
+     * Delivers an event to the listeners of its type, according to the policy of the type.
+     * @param e The event.
+     */
+    void publish(final EventArgs e) {
+        final EventType type = e.getType();
+
+        switch (getPolicy(type)) {
+        case coalesced:
+            synchronized (pending) {
+                if (pending.put(type, e) != null) {
+                    // The earlier event is superseded, its delivery will take this one.
+                    DROPPED.incrementAndGet(type.ordinal());
+                    return;
+                }
+            }
+            QUEUE_DEPTH.incrementAndGet();
+            EventQueue.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    QUEUE_DEPTH.decrementAndGet();
+                    EventArgs latest;
+                    synchronized (pending) {
+                        latest = pending.remove(type);
+                    }
+                    deliver(latest);
+                }
+            });
+            break;
+        default:
+            deliver(e);
+            break;
+        }
+    }
+
+    /**
+     * Delivers an event right away, regardless of the policy of its type. This is for components passing on the events
+     * of their children, which were already dispatched according to the policy by the bus of the child.
+     * @param e The event.
+     */
+    void forward(final EventArgs e) {
+        deliver(e);
+    }
+
+    private void deliver(final EventArgs e) {
+        int type = e.getType().ordinal();
+
+        for (IEventHandler handler : getListeners(e.getType())) {
+            long start = System.nanoTime();
+            handler.event(e);
+            long nanos = System.nanoTime() - start;
+
+            DELIVERED.incrementAndGet(type);
+            TOTAL_NANOS.addAndGet(type, nanos);
+            long max = MAX_NANOS.get(type);
+            while (nanos > max && !MAX_NANOS.compareAndSet(type, max, nanos)) {
+                max = MAX_NANOS.get(type);
+            }
+            if (nanos > SLOW_HANDLER) {
+                logger.warn("Handling " + e.getType() + " took " + (nanos / 1000000) + " ms in "
+                        + handler.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * Returns how events of a type are delivered.
+     * @param type The event type.
+     * @return The dispatch policy of the type.
+     */
+    static Policy getPolicy(final EventType type) {
+        Policy policy = POLICIES.get(type);
+        return policy == null ? Policy.inline : policy;
+    }
+
+    /**
+     * Sets how events of a type are delivered by all buses.
+     * @param type The event type.
+     * @param policy The dispatch policy of the type.
+     */
+    static void setPolicy(final EventType type, final Policy policy) {
+        POLICIES.put(type, policy);
+    }
+
+    /**
+     * Returns the number of events waiting to be delivered by any bus.
+     * @return The number of coalesced deliveries not done yet.
+     */
+    static int getQueueDepth() {
+        return QUEUE_DEPTH.get();
+    }
+
+    /**
+     * Describes the metrics of all buses: for every event type delivered, how often it was delivered to a listener,
+     * how often it was superseded before delivery and how long its listeners took on average and at most.
+     * @return The metrics, one line per event type.
+     */
+    static String getMetrics() {
+        StringBuilder ret = new StringBuilder("Event queue depth: ").append(getQueueDepth());
+        for (EventType type : EventType.values()) {
+            int i = type.ordinal();
+            long delivered = DELIVERED.get(i);
+            if (delivered == 0 && DROPPED.get(i) == 0) {
+                continue;
+            }
+            ret.append('\n').append(type).append(" (").append(getPolicy(type)).append("): ").append(delivered)
+                    .append(" delivered, ").append(DROPPED.get(i)).append(" coalesced, avg ")
+                    .append(delivered == 0 ? 0 : TOTAL_NANOS.get(i) / delivered / 1000).append(" us, max ")
+                    .append(MAX_NANOS.get(i) / 1000).append(" us");
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Logs the metrics of all buses.
+     */
+    static void logMetrics() {
+        logger.info(getMetrics());
+    }
+}
@@ -6,6 +6,7 @@ import java.awt.EventQueue;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.BorderFactory;
 import javax.swing.JFrame;
@@ -30,6 +32,7 @@ import org.w3c.dom.Document;
 
 import de.logotakt.logolyze.model.interfaces.DimensionType;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
 import de.logotakt.logolyze.model.interfaces.IRequest;
 import de.logotakt.logolyze.view.interfaces.EventArgs;
@@ -48,7 +51,10 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
 
     protected static final EventType[] TRIGGERED_EVENTS = new EventType[] {EventType.axisConfigChanged,
             EventType.axisConfigDone, EventType.axisConfigShowing, EventType.measuresChanged,
-            EventType.measuresChanging };
+            EventType.measuresChanging, EventType.overviewCellsOpened };
+
+    /* Once the cells are at least this large (in pixels), the graphs of the visible overview tiles are loaded. */
+    private static final int DETAIL_SIZE = 150;
 
     private GraphPanelPopupMousePlugin gppmp;
     private AxisConfigurationDialog xacDialog;
@@ -60,6 +66,9 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
 
     private MeasureConfigurationDialog measureDialog;
 
+    /* The overview cells whose graphs were asked for already. */
+    private final Set<GraphPanel> openedCells = new HashSet<GraphPanel>();
+
     /**
      * Get access to the measure dialog.
      * @return The MeasureConfigurationDialog.
@@ -177,7 +186,7 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
         setLayout(gridBagLayout);
 
         for (EventType type : TRIGGERED_EVENTS) {
-            getListeners().put(type, new HashSet<IEventHandler>());
+            declareEvent(type);
         }
 
         this.globalDisplayOptions = options;
@@ -363,30 +372,150 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
         LOGGER.debug("finished matching graphs to panels.");
     }
 
+    /**
+     * Replace the previews shown in the grid by the complete graphs. Graphs that do not match a panel are dropped,
+     * since the axes changed after the previews were set.
+     * @param graphs The complete graphs.
+     */
+    public void refineGraphs(final Collection<? extends IOLAPGraph> graphs) {
+        LOGGER.debug("refining " + graphs.size() + " graphs.");
+        for (IOLAPGraph olapGraph : graphs) {
+            GraphPanel graphPanel = findPanel(olapGraph.getResultOf());
+            if (graphPanel != null) {
+                graphPanel.refineGraph(olapGraph);
+            }
+        }
+    }
+
+    /**
+     * Display an overview of a set of graphs: every graph is shown as a tile, colored by the sum of the summarized
+     * measure or, without one, by the number of edges. The scale is logarithmic, so that a few very large graphs do not
+     * make all other tiles look alike.
+     * @param summaries The summaries of the graphs.
+     */
+    public void setGraphSummaries(final Collection<? extends IGraphSummary> summaries) {
+        LOGGER.debug("getting " + summaries.size() + " graph summaries from the controller.");
+        updateGraphGrid();
+
+        double max = 0;
+        for (IGraphSummary summary : summaries) {
+            max = Math.max(max, getTileValue(summary));
+        }
+
+        boolean allGraphsMatch = true;
+        for (final IGraphSummary summary : summaries) {
+            final GraphPanel graphPanel = findPanel(summary.getResultOf());
+            if (graphPanel == null) {
+                allGraphsMatch = false;
+                continue;
+            }
+            float percentage = max > 0 ? (float) (Math.log1p(getTileValue(summary)) / Math.log1p(max)) : 0;
+            graphPanel.setSummary(summary, GraphStyle.getGradientColor(percentage));
+            graphPanel.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(final MouseEvent e) {
+                    if (e.getClickCount() == 2 && graphPanel.getSummary() != null && openedCells.add(graphPanel)) {
+                        List<IRequest> cells = new ArrayList<IRequest>(1);
+                        cells.add(summary.getResultOf());
+                        fireEvent(EventType.overviewCellsOpened, cells);
+                    }
+                }
+            });
+        }
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                resizeGraphPanels();
+            }
+        });
+        if (!allGraphsMatch) {
+            displayError("Could not position all graphs.");
+        }
+    }
+
+    /* The value a tile is colored by. */
+    private static double getTileValue(final IGraphSummary summary) {
+        if (summary.getMeasure() != null) {
+            return Math.max(0, summary.getMeasureSum());
+        }
+        return summary.getEdgeCount();
+    }
+
+    /**
+     * Show some graphs in their cells, leaving the other cells as they are. Used to replace tiles of the overview by
+     * their graphs.
+     * @param graphs The graphs to show.
+     */
+    public void addGraphs(final Collection<? extends IOLAPGraph> graphs) {
+        LOGGER.debug("adding " + graphs.size() + " graphs.");
+        for (IOLAPGraph olapGraph : graphs) {
+            matchGraphToPanel(olapGraph);
+        }
+    }
+
+    /**
+     * Asks for the graphs of the visible overview tiles once the cells are large enough to show graphs.
+     * @param panelWidth The width of the cells.
+     * @param panelHeight The height of the cells.
+     */
+    private void openZoomedCells(final int panelWidth, final int panelHeight) {
+        if (panelWidth < DETAIL_SIZE || panelHeight < DETAIL_SIZE) {
+            return;
+        }
+
+        Rectangle visible = new Rectangle(0, 0, graphsFoundation.getWidth(), graphsFoundation.getHeight());
+        List<IRequest> cells = new ArrayList<IRequest>();
+        for (List<GraphPanel> column : graphPanelList) {
+            for (GraphPanel graphPanel : column) {
+                if (graphPanel.getSummary() != null && graphPanel.getBounds().intersects(visible)
+                        && openedCells.add(graphPanel)) {
+                    cells.add(graphPanel.getSummary().getResultOf());
+                }
+            }
+        }
+
+        if (!cells.isEmpty()) {
+            LOGGER.debug("zoomed into " + cells.size() + " overview cells.");
+            fireEvent(EventType.overviewCellsOpened, cells);
+        }
+    }
+
     /**
      * Position a graph in the Grid.
      * @param olapGraph The graph will shall be shown in the grid.
-     * @param forceLabels Force displaying the complete labels even if it would get too crowded.
-     * @param removeIsolated Remove Nodes that have no Edges from display.
      */
     private boolean matchGraphToPanel(final IOLAPGraph olapGraph) {
+        GraphPanel graphPanel = findPanel(olapGraph.getResultOf());
+        if (graphPanel == null) {
+            return false;
+        }
+        LOGGER.debug("matched graph to panel.");
+        graphPanel.setGraph(olapGraph);
+        return true;
+    }
+
+    /**
+     * Find the panel of the grid a graph belongs in.
+     * @param req The request the graph is the result of.
+     * @return The panel, or null if the graph does not belong in any.
+     */
+    private GraphPanel findPanel(final IRequest req) {
         int x = -1;
         int y = -1;
-        IRequest req = olapGraph.getResultOf();
         for (IConstraint constraint : req) {
             if (constraintMatchesDialog(xacDialog, constraint)) {
                 // Assume that the returned constraint has only one value (as documented).
                 if (constraint.getDimension().getType() == DimensionType.tDimension) {
                     x = xAxis.getIndexOf(constraint.getHierarchyLevel().getName());
                 } else {
-                    x = xAxis.getIndexOf(constraint.getValues().toArray()[0].toString());
+                    x = xAxis.getIndexOf(constraint.getValues().iterator().next().toString());
                 }
             } else if (constraintMatchesDialog(yacDialog, constraint)) {
                 // Assume that the returned constraint has only one value (as documented).
                 if (constraint.getDimension().getType() == DimensionType.tDimension) {
                     y = yAxis.getIndexOf(constraint.getHierarchyLevel().getName());
                 } else {
-                    y = yAxis.getIndexOf(constraint.getValues().toArray()[0].toString());
+                    y = yAxis.getIndexOf(constraint.getValues().iterator().next().toString());
                 }
             }
         }
@@ -399,16 +528,12 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
             y = 0;
         }
 
-        if (x == -1 || y == -1) {
+        if (x == -1 || y == -1 || x >= graphPanelList.size() || y >= graphPanelList.get(x).size()) {
             LOGGER.error("Matching produced invalid coordinates: (" + Integer.toString(x) + ", " + Integer.toString(y)
                     + ")");
-            return false;
-        } else {
-            GraphPanel graphPanel = graphPanelList.get(x).get(y);
-            LOGGER.debug("matched graph to panel.");
-            graphPanel.setGraph(olapGraph);
-            return true;
+            return null;
         }
+        return graphPanelList.get(x).get(y);
     }
 
     /**
@@ -468,6 +593,7 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
     private void updateGraphGrid() {
         // Clear it firstpanel
         graphsFoundation.removeAll();
+        openedCells.clear();
 
         int xAxisLength = getXAxisLength();
         int yAxisLength = getYAxisLength();
@@ -526,6 +652,8 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
                         (int) ((j * panelHeight) + this.offsetY));
             }
         }
+
+        openZoomedCells(panelWidth, panelHeight);
     }
 
     /**
@@ -561,6 +689,8 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
                 graphSurface.setBorder(BorderFactory.createLineBorder(Color.black));
             }
         }
+
+        openZoomedCells(panelWidth, panelHeight);
     }
 
     /**
@@ -569,7 +699,9 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
      * @param event The {@link EventType} this listener should be called on.
      */
     public void addEventListener(final IEventHandler l, final EventType event) {
-        if (java.util.Arrays.asList(AxisConfigurationDialog.TRIGGERED_EVENTS).contains(event)) {
+        if (event == EventType.overviewCellsOpened) {
+            super.addEventListener(l, event);
+        } else if (java.util.Arrays.asList(AxisConfigurationDialog.TRIGGERED_EVENTS).contains(event)) {
             xacDialog.addEventListener(l, event);
             yacDialog.addEventListener(l, event);
         } else {
@@ -583,7 +715,9 @@ public class GraphGrid2D extends Swing2dEventedPanel implements IStateful, IEven
      * @param event The {@link EventType} this listener was called on.
      */
     public void removeEventListener(final IEventHandler l, final EventType event) {
-        if (java.util.Arrays.asList(AxisConfigurationDialog.TRIGGERED_EVENTS).contains(event)) {
+        if (event == EventType.overviewCellsOpened) {
+            super.removeEventListener(l, event);
+        } else if (java.util.Arrays.asList(AxisConfigurationDialog.TRIGGERED_EVENTS).contains(event)) {
             xacDialog.removeEventListener(l, event);
             yacDialog.removeEventListener(l, event);
         } else {
@@ -1,6 +1,5 @@
 package de.logotakt.logolyze.view.swing2d;
 
-import java.awt.BasicStroke;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -16,9 +15,11 @@ import java.awt.event.ComponentListener;
 import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
 
 import javax.swing.BorderFactory;
@@ -32,18 +33,22 @@ import org.apache.commons.collections15.Predicate;
 import org.apache.commons.collections15.Transformer;
 import org.apache.log4j.Logger;
 
+import de.logotakt.logolyze.model.interfaces.IAggregatedEdge;
 import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
 import de.logotakt.logolyze.model.interfaces.IMeasure;
 import de.logotakt.logolyze.model.interfaces.INode;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
-import edu.uci.ics.jung.algorithms.filters.VertexPredicateFilter;
+import de.logotakt.logolyze.model.interfaces.IRequest;
 import edu.uci.ics.jung.algorithms.layout.CircleLayout;
 import edu.uci.ics.jung.algorithms.layout.FRLayout;
 import edu.uci.ics.jung.algorithms.layout.ISOMLayout;
 import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.algorithms.layout.StaticLayout;
 import edu.uci.ics.jung.algorithms.layout.TreeLayout;
 import edu.uci.ics.jung.graph.Graph;
 import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.Pair;
 import edu.uci.ics.jung.visualization.VisualizationViewer;
 import edu.uci.ics.jung.visualization.control.CrossoverScalingControl;
 import edu.uci.ics.jung.visualization.control.PickingGraphMousePlugin;
@@ -52,7 +57,6 @@ import edu.uci.ics.jung.visualization.control.TranslatingGraphMousePlugin;
 import edu.uci.ics.jung.visualization.decorators.DirectionalEdgeArrowTransformer;
 import edu.uci.ics.jung.visualization.renderers.BasicVertexLabelRenderer;
 import edu.uci.ics.jung.visualization.renderers.Renderer;
-import edu.uci.ics.jung.visualization.renderers.VertexLabelAsShapeRenderer;
 
 /**
  * Panel for rendering OLAP graphs.
@@ -61,21 +65,6 @@ import edu.uci.ics.jung.visualization.renderers.VertexLabelAsShapeRenderer;
 public class GraphPanel extends JPanel implements MouseListener {
     private static Logger logger = Logger.getLogger(GraphPanel.class);
 
-    /**
-     * This filter removes nodes that have no Edges point to or from them.
-     */
-    private static final class IsolationFilter implements Predicate<INode> {
-        private final IOLAPGraph graph;
-
-        private IsolationFilter(final IOLAPGraph graph) {
-            this.graph = graph;
-        }
-
-        public boolean evaluate(final INode node) {
-            return graph.getIncidentEdges(node).size() != 0;
-        }
-    }
-    
     /**
      * This predicate decides on whether to draw arrows or not.
      */
@@ -119,14 +108,18 @@ public class GraphPanel extends JPanel implements MouseListener {
     private IOLAPGraph graph = null;
     /* The same graph, before any filtering was done */
     private IOLAPGraph rawGraph = null;
+    /* For parallel edges that are shown separately, the aggregated edge they were expanded from */
+    private final Map<IEdge, IAggregatedEdge> expandedFrom = new HashMap<IEdge, IAggregatedEdge>();
+
+    /* In the overview, the summary of the graph shown as a tile instead of the graph, and the color of the tile */
+    private IGraphSummary summary = null;
+    private Color tileColor = null;
 
     /* Caching. We cache the graphs image in this BufferedImage, to make scrolling smooth */
     private BufferedImage img = null;
-    /* If this is true, buffering is disabled */
-    private boolean noCache = false;
 
     /* Various transformers. See addVertexRenderer() for details. */
-    private VertexLabelAsShapeRenderer<INode, IEdge> labelVertexRenderer = null;
+    private CachedLabelShapeRenderer labelVertexRenderer = null;
     private Transformer<INode, String> labelNameTransformer = null;
     private Transformer<INode, String> tooltipOnlyTransformer = null;
     private BasicVertexLabelRenderer<INode, IEdge> basicVertexRenderer = null;
@@ -134,8 +127,16 @@ public class GraphPanel extends JPanel implements MouseListener {
     private Transformer<INode, Shape> shapeNullTransformer = null;
     private Transformer<INode, String> tooltipAndLabelTransformer = null;
 
-    // Label length in characters from which to split the line.
-    private static final int MAX_LABEL_LENGTH = 15;
+    /* The precomputed visual attributes of the graph. The transformers only look them up. */
+    private GraphStyle style = null;
+
+    /* Level-of-detail rendering, restricted to the visible part of the layout by the spatial index. */
+    private final LayoutSpatialIndex spatialIndex = new LayoutSpatialIndex();
+    private LevelOfDetailRenderer lodRenderer = null;
+    /* Decides when to paint fast instead of nicely. */
+    private QualityGovernor quality = null;
+    /* Picking and tooltips use the same spatial index. */
+    private IndexedPickSupport pickSupport = null;
 
     /*
      * VERTEX SPACING The method adjustLayoutSpacing determines a value of X and Y spacing to distribute the vertices of
@@ -166,15 +167,6 @@ public class GraphPanel extends JPanel implements MouseListener {
     // How many nodes per square pixel should there be at a maximum to display labels?
     private static final double THRESHOLD_LABELCOVERED = 0.2;
 
-    /* EDGE STYLE */
-    private static final float MAX_EDGE_WIDTH = 10;
-    private static final float DASH_PATTERN_LENGTH = 30;
-
-    /* VERTEX STYLE */
-    private static final int MIN_FONT_SIZE = 5;
-    private static final int MAX_FONT_SIZE = 20;
-    private static final int MAX_BOBBEL_SIZE = 35;
-
     /* Mouse plugins */
     /* Plugin to enable scaling the graphs */
     private EventFiringScalingGraphMousePlugin sgmp;
@@ -206,18 +198,30 @@ public class GraphPanel extends JPanel implements MouseListener {
         }
 
         if (newOptions.getNodeColor() != this.options.getNodeColor()) {
+            this.style.setNodeColor(this.options.getNodeColor(), newOptions.getNodeColor());
             this.options.setNodeColor(newOptions.getNodeColor());
         }
 
         if (newOptions.isLabelDisplayForced() != this.options.isLabelDisplayForced()) {
             this.options.setForceLabels(newOptions.isLabelDisplayForced());
+            this.lodRenderer.setLabelsForced(this.options.isLabelDisplayForced());
 
             this.updateShapes();
         }
 
+        boolean refilter = false;
+
         if (newOptions.isRemoveIsolatedNodesWanted() != this.options.isRemoveIsolatedNodesWanted()) {
             this.options.setRemoveIsolated(newOptions.isRemoveIsolatedNodesWanted());
+            refilter = true;
+        }
+
+        if (newOptions.getEdgeAggregation() != this.options.getEdgeAggregation()) {
+            this.options.setEdgeAggregation(newOptions.getEdgeAggregation());
+            refilter = true;
+        }
 
+        if (refilter) {
             this.setGraph(rawGraph); // Ugly hack to recalculate really everything.
         }
 
@@ -263,6 +267,37 @@ public class GraphPanel extends JPanel implements MouseListener {
         return this.graph;
     }
 
+    /**
+     * Shows the summary of a graph as a colored tile, until a graph is set.
+     * @param newSummary The summary of the graph that belongs into this panel.
+     * @param color The color of the tile.
+     */
+    void setSummary(final IGraphSummary newSummary, final Color color) {
+        this.summary = newSummary;
+        this.tileColor = color;
+
+        StringBuilder text = new StringBuilder("<html>");
+        text.append(newSummary.getNodeCount()).append(" nodes, ").append(newSummary.getEdgeCount()).append(" edges");
+        if (newSummary.getMeasure() != null) {
+            text.append("<br>").append(newSummary.getMeasure().getKey()).append(": sum ")
+                    .append(String.format("%.2f", newSummary.getMeasureSum())).append(", avg ")
+                    .append(String.format("%.2f", newSummary.getMeasureAverage()));
+        }
+        text.append("<br>Double click or zoom in to load the graph</html>");
+        this.setToolTipText(text.toString());
+
+        this.invalidateCache();
+        this.repaint();
+    }
+
+    /**
+     * Returns the summary shown by this panel.
+     * @return The summary shown as a tile, or null if the panel shows a graph or nothing.
+     */
+    IGraphSummary getSummary() {
+        return this.summary;
+    }
+
     private void addGraphMouse() {
         this.pgm = new PluggableGraphMouse();
         this.pgmp = new PickingGraphMousePlugin<INode, IEdge>(InputEvent.SHIFT_MASK | MouseEvent.BUTTON1_MASK,
@@ -279,6 +314,7 @@ public class GraphPanel extends JPanel implements MouseListener {
 
             @Override
             public void stateChanged(final ChangeEvent e) {
+                GraphPanel.this.quality.interacted();
                 GraphPanel.this.updateShapes();
             }
         });
@@ -297,23 +333,66 @@ public class GraphPanel extends JPanel implements MouseListener {
 
     /**
      * This function applies all filtering operations to be done to the Graph before it is displayed. Currentĺy, that is
-     * only removing isolated nodes.
+     * removing isolated nodes and aggregating parallel edges.
      * @param graph The graph to filter.
      */
     private IOLAPGraph applyGraphFiltering(final IOLAPGraph graph) {
-        if (this.options.isRemoveIsolatedNodesWanted()) {
-            IOLAPGraph newGraph;
-            
+        IOLAPGraph newGraph = graph;
+
+        IRequest request = graph.getResultOf();
+        if (this.options.isRemoveIsolatedNodesWanted()
+                && (request == null || !request.isOnlyConnectedNodes() || request.getEdgeFilter() != null)) {
+            // Usually the isolated nodes were not even loaded. If they were, or if an edge filter left nodes without
+            // edges, they are hidden without copying the graph.
             logger.debug("Removing isolated nodes");
 
-            VertexPredicateFilter<INode, IEdge> vFilter = new VertexPredicateFilter<INode, IEdge>(new IsolationFilter(
-                    graph));
-            newGraph = (IOLAPGraph) vFilter.transform(graph);
-            newGraph.setResultOf(graph.getResultOf());
-            return newGraph;
+            newGraph = new ConnectedNodesGraph(graph);
+        }
+
+        if (this.options.getEdgeAggregation() != null) {
+            logger.debug("Aggregating parallel edges: " + this.options.getEdgeAggregation());
+
+            newGraph = newGraph.aggregateParallelEdges(this.options.getEdgeAggregation());
+        }
+
+        return newGraph;
+    }
+
+    /**
+     * Shows the parallel edges behind an aggregated edge separately, or merges the separately shown edges back into
+     * their aggregated edge.
+     * @param edge The aggregated edge to expand, or one of the edges to collapse.
+     */
+    private void toggleAggregation(final IEdge edge) {
+        IAggregatedEdge collapsed = this.expandedFrom.get(edge);
+
+        if (collapsed != null) {
+            logger.debug("Collapsing " + collapsed.getCount() + " parallel edges");
+
+            Pair<INode> ends = this.graph.getEndpoints(edge);
+            for (IEdge e : collapsed.getAggregatedEdges()) {
+                this.graph.removeEdge(e);
+                this.expandedFrom.remove(e);
+            }
+            this.graph.addEdge(collapsed, ends.getFirst(), ends.getSecond());
+        } else if (edge instanceof IAggregatedEdge && ((IAggregatedEdge) edge).getAggregatedEdges().size() > 1) {
+            IAggregatedEdge aggregated = (IAggregatedEdge) edge;
+            logger.debug("Expanding " + aggregated.getCount() + " parallel edges");
+
+            Pair<INode> ends = this.graph.getEndpoints(edge);
+            this.graph.removeEdge(edge);
+            for (IEdge e : aggregated.getAggregatedEdges()) {
+                this.graph.addEdge(e, ends.getFirst(), ends.getSecond());
+                this.expandedFrom.put(e, aggregated);
+            }
         } else {
-            return graph;
+            return;
         }
+
+        // The edges changed, so their styles need to be computed again.
+        this.style = new GraphStyle(this.graph, this.configDialog, this.options.getNodeColor());
+        this.invalidateCache();
+        this.bv.repaint();
     }
 
     /**
@@ -344,6 +423,8 @@ public class GraphPanel extends JPanel implements MouseListener {
         	System.out.println("WTF? LabelArea!");
         }
         
+        Transformer<INode, Shape> previousShapes = this.bv.getRenderContext().getVertexShapeTransformer();
+
         if ((this.graph.getVertexCount() * 1 / (zoomLevel * zoomLevel) * this.avgLabelArea < (this.getWidth()
                 * this.getHeight() * THRESHOLD_LABELCOVERED))
                 || this.options.isLabelDisplayForced()) {
@@ -361,6 +442,11 @@ public class GraphPanel extends JPanel implements MouseListener {
             this.bv.getRenderContext().setVertexLabelTransformer(this.labelNullTransformer);
             this.bv.setVertexToolTipTransformer(this.tooltipAndLabelTransformer);
         }
+
+        // Cached tiles show the previous vertex shapes.
+        if (this.bv.getRenderContext().getVertexShapeTransformer() != previousShapes) {
+            this.lodRenderer.invalidate();
+        }
     }
 
     private void addVertexRenderer() {
@@ -371,7 +457,8 @@ public class GraphPanel extends JPanel implements MouseListener {
         // Renderers used when labels are displayed
 
         // This renderer builds a shape for every Vertex that is large enough to hold its label.
-        this.labelVertexRenderer = new VertexLabelAsShapeRenderer<INode, IEdge>(this.bv.getRenderContext());
+        // The label sizes are cached, so they are only measured once.
+        this.labelVertexRenderer = new CachedLabelShapeRenderer(this.bv.getRenderContext());
         this.labelVertexRenderer.setPosition(Renderer.VertexLabel.Position.AUTO);
 
         // Build the label of a vertex, using the label for the Node it represents
@@ -379,56 +466,14 @@ public class GraphPanel extends JPanel implements MouseListener {
         // Node label if it is too long.
         this.labelNameTransformer = new Transformer<INode, String>() {
             public String transform(final INode node) {
-                String label = node.getLabel();
-                if (label.length() > MAX_LABEL_LENGTH) {
-                    int middle = label.length() / 2;
-                    int spaceBefore = label.lastIndexOf(' ', middle);
-                    spaceBefore = spaceBefore == -1 ? 0 : spaceBefore;
-                    int spaceAfter = label.indexOf(' ', middle);
-                    spaceAfter = spaceAfter == -1 ? label.length() : spaceAfter;
-                    int target;
-                    if (middle - spaceBefore <= spaceAfter - middle) {
-                        target = spaceBefore;
-                    } else {
-                        target = spaceAfter;
-                    }
-                    label = label.substring(0, target) + "<br/>" + label.substring(target);
-                }
-
-                StringBuilder sb = new StringBuilder();
-                for (Map.Entry<String, ? extends IMeasure> ent : node.getMeasures().entrySet()) {
-                    if (configDialog.getNodeDisplayType(ent.getValue().getSet().getType())
-                            == NodeMeasureDisplayType.text) {
-                        sb.append(ent.getKey());
-                        sb.append(": ");
-                        sb.append(ent.getValue().getText());
-                        sb.append("<br/>");
-                    }
-                }
-
-                return "<html>" + label + "<br/>" + sb.toString() + "</html>";
+                return style.getNodeLabel(node);
             }
         };
 
         // Build a tooltip that only contains the measures (the label is displayed in the vertex itself)
         this.tooltipOnlyTransformer = new Transformer<INode, String>() {
             public String transform(final INode node) {
-                StringBuilder sb = new StringBuilder();
-                for (Map.Entry<String, ? extends IMeasure> ent : node.getMeasures().entrySet()) {
-                    if (configDialog.getNodeDisplayType(ent.getValue().getSet().getType())
-                            != NodeMeasureDisplayType.none) {
-                        sb.append(ent.getKey());
-                        sb.append(": ");
-                        sb.append(ent.getValue().getText());
-                        sb.append("<br/>");
-                    }
-                }
-
-                if (sb.length() == 0) {
-                    return null;
-                } else {
-                    return "<html>" + sb.toString() + "</html>";
-                }
+                return style.getNodeTooltip(node);
             }
         };
 
@@ -449,40 +494,14 @@ public class GraphPanel extends JPanel implements MouseListener {
         this.shapeNullTransformer = new Transformer<INode, Shape>() {
             @Override
             public Shape transform(final INode input) {
-                float bobbelSize = 0;
-                IMeasure sizeMeasure = null;
-
-                sizeMeasure = getNodeMeasureForDisplayType(NodeMeasureDisplayType.size, input.getMeasures().values(),
-                        configDialog);
-
-                if (sizeMeasure != null) {
-                    bobbelSize = (float) (sizeMeasure.getNumber() / sizeMeasure.getSet().getMax() * MAX_BOBBEL_SIZE);
-                } else {
-                    bobbelSize = 14.0f;
-                }
-
-                return new Ellipse2D.Float(-bobbelSize / 2.0f, -bobbelSize / 2.0f, bobbelSize, bobbelSize);
+                return style.getNodeBobbel(input);
             }
         };
 
         // Builds a tooltip thath contains both label and selected measures.
         this.tooltipAndLabelTransformer = new Transformer<INode, String>() {
             public String transform(final INode node) {
-                StringBuilder sb = new StringBuilder();
-
-                sb.append(node.getLabel()).append("<br/>");
-
-                for (Map.Entry<String, ? extends IMeasure> ent : node.getMeasures().entrySet()) {
-                    if (configDialog.getNodeDisplayType(ent.getValue().getSet().getType())
-                            != NodeMeasureDisplayType.none) {
-                        sb.append(ent.getKey());
-                        sb.append(": ");
-                        sb.append(ent.getValue().getText());
-                        sb.append("<br/>");
-                    }
-                }
-
-                return "<html>" + sb.toString() + "</html>";
+                return style.getNodeLabelTooltip(node);
             }
         };
 
@@ -493,17 +512,7 @@ public class GraphPanel extends JPanel implements MouseListener {
         this.bv.getRenderContext().setVertexFillPaintTransformer(new Transformer<INode, Paint>() {
             @Override
             public Paint transform(final INode input) {
-                IMeasure colorMeasure = null;
-
-                colorMeasure = getNodeMeasureForDisplayType(NodeMeasureDisplayType.colour,
-                        input.getMeasures().values(), configDialog);
-
-                if (colorMeasure != null) {
-                    return GraphPanel.getGradientColor(colorMeasure);
-                } else {
-                    return GraphPanel.this.options.getNodeColor();
-                }
-
+                return style.getNodeFill(input, GraphPanel.this.options.getNodeColor());
             }
         });
 
@@ -512,18 +521,7 @@ public class GraphPanel extends JPanel implements MouseListener {
         this.bv.getRenderContext().setVertexFontTransformer(new Transformer<INode, Font>() {
             @Override
             public Font transform(final INode input) {
-                IMeasure sizeMeasure = null;
-
-                sizeMeasure = getNodeMeasureForDisplayType(NodeMeasureDisplayType.size, input.getMeasures().values(),
-                        configDialog);
-
-                if (sizeMeasure != null) {
-                    return new Font(Font.SANS_SERIF, Font.PLAIN, (int) (sizeMeasure.getNumber()
-                            / sizeMeasure.getSet().getMax() * (MAX_FONT_SIZE - MIN_FONT_SIZE))
-                            + MIN_FONT_SIZE);
-                } else {
-                    return new Font(Font.SANS_SERIF, Font.PLAIN, 11);
-                }
+                return style.getNodeFont(input);
             }
         });
     }
@@ -555,12 +553,13 @@ public class GraphPanel extends JPanel implements MouseListener {
 
         double avgWidth = 0, avgHeight = 0;
 
+        // The label renderer is the shape transformer as well, so one lookup gives both sizes. Only labels
+        // that were not measured before (usually: those of a newly loaded graph) are actually measured here.
         for (INode node : otherGraph.getVertices()) {
             Rectangle labelBounds = this.labelVertexRenderer.transform(node).getBounds();
-            Rectangle shapeBounds = this.bv.getRenderContext().getVertexShapeTransformer().transform(node).getBounds();
 
-            int height = Math.max(labelBounds.height, shapeBounds.height);
-            int width = Math.max(labelBounds.width, shapeBounds.width);
+            int height = labelBounds.height;
+            int width = labelBounds.width;
 
             avgHeight += height;
             avgWidth += width;
@@ -610,6 +609,10 @@ public class GraphPanel extends JPanel implements MouseListener {
             logger.debug("Creating new FRLayout");
             this.bv.setGraphLayout(new FRLayout<INode, IEdge>(otherGraph));
             break;
+        case BarnesHutLayout:
+            logger.debug("Creating new BarnesHutLayout");
+            this.bv.setGraphLayout(new BarnesHutLayout<INode, IEdge>(otherGraph));
+            break;
         case CircleLayout:
             logger.debug("Creating new CircleLayout");
             this.bv.setGraphLayout(new CircleLayout<INode, IEdge>(otherGraph));
@@ -628,21 +631,7 @@ public class GraphPanel extends JPanel implements MouseListener {
     private void addEdgeMeasuresRenderer() {
         this.bv.getRenderContext().setEdgeLabelTransformer(new Transformer<IEdge, String>() {
             public String transform(final IEdge edge) {
-                // start with a somewhat reasonable size
-                StringBuilder sb = new StringBuilder(12 + edge.getMeasures().size() * 20);
-                sb.append("<html>");
-                for (Map.Entry<String, ? extends IMeasure> ent : edge.getMeasures().entrySet()) {
-                    if (configDialog.getEdgeDisplayType(ent.getValue().getSet().getType())
-                            == EdgeMeasureDisplayType.text) {
-                        sb.append(ent.getKey());
-                        sb.append(": ");
-                        sb.append(ent.getValue().getText());
-                        sb.append("<br/>");
-                    }
-                }
-                sb.append("</html>");
-
-                return sb.toString();
+                return style.getEdgeLabel(edge);
             }
         });
 
@@ -651,33 +640,7 @@ public class GraphPanel extends JPanel implements MouseListener {
          */
         this.bv.getRenderContext().setEdgeStrokeTransformer(new Transformer<IEdge, Stroke>() {
             public Stroke transform(final IEdge edge) {
-                IMeasure strokeWidthMeasure = null;
-                IMeasure strokeStyleMeasure = null;
-
-                // Performance problem to iterate twice?
-                strokeWidthMeasure = getEdgeMeasureForDisplayType(EdgeMeasureDisplayType.strokeWidth, edge
-                        .getMeasures().values(), configDialog);
-                strokeStyleMeasure = getEdgeMeasureForDisplayType(EdgeMeasureDisplayType.strokeStyle, edge
-                        .getMeasures().values(), configDialog);
-
-                float strokeWidth = 1.0f;
-                float[] strokeDashing = new float[] {1.0f };
-
-                if (strokeWidthMeasure != null) {
-                    strokeWidth = (float) (strokeWidthMeasure.getNumber()
-                            / strokeWidthMeasure.getSet().getMax() * MAX_EDGE_WIDTH);
-                }
-                if (strokeStyleMeasure != null) {
-                    strokeDashing = new float[2];
-                    strokeDashing[0] = (float) (strokeStyleMeasure.getNumber()
-                            / strokeStyleMeasure.getSet().getMax() * DASH_PATTERN_LENGTH);
-                    strokeDashing[1] = DASH_PATTERN_LENGTH - strokeDashing[0];
-                }
-
-                // Additional arguments are those used in the default constructor.
-                return new BasicStroke(strokeWidth, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, 10.0f,
-                        strokeDashing, 0);
-
+                return style.getEdgeStroke(edge);
             }
         });
 
@@ -686,18 +649,8 @@ public class GraphPanel extends JPanel implements MouseListener {
          */
         this.bv.getRenderContext().setEdgeDrawPaintTransformer(new Transformer<IEdge, Paint>() {
             public Paint transform(final IEdge edge) {
-                IMeasure colorMeasure = null;
-
-                colorMeasure = getEdgeMeasureForDisplayType(EdgeMeasureDisplayType.colour, edge.getMeasures().values(),
-                        configDialog);
-
-                if (colorMeasure != null) {
-                    return GraphPanel.getGradientColor(colorMeasure);
-                } else {
-                    return Color.black;
-                }
+                return style.getEdgePaint(edge);
             }
-
         });
 
         /*
@@ -705,49 +658,11 @@ public class GraphPanel extends JPanel implements MouseListener {
          */
         this.bv.setEdgeToolTipTransformer(new Transformer<IEdge, String>() {
             public String transform(final IEdge edge) {
-                // start with a somewhat reasonable size
-                StringBuilder sb = new StringBuilder(edge.getMeasures().size() * 20);
-
-                for (Map.Entry<String, ? extends IMeasure> ent : edge.getMeasures().entrySet()) {
-                    if (configDialog.getEdgeDisplayType(ent.getValue().getSet().getType())
-                            != EdgeMeasureDisplayType.none) {
-                        sb.append(ent.getKey());
-                        sb.append(": ");
-                        sb.append(ent.getValue().getText());
-                        sb.append("<br/>");
-                    }
-                }
-
-                if (sb.length() == 0) {
-                    return null;
-                } else {
-                    return "<html>" + sb.toString() + "</html>";
-                }
+                return style.getEdgeTooltip(edge);
             }
         });
     }
 
-    /**
-     * Computes the color representing a given measure on the standard gradient (green -> yellow -> red).
-     */
-    private static Color getGradientColor(final IMeasure colorMeasure) {
-        float percentage = (float) (colorMeasure.getNumber() / colorMeasure.getSet().getMax());
-
-        if (Float.isNaN(percentage)) {
-            // 0/0 occured. Default to 0
-            percentage = 0.0f;
-        }
-
-        if (percentage < 0.5) {
-            return new Color(percentage * 2.0f, 1.0f, 0.0f);
-        } else if (percentage <= 1.0f) {
-            return new Color(1.0f, 1 - (percentage - 0.5f) * 2.0f, 0.0f);
-        } else {
-            logger.error("Measure value was higher than reported maximum.");
-            throw new IllegalStateException("Measure value was higher than reported maximum.");
-        }
-    }
-
     /**
      * Returns the Measure that was selected to be visualized using the given measure display type in the given
      * configuration dialog, or null if no such measure exists.
@@ -832,10 +747,17 @@ public class GraphPanel extends JPanel implements MouseListener {
             if (!nodeLabels.isEmpty()) {
                 result += "Nodes: " + nodeLabels;
             }
+        }
 
-            if (!edgeLabels.isEmpty() || !nodeLabels.isEmpty()) {
-                result = "<html>" + result + "</html>";
-            }
+        // A preview is marked as such until the complete graph replaces it.
+        if (isPreview(rawGraph)) {
+            String preview = "<b>Preview:</b> 1 in " + rawGraph.getResultOf().getEdgeSampleRate()
+                    + " edges, loading the rest...";
+            result = result.isEmpty() ? preview : preview + "<br/>" + result;
+        }
+
+        if (!result.isEmpty()) {
+            result = "<html>" + result + "</html>";
         }
         logger.debug("Measures legend: " + result);
 
@@ -857,8 +779,12 @@ public class GraphPanel extends JPanel implements MouseListener {
 
         logger.debug("Setting new graph with " + newGraph.getVertexCount() + " nodes.");
         
+        this.summary = null;
+        this.setToolTipText(null);
         this.rawGraph = newGraph;
         this.graph = applyGraphFiltering(newGraph);
+        this.expandedFrom.clear();
+        this.style = new GraphStyle(this.graph, this.configDialog, this.options.getNodeColor());
 
         this.setLayout(new BorderLayout());
 
@@ -900,6 +826,59 @@ public class GraphPanel extends JPanel implements MouseListener {
         this.invalidateCache();
     }
 
+    /**
+     * Replaces a preview shown in this panel by the complete graph, without laying it out again: every node of the
+     * complete graph is put where the node with the same label is in the preview. If the panel shows no preview, the
+     * graph is simply set.
+     * @param complete The complete graph.
+     */
+    void refineGraph(final IOLAPGraph complete) {
+        if (this.bv == null || this.rawGraph == null || !isPreview(this.rawGraph)) {
+            setGraph(complete);
+            return;
+        }
+
+        logger.debug("Refining preview to " + complete.getEdgeCount() + " edges.");
+
+        // Labels need not be unique, so equally labelled nodes take the positions in the same order.
+        Layout<INode, IEdge> previous = this.bv.getGraphLayout();
+        final Map<String, LinkedList<Point2D>> positions = new HashMap<String, LinkedList<Point2D>>();
+        for (INode node : previous.getGraph().getVertices()) {
+            LinkedList<Point2D> list = positions.get(node.getLabel());
+            if (list == null) {
+                list = new LinkedList<Point2D>();
+                positions.put(node.getLabel(), list);
+            }
+            list.add(new Point2D.Double(previous.transform(node).getX(), previous.transform(node).getY()));
+        }
+        final Dimension size = previous.getSize();
+
+        this.rawGraph = complete;
+        this.graph = applyGraphFiltering(complete);
+        this.expandedFrom.clear();
+        this.style = new GraphStyle(this.graph, this.configDialog, this.options.getNodeColor());
+
+        this.bv.setGraphLayout(new StaticLayout<INode, IEdge>(this.graph, new Transformer<INode, Point2D>() {
+            public Point2D transform(final INode node) {
+                LinkedList<Point2D> list = positions.get(node.getLabel());
+                if (list == null || list.isEmpty()) {
+                    return new Point2D.Double(size.getWidth() / 2, size.getHeight() / 2);
+                }
+                return list.removeFirst();
+            }
+        }, size));
+
+        buildMeasuresLegend();
+        this.updateShapes();
+        this.invalidateCache();
+        this.repaint();
+    }
+
+    /* Whether a graph is only a preview, with some of its edges left out. */
+    private static boolean isPreview(final IOLAPGraph g) {
+        return g.getResultOf() != null && g.getResultOf().getEdgeSampleRate() > 1;
+    }
+
     private void initializeBV() {
         this.addComponentListener(new ComponentListener() {
 
@@ -921,6 +900,30 @@ public class GraphPanel extends JPanel implements MouseListener {
             }
         });
 
+        // The renderer has to be replaced before the vertex renderers are set up on it.
+        this.quality = new QualityGovernor(this.bv);
+        this.lodRenderer = new LevelOfDetailRenderer(this.spatialIndex, this.quality);
+        this.lodRenderer.setLabelsForced(this.options.isLabelDisplayForced());
+        this.bv.setRenderer(this.lodRenderer);
+
+        this.pickSupport = new IndexedPickSupport(this.bv, this.spatialIndex);
+        this.bv.setPickSupport(this.pickSupport);
+
+        // Whenever vertices move, the spatial index and the static layer are outdated. If the picked vertices
+        // are just being dragged around on the overlay, only they are updated.
+        this.bv.getModel().addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(final ChangeEvent e) {
+                if (GraphPanel.this.lodRenderer.isOverlayActive()) {
+                    GraphPanel.this.spatialIndex.moveVertices(GraphPanel.this.bv.getGraphLayout(),
+                            GraphPanel.this.bv.getPickedVertexState().getPicked());
+                } else {
+                    GraphPanel.this.spatialIndex.invalidate();
+                    GraphPanel.this.lodRenderer.invalidate();
+                }
+            }
+        });
+
         addGraphMouse();
 
         addVertexRenderer();
@@ -935,27 +938,42 @@ public class GraphPanel extends JPanel implements MouseListener {
      */
     @Override
     public void paintComponent(final Graphics g) {
-        if (this.noCache) {
-            logger.debug("Rendering - caching disabled");
-            super.paintComponent(g);
-        } else {
-            // OK, we should buffer. See if we have a valid buffered image.
-            if (this.img == null) {
-                logger.debug("Creating new cache image");
+        if (this.summary != null) {
+            // A tile is cheaper to paint than to cache.
+            g.setColor(this.tileColor);
+            g.fillRect(0, 0, this.getWidth(), this.getHeight());
+            return;
+        }
 
-                // OK, create the buffer and draw it.
-                this.img = new BufferedImage(this.getWidth(), this.getHeight(), BufferedImage.TYPE_INT_RGB);
-                super.paintComponent(this.img.createGraphics());
-            }
+        // See if we have a valid buffered image.
+        if (this.img == null) {
+            logger.debug("Creating new cache image");
 
-            logger.debug("Rendering - cached image present");
-            g.drawImage(this.img, 0, 0, null);
+            // OK, create the buffer and draw it.
+            this.img = new BufferedImage(this.getWidth(), this.getHeight(), BufferedImage.TYPE_INT_RGB);
+            super.paintComponent(this.img.createGraphics());
         }
+
+        logger.debug("Rendering - cached image present");
+        g.drawImage(this.img, 0, 0, null);
     }
 
     @Override
     public void mouseClicked(final MouseEvent e) {
+        if (this.bv == null || e.getSource() != this.bv || e.getClickCount() != 2
+                || e.getButton() != MouseEvent.BUTTON1) {
+            return;
+        }
 
+        // A double click on an aggregated edge shows its parallel edges, another one on them merges them again.
+        Layout<INode, IEdge> layout = this.bv.getGraphLayout();
+        if (this.pickSupport.getVertex(layout, e.getX(), e.getY()) != null) {
+            return;
+        }
+        IEdge edge = this.pickSupport.getEdge(layout, e.getX(), e.getY());
+        if (edge != null) {
+            this.toggleAggregation(edge);
+        }
     }
 
     @Override
@@ -970,15 +988,40 @@ public class GraphPanel extends JPanel implements MouseListener {
 
     @Override
     public void mousePressed(final MouseEvent e) {
-        this.noCache = true;
+        if (this.bv == null || e.getSource() != this.bv) {
+            return;
+        }
+
+        // Dragging and panning both start with a press; paint fast until the button is released.
+        this.quality.beginInteraction();
+
+        // The picking plugin has already handled this press, so the picked vertices are the ones about to be dragged.
+        // They go on the overlay, the rest of the graph stays in the static layer. If the layout is still moving
+        // vertices on its own, a static layer would be outdated right away, so everything is painted as usual.
+        Collection<INode> picked = this.bv.getPickedVertexState().getPicked();
+        if (!picked.isEmpty() && LevelOfDetailRenderer.isSettled(this.bv.getGraphLayout())) {
+            logger.debug("Dragging started, " + picked.size() + " vertices on the overlay");
+            this.lodRenderer.beginOverlay(this.bv.getGraphLayout().getGraph(), picked);
+        }
     }
 
     @Override
     public void mouseReleased(final MouseEvent e) {
+        if (this.bv == null || e.getSource() != this.bv) {
+            return;
+        }
+
+        this.quality.endInteraction();
+
+        if (!this.lodRenderer.isOverlayActive()) {
+            return;
+        }
+
         logger.debug("Dragging finished");
 
-        this.noCache = false;
-        this.invalidateCache();
+        // Merge the overlay back into the graph. The spatial index is already up to date.
+        this.lodRenderer.endOverlay();
+        this.bv.repaint();
     }
 
     /**
@@ -988,5 +1031,12 @@ public class GraphPanel extends JPanel implements MouseListener {
         logger.debug("Cache invalidated");
 
         this.img = null;
+        this.spatialIndex.invalidate();
+        if (this.lodRenderer != null) {
+            this.lodRenderer.invalidate();
+        }
+        if (this.pickSupport != null) {
+            this.pickSupport.invalidate();
+        }
     }
 }
@@ -0,0 +1,444 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Ellipse2D;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+import de.logotakt.logolyze.model.interfaces.IAggregatedEdge;
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.IMeasure;
+import de.logotakt.logolyze.model.interfaces.INode;
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+
+/**
+ * This holds the visual attributes of every node and edge of one graph. All of them are computed once, when the graph
+ * or the display options change, and stored in per-element arrays. The JUNG transformers in GraphPanel then only do
+ * a lookup on every repaint. Strokes, fonts and colors are shared flyweights, so equal attributes are the same object.
+ */
+final class GraphStyle {
+    private static Logger logger = Logger.getLogger(GraphStyle.class);
+
+    // Label length in characters from which to split the line.
+    private static final int MAX_LABEL_LENGTH = 15;
+
+    /* EDGE STYLE */
+    private static final float MAX_EDGE_WIDTH = 10;
+    private static final float DASH_PATTERN_LENGTH = 30;
+
+    /* VERTEX STYLE */
+    private static final int MIN_FONT_SIZE = 5;
+    private static final int MAX_FONT_SIZE = 20;
+    private static final int DEFAULT_FONT_SIZE = 11;
+    private static final int MAX_BOBBEL_SIZE = 35;
+    private static final float DEFAULT_BOBBEL_SIZE = 14.0f;
+
+    /* Number of distinct colors on the green -> yellow -> red gradient. */
+    private static final int GRADIENT_STEPS = 256;
+
+    /* Flyweights shared by all GraphStyles. */
+    private static final Color[] GRADIENT = new Color[GRADIENT_STEPS];
+    private static final Font[] FONTS = new Font[MAX_FONT_SIZE + 1];
+    private static final Map<Long, Stroke> STROKES = new HashMap<Long, Stroke>();
+    private static final Stroke DEFAULT_STROKE = new BasicStroke(1.0f, BasicStroke.CAP_SQUARE,
+            BasicStroke.JOIN_MITER, 10.0f, new float[] {1.0f }, 0);
+
+    static {
+        for (int i = 0; i < GRADIENT_STEPS; i++) {
+            float percentage = i / (float) (GRADIENT_STEPS - 1);
+            if (percentage < 0.5) {
+                GRADIENT[i] = new Color(percentage * 2.0f, 1.0f, 0.0f);
+            } else {
+                GRADIENT[i] = new Color(1.0f, 1 - (percentage - 0.5f) * 2.0f, 0.0f);
+            }
+        }
+
+        for (int size = MIN_FONT_SIZE; size <= MAX_FONT_SIZE; size++) {
+            FONTS[size] = new Font(Font.SANS_SERIF, Font.PLAIN, size);
+        }
+    }
+
+    /*
+     * Maps every element of the graph to its slot in the arrays below. Nodes and edges do not override equals, so
+     * looking them up by identity is the same and spares the hashCode call on every paint.
+     */
+    private final Map<INode, Integer> nodeIndex;
+    private final Map<IEdge, Integer> edgeIndex;
+
+    private final Paint[] nodeFill;
+    private final boolean[] nodeFillByMeasure;
+    private final Font[] nodeFont;
+    private final Shape[] nodeBobbel;
+    private final String[] nodeLabel;
+    private final String[] nodeTooltip;
+    private final String[] nodeLabelTooltip;
+
+    private final Stroke[] edgeStroke;
+    private final Paint[] edgePaint;
+    private final String[] edgeLabel;
+    private final String[] edgeTooltip;
+
+    /* Bobbels of equal size share one shape. */
+    private final Map<Float, Shape> bobbels = new HashMap<Float, Shape>();
+
+    /**
+     * Computes the visual attributes of all nodes and edges of a graph.
+     * @param graph The graph to compute the attributes for.
+     * @param conf The dialog holding which measure is displayed in which way.
+     * @param nodeColor The color of nodes that have no measure assigned to their color.
+     */
+    GraphStyle(final IOLAPGraph graph, final MeasureConfigurationDialog conf, final Color nodeColor) {
+        int nodeCount = graph.getVertexCount();
+        int edgeCount = graph.getEdgeCount();
+
+        logger.debug("Computing style for " + nodeCount + " nodes and " + edgeCount + " edges.");
+
+        nodeIndex = new IdentityHashMap<INode, Integer>(nodeCount);
+        nodeFill = new Paint[nodeCount];
+        nodeFillByMeasure = new boolean[nodeCount];
+        nodeFont = new Font[nodeCount];
+        nodeBobbel = new Shape[nodeCount];
+        nodeLabel = new String[nodeCount];
+        nodeTooltip = new String[nodeCount];
+        nodeLabelTooltip = new String[nodeCount];
+
+        int i = 0;
+        for (INode node : graph.getVertices()) {
+            nodeIndex.put(node, i);
+            computeNode(i, node, conf, nodeColor);
+            i++;
+        }
+
+        edgeIndex = new IdentityHashMap<IEdge, Integer>(edgeCount);
+        edgeStroke = new Stroke[edgeCount];
+        edgePaint = new Paint[edgeCount];
+        edgeLabel = new String[edgeCount];
+        edgeTooltip = new String[edgeCount];
+
+        i = 0;
+        for (IEdge edge : graph.getEdges()) {
+            edgeIndex.put(edge, i);
+            computeEdge(i, edge, conf);
+            i++;
+        }
+    }
+
+    /* Walks the measures of a node once and fills in all its slots. */
+    private void computeNode(final int i, final INode node, final MeasureConfigurationDialog conf,
+            final Color nodeColor) {
+        IMeasure colorMeasure = null;
+        IMeasure sizeMeasure = null;
+        StringBuilder text = new StringBuilder();
+        StringBuilder tooltip = new StringBuilder();
+
+        for (Map.Entry<String, ? extends IMeasure> ent : node.getMeasures().entrySet()) {
+            NodeMeasureDisplayType dt = conf.getNodeDisplayType(ent.getValue().getSet().getType());
+            if (dt == NodeMeasureDisplayType.none) {
+                continue;
+            }
+
+            appendMeasure(tooltip, ent);
+
+            if (dt == null) {
+                continue;
+            }
+
+            switch (dt) {
+            case text:
+                appendMeasure(text, ent);
+                break;
+            case colour:
+                if (colorMeasure == null) {
+                    colorMeasure = ent.getValue();
+                }
+                break;
+            case size:
+                if (sizeMeasure == null) {
+                    sizeMeasure = ent.getValue();
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        nodeFill[i] = colorMeasure != null ? getGradientColor(colorMeasure) : nodeColor;
+        nodeFillByMeasure[i] = colorMeasure != null;
+
+        if (sizeMeasure != null) {
+            double fraction = sizeMeasure.getNumber() / sizeMeasure.getSet().getMax();
+            nodeFont[i] = getFont((int) (fraction * (MAX_FONT_SIZE - MIN_FONT_SIZE)) + MIN_FONT_SIZE);
+            nodeBobbel[i] = getBobbel((float) (fraction * MAX_BOBBEL_SIZE));
+        } else {
+            nodeFont[i] = getFont(DEFAULT_FONT_SIZE);
+            nodeBobbel[i] = getBobbel(DEFAULT_BOBBEL_SIZE);
+        }
+
+        nodeLabel[i] = "<html>" + splitLabel(node.getLabel()) + "<br/>" + text.toString() + "</html>";
+        nodeTooltip[i] = tooltip.length() == 0 ? null : "<html>" + tooltip.toString() + "</html>";
+        nodeLabelTooltip[i] = "<html>" + node.getLabel() + "<br/>" + tooltip.toString() + "</html>";
+    }
+
+    /* Walks the measures of an edge once and fills in all its slots. */
+    private void computeEdge(final int i, final IEdge edge, final MeasureConfigurationDialog conf) {
+        IMeasure colorMeasure = null;
+        IMeasure widthMeasure = null;
+        IMeasure styleMeasure = null;
+        StringBuilder text = new StringBuilder();
+        StringBuilder tooltip = new StringBuilder();
+
+        IAggregatedEdge aggregated = null;
+        if (edge instanceof IAggregatedEdge && ((IAggregatedEdge) edge).getCount() > 1) {
+            aggregated = (IAggregatedEdge) edge;
+            tooltip.append(aggregated.getCount()).append(" parallel edges (").append(aggregated.getAggregation())
+                    .append(")<br/>");
+        }
+
+        for (Map.Entry<String, ? extends IMeasure> ent : edge.getMeasures().entrySet()) {
+            EdgeMeasureDisplayType dt = conf.getEdgeDisplayType(ent.getValue().getSet().getType());
+            if (dt == EdgeMeasureDisplayType.none) {
+                continue;
+            }
+
+            appendMeasure(tooltip, ent);
+            if (aggregated != null) {
+                appendAggregates(tooltip, aggregated, ent.getKey());
+            }
+
+            if (dt == null) {
+                continue;
+            }
+
+            switch (dt) {
+            case text:
+                appendMeasure(text, ent);
+                break;
+            case colour:
+                if (colorMeasure == null) {
+                    colorMeasure = ent.getValue();
+                }
+                break;
+            case strokeWidth:
+                if (widthMeasure == null) {
+                    widthMeasure = ent.getValue();
+                }
+                break;
+            case strokeStyle:
+                if (styleMeasure == null) {
+                    styleMeasure = ent.getValue();
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        edgePaint[i] = colorMeasure != null ? getGradientColor(colorMeasure) : Color.black;
+
+        if (widthMeasure == null && styleMeasure == null) {
+            edgeStroke[i] = DEFAULT_STROKE;
+        } else {
+            float width = 1.0f;
+            float dash = -1.0f;
+            if (widthMeasure != null) {
+                width = (float) (widthMeasure.getNumber() / widthMeasure.getSet().getMax() * MAX_EDGE_WIDTH);
+            }
+            if (styleMeasure != null) {
+                dash = (float) (styleMeasure.getNumber() / styleMeasure.getSet().getMax() * DASH_PATTERN_LENGTH);
+            }
+            edgeStroke[i] = getStroke(width, dash);
+        }
+
+        edgeLabel[i] = "<html>" + text.toString() + "</html>";
+        edgeTooltip[i] = tooltip.length() == 0 ? null : "<html>" + tooltip.toString() + "</html>";
+    }
+
+    private static void appendMeasure(final StringBuilder sb, final Map.Entry<String, ? extends IMeasure> ent) {
+        sb.append(ent.getKey());
+        sb.append(": ");
+        sb.append(ent.getValue().getText());
+        sb.append("<br/>");
+    }
+
+    /* Lists all aggregates of a numerical measure of an aggregated edge, below the measure itself. */
+    private static void appendAggregates(final StringBuilder sb, final IAggregatedEdge edge, final String key) {
+        if (edge.getAggregate(key, EdgeAggregation.sum) == null) {
+            return;
+        }
+        sb.append("&nbsp;&nbsp;");
+        for (EdgeAggregation agg : EdgeAggregation.values()) {
+            sb.append(agg).append(' ').append(edge.getAggregate(key, agg)).append(' ');
+        }
+        sb.append("<br/>");
+    }
+
+    /* A newline is added to the node label if it is too long. */
+    private static String splitLabel(final String label) {
+        if (label.length() <= MAX_LABEL_LENGTH) {
+            return label;
+        }
+
+        int middle = label.length() / 2;
+        int spaceBefore = label.lastIndexOf(' ', middle);
+        spaceBefore = spaceBefore == -1 ? 0 : spaceBefore;
+        int spaceAfter = label.indexOf(' ', middle);
+        spaceAfter = spaceAfter == -1 ? label.length() : spaceAfter;
+        int target;
+        if (middle - spaceBefore <= spaceAfter - middle) {
+            target = spaceBefore;
+        } else {
+            target = spaceAfter;
+        }
+        return label.substring(0, target) + "<br/>" + label.substring(target);
+    }
+
+    /**
+     * Computes the color representing a given measure on the standard gradient (green -> yellow -> red).
+     * @param colorMeasure The measure to compute the color for.
+     * @return The shared Color for this position on the gradient.
+     */
+    static Color getGradientColor(final IMeasure colorMeasure) {
+        float percentage = (float) (colorMeasure.getNumber() / colorMeasure.getSet().getMax());
+
+        if (Float.isNaN(percentage)) {
+            // 0/0 occured. Default to 0
+            percentage = 0.0f;
+        }
+
+        if (percentage > 1.0f) {
+            logger.error("Measure value was higher than reported maximum.");
+            throw new IllegalStateException("Measure value was higher than reported maximum.");
+        }
+
+        return getGradientColor(percentage);
+    }
+
+    /**
+     * Returns the color at a given position on the standard gradient (green -> yellow -> red).
+     * @param percentage The position on the gradient, from 0 to 1.
+     * @return The shared Color for this position on the gradient.
+     */
+    static Color getGradientColor(final float percentage) {
+        return GRADIENT[Math.max(0, Math.min(GRADIENT_STEPS - 1, Math.round(percentage * (GRADIENT_STEPS - 1))))];
+    }
+
+    private static Font getFont(final int size) {
+        return FONTS[Math.max(MIN_FONT_SIZE, Math.min(MAX_FONT_SIZE, size))];
+    }
+
+    /*
+     * Returns the shared stroke for a width and a dash length. A negative dash length means a solid stroke. The
+     * additional arguments are those used in the default constructor.
+     */
+    private static Stroke getStroke(final float width, final float dash) {
+        Long key = ((long) Float.floatToIntBits(width) << 32) | (Float.floatToIntBits(dash) & 0xffffffffL);
+
+        synchronized (STROKES) {
+            Stroke stroke = STROKES.get(key);
+            if (stroke == null) {
+                float[] dashing;
+                if (dash < 0) {
+                    dashing = new float[] {1.0f };
+                } else {
+                    dashing = new float[] {dash, DASH_PATTERN_LENGTH - dash };
+                }
+                stroke = new BasicStroke(width, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, 10.0f, dashing, 0);
+                STROKES.put(key, stroke);
+            }
+            return stroke;
+        }
+    }
+
+    private Shape getBobbel(final float size) {
+        Shape bobbel = bobbels.get(size);
+        if (bobbel == null) {
+            bobbel = new Ellipse2D.Float(-size / 2.0f, -size / 2.0f, size, size);
+            bobbels.put(size, bobbel);
+        }
+        return bobbel;
+    }
+
+    /**
+     * Re-colors all nodes that have no measure assigned to their color. Everything else stays as computed.
+     * @param oldColor The node color the style was computed with.
+     * @param newColor The new node color.
+     */
+    void setNodeColor(final Color oldColor, final Color newColor) {
+        for (int i = 0; i < nodeFill.length; i++) {
+            if (!nodeFillByMeasure[i] && oldColor.equals(nodeFill[i])) {
+                nodeFill[i] = newColor;
+            }
+        }
+    }
+
+    /* Lookups. Elements this style was not computed for get the defaults. */
+
+    private int indexOf(final INode node) {
+        Integer i = nodeIndex.get(node);
+        return i == null ? -1 : i;
+    }
+
+    private int indexOf(final IEdge edge) {
+        Integer i = edgeIndex.get(edge);
+        return i == null ? -1 : i;
+    }
+
+    Paint getNodeFill(final INode node, final Color nodeColor) {
+        int i = indexOf(node);
+        return i < 0 ? nodeColor : nodeFill[i];
+    }
+
+    Font getNodeFont(final INode node) {
+        int i = indexOf(node);
+        return i < 0 ? getFont(DEFAULT_FONT_SIZE) : nodeFont[i];
+    }
+
+    Shape getNodeBobbel(final INode node) {
+        int i = indexOf(node);
+        return i < 0 ? getBobbel(DEFAULT_BOBBEL_SIZE) : nodeBobbel[i];
+    }
+
+    String getNodeLabel(final INode node) {
+        int i = indexOf(node);
+        return i < 0 ? "<html>" + splitLabel(node.getLabel()) + "<br/></html>" : nodeLabel[i];
+    }
+
+    String getNodeTooltip(final INode node) {
+        int i = indexOf(node);
+        return i < 0 ? null : nodeTooltip[i];
+    }
+
+    String getNodeLabelTooltip(final INode node) {
+        int i = indexOf(node);
+        return i < 0 ? "<html>" + node.getLabel() + "<br/></html>" : nodeLabelTooltip[i];
+    }
+
+    Stroke getEdgeStroke(final IEdge edge) {
+        int i = indexOf(edge);
+        return i < 0 ? DEFAULT_STROKE : edgeStroke[i];
+    }
+
+    Paint getEdgePaint(final IEdge edge) {
+        int i = indexOf(edge);
+        return i < 0 ? Color.black : edgePaint[i];
+    }
+
+    String getEdgeLabel(final IEdge edge) {
+        int i = indexOf(edge);
+        return i < 0 ? "<html></html>" : edgeLabel[i];
+    }
+
+    String getEdgeTooltip(final IEdge edge) {
+        int i = indexOf(edge);
+        return i < 0 ? null : edgeTooltip[i];
+    }
+}
@@ -4,27 +4,33 @@ import java.awt.Component;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.Box;
 import javax.swing.JComboBox;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.TreePath;
 
 import de.logotakt.logolyze.view.interfaces.EventType;
-import de.logotakt.logolyze.view.interfaces.IEventHandler;
 import de.logotakt.logolyze.view.interfaces.IHierarchyTreeView;
 import de.tinloaf.snbreadtree.SnBreadTree;
-import de.tinloaf.snbreadtree.SnTreeModel;
 import de.tinloaf.snbreadtree.SnTreeNode;
 
 /**
@@ -36,9 +42,17 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
     protected static final EventType[] TRIGGERED_EVENTS = new EventType[] {EventType.cubeSelected,
             EventType.treeNodeSelected, EventType.treeLoad };
 
+    /* How many values a search finds at most, for Enter to step through. */
+    private static final int MAX_MATCHES = 100;
+
     private JComboBox cubesBox;
+    private JTextField searchField;
     private SnBreadTree hierarchyTree;
     private Object treeRoot;
+    /* The search indexes of the levels searched so far, by level. */
+    private final Map<Object, ValueSearchIndex> searchIndexes = new HashMap<Object, ValueSearchIndex>();
+    private final List<Object> matches = new ArrayList<Object>();
+    private int currentMatch;
 
     /**
      * Create a HierarchyTreeView inside the owner.
@@ -48,16 +62,16 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
         setupGui();
 
         for (EventType type : TRIGGERED_EVENTS) {
-            getListeners().put(type, new HashSet<IEventHandler>());
+            declareEvent(type);
         }
     }
 
     private void setupGui() {
         GridBagLayout gridBagLayout = new GridBagLayout();
         gridBagLayout.columnWidths = new int[] {0 };
-        gridBagLayout.rowHeights = new int[] {0, 0, 0 };
+        gridBagLayout.rowHeights = new int[] {0, 0, 0, 0 };
         gridBagLayout.columnWeights = new double[] {1.0 };
-        gridBagLayout.rowWeights = new double[] {0.0, 0.0, 1.0 };
+        gridBagLayout.rowWeights = new double[] {0.0, 0.0, 0.0, 1.0 };
         setLayout(gridBagLayout);
 
         cubesBox = new JComboBox();
@@ -84,22 +98,59 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
             }
         });
 
+        // Searching shows the first value found, Enter the next one.
+        searchField = new JTextField();
+        searchField.setName("searchField");
+        searchField.setToolTipText("Search values");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(final DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(final DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(final DocumentEvent e) {
+                search();
+            }
+        });
+        searchField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                if (!matches.isEmpty()) {
+                    currentMatch = (currentMatch + 1) % matches.size();
+                    showMatch();
+                }
+            }
+        });
+        GridBagConstraints gbcSearchField = new GridBagConstraints();
+        gbcSearchField.insets = new Insets(0, 0, 5, 0);
+        gbcSearchField.fill = GridBagConstraints.HORIZONTAL;
+        gbcSearchField.gridx = 0;
+        gbcSearchField.gridy = 1;
+        add(searchField, gbcSearchField);
+
         // force a minimum size for the hierarchy tree view.
         Component horizontalStrut = Box.createHorizontalStrut(150);
         GridBagConstraints gbcHorizontalStrut = new GridBagConstraints();
         gbcHorizontalStrut.insets = new Insets(0, 0, 5, 0);
         gbcHorizontalStrut.gridx = 0;
-        gbcHorizontalStrut.gridy = 1;
+        gbcHorizontalStrut.gridy = 2;
         add(horizontalStrut, gbcHorizontalStrut);
 
         JScrollPane scrollPane = new JScrollPane();
         GridBagConstraints gbcScrollPane = new GridBagConstraints();
         gbcScrollPane.fill = GridBagConstraints.BOTH;
         gbcScrollPane.gridx = 0;
-        gbcScrollPane.gridy = 2;
+        gbcScrollPane.gridy = 3;
         add(scrollPane, gbcScrollPane);
 
         hierarchyTree = new SnBreadTree();
+        hierarchyTree.setModel(new LazyTreeModel());
         scrollPane.setViewportView(hierarchyTree);
         hierarchyTree.setRootVisible(false);
 
@@ -107,6 +158,66 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
         hierarchyTree.setSize(50, 200);
 
         hierarchyTree.addTreeCheckingListener(this);
+
+        // Add the children of lazy nodes when they are expanded.
+        hierarchyTree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(final TreeExpansionEvent e) {
+                suspendEvents();
+                getTreeModel().materialize(((SnTreeNode) e.getPath().getLastPathComponent()).getUserObject());
+                resumeEvents();
+            }
+
+            @Override
+            public void treeWillCollapse(final TreeExpansionEvent e) {
+                // The children are kept.
+            }
+        });
+    }
+
+    private LazyTreeModel getTreeModel() {
+        return (LazyTreeModel) hierarchyTree.getModel();
+    }
+
+    /**
+     * Finds the values matching the text of the search field, level by level, and shows the first one.
+     */
+    private void search() {
+        matches.clear();
+        currentMatch = 0;
+        String query = searchField.getText();
+
+        for (Map.Entry<Object, Collection<?>> e : getTreeModel().getLazyNodes().entrySet()) {
+            if (matches.size() >= MAX_MATCHES) {
+                break;
+            }
+            ValueSearchIndex index = searchIndexes.get(e.getKey());
+            if (index == null) {
+                index = new ValueSearchIndex(new ArrayList<Object>(e.getValue()));
+                searchIndexes.put(e.getKey(), index);
+            }
+            for (int pos : index.find(query, MAX_MATCHES - matches.size())) {
+                matches.add(index.get(pos));
+            }
+        }
+        showMatch();
+    }
+
+    /**
+     * Selects the current match and scrolls to it, without checking it.
+     */
+    private void showMatch() {
+        if (matches.isEmpty()) {
+            return;
+        }
+        suspendEvents();
+        SnTreeNode node = getTreeModel().findNode(matches.get(currentMatch));
+        resumeEvents();
+        if (node != null) {
+            TreePath path = new TreePath(node.getPath());
+            hierarchyTree.setSelectionPath(path);
+            hierarchyTree.scrollPathToVisible(path);
+        }
     }
 
     /**
@@ -134,7 +245,22 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
         }
 
         suspendEvents();
-        ((SnTreeModel) hierarchyTree.getModel()).addNode(effectiveParent, child);
+        getTreeModel().addNode(effectiveParent, child);
+        resumeEvents();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addLazyNode(final Object parent, final Object child, final Collection<?> children) {
+        Object effectiveParent = parent;
+        if (effectiveParent == null) {
+            effectiveParent = treeRoot;
+        }
+
+        suspendEvents();
+        getTreeModel().addLazyNode(effectiveParent, child, children);
         resumeEvents();
     }
 
@@ -143,8 +269,10 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
      */
     @Override
     public void clear() {
-        SnTreeModel newModel = new SnTreeModel();
+        LazyTreeModel newModel = new LazyTreeModel();
         hierarchyTree.setModel(newModel);
+        searchIndexes.clear();
+        matches.clear();
         treeRoot = new Object();
         newModel.addNode(null, treeRoot);
         hierarchyTree.addTreeCheckingListener(this);
@@ -170,7 +298,7 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
      */
     @Override
     public void setSelected(final Object element, final boolean selected) {
-        SnTreeNode node = ((SnTreeModel) hierarchyTree.getModel()).getNodeByObject(element);
+        SnTreeNode node = getTreeModel().findNode(element);
         TreePath path = new TreePath(node.getPath());
         suspendEvents();
         if (selected) {
@@ -242,13 +370,15 @@ public class HierarchyTreeView extends Swing2dEventedPanel implements IHierarchy
     }
 
     /**
-     * This method recurses the JTree and turns a List<String> into a TreePath
+     * This method recurses the JTree and turns a List<String> into a TreePath. Only the lazy nodes on the way are
+     * expanded.
      * @param start A TreePath to start at
      * @param path The rest of the Path to walk.
      * @return The final TreePath that corresponds to path.
      */
     private TreePath walkPath(final TreePath start, final List<String> path) {
         SnTreeNode cursor = (SnTreeNode) start.getLastPathComponent();
+        getTreeModel().materialize(cursor.getUserObject());
         for (int childIdx = 0; childIdx < cursor.getChildCount(); childIdx++) {
             if (cursor.getChildAt(childIdx).toString().equals(path.get(0))) {
                 if (path.size() == 1) {
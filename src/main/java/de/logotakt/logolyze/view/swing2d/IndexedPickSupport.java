@@ -0,0 +1,204 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.apache.commons.collections15.Transformer;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import edu.uci.ics.jung.algorithms.layout.GraphElementAccessor;
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.MultiLayerTransformer;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.VisualizationViewer;
+
+/**
+ * Picks vertices and edges using a {@link LayoutSpatialIndex} instead of testing the shape of every element, like
+ * JUNG's ShapePickSupport does. Only the elements near the mouse position are tested exactly, so picking and tooltips
+ * cost the same on dense graphs as on small ones. The exact tests are the same as in ShapePickSupport.
+ */
+final class IndexedPickSupport implements GraphElementAccessor<INode, IEdge> {
+    /* Size (in pixels) of the area around the mouse in which edges are picked. */
+    private static final float PICK_SIZE = 4;
+    /* How far (in pixels) a curved edge may bulge out of the box spanned by its endpoints. */
+    private static final double EDGE_MARGIN = 30;
+
+    private final VisualizationViewer<INode, IEdge> vv;
+    private final LayoutSpatialIndex index;
+
+    /* The largest vertex shape extent from its center, for the shape transformer it was computed with. */
+    private Transformer<INode, Shape> extentShapes = null;
+    private double maxExtent = 0;
+
+    /**
+     * Creates a new pick support.
+     * @param vv The viewer whose elements are picked.
+     * @param index The spatial index over the viewer's layout.
+     */
+    IndexedPickSupport(final VisualizationViewer<INode, IEdge> vv, final LayoutSpatialIndex index) {
+        this.vv = vv;
+        this.index = index;
+    }
+
+    /**
+     * Forgets the cached vertex sizes. Needs to be called when the vertex shapes change without the shape transformer
+     * being replaced, e.g. for a new graph.
+     */
+    synchronized void invalidate() {
+        this.extentShapes = null;
+    }
+
+    /* Returns the largest distance of any vertex shape's border from the vertex position, in view coordinates. */
+    private synchronized double getMaxExtent(final Layout<INode, IEdge> layout) {
+        Transformer<INode, Shape> shapes = vv.getRenderContext().getVertexShapeTransformer();
+
+        if (shapes != extentShapes) {
+            double extent = 0;
+            for (INode v : layout.getGraph().getVertices()) {
+                Rectangle2D b = shapes.transform(v).getBounds2D();
+                extent = Math.max(extent, Math.max(Math.max(-b.getMinX(), b.getMaxX()),
+                        Math.max(-b.getMinY(), b.getMaxY())));
+            }
+            this.maxExtent = extent;
+            this.extentShapes = shapes;
+        }
+
+        return maxExtent;
+    }
+
+    /* A square around a point in view coordinates, converted to layout coordinates. */
+    private static Rectangle2D layoutArea(final MultiLayerTransformer mlt, final double x, final double y,
+            final double radius) {
+        Point2D p1 = mlt.inverseTransform(Layer.LAYOUT, new Point2D.Double(x - radius, y - radius));
+        Rectangle2D area = new Rectangle2D.Double(p1.getX(), p1.getY(), 0, 0);
+        area.add(mlt.inverseTransform(Layer.LAYOUT, new Point2D.Double(x + radius, y + radius)));
+        return area;
+    }
+
+    private static <T> Context<Graph<INode, IEdge>, T> context(final Layout<INode, IEdge> layout, final T element) {
+        return Context.<Graph<INode, IEdge>, T>getInstance(layout.getGraph(), element);
+    }
+
+    @Override
+    public INode getVertex(final Layout<INode, IEdge> layout, final double x, final double y) {
+        RenderContext<INode, IEdge> rc = vv.getRenderContext();
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        Point2D ip = mlt.inverseTransform(Layer.VIEW, new Point2D.Double(x, y));
+
+        Rectangle2D area = layoutArea(mlt, ip.getX(), ip.getY(), getMaxExtent(layout));
+
+        INode closest = null;
+        double minDistance = Double.MAX_VALUE;
+
+        for (INode v : index.getVertices(layout, area)) {
+            if (!rc.getVertexIncludePredicate().evaluate(context(layout, v))) {
+                continue;
+            }
+
+            Shape shape = rc.getVertexShapeTransformer().transform(v);
+            Point2D p = mlt.transform(Layer.LAYOUT, layout.transform(v));
+            double ox = ip.getX() - p.getX();
+            double oy = ip.getY() - p.getY();
+
+            if (shape.contains(ox, oy)) {
+                // Like ShapePickSupport, prefer the vertex whose center is closest.
+                double distance = ox * ox + oy * oy;
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    closest = v;
+                }
+            }
+        }
+
+        return closest;
+    }
+
+    @Override
+    public Collection<INode> getVertices(final Layout<INode, IEdge> layout, final Shape rectangle) {
+        RenderContext<INode, IEdge> rc = vv.getRenderContext();
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        Shape shape = mlt.inverseTransform(Layer.VIEW, rectangle);
+        Rectangle2D b = shape.getBounds2D();
+
+        Point2D p1 = mlt.inverseTransform(Layer.LAYOUT, new Point2D.Double(b.getMinX(), b.getMinY()));
+        Rectangle2D area = new Rectangle2D.Double(p1.getX(), p1.getY(), 0, 0);
+        area.add(mlt.inverseTransform(Layer.LAYOUT, new Point2D.Double(b.getMaxX(), b.getMaxY())));
+
+        Collection<INode> picked = new ArrayList<INode>();
+        for (INode v : index.getVertices(layout, area)) {
+            if (!rc.getVertexIncludePredicate().evaluate(context(layout, v))) {
+                continue;
+            }
+            if (shape.contains(mlt.transform(Layer.LAYOUT, layout.transform(v)))) {
+                picked.add(v);
+            }
+        }
+
+        return picked;
+    }
+
+    @Override
+    public IEdge getEdge(final Layout<INode, IEdge> layout, final double x, final double y) {
+        RenderContext<INode, IEdge> rc = vv.getRenderContext();
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        Point2D ip = mlt.inverseTransform(Layer.VIEW, new Point2D.Double(x, y));
+        Rectangle2D pickArea = new Rectangle2D.Float((float) ip.getX() - PICK_SIZE / 2,
+                (float) ip.getY() - PICK_SIZE / 2, PICK_SIZE, PICK_SIZE);
+
+        // Self-loops are drawn as big as their vertex, so they may reach as far as the biggest vertex shape.
+        Rectangle2D area = layoutArea(mlt, ip.getX(), ip.getY(), Math.max(EDGE_MARGIN, getMaxExtent(layout)));
+
+        IEdge closest = null;
+        double minDistance = Double.MAX_VALUE;
+
+        for (IEdge e : index.getEdges(layout, area)) {
+            if (!rc.getEdgeIncludePredicate().evaluate(context(layout, e))) {
+                continue;
+            }
+
+            Pair<INode> ends = layout.getGraph().getEndpoints(e);
+            Point2D p1 = mlt.transform(Layer.LAYOUT, layout.transform(ends.getFirst()));
+            Point2D p2 = mlt.transform(Layer.LAYOUT, layout.transform(ends.getSecond()));
+
+            Shape edgeShape = transformedEdgeShape(rc, layout, e, ends, p1, p2);
+            if (edgeShape.intersects(pickArea)) {
+                double distance = Math.min(p1.distanceSq(ip), p2.distanceSq(ip));
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    closest = e;
+                }
+            }
+        }
+
+        return closest;
+    }
+
+    /* Moves the edge shape from its normalized position between (0,0) and (1,0) to where it is drawn. */
+    private static Shape transformedEdgeShape(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final IEdge e, final Pair<INode> ends, final Point2D p1, final Point2D p2) {
+        Shape edgeShape = rc.getEdgeShapeTransformer().transform(context(layout, e));
+        AffineTransform xform = AffineTransform.getTranslateInstance(p1.getX(), p1.getY());
+
+        if (ends.getFirst().equals(ends.getSecond())) {
+            Rectangle2D s2 = rc.getVertexShapeTransformer().transform(ends.getSecond()).getBounds2D();
+            xform.scale(s2.getWidth(), s2.getHeight());
+            xform.translate(0, -edgeShape.getBounds2D().getHeight() / 2);
+        } else {
+            double dx = p2.getX() - p1.getX();
+            double dy = p2.getY() - p1.getY();
+            xform.rotate(Math.atan2(dy, dx));
+            xform.scale(Math.sqrt(dx * dx + dy * dy), 1.0);
+        }
+
+        return xform.createTransformedShape(edgeShape);
+    }
+}
@@ -15,6 +15,12 @@ public enum LayoutName {
      */
     FRLayout,
 
+    /**
+     * A force-directed layout like FRLayout that approximates the repulsion with a Barnes-Hut quadtree and computes the
+     * forces on all cores, for graphs too large for FRLayout. See BarnesHutLayout documentation for details.
+     */
+    BarnesHutLayout,
+
     /**
      * A special, partially self-implemented algorithm that first builds a spanning tree and then layouts the sub-trees.
      * See SpanningTreeLayout documentation for details.
@@ -0,0 +1,125 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
+
+import org.apache.log4j.Logger;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Pair;
+
+/**
+ * Spatial index over the vertex positions and edge bounding boxes of a layout, in layout coordinates. It is rebuilt
+ * lazily: changes to the layout only mark it dirty, and the next lookup rebuilds it. Vertices that are dragged around
+ * are updated in place instead.
+ */
+final class LayoutSpatialIndex {
+    private static Logger logger = Logger.getLogger(LayoutSpatialIndex.class);
+
+    /* On average, this many vertices share one grid cell. */
+    private static final double VERTICES_PER_CELL = 4;
+
+    private Layout<INode, IEdge> layout = null;
+    private boolean dirty = true;
+
+    private SpatialGrid<INode> vertexGrid;
+    private SpatialGrid<IEdge> edgeGrid;
+
+    /**
+     * Marks the index as outdated, e.g. because vertices moved. It will be rebuilt on the next lookup.
+     */
+    synchronized void invalidate() {
+        this.dirty = true;
+    }
+
+    /**
+     * Returns all vertices positioned inside an area of the layout.
+     * @param l The layout to look at.
+     * @param area The area, in layout coordinates.
+     * @return The vertices inside the area.
+     */
+    synchronized Collection<INode> getVertices(final Layout<INode, IEdge> l, final Rectangle2D area) {
+        validate(l);
+        return vertexGrid.query(area);
+    }
+
+    /**
+     * Returns all edges whose bounding box overlaps an area of the layout.
+     * @param l The layout to look at.
+     * @param area The area, in layout coordinates.
+     * @return The edges possibly crossing the area.
+     */
+    synchronized Collection<IEdge> getEdges(final Layout<INode, IEdge> l, final Rectangle2D area) {
+        validate(l);
+        return edgeGrid.query(area);
+    }
+
+    /**
+     * Updates the index for vertices that moved, e.g. because they are being dragged. Only these vertices and their
+     * incident edges are touched. If the index is outdated anyway, nothing happens; it will be rebuilt on the next
+     * lookup.
+     * @param l The layout the vertices moved in.
+     * @param moved The vertices that moved.
+     */
+    synchronized void moveVertices(final Layout<INode, IEdge> l, final Collection<INode> moved) {
+        if (dirty || l != this.layout) {
+            return;
+        }
+
+        Graph<INode, IEdge> graph = l.getGraph();
+        for (INode v : moved) {
+            if (!graph.containsVertex(v)) {
+                continue;
+            }
+            Point2D p = l.transform(v);
+            vertexGrid.insert(v, new Rectangle2D.Double(p.getX(), p.getY(), 0, 0));
+            for (IEdge e : graph.getIncidentEdges(v)) {
+                edgeGrid.insert(e, edgeBounds(l, graph, e));
+            }
+        }
+    }
+
+    private void validate(final Layout<INode, IEdge> l) {
+        if (!dirty && l == this.layout) {
+            return;
+        }
+
+        this.layout = l;
+        this.dirty = false;
+
+        Graph<INode, IEdge> graph = l.getGraph();
+        Dimension size = l.getSize();
+        int n = Math.max(1, graph.getVertexCount());
+        double area = size == null ? 0 : (double) size.width * size.height;
+        double cellSize = Math.max(1.0, Math.sqrt(area / n * VERTICES_PER_CELL));
+
+        logger.debug("Rebuilding spatial index for " + graph.getVertexCount() + " vertices, cell size " + cellSize);
+
+        vertexGrid = new SpatialGrid<INode>(cellSize);
+        edgeGrid = new SpatialGrid<IEdge>(cellSize);
+
+        for (INode v : graph.getVertices()) {
+            Point2D p = l.transform(v);
+            vertexGrid.insert(v, new Rectangle2D.Double(p.getX(), p.getY(), 0, 0));
+        }
+
+        for (IEdge e : graph.getEdges()) {
+            edgeGrid.insert(e, edgeBounds(l, graph, e));
+        }
+    }
+
+    private static Rectangle2D edgeBounds(final Layout<INode, IEdge> l, final Graph<INode, IEdge> graph,
+            final IEdge e) {
+        Pair<INode> ends = graph.getEndpoints(e);
+        Point2D p1 = l.transform(ends.getFirst());
+        Point2D p2 = l.transform(ends.getSecond());
+        Rectangle2D r = new Rectangle2D.Double(p1.getX(), p1.getY(), 0, 0);
+        r.add(p2);
+        return r;
+    }
+}
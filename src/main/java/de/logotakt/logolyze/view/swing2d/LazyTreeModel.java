@@ -0,0 +1,91 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.tinloaf.snbreadtree.SnTreeModel;
+import de.tinloaf.snbreadtree.SnTreeNode;
+
+/**
+ * A tree model whose nodes may have children that are only added once they are needed, usually when the node is
+ * expanded. Until then, the node only keeps a reference to the collection of its children, so large hierarchy levels do
+ * not cost anything before the user looks into them.
+ */
+class LazyTreeModel extends SnTreeModel {
+    private static final long serialVersionUID = -2419380564436377457L;
+
+    /* The children not added yet, by the user object of their parent. */
+    private final Map<Object, Collection<?>> pending = new HashMap<Object, Collection<?>>();
+    /* The children of all lazy nodes, added or not, in the order the nodes were added. */
+    private final Map<Object, Collection<?>> lazy = new LinkedHashMap<Object, Collection<?>>();
+
+    /**
+     * Adds a node whose children are added later, by {@link #materialize(Object)}.
+     * @param parent The user object of the parent node.
+     * @param child The user object of the new node.
+     * @param children The user objects of the children of the new node. The collection is read when they are added.
+     */
+    void addLazyNode(final Object parent, final Object child, final Collection<?> children) {
+        addNode(parent, child);
+        if (!children.isEmpty()) {
+            pending.put(child, children);
+            lazy.put(child, children);
+        }
+    }
+
+    /**
+     * @return The user objects of the children of all nodes added by {@link #addLazyNode(Object, Object, Collection)},
+     *         whether they were added yet or not, by the user object of their parent.
+     */
+    Map<Object, Collection<?>> getLazyNodes() {
+        return Collections.unmodifiableMap(lazy);
+    }
+
+    /**
+     * Adds the children of a node, if that was not done yet.
+     * @param userObject The user object of the node.
+     */
+    void materialize(final Object userObject) {
+        Collection<?> children = pending.remove(userObject);
+        if (children == null) {
+            return;
+        }
+        for (Object child : children) {
+            addNode(userObject, child);
+        }
+    }
+
+    /**
+     * Returns the node of a user object, adding it to the tree first if it was not yet.
+     * @param userObject The user object of the node.
+     * @return The node, or null if the user object is not in the tree.
+     */
+    SnTreeNode findNode(final Object userObject) {
+        SnTreeNode node = getNodeByObject(userObject);
+        if (node != null) {
+            return node;
+        }
+
+        for (Map.Entry<Object, Collection<?>> e : pending.entrySet()) {
+            if (e.getValue().contains(userObject)) {
+                materialize(e.getKey());
+                return getNodeByObject(userObject);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} Nodes with children not added yet are no leafs, so that they can be expanded.
+     */
+    @Override
+    public boolean isLeaf(final Object node) {
+        if (node instanceof SnTreeNode && pending.containsKey(((SnTreeNode) node).getUserObject())) {
+            return false;
+        }
+        return super.isLeaf(node);
+    }
+}
@@ -0,0 +1,583 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.swing.JComponent;
+
+import org.apache.log4j.Logger;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.algorithms.util.IterativeContext;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.MultiLayerTransformer;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.renderers.BasicRenderer;
+import edu.uci.ics.jung.visualization.transform.MutableTransformer;
+import edu.uci.ics.jung.visualization.transform.shape.GraphicsDecorator;
+
+/**
+ * A renderer that adapts the amount of detail to the zoom level. Only vertices and edges inside the visible part of
+ * the layout are painted at all, found using a {@link LayoutSpatialIndex}. Depending on how many pixels there are for
+ * each visible vertex, one of three levels is used:
+ * <ul>
+ * <li>far: Vertices and edges are aggregated into a raster, and every raster cell is shaded by their density.</li>
+ * <li>medium: Edges that would be shorter than a few pixels are dropped and no labels are painted.</li>
+ * <li>near: Everything is painted in full detail.</li>
+ * </ul>
+ * While vertices are dragged, the renderer works as a two-layer compositor: everything that does not move is painted
+ * once into a cached image, and only the dragged vertices and their incident edges are painted on top of it in every
+ * frame. When the drag ends, they are merged back by painting everything normally again.
+ * <p>
+ * In medium detail, once the layout has settled, the graph is painted from a {@link TileCache}, so panning only
+ * copies cached tiles and zooming reuses the tiles of the nearest zoom bucket. Tiles show straight edges and vertex
+ * shapes, which is what medium detail shows anyway.
+ * <p>
+ * When the {@link QualityGovernor} asks for it, e.g. during interaction, elements are painted on a fast path: no
+ * antialiasing, edges as thin solid lines without arrows, and no labels.
+ */
+class LevelOfDetailRenderer extends BasicRenderer<INode, IEdge> {
+    private static Logger logger = Logger.getLogger(LevelOfDetailRenderer.class);
+
+    /**
+     * The levels of detail this renderer knows about.
+     */
+    enum Detail {
+        /** Density raster. */
+        far,
+        /** No labels, no tiny edges. */
+        medium,
+        /** Full detail. */
+        near
+    }
+
+    /* Below this many screen pixels per visible vertex, the density raster is drawn. */
+    private static final double FAR_PIXELS_PER_VERTEX = 16;
+    /* Below this many screen pixels per visible vertex, labels and tiny edges are dropped. */
+    private static final double MEDIUM_PIXELS_PER_VERTEX = 100;
+    /* Edges shorter than this (in pixels) are not drawn in medium detail. */
+    private static final double MIN_EDGE_PIXELS = 3;
+    /* Vertices this far (in pixels) outside the viewport are still painted, so labels don't pop in. */
+    private static final double CULL_MARGIN = 100;
+    /* Edge length in pixels of one density raster cell. */
+    private static final int RASTER_CELL = 4;
+    /* Number of distinct shades in the density raster. */
+    private static final int SHADES = 32;
+    /* How far (in pixels) vertex shapes may reach into a neighbouring tile. */
+    private static final double TILE_MARGIN = 100;
+    /* The stroke of all edges on the fast path. */
+    private static final Stroke FAST_STROKE = new BasicStroke(1);
+
+    private static final Color[] VERTEX_SHADES = new Color[SHADES];
+    private static final Color[] EDGE_SHADES = new Color[SHADES];
+
+    static {
+        for (int i = 0; i < SHADES; i++) {
+            int alpha = (int) ((i + 1) * 255.0 / SHADES);
+            VERTEX_SHADES[i] = new Color(0, 0, 160, alpha);
+            EDGE_SHADES[i] = new Color(0, 0, 0, alpha / 2);
+        }
+    }
+
+    private final LayoutSpatialIndex index;
+    private final QualityGovernor governor;
+    private boolean labelsForced = false;
+    private Detail lastDetail = Detail.near;
+
+    /* The elements painted on the overlay while dragging. Empty if no drag is going on. */
+    private final Set<INode> overlayVertices = new HashSet<INode>();
+    private final Set<IEdge> overlayEdges = new HashSet<IEdge>();
+    /* Whether the current frame is painted on the fast path. */
+    private boolean fast = false;
+    /* The cached image of everything else, and the transforms it was painted with. */
+    private BufferedImage staticLayer = null;
+    private AffineTransform staticView = null;
+    private AffineTransform staticLayout = null;
+
+    private final TileCache tileCache = new TileCache();
+
+    /**
+     * Creates a new renderer.
+     * @param index The spatial index to find the visible elements with.
+     * @param governor Decides when to take the fast path.
+     */
+    LevelOfDetailRenderer(final LayoutSpatialIndex index, final QualityGovernor governor) {
+        this.index = index;
+        this.governor = governor;
+    }
+
+    /**
+     * Sets whether labels have to be painted in medium detail, too.
+     * @param labelsForced true if labels are always wanted.
+     */
+    void setLabelsForced(final boolean labelsForced) {
+        this.labelsForced = labelsForced;
+    }
+
+    /**
+     * Returns the level of detail used for the last frame.
+     * @return The level of detail used last.
+     */
+    Detail getLastDetail() {
+        return lastDetail;
+    }
+
+    /**
+     * Starts painting the given vertices and their incident edges on the overlay, e.g. because they are about to be
+     * dragged. Everything else will be painted from the cached static layer.
+     * @param graph The graph the vertices belong to.
+     * @param vertices The vertices to put on the overlay.
+     */
+    void beginOverlay(final Graph<INode, IEdge> graph, final Collection<INode> vertices) {
+        overlayVertices.clear();
+        overlayEdges.clear();
+        // The dragged vertices will end up somewhere else, so the tiles are outdated.
+        tileCache.clear();
+        for (INode v : vertices) {
+            if (graph.containsVertex(v)) {
+                overlayVertices.add(v);
+                overlayEdges.addAll(graph.getIncidentEdges(v));
+            }
+        }
+        staticLayer = null;
+    }
+
+    /**
+     * Merges the overlay back, i.e. from now on everything is painted normally again.
+     */
+    void endOverlay() {
+        overlayVertices.clear();
+        overlayEdges.clear();
+        staticLayer = null;
+    }
+
+    /**
+     * Returns whether some elements are currently painted on the overlay.
+     * @return true while a drag is going on.
+     */
+    boolean isOverlayActive() {
+        return !overlayVertices.isEmpty();
+    }
+
+    /**
+     * Throws away the cached static layer and tiles, because something else than the overlay changed.
+     */
+    void invalidate() {
+        staticLayer = null;
+        tileCache.clear();
+    }
+
+    /**
+     * Returns whether a layout is done moving vertices around on its own.
+     * @param layout The layout in question.
+     * @return true if vertices only move if someone moves them.
+     */
+    static boolean isSettled(final Layout<INode, IEdge> layout) {
+        return !(layout instanceof IterativeContext) || ((IterativeContext) layout).done();
+    }
+
+    /**
+     * Returns the level of detail to paint a frame with.
+     * @param width The width of the screen, in pixels.
+     * @param height The height of the screen, in pixels.
+     * @param visibleVertices The number of vertices in the visible part of the layout.
+     * @param labelsForced Whether labels have to be painted in medium detail, too.
+     * @return The level of detail for the frame.
+     */
+    static Detail detailFor(final int width, final int height, final int visibleVertices,
+            final boolean labelsForced) {
+        double pixelsPerVertex = (double) width * height / Math.max(1, visibleVertices);
+        if (pixelsPerVertex < FAR_PIXELS_PER_VERTEX) {
+            return Detail.far;
+        } else if (pixelsPerVertex < MEDIUM_PIXELS_PER_VERTEX && !labelsForced) {
+            return Detail.medium;
+        } else {
+            return Detail.near;
+        }
+    }
+
+    @Override
+    public void render(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout) {
+        JComponent screen = rc.getScreenDevice();
+        int width = screen.getWidth();
+        int height = screen.getHeight();
+
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        Rectangle2D viewport = visibleArea(rc.getMultiLayerTransformer(), width, height);
+        double pixelsPerUnit = width / Math.max(viewport.getWidth(), Double.MIN_VALUE);
+        double margin = CULL_MARGIN / pixelsPerUnit;
+        viewport.setRect(viewport.getX() - margin, viewport.getY() - margin, viewport.getWidth() + 2 * margin,
+                viewport.getHeight() + 2 * margin);
+
+        long start = System.nanoTime();
+        fast = governor.isFast();
+        if (fast) {
+            Graphics2D g = rc.getGraphicsContext().getDelegate();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        }
+
+        try {
+            if (overlayVertices.isEmpty()) {
+                renderLayer(rc, layout, viewport, width, height, false);
+            } else {
+                renderComposited(rc, layout, viewport, width, height);
+            }
+        } catch (ConcurrentModificationException cme) {
+            // The layout is being changed by some other thread. Just try again.
+            screen.repaint();
+        }
+
+        governor.frameRendered(System.nanoTime() - start, fast);
+    }
+
+    /* Paints the visible elements at the appropriate level of detail, optionally leaving out the overlay. */
+    private void renderLayer(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final Rectangle2D viewport, final int width, final int height, final boolean withoutOverlay) {
+        Collection<INode> vertices = index.getVertices(layout, viewport);
+        Collection<IEdge> edges = index.getEdges(layout, viewport);
+
+        if (withoutOverlay) {
+            vertices.removeAll(overlayVertices);
+            edges.removeAll(overlayEdges);
+        }
+
+        Detail detail = detailFor(width, height, vertices.size(), labelsForced);
+        if (detail != lastDetail) {
+            logger.debug("Switching to level of detail " + detail);
+            lastDetail = detail;
+        }
+
+        if (detail == Detail.far) {
+            renderDensity(rc, layout, vertices, edges, width, height);
+        } else if (detail == Detail.medium && !withoutOverlay && isSettled(layout)) {
+            renderTiles(rc, layout, width, height);
+        } else if (fast) {
+            renderFast(rc, layout, vertices, edges);
+        } else {
+            renderElements(rc, layout, vertices, edges, detail == Detail.near);
+        }
+    }
+
+    /*
+     * Paints the cached static layer and the overlay on top of it. The static layer is repainted if the view was moved
+     * or zoomed since it was cached.
+     */
+    private void renderComposited(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final Rectangle2D viewport, final int width, final int height) {
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        AffineTransform view = mlt.getTransformer(Layer.VIEW).getTransform();
+        AffineTransform layoutTransform = mlt.getTransformer(Layer.LAYOUT).getTransform();
+
+        if (staticLayer == null || staticLayer.getWidth() != width || staticLayer.getHeight() != height
+                || !view.equals(staticView) || !layoutTransform.equals(staticLayout)) {
+            logger.debug("Painting static layer");
+
+            staticLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            GraphicsDecorator gd = rc.getGraphicsContext();
+            Graphics2D screenGraphics = gd.getDelegate();
+            Graphics2D layerGraphics = staticLayer.createGraphics();
+            layerGraphics.setRenderingHints(screenGraphics.getRenderingHints());
+            layerGraphics.transform(view);
+
+            gd.setDelegate(layerGraphics);
+            try {
+                renderLayer(rc, layout, viewport, width, height, true);
+            } finally {
+                gd.setDelegate(screenGraphics);
+                layerGraphics.dispose();
+            }
+
+            staticView = new AffineTransform(view);
+            staticLayout = new AffineTransform(layoutTransform);
+        }
+
+        Graphics2D g = screenGraphics(rc);
+        if (g != null) {
+            g.drawImage(staticLayer, 0, 0, null);
+            g.dispose();
+        }
+
+        if (fast) {
+            renderFast(rc, layout, overlayVertices, overlayEdges);
+            return;
+        }
+
+        for (IEdge e : overlayEdges) {
+            renderEdge(rc, layout, e);
+            renderEdgeLabel(rc, layout, e);
+        }
+        for (INode v : overlayVertices) {
+            renderVertex(rc, layout, v);
+            renderVertexLabel(rc, layout, v);
+        }
+    }
+
+    /* Paints the visible part of the graph from the tile cache, requesting missing tiles. */
+    private void renderTiles(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final int width, final int height) {
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        AffineTransform view = mlt.getTransformer(Layer.VIEW).getTransform();
+        AffineTransform total = new AffineTransform(view);
+        total.concatenate(mlt.getTransformer(Layer.LAYOUT).getTransform());
+
+        double scale = Math.sqrt(Math.abs(total.getDeterminant()));
+        int bucket = TileCache.bucketOf(scale);
+        double bucketScale = TileCache.scaleOf(bucket);
+        // Shapes are only scaled by the view layer; in tile pixels, that is this factor.
+        float shapeScale = (float) (Math.sqrt(Math.abs(view.getDeterminant())) * bucketScale / scale);
+
+        Rectangle2D area = visibleArea(mlt, width, height);
+        int tx0 = (int) Math.floor(area.getMinX() * bucketScale / TileCache.TILE_SIZE);
+        int tx1 = (int) Math.floor(area.getMaxX() * bucketScale / TileCache.TILE_SIZE);
+        int ty0 = (int) Math.floor(area.getMinY() * bucketScale / TileCache.TILE_SIZE);
+        int ty1 = (int) Math.floor(area.getMaxY() * bucketScale / TileCache.TILE_SIZE);
+        tileCache.setVisible(bucket, tx0, ty0, tx1, ty1);
+
+        Graphics2D g = screenGraphics(rc);
+        if (g == null) {
+            return;
+        }
+        // From now on, g draws in tile pixels.
+        g.transform(total);
+        g.scale(1 / bucketScale, 1 / bucketScale);
+
+        for (int tx = tx0; tx <= tx1; tx++) {
+            for (int ty = ty0; ty <= ty1; ty++) {
+                TileCache.TileKey key = new TileCache.TileKey(bucket, tx, ty);
+                BufferedImage tile = tileCache.get(key);
+                if (tile != null) {
+                    g.drawImage(tile, tx * TileCache.TILE_SIZE, ty * TileCache.TILE_SIZE, null);
+                } else {
+                    if (!tileCache.isPending(key)) {
+                        tileCache.request(key, tileContent(rc, layout, tx, ty, bucketScale, scale, shapeScale),
+                                rc.getScreenDevice());
+                    }
+                    tileCache.paintFallback(g, key);
+                }
+            }
+        }
+
+        g.dispose();
+    }
+
+    /*
+     * Collects everything to paint on one tile. This has to happen here, on the event dispatch thread, since the
+     * transformers of the render context are not meant to be used from other threads.
+     */
+    private TileCache.TileContent tileContent(final RenderContext<INode, IEdge> rc,
+            final Layout<INode, IEdge> layout, final int tx, final int ty, final double bucketScale,
+            final double scale, final float shapeScale) {
+        double originX = tx * TileCache.TILE_SIZE;
+        double originY = ty * TileCache.TILE_SIZE;
+        double margin = TILE_MARGIN / scale;
+        Rectangle2D region = new Rectangle2D.Double(originX / bucketScale - margin, originY / bucketScale - margin,
+                TileCache.TILE_SIZE / bucketScale + 2 * margin, TileCache.TILE_SIZE / bucketScale + 2 * margin);
+
+        Collection<INode> vertices = index.getVertices(layout, region);
+        Collection<IEdge> edges = index.getEdges(layout, region);
+        TileCache.TileContent content = new TileCache.TileContent(edges.size(), vertices.size(), shapeScale);
+        double minLengthSq = MIN_EDGE_PIXELS * MIN_EDGE_PIXELS / (scale * scale);
+
+        for (IEdge e : edges) {
+            Pair<INode> ends = layout.getGraph().getEndpoints(e);
+            Point2D p1 = layout.transform(ends.getFirst());
+            Point2D p2 = layout.transform(ends.getSecond());
+            if (p1.distanceSq(p2) < minLengthSq) {
+                continue;
+            }
+            content.addEdge((float) (p1.getX() * bucketScale - originX), (float) (p1.getY() * bucketScale - originY),
+                    (float) (p2.getX() * bucketScale - originX), (float) (p2.getY() * bucketScale - originY),
+                    rc.getEdgeStrokeTransformer().transform(e), rc.getEdgeDrawPaintTransformer().transform(e));
+        }
+
+        for (INode v : vertices) {
+            Point2D p = layout.transform(v);
+            content.addVertex((float) (p.getX() * bucketScale - originX), (float) (p.getY() * bucketScale - originY),
+                    rc.getVertexShapeTransformer().transform(v), rc.getVertexFillPaintTransformer().transform(v),
+                    rc.getVertexDrawPaintTransformer().transform(v), rc.getVertexStrokeTransformer().transform(v));
+        }
+
+        return content;
+    }
+
+    /*
+     * The graphics context is already transformed by the view layer. This returns a copy of it that draws in screen
+     * pixels instead, or null if that is not possible. It has to be disposed of by the caller.
+     */
+    private static Graphics2D screenGraphics(final RenderContext<INode, IEdge> rc) {
+        Graphics2D g = (Graphics2D) rc.getGraphicsContext().getDelegate().create();
+        try {
+            MutableTransformer view = rc.getMultiLayerTransformer().getTransformer(Layer.VIEW);
+            g.transform(view.getTransform().createInverse());
+            return g;
+        } catch (NoninvertibleTransformException ex) {
+            logger.error("View transform is not invertible, cannot draw in screen pixels.", ex);
+            g.dispose();
+            return null;
+        }
+    }
+
+    /* Returns the part of the layout that is visible on screen, in layout coordinates. */
+    private static Rectangle2D visibleArea(final MultiLayerTransformer mlt, final int width, final int height) {
+        Point2D p = mlt.inverseTransform(new Point2D.Double(0, 0));
+        Rectangle2D area = new Rectangle2D.Double(p.getX(), p.getY(), 0, 0);
+        area.add(mlt.inverseTransform(new Point2D.Double(width, 0)));
+        area.add(mlt.inverseTransform(new Point2D.Double(0, height)));
+        area.add(mlt.inverseTransform(new Point2D.Double(width, height)));
+        return area;
+    }
+
+    private void renderElements(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final Collection<INode> vertices, final Collection<IEdge> edges, final boolean full) {
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        double minLengthSq = MIN_EDGE_PIXELS * MIN_EDGE_PIXELS;
+
+        for (IEdge e : edges) {
+            if (!full) {
+                Pair<INode> ends = layout.getGraph().getEndpoints(e);
+                Point2D p1 = mlt.transform(layout.transform(ends.getFirst()));
+                Point2D p2 = mlt.transform(layout.transform(ends.getSecond()));
+                if (p1.distanceSq(p2) < minLengthSq) {
+                    continue;
+                }
+            }
+
+            renderEdge(rc, layout, e);
+            if (full) {
+                renderEdgeLabel(rc, layout, e);
+            }
+        }
+
+        for (INode v : vertices) {
+            renderVertex(rc, layout, v);
+            if (full) {
+                renderVertexLabel(rc, layout, v);
+            }
+        }
+    }
+
+    /*
+     * The fast path: edges are drawn as thin solid lines without arrows, tiny edges and self-loops are left out, and
+     * vertices are painted without labels.
+     */
+    private void renderFast(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final Collection<INode> vertices, final Collection<IEdge> edges) {
+        Graphics2D g = screenGraphics(rc);
+        if (g != null) {
+            MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+            Graph<INode, IEdge> graph = layout.getGraph();
+            double minLengthSq = MIN_EDGE_PIXELS * MIN_EDGE_PIXELS;
+            Line2D line = new Line2D.Double();
+            g.setStroke(FAST_STROKE);
+
+            for (IEdge e : edges) {
+                if (!rc.getEdgeIncludePredicate().evaluate(Context.<Graph<INode, IEdge>, IEdge>getInstance(graph, e))) {
+                    continue;
+                }
+                Pair<INode> ends = graph.getEndpoints(e);
+                Point2D p1 = mlt.transform(layout.transform(ends.getFirst()));
+                Point2D p2 = mlt.transform(layout.transform(ends.getSecond()));
+                if (p1.distanceSq(p2) < minLengthSq) {
+                    continue;
+                }
+                line.setLine(p1, p2);
+                g.setPaint(rc.getEdgeDrawPaintTransformer().transform(e));
+                g.draw(line);
+            }
+            g.dispose();
+        }
+
+        for (INode v : vertices) {
+            renderVertex(rc, layout, v);
+        }
+    }
+
+    /*
+     * Aggregates the visible vertices and edges into a raster of RASTER_CELL sized cells and shades each cell by the
+     * (logarithmic) number of elements in it. Edges are sampled once per cell along their length.
+     */
+    private void renderDensity(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+            final Collection<INode> vertices, final Collection<IEdge> edges, final int width, final int height) {
+        MultiLayerTransformer mlt = rc.getMultiLayerTransformer();
+        int cols = width / RASTER_CELL + 1;
+        int rows = height / RASTER_CELL + 1;
+        int[] vertexCount = new int[cols * rows];
+        int[] edgeCount = new int[cols * rows];
+
+        for (INode v : vertices) {
+            Point2D p = mlt.transform(layout.transform(v));
+            int cx = (int) (p.getX() / RASTER_CELL);
+            int cy = (int) (p.getY() / RASTER_CELL);
+            if (cx >= 0 && cy >= 0 && cx < cols && cy < rows) {
+                vertexCount[cy * cols + cx]++;
+            }
+        }
+
+        for (IEdge e : edges) {
+            Pair<INode> ends = layout.getGraph().getEndpoints(e);
+            Point2D p1 = mlt.transform(layout.transform(ends.getFirst()));
+            Point2D p2 = mlt.transform(layout.transform(ends.getSecond()));
+            double dx = p2.getX() - p1.getX();
+            double dy = p2.getY() - p1.getY();
+            int steps = (int) (Math.max(Math.abs(dx), Math.abs(dy)) / RASTER_CELL) + 1;
+            for (int s = 0; s <= steps; s++) {
+                int cx = (int) ((p1.getX() + dx * s / steps) / RASTER_CELL);
+                int cy = (int) ((p1.getY() + dy * s / steps) / RASTER_CELL);
+                if (cx >= 0 && cy >= 0 && cx < cols && cy < rows) {
+                    edgeCount[cy * cols + cx]++;
+                }
+            }
+        }
+
+        Graphics2D g = screenGraphics(rc);
+        if (g == null) {
+            return;
+        }
+
+        fillRaster(g, edgeCount, cols, EDGE_SHADES);
+        fillRaster(g, vertexCount, cols, VERTEX_SHADES);
+        g.dispose();
+    }
+
+    private static void fillRaster(final Graphics2D g, final int[] counts, final int cols, final Color[] shades) {
+        int max = 0;
+        for (int c : counts) {
+            max = Math.max(max, c);
+        }
+        if (max == 0) {
+            return;
+        }
+
+        double scale = (SHADES - 1) / Math.log(1 + max);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            g.setColor(shades[(int) (Math.log(1 + counts[i]) * scale)]);
+            g.fillRect((i % cols) * RASTER_CELL, (i / cols) * RASTER_CELL, RASTER_CELL, RASTER_CELL);
+        }
+    }
+}
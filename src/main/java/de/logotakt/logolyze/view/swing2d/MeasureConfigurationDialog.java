@@ -11,7 +11,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -22,12 +21,14 @@ import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
 
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.IMeasureType;
 import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
 import de.logotakt.logolyze.model.interfaces.MeasureClass;
 import de.logotakt.logolyze.view.interfaces.EventType;
-import de.logotakt.logolyze.view.interfaces.IEventHandler;
 import de.logotakt.logolyze.view.interfaces.IMeasureConfigurationView;
 
 /**
@@ -123,6 +124,14 @@ public class MeasureConfigurationDialog extends Swing2DEventedModalDialog implem
     private Map<IMeasureType, Object> measureDisplayTypes;
     private boolean displayTypesKept;
 
+    /* The item of filterModeBox that stands for loading all edges. */
+    private static final String NO_EDGE_FILTER = "none";
+
+    /* Controls for the edge filter. They are null if there are no numerical edge measures to filter by. */
+    private JComboBox filterModeBox;
+    private JSpinner filterValueSpinner;
+    private JComboBox filterMeasureBox;
+
     private JPanel buttonsPanel;
 
     /**
@@ -154,7 +163,7 @@ public class MeasureConfigurationDialog extends Swing2DEventedModalDialog implem
         measureDisplayTypes = new HashMap<IMeasureType, Object>();
 
         for (EventType type : TRIGGERED_EVENTS) {
-            getListeners().put(type, new HashSet<IEventHandler>());
+            declareEvent(type);
         }
     }
 
@@ -324,11 +333,113 @@ public class MeasureConfigurationDialog extends Swing2DEventedModalDialog implem
         gbc.gridwidth = 4;
         gbc.gridheight = 1;
         gbc.anchor = GridBagConstraints.CENTER;
+
+        JPanel filterPanel = createFilterPanel(m);
+        if (filterPanel != null) {
+            measuresPanel.add(filterPanel, gbc);
+            gbc.gridy += 1;
+        }
+
         measuresPanel.add(buttonsPanel, gbc);
 
         pack();
     }
 
+    /*
+     * Creates the controls to choose an edge filter, which the database applies when loading the edges. Returns null
+     * if there are no numerical edge measures to filter by.
+     */
+    private JPanel createFilterPanel(final Collection<? extends IMeasureType> m) {
+        filterModeBox = null;
+        filterValueSpinner = null;
+        filterMeasureBox = null;
+
+        List<String> keys = new ArrayList<String>();
+        for (IMeasureType measure : m) {
+            if (measure.getAssoc() == MeasureAssociation.edgeMeasure
+                    && measure.getMeasureClass() == MeasureClass.NumeralMeasure) {
+                keys.add(measure.getKey());
+            }
+        }
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        filterPanel.add(new JLabel("Only load edges:"));
+
+        filterModeBox = new JComboBox();
+        filterModeBox.setName("edge filter mode");
+        filterModeBox.addItem(NO_EDGE_FILTER);
+        for (EdgeFilter.Mode mode : EdgeFilter.Mode.values()) {
+            filterModeBox.addItem(mode.toString());
+        }
+        filterPanel.add(filterModeBox);
+
+        filterValueSpinner = new JSpinner(new SpinnerNumberModel(100.0, 0.0, Double.MAX_VALUE, 1.0));
+        filterValueSpinner.setName("edge filter value");
+        filterPanel.add(filterValueSpinner);
+
+        filterPanel.add(new JLabel("by"));
+
+        filterMeasureBox = new JComboBox(keys.toArray());
+        filterMeasureBox.setName("edge filter measure");
+        filterPanel.add(filterMeasureBox);
+
+        filterModeBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                updateFilterControls();
+            }
+        });
+        updateFilterControls();
+
+        return filterPanel;
+    }
+
+    /* The value and measure of the edge filter can only be chosen if there is a filter. */
+    private void updateFilterControls() {
+        boolean filtered = !NO_EDGE_FILTER.equals(filterModeBox.getSelectedItem());
+        filterValueSpinner.setEnabled(filtered);
+        filterMeasureBox.setEnabled(filtered);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EdgeFilter getEdgeFilter() {
+        if (filterModeBox == null || NO_EDGE_FILTER.equals(filterModeBox.getSelectedItem())) {
+            return null;
+        }
+
+        EdgeFilter.Mode mode = EdgeFilter.Mode.valueOf((String) filterModeBox.getSelectedItem());
+        double value = ((Number) filterValueSpinner.getValue()).doubleValue();
+        if (mode == EdgeFilter.Mode.topK) {
+            value = Math.max(1, Math.floor(value));
+        }
+
+        return new EdgeFilter(measures.get(filterMeasureBox.getSelectedItem()), mode, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setEdgeFilter(final EdgeFilter filter) {
+        if (filterModeBox == null) {
+            return;
+        }
+
+        if (filter == null || !measures.containsKey(filter.getMeasure().getKey())) {
+            filterModeBox.setSelectedItem(NO_EDGE_FILTER);
+        } else {
+            filterModeBox.setSelectedItem(filter.getMode().toString());
+            filterValueSpinner.setValue(filter.getValue());
+            filterMeasureBox.setSelectedItem(filter.getMeasure().getKey());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -393,6 +504,11 @@ public class MeasureConfigurationDialog extends Swing2DEventedModalDialog implem
         }
         state.setSelectedMeasures(sels);
         state.setMeasureDisplayTypes(types);
+
+        EdgeFilter filter = getEdgeFilter();
+        if (filter != null) {
+            state.setEdgeFilter(filter.getMeasure().getKey(), filter.getMode().toString(), filter.getValue());
+        }
         return state;
     }
 
@@ -423,6 +539,19 @@ public class MeasureConfigurationDialog extends Swing2DEventedModalDialog implem
             }
         }
         saveMeasureDisplayTypes();
+
+        // States saved before there were edge filters have none.
+        IMeasureType filterMeasure = null;
+        if (state.getEdgeFilterMeasure() != null) {
+            filterMeasure = measures.get(state.getEdgeFilterMeasure());
+        }
+        if (filterMeasure != null) {
+            setEdgeFilter(new EdgeFilter(filterMeasure, EdgeFilter.Mode.valueOf(state.getEdgeFilterMode()),
+                    state.getEdgeFilterValue()));
+        } else {
+            setEdgeFilter(null);
+        }
+
         forceEvent(EventType.measuresChanged, this);
     }
 
@@ -9,6 +9,9 @@ public class MeasureConfigurationDialogState implements IState {
 
     private String[] selectedMeasures;
     private String[] measureDisplayTypes;
+    private String edgeFilterMeasure;
+    private String edgeFilterMode;
+    private double edgeFilterValue;
 
     /**
      * Get what Measures were selected.
@@ -45,4 +48,40 @@ public class MeasureConfigurationDialogState implements IState {
         this.measureDisplayTypes = new String[measureDisplayTypes.length];
         System.arraycopy(measureDisplayTypes, 0, this.measureDisplayTypes, 0, measureDisplayTypes.length);
     }
+
+    /**
+     * Get the key of the measure the edges are filtered by.
+     * @return The key of the measure, or null if all edges are loaded.
+     */
+    public String getEdgeFilterMeasure() {
+        return edgeFilterMeasure;
+    }
+
+    /**
+     * Get how the edges are filtered.
+     * @return The name of the edge filter mode.
+     */
+    public String getEdgeFilterMode() {
+        return edgeFilterMode;
+    }
+
+    /**
+     * Get the number of edges or the threshold of the edge filter.
+     * @return The value of the edge filter.
+     */
+    public double getEdgeFilterValue() {
+        return edgeFilterValue;
+    }
+
+    /**
+     * Set the filter for the edges to load.
+     * @param measure The key of the measure to filter by.
+     * @param mode The name of the edge filter mode.
+     * @param value The number of edges or the threshold.
+     */
+    public void setEdgeFilter(final String measure, final String mode, final double value) {
+        this.edgeFilterMeasure = measure;
+        this.edgeFilterMode = mode;
+        this.edgeFilterValue = value;
+    }
 }
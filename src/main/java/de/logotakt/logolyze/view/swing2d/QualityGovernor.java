@@ -0,0 +1,99 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Decides whether a frame may be painted in full quality or has to take the fast path. The fast path is taken while
+ * the user interacts with the graph (dragging, panning, zooming) and while frames are requested faster than they can
+ * be painted in full quality, e.g. while a layout is still moving the vertices. Once nothing happened for a short
+ * while, the screen is repainted in full quality.
+ * <p>
+ * All methods are meant to be called on the event dispatch thread.
+ */
+final class QualityGovernor {
+    private static Logger logger = Logger.getLogger(QualityGovernor.class);
+
+    /* Frames taking longer than this (in nanoseconds) in full quality are too slow for continuous repainting. */
+    private static final long FRAME_BUDGET = 40L * 1000 * 1000;
+    /* After this many milliseconds without interaction or fast frames, full quality is restored. */
+    private static final int IDLE_DELAY = 300;
+
+    private final Timer idleTimer;
+
+    /* Whether a mouse button is held down on the graph. */
+    private boolean pressed = false;
+    /* Whether the user did something recently. */
+    private boolean busy = false;
+    /* When the last frame that was too slow in full quality was finished, in milliseconds. */
+    private long lastSlowFrame = 0;
+
+    /**
+     * Creates a new governor.
+     * @param screen The component to repaint when full quality is restored.
+     */
+    QualityGovernor(final JComponent screen) {
+        this.idleTimer = new Timer(IDLE_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                busy = false;
+                if (!pressed) {
+                    logger.debug("Idle, restoring full quality");
+                    screen.repaint();
+                }
+            }
+        });
+        this.idleTimer.setRepeats(false);
+    }
+
+    /**
+     * Tells the governor that a mouse button was pressed on the graph, e.g. to start dragging or panning.
+     */
+    void beginInteraction() {
+        this.pressed = true;
+        this.idleTimer.stop();
+    }
+
+    /**
+     * Tells the governor that the mouse button was released again.
+     */
+    void endInteraction() {
+        this.pressed = false;
+        interacted();
+    }
+
+    /**
+     * Tells the governor about a single interaction that has no end of its own, like a mouse wheel zoom step.
+     */
+    void interacted() {
+        this.busy = true;
+        this.idleTimer.restart();
+    }
+
+    /**
+     * Returns whether the next frame should take the fast path.
+     * @return true if the frame should be painted fast rather than nicely.
+     */
+    boolean isFast() {
+        return pressed || busy || System.currentTimeMillis() - lastSlowFrame < IDLE_DELAY;
+    }
+
+    /**
+     * Tells the governor how long a frame took to paint.
+     * @param nanos The time the frame took, in nanoseconds.
+     * @param fast Whether the frame was painted on the fast path.
+     */
+    void frameRendered(final long nanos, final boolean fast) {
+        if (fast) {
+            this.idleTimer.restart();
+        } else if (nanos > FRAME_BUDGET) {
+            // Too slow to repaint continuously. If another frame follows soon, it takes the fast path.
+            this.lastSlowFrame = System.currentTimeMillis();
+        }
+    }
+}
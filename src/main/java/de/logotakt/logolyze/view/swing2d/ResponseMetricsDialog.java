@@ -0,0 +1,105 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+
+import de.logotakt.logolyze.model.interfaces.IGraphMetrics;
+import de.logotakt.logolyze.model.interfaces.IRequestMetrics;
+import de.logotakt.logolyze.model.interfaces.RequestPhase;
+
+/**
+ * Shows where the time of the last request went: the time of every phase, the time of every graph, and how much was
+ * fetched from the database. It is opened from the response time in the status bar.
+ */
+@SuppressWarnings("serial")
+class ResponseMetricsDialog extends JDialog {
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final JLabel summary = new JLabel();
+    private final DefaultTableModel phases = new ReadOnlyTableModel(new String[] {"Phase", "ms", "%" });
+    private final DefaultTableModel graphs = new ReadOnlyTableModel(new String[] {"Graph", "ms", "Node rows",
+        "Edge rows", "Sample rate" });
+
+    /**
+     * Creates the dialog, hidden.
+     * @param owner The frame the dialog belongs to.
+     */
+    ResponseMetricsDialog(final JFrame owner) {
+        super(owner, "Last Request");
+
+        summary.setBorder(new EmptyBorder(5, 5, 5, 5));
+        getContentPane().add(summary, BorderLayout.NORTH);
+
+        JPanel tables = new JPanel(new GridLayout(2, 1, 0, 5));
+        tables.add(new JScrollPane(new JTable(phases)));
+        tables.add(new JScrollPane(new JTable(graphs)));
+        getContentPane().add(tables, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 5));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(new HideOnActionListener(this));
+        buttons.add(closeButton);
+        getContentPane().add(buttons, BorderLayout.SOUTH);
+
+        setSize(500, 400);
+    }
+
+    /**
+     * Shows the metrics of a request.
+     * @param metrics The metrics to show.
+     */
+    void showMetrics(final IRequestMetrics metrics) {
+        long total = metrics.getTotalNanos();
+        StringBuilder text = new StringBuilder("<html>");
+        text.append(String.format("Took %.1f ms", total / NANOS_PER_MILLI));
+        if (metrics.isCacheHit()) {
+            text.append(", answered from the result cache.");
+        } else {
+            text.append(String.format(" for %d graphs.<br>%d statements, %d rows, about %d KiB.",
+                    metrics.getGraphMetrics().size(), metrics.getStatementCount(), metrics.getRowCount(),
+                    metrics.getBytesEstimate() / 1024));
+        }
+        summary.setText(text.append("</html>").toString());
+
+        phases.setRowCount(0);
+        for (RequestPhase phase : RequestPhase.values()) {
+            long nanos = metrics.getPhaseNanos(phase);
+            phases.addRow(new Object[] {phase, String.format("%.1f", nanos / NANOS_PER_MILLI),
+                String.format("%.0f", total == 0 ? 0.0 : 100.0 * nanos / total) });
+        }
+
+        graphs.setRowCount(0);
+        for (IGraphMetrics g : metrics.getGraphMetrics()) {
+            graphs.addRow(new Object[] {g.getGraphId(), String.format("%.1f", g.getNanos() / NANOS_PER_MILLI),
+                g.getNodeRows(), g.getEdgeRows(), g.getEdgeSampleRate() });
+        }
+
+        setLocationRelativeTo(getOwner());
+        setVisible(true);
+    }
+
+    /**
+     * A table model whose cells cannot be edited.
+     */
+    private static final class ReadOnlyTableModel extends DefaultTableModel {
+        ReadOnlyTableModel(final String[] columns) {
+            super(columns, 0);
+        }
+
+        @Override
+        public boolean isCellEditable(final int row, final int column) {
+            return false;
+        }
+    }
+}
@@ -2,188 +2,218 @@ package de.logotakt.logolyze.view.swing2d;
 
 import java.awt.Dimension;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.collections15.Transformer;
 
-import edu.uci.ics.jung.algorithms.cluster.WeakComponentClusterer;
-import edu.uci.ics.jung.algorithms.filters.KNeighborhoodFilter;
 import edu.uci.ics.jung.algorithms.layout.Layout;
 import edu.uci.ics.jung.algorithms.layout.TreeLayout;
-import edu.uci.ics.jung.algorithms.shortestpath.MinimumSpanningForest;
-import edu.uci.ics.jung.graph.DelegateForest;
-import edu.uci.ics.jung.graph.Forest;
 import edu.uci.ics.jung.graph.Graph;
 import edu.uci.ics.jung.graph.util.Pair;
 
 /**
- * This class layouts a JUNG graph by constructing a spanning tree and layouting this with a TreeLayout.
+ * This class layouts a JUNG graph by constructing a spanning forest and placing it like a TreeLayout would.
+ * <p>
+ * Everything works on vertex ordinals and primitive arrays: the connected components are found with a union-find, each
+ * component gets a breadth-first spanning tree rooted at its vertex with the highest degree, and the trees are placed
+ * in two linear passes over the breadth-first order. The layout is only computed when positions are first asked for,
+ * so setting a graph that is replaced right away costs nothing.
  * @param <E> The type of edges in the graph to layout.
  * @param <V> The type of vertices in the graph to layout.
  */
 class SpanningTreeLayout<V, E> implements Layout<V, E> {
+    /* The y coordinate above the roots, like in TreeLayout. */
+    private static final int TOP = 20;
 
-    /**
-     * This class implements a Map which maps any value to a given constant.
-     * @param <K> The type of keys in this map
-     * @param <V> The type of values in this map
-     */
-    class ConstantMap<K, NV> implements Map<K, NV> {
-        private NV result;
+    private Graph<V, E> graph;
+    private final int distX, distY;
 
-        /**
-         * Construct a ConstantMap from the result it should return for every query.
-         * @param result The constant to return for every query.
-         */
-        public ConstantMap(final NV result) {
-            this.result = result;
-        }
+    /* The computed positions. null until they are needed. */
+    private Map<V, Point2D> locations = null;
+    private Dimension size = new Dimension(0, 0);
+    private final Set<V> locked = new HashSet<V>();
 
-        public void clear() {
-        }
+    SpanningTreeLayout(final Graph<V, E> graph) {
+        this(graph, TreeLayout.DEFAULT_DISTX, TreeLayout.DEFAULT_DISTY);
+    }
 
-        /**
-         * Will always claim to contain the given Key.
-         * @param key The key to check for.
-         */
-        public boolean containsKey(final Object key) {
-            return true;
-        }
+    SpanningTreeLayout(final Graph<V, E> graph, final int distX, final int distY) {
+        this.graph = graph;
 
-        /**
-         * The Map contains the Value if it's equal to the constant passed.
-         * @param value The value to check.
-         */
-        public boolean containsValue(final Object value) {
-            return value == result;
-        }
+        this.distX = distX;
+        this.distY = distY;
+    }
 
-        public Set<Map.Entry<K, NV>> entrySet() {
-            return Collections.emptySet();
+    /* Union-find lookup with path halving. */
+    private static int find(final int[] parent, final int i) {
+        int x = i;
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
         }
+        return x;
+    }
 
-        public NV get(final Object key) {
-            return result;
+    private synchronized Map<V, Point2D> getLocations() {
+        if (locations == null) {
+            createSpanningTrees();
         }
+        return locations;
+    }
 
-        public boolean isEmpty() {
-            return true;
-        }
+    @SuppressWarnings("unchecked")
+    private void createSpanningTrees() {
+        int n = graph.getVertexCount();
 
-        public Set<K> keySet() {
-            return Collections.emptySet();
+        // Number the vertices.
+        V[] vertices = (V[]) graph.getVertices().toArray();
+        Map<V, Integer> ordinals = new HashMap<V, Integer>(n * 2);
+        for (int i = 0; i < n; i++) {
+            ordinals.put(vertices[i], i);
         }
 
-        public NV put(final K key, final NV value) {
-            throw new UnsupportedOperationException();
+        // Build the undirected adjacency in compressed form, and the components with a union-find.
+        int m = graph.getEdgeCount();
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int[] degree = new int[n];
+        int[] component = new int[n];
+        for (int i = 0; i < n; i++) {
+            component[i] = i;
         }
 
-        public void putAll(final Map<? extends K, ? extends NV> m) {
-            throw new UnsupportedOperationException();
+        int edgeCount = 0;
+        for (E e : graph.getEdges()) {
+            Pair<V> ends = graph.getEndpoints(e);
+            int a = ordinals.get(ends.getFirst());
+            int b = ordinals.get(ends.getSecond());
+            if (a == b) {
+                // A self-loop counts once for the degree, like in JUNG, but is useless for the trees.
+                degree[a]++;
+                continue;
+            }
+            from[edgeCount] = a;
+            to[edgeCount] = b;
+            edgeCount++;
+            degree[a]++;
+            degree[b]++;
+
+            int ra = find(component, a);
+            int rb = find(component, b);
+            if (ra != rb) {
+                component[ra] = rb;
+            }
         }
 
-        public NV remove(final Object key) {
-            throw new UnsupportedOperationException();
+        int[] offset = new int[n + 1];
+        int[] fill = new int[n];
+        for (int i = 0; i < edgeCount; i++) {
+            fill[from[i]]++;
+            fill[to[i]]++;
         }
-
-        public int size() {
-            return 1;
+        for (int i = 0; i < n; i++) {
+            offset[i + 1] = offset[i] + fill[i];
+            fill[i] = 0;
         }
-
-        public Collection<NV> values() {
-            ArrayList<NV> resultList = new ArrayList<NV>(1);
-            resultList.add(result);
-            return resultList;
+        int[] adjacent = new int[offset[n]];
+        for (int i = 0; i < edgeCount; i++) {
+            adjacent[offset[from[i]] + fill[from[i]]++] = to[i];
+            adjacent[offset[to[i]] + fill[to[i]]++] = from[i];
         }
-    }
-
-    private TreeLayout<V, E> baseLayout;
-    private Graph<V, E> graph;
-    private int distX, distY;
-
-    SpanningTreeLayout(final Graph<V, E> graph) {
-        this(graph, TreeLayout.DEFAULT_DISTX, TreeLayout.DEFAULT_DISTY);
-    }
 
-    SpanningTreeLayout(final Graph<V, E> graph, final int distX, final int distY) {
-        this.graph = graph;
-
-        this.distX = distX;
-        this.distY = distY;
-        createSpanningTrees();
-    }
+        // The root of every component is its vertex with the highest degree; on ties, the first one.
+        int[] root = new int[n];
+        for (int i = 0; i < n; i++) {
+            root[i] = -1;
+        }
+        for (int i = 0; i < n; i++) {
+            int c = find(component, i);
+            if (root[c] == -1 || degree[i] > degree[root[c]]) {
+                root[c] = i;
+            }
+        }
 
-    // private void createSpanningTrees() {
-    // Forest<V, E> spanningTrees = new DelegateForest<V, E>();
-    // MinimumSpanningForest<V, E> algorithm =
-    // new MinimumSpanningForest<V, E>(graph, spanningTrees, null, new ConstantMap<E, Double>(1.0));
-    // spanningTrees = algorithm.getForest();
+        // Breadth-first search from each root. The children of every vertex end up next to each other in the order.
+        int[] order = new int[n];
+        int[] firstChild = new int[n];
+        int[] childCount = new int[n];
+        boolean[] visited = new boolean[n];
+        int[] treeStart = new int[n];
+        int trees = 0;
+        int tail = 0;
+
+        for (int i = 0; i < n; i++) {
+            int c = find(component, i);
+            if (root[c] == -1 || visited[root[c]]) {
+                continue;
+            }
 
-    // baseLayout = new TreeLayout<V, E>(spanningTrees, distX, distY);
-    // }
+            int r = root[c];
+            treeStart[trees++] = tail;
+            visited[r] = true;
+            order[tail++] = r;
+
+            for (int head = treeStart[trees - 1]; head < tail; head++) {
+                int u = order[head];
+                firstChild[u] = tail;
+                for (int k = offset[u]; k < offset[u + 1]; k++) {
+                    int w = adjacent[k];
+                    if (!visited[w]) {
+                        visited[w] = true;
+                        order[tail++] = w;
+                    }
+                }
+                childCount[u] = tail - firstChild[u];
+            }
+        }
 
-    /**
-     * Add Graph g2 to Graph g1.
-     */
-    private void mergeInto(final Graph<V, E> g1, final Graph<V, E> g2) {
-        for (V v : g2.getVertices()) {
-            g1.addVertex(v);
+        // Subtree widths, children before their parents.
+        int[] width = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            int u = order[i];
+            int w = 0;
+            for (int k = firstChild[u]; k < firstChild[u] + childCount[u]; k++) {
+                w += width[order[k]] + distX;
+            }
+            width[u] = Math.max(0, w - distX);
         }
 
-        for (E e : g2.getEdges()) {
-            Pair<V> vertices = g2.getEndpoints(e);
-            g1.addEdge(e, vertices.getFirst(), vertices.getSecond());
+        // Positions, parents before their children. The trees are put next to each other.
+        int[] x = new int[n];
+        int[] y = new int[n];
+        int cursor = 0;
+        for (int t = 0; t < trees; t++) {
+            int r = order[treeStart[t]];
+            cursor += distX;
+            x[r] = cursor + width[r] / 2;
+            y[r] = TOP + distY;
+            cursor += width[r];
         }
-    }
 
-    private void createSpanningTrees() {
-        // Split the graph into connected components
-        WeakComponentClusterer<V, E> clusterer = new WeakComponentClusterer<V, E>();
-        Set<Set<V>> connectedComponents = clusterer.transform(graph);
-
-        // Get a node-induced subgraph for each component
-        Collection<Graph<V, E>> componentGraphs = new ArrayList<Graph<V, E>>();
-        for (Set<V> component : connectedComponents) {
-            KNeighborhoodFilter<V, E> filter = new KNeighborhoodFilter<V, E>(component, 1,
-                    KNeighborhoodFilter.EdgeType.IN_OUT);
-            componentGraphs.add(filter.transform(graph));
-        }
-
-        // In each subgraph, find the node with the most connections.
-        // Build an MST from this node.
-        // TODO A plain old unweighted MST is probably not the best thing to do here.
-        // Think about alternatives.
-        Collection<Forest<V, E>> msts = new ArrayList<Forest<V, E>>();
-        for (Graph<V, E> component : componentGraphs) {
-            V centralNode = null;
-            int bestDegree = 0;
-
-            for (V n : component.getVertices()) {
-                if (component.degree(n) > bestDegree) {
-                    centralNode = n;
-                    bestDegree = component.degree(centralNode);
-                }
+        int maxX = 0, maxY = 0;
+        for (int i = 0; i < n; i++) {
+            int u = order[i];
+            int lastX = x[u] - width[u] / 2;
+            for (int k = firstChild[u]; k < firstChild[u] + childCount[u]; k++) {
+                int c = order[k];
+                x[c] = lastX + width[c] / 2;
+                y[c] = y[u] + distY;
+                lastX += width[c] + distX;
             }
-
-            Forest<V, E> spanningTree = new DelegateForest<V, E>();
-            MinimumSpanningForest<V, E> algorithm = new MinimumSpanningForest<V, E>(component, spanningTree,
-                    centralNode, new ConstantMap<E, Double>(1.0));
-            spanningTree = algorithm.getForest();
-            msts.add(spanningTree);
+            maxX = Math.max(maxX, x[u]);
+            maxY = Math.max(maxY, y[u]);
         }
 
-        // Put all the MSTs together.
-        Forest<V, E> allMSTs = new DelegateForest<V, E>();
-        for (Forest<V, E> mst : msts) {
-            mergeInto(allMSTs, mst);
+        Map<V, Point2D> result = new HashMap<V, Point2D>(n * 2);
+        for (int i = 0; i < n; i++) {
+            result.put(vertices[i], new Point2D.Double(x[i], y[i]));
         }
 
-        // Use them as the base layout
-        baseLayout = new TreeLayout<V, E>(allMSTs, distX, distY);
+        this.locations = result;
+        this.size = new Dimension(maxX + distX, maxY + distY);
     }
 
     public Graph<V, E> getGraph() {
@@ -191,44 +221,68 @@ class SpanningTreeLayout<V, E> implements Layout<V, E> {
     }
 
     public Dimension getSize() {
-        return baseLayout.getSize();
+        getLocations();
+        return size;
     }
 
     public void initialize() {
-        baseLayout.initialize();
+        // The positions do not depend on anything but the graph.
     }
 
     public boolean isLocked(final V vert) {
-        return baseLayout.isLocked(vert);
+        return locked.contains(vert);
     }
 
     public void lock(final V vert, final boolean state) {
-        baseLayout.lock(vert, state);
+        if (state) {
+            locked.add(vert);
+        } else {
+            locked.remove(vert);
+        }
     }
 
-    public void reset() {
-        baseLayout.reset();
+    public synchronized void reset() {
+        this.locations = null;
     }
 
-    public void setGraph(final Graph<V, E> graph) {
+    public synchronized void setGraph(final Graph<V, E> graph) {
         this.graph = graph;
-        createSpanningTrees();
+        this.locations = null;
     }
 
     public void setInitializer(final Transformer<V, Point2D> init) {
-        baseLayout.setInitializer(init);
+        // Like TreeLayout, this layout does not use initial positions.
     }
 
-    public void setLocation(final V v, final Point2D loc) {
-        baseLayout.setLocation(v, loc);
+    public synchronized void setLocation(final V v, final Point2D loc) {
+        Point2D p = getLocations().get(v);
+        if (p == null) {
+            getLocations().put(v, new Point2D.Double(loc.getX(), loc.getY()));
+        } else {
+            p.setLocation(loc);
+        }
     }
 
     public void setSize(final Dimension d) {
-        // FIXME what is wrong with this?
-        // baseLayout.setSize(d);
+        // The size is determined by the trees, like in TreeLayout.
     }
 
-    public Point2D transform(final V v) {
-        return baseLayout.transform(v);
+    /**
+     * Returns the position of a vertex. Vertices added to the graph since the layout was computed have it computed
+     * again. Vertices not in the graph are put where the root of a lone tree would be, so they are never without one.
+     * @param v The vertex to get the position of.
+     * @return The position of the vertex.
+     */
+    public synchronized Point2D transform(final V v) {
+        Point2D p = getLocations().get(v);
+        if (p == null && graph.containsVertex(v)) {
+            locations = null;
+            p = getLocations().get(v);
+        }
+        if (p == null) {
+            p = new Point2D.Double(distX, TOP + distY);
+            locations.put(v, p);
+        }
+        return p;
     }
 }
@@ -0,0 +1,202 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid over the layout plane. Every item is stored in all cells its bounding box covers, so looking up the
+ * items inside an area only touches the cells of that area instead of all items. Cells are hashed, so the grid is
+ * unbounded and empty regions cost nothing.
+ * @param <T> The type of the items stored.
+ */
+final class SpatialGrid<T> {
+    /* Items spanning more cells than this are kept in a separate list that is always checked. */
+    private static final int MAX_CELLS_PER_ITEM = 64;
+
+    private final double cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<Long, List<T>>();
+    private final Map<T, Rectangle2D> bounds = new HashMap<T, Rectangle2D>();
+    private final Set<T> oversized = new HashSet<T>();
+    /* The range of cells that ever held items since the grid was last empty. Queries never look outside of it. */
+    private int minCx = Integer.MAX_VALUE;
+    private int maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE;
+    private int maxCy = Integer.MIN_VALUE;
+
+    /**
+     * Creates an empty grid.
+     * @param cellSize The edge length of one cell, in layout coordinates.
+     */
+    SpatialGrid(final double cellSize) {
+        if (cellSize <= 0 || Double.isNaN(cellSize) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be positive, was " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    private int cell(final double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static Long key(final int cx, final int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    /**
+     * Adds an item. An item that already is in the grid is moved to the new bounds.
+     * @param item The item to add.
+     * @param r The bounding box of the item.
+     */
+    void insert(final T item, final Rectangle2D r) {
+        if (bounds.containsKey(item)) {
+            remove(item);
+        }
+
+        Rectangle2D copy = new Rectangle2D.Double(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        bounds.put(item, copy);
+
+        int x0 = cell(copy.getMinX()), x1 = cell(copy.getMaxX());
+        int y0 = cell(copy.getMinY()), y1 = cell(copy.getMaxY());
+
+        if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS_PER_ITEM) {
+            oversized.add(item);
+            return;
+        }
+
+        for (int cx = x0; cx <= x1; cx++) {
+            for (int cy = y0; cy <= y1; cy++) {
+                Long k = key(cx, cy);
+                List<T> list = cells.get(k);
+                if (list == null) {
+                    list = new ArrayList<T>(4);
+                    cells.put(k, list);
+                }
+                list.add(item);
+            }
+        }
+        minCx = Math.min(minCx, x0);
+        maxCx = Math.max(maxCx, x1);
+        minCy = Math.min(minCy, y0);
+        maxCy = Math.max(maxCy, y1);
+    }
+
+    /**
+     * Removes an item from the grid. Nothing happens if it is not stored.
+     * @param item The item to remove.
+     */
+    void remove(final T item) {
+        Rectangle2D r = bounds.remove(item);
+        if (r == null) {
+            return;
+        }
+        if (oversized.remove(item)) {
+            return;
+        }
+
+        for (int cx = cell(r.getMinX()); cx <= cell(r.getMaxX()); cx++) {
+            for (int cy = cell(r.getMinY()); cy <= cell(r.getMaxY()); cy++) {
+                Long k = key(cx, cy);
+                List<T> list = cells.get(k);
+                if (list != null) {
+                    list.remove(item);
+                    if (list.isEmpty()) {
+                        cells.remove(k);
+                    }
+                }
+            }
+        }
+        if (cells.isEmpty()) {
+            minCx = Integer.MAX_VALUE;
+            maxCx = Integer.MIN_VALUE;
+            minCy = Integer.MAX_VALUE;
+            maxCy = Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Returns the bounding box an item was stored with.
+     * @param item The item in question.
+     * @return Its bounding box, or null if the item is not in the grid.
+     */
+    Rectangle2D getBounds(final T item) {
+        return bounds.get(item);
+    }
+
+    /**
+     * Returns all items whose bounding box overlaps the given area. Every item is returned at most once. The area is
+     * cut down to the cells that hold items; if it still covers more cells than are occupied, as when zoomed far out,
+     * the occupied cells are walked instead of the cells of the area.
+     * @param area The area to look at, in layout coordinates.
+     * @return The items overlapping the area.
+     */
+    Collection<T> query(final Rectangle2D area) {
+        List<T> result = new ArrayList<T>();
+
+        int x0 = Math.max(cell(area.getMinX()), minCx), x1 = Math.min(cell(area.getMaxX()), maxCx);
+        int y0 = Math.max(cell(area.getMinY()), minCy), y1 = Math.min(cell(area.getMaxY()), maxCy);
+
+        if (x0 <= x1 && y0 <= y1) {
+            if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > cells.size()) {
+                for (Map.Entry<Long, List<T>> ent : cells.entrySet()) {
+                    long k = ent.getKey();
+                    int cx = (int) (k >> 32);
+                    int cy = (int) k;
+                    if (cx >= x0 && cx <= x1 && cy >= y0 && cy <= y1) {
+                        addOverlapping(result, ent.getValue(), area, cx, cy, x0, y0);
+                    }
+                }
+            } else {
+                for (int cx = x0; cx <= x1; cx++) {
+                    for (int cy = y0; cy <= y1; cy++) {
+                        List<T> list = cells.get(key(cx, cy));
+                        if (list != null) {
+                            addOverlapping(result, list, area, cx, cy, x0, y0);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (T item : oversized) {
+            if (overlaps(bounds.get(item), area)) {
+                result.add(item);
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * Adds the items of cell (cx, cy) overlapping the area. Items covering several cells are only reported from the
+     * first cell that is also in the area, which starts at cell (x0, y0).
+     */
+    private void addOverlapping(final List<T> result, final List<T> list, final Rectangle2D area, final int cx,
+            final int cy, final int x0, final int y0) {
+        for (T item : list) {
+            Rectangle2D r = bounds.get(item);
+            if (overlaps(r, area) && cx == Math.max(x0, cell(r.getMinX())) && cy == Math.max(y0, cell(r.getMinY()))) {
+                result.add(item);
+            }
+        }
+    }
+
+    /* Unlike Rectangle2D.intersects(), this also works for empty rectangles, i.e. points. */
+    private static boolean overlaps(final Rectangle2D a, final Rectangle2D b) {
+        return a.getMinX() <= b.getMaxX() && a.getMaxX() >= b.getMinX() && a.getMinY() <= b.getMaxY()
+                && a.getMaxY() >= b.getMinY();
+    }
+
+    /**
+     * Returns how many items are stored.
+     * @return The number of items in the grid.
+     */
+    int size() {
+        return bounds.size();
+    }
+}
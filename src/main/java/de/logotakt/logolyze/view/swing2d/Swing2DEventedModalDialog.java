@@ -1,9 +1,7 @@
 package de.logotakt.logolyze.view.swing2d;
 
 import java.awt.EventQueue;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JDialog;
 import javax.swing.JFrame;
@@ -21,15 +19,18 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
 
     private static final long serialVersionUID = -5564043729867190362L;
 
-    private Map<EventType, Set<IEventHandler>> listeners;
+    private final EventBus events = new EventBus();
 
-    // TODO Use a semaphore.
-    private Integer eventsSuspended = 0;
+    private final AtomicInteger eventsSuspended = new AtomicInteger();
 
     private boolean errorDisplayed;
 
-    protected Map<EventType, Set<IEventHandler>> getListeners() {
-        return listeners;
+    /**
+     * Declares that this component triggers events of a type, so listeners can be added for it.
+     * @param type The type of the triggered events.
+     */
+    protected void declareEvent(final EventType type) {
+        events.declare(type);
     }
 
     /**
@@ -39,7 +40,6 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
      */
     public Swing2DEventedModalDialog(final JFrame owner, final String title) {
         super(owner, title, true);
-        listeners = new HashMap<EventType, Set<IEventHandler>>();
     }
 
     /**
@@ -49,7 +49,6 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
      */
     public Swing2DEventedModalDialog(final JDialog owner, final String title) {
         super(owner, title, true);
-        listeners = new HashMap<EventType, Set<IEventHandler>>();
     }
 
     /**
@@ -58,11 +57,7 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
      * @param event The {@link EventType} this listener should be called on.
      */
     public void addEventListener(final IEventHandler l, final EventType event) {
-        if (listeners.containsKey(event)) {
-            listeners.get(event).add(l);
-        } else {
-            throw new IllegalArgumentException(event.toString() + " is not triggered by this module.");
-        }
+        events.addListener(l, event);
     }
 
     /**
@@ -71,21 +66,18 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
      * @param event The {@link EventType} this listener was called on.
      */
     public void removeEventListener(final IEventHandler l, final EventType event) {
-        if (listeners.containsKey(event)) {
-            listeners.get(event).remove(l);
-        } else {
-            throw new IllegalArgumentException(event.toString() + " is not triggered by this module.");
-        }
-
+        events.removeListener(l, event);
     }
 
     /**
-     * Trigger an event to all listeners.
+     * Trigger an event to all listeners, unless events are suspended. How the listeners are called depends on the
+     * dispatch policy of the event type, see {@link EventBus}.
      * @param event The triggered event type.
+     * @param details The submitted details
      */
-    synchronized void fireEvent(final EventType event, final Object details) {
+    void fireEvent(final EventType event, final Object details) {
         // If events are suspended, ignore them.
-        if (eventsSuspended > 0) {
+        if (eventsSuspended.get() > 0) {
             return;
         }
 
@@ -98,17 +90,23 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
      * @param details The submitted details
      */
     void forceEvent(final EventType event, final Object details) {
-        EventArgs e = new EventArgs(this, event, details);
-        for (IEventHandler handler : listeners.get(event)) {
-            handler.event(e);
-        }
+        events.publish(new EventArgs(this, event, details));
+    }
+
+    /**
+     * Passes an event triggered by a child component on to the listeners of this one. The event was already
+     * dispatched according to the policy of its type, so it is delivered right away.
+     * @param e The event of the child component.
+     */
+    void forwardEvent(final EventArgs e) {
+        events.forward(e);
     }
 
     /**
      * Suspend all events that may be fired by fireEvent.
      */
-    protected synchronized void suspendEvents() {
-            eventsSuspended++;
+    protected void suspendEvents() {
+        eventsSuspended.incrementAndGet();
     }
 
     /**
@@ -118,9 +116,7 @@ public class Swing2DEventedModalDialog extends JDialog implements IErrorReporter
         Runnable resume = new Runnable() {
             @Override
             public void run() {
-                synchronized (Swing2DEventedModalDialog.this) {
-                    eventsSuspended--;
-                }
+                eventsSuspended.decrementAndGet();
             }
         };
         // Discards all pending events
@@ -1,23 +1,22 @@
 package de.logotakt.logolyze.view.swing2d;
 
 import java.awt.Component;
+import java.awt.Cursor;
 import java.awt.FlowLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import javax.swing.Box;
 import javax.swing.JCheckBoxMenuItem;
@@ -37,7 +36,11 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import de.logotakt.logolyze.LogolyzeMain;
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.IRequestMetrics;
 import de.logotakt.logolyze.utils.IOUtils;
 import de.logotakt.logolyze.view.interfaces.EventArgs;
 import de.logotakt.logolyze.view.interfaces.EventType;
@@ -69,11 +72,30 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
         }
     }
 
+    /**
+     * This ActionListener sets how parallel edges are aggregated on all panels.
+     */
+    private static final class EdgeAggregationActionListener implements ActionListener {
+        private EdgeAggregation aggregation;
+        private Swing2DView view;
+
+        public EdgeAggregationActionListener(final EdgeAggregation aggregation, final Swing2DView view) {
+            this.aggregation = aggregation;
+            this.view = view;
+        }
+
+        @Override
+        public void actionPerformed(final ActionEvent e) {
+            this.view.globalDisplayOptions.setEdgeAggregation(this.aggregation);
+            this.view.graphGrid.updateGlobalOptions();
+        }
+    }
+
     /**
      * All listeners are registered to this view. Because we are storing the handlers only in this class/object, the
      * handlers are not registered at each Component (-> no duplicate storage).
      */
-    private Map<EventType, Set<IEventHandler>> listeners;
+    private final EventBus events = new EventBus();
     private GraphGrid2D graphGrid;
     private JMenu mnLastConections;
     private HierarchyTreeView hierarchyTree;
@@ -81,6 +103,9 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
     private JMenuItem mntmDisconnect;
 
     private JLabel responseTime;
+    private IRequestMetrics responseMetrics;
+    private ResponseMetricsDialog metricsDialog;
+    private JLabel loadPlan;
     private DisplayOptions globalDisplayOptions;
     private JSpinner ySpinner;
     private JSpinner xSpinner;
@@ -95,6 +120,7 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(final WindowEvent e) {
+                EventBus.logMetrics();
                 fireEvent(EventType.shutdownTriggered, Swing2DView.this);
             }
         });
@@ -153,9 +179,8 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
 
         setSize(800, 600);
 
-        listeners = new HashMap<EventType, Set<IEventHandler>>();
         for (EventType type : EventType.values()) {
-            listeners.put(type, new HashSet<IEventHandler>());
+            events.declare(type);
         }
 
         JPanel statusbar = new JPanel();
@@ -170,7 +195,23 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
 
         responseTime = new JLabel();
         responseTime.setText("Haven't played with graphs yet.");
+        // If there are metrics of the last request, clicking the response time shows them.
+        responseTime.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(final MouseEvent e) {
+                if (responseMetrics == null) {
+                    return;
+                }
+                if (metricsDialog == null) {
+                    metricsDialog = new ResponseMetricsDialog(Swing2DView.this);
+                }
+                metricsDialog.showMetrics(responseMetrics);
+            }
+        });
         statusbar.add(responseTime);
+
+        loadPlan = new JLabel();
+        statusbar.add(loadPlan);
     }
 
     private void initializeMenu() {
@@ -309,6 +350,8 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
 
                 Swing2DView.this.globalDisplayOptions.setRemoveIsolated(remove);
                 Swing2DView.this.graphGrid.updateGlobalOptions();
+                // Ask for the graphs again, this time with or without the isolated nodes.
+                fireEvent(EventType.isolatedNodesChanged, remove);
             }
         });
 
@@ -327,10 +370,27 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
         mntmLayoutFR.addActionListener(new LayoutChangeActionListener(LayoutName.FRLayout, this));
         mntmLayout.add(mntmLayoutFR);
 
+        JMenuItem mntmLayoutBarnesHut = new JMenuItem("Barnes-Hut (large graphs)");
+        mntmLayoutBarnesHut.addActionListener(new LayoutChangeActionListener(LayoutName.BarnesHutLayout, this));
+        mntmLayout.add(mntmLayoutBarnesHut);
+
         JMenuItem mntmLayoutCircle = new JMenuItem("Circle");
         mntmLayoutCircle.addActionListener(new LayoutChangeActionListener(LayoutName.CircleLayout, this));
         mntmLayout.add(mntmLayoutCircle);
 
+        JMenu mntmParallelEdges = new JMenu("Parallel Edges");
+        mnPrefs.add(mntmParallelEdges);
+
+        JMenuItem mntmParallelSeparate = new JMenuItem("Draw separately (default)");
+        mntmParallelSeparate.addActionListener(new EdgeAggregationActionListener(null, this));
+        mntmParallelEdges.add(mntmParallelSeparate);
+
+        for (EdgeAggregation aggregation : EdgeAggregation.values()) {
+            JMenuItem mntmParallelAggregate = new JMenuItem("Aggregate: " + aggregation);
+            mntmParallelAggregate.addActionListener(new EdgeAggregationActionListener(aggregation, this));
+            mntmParallelEdges.add(mntmParallelAggregate);
+        }
+
         JCheckBoxMenuItem mntmShowLegend = new JCheckBoxMenuItem("Show measures legend");
         mntmShowLegend.setSelected(globalDisplayOptions.isShowLegendWanted());
         mnPrefs.add(mntmShowLegend);
@@ -426,7 +486,7 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
      */
     @Override
     public void addEventListener(final IEventHandler l, final EventType event) {
-        listeners.get(event).add(l);
+        events.addListener(l, event);
     }
 
     /**
@@ -434,7 +494,7 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
      */
     @Override
     public void removeEventListener(final IEventHandler l, final EventType event) {
-        listeners.get(event).remove(l);
+        events.removeListener(l, event);
     }
 
     /**
@@ -445,6 +505,51 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
         graphGrid.setGraphs(graphs);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refineGraphs(final Collection<? extends IOLAPGraph> graphs) {
+        graphGrid.refineGraphs(graphs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setGraphSummaries(final Collection<? extends IGraphSummary> summaries) {
+        graphGrid.setGraphSummaries(summaries);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addGraphs(final Collection<? extends IOLAPGraph> graphs) {
+        graphGrid.addGraphs(graphs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLoadPlan(final ILoadPlan plan) {
+        StringBuilder text = new StringBuilder();
+        text.append(plan.getGraphCount()).append(" graphs, ~").append(plan.getNodeCount()).append(" nodes, ~")
+                .append(plan.getEdgeCount()).append(" edges");
+        switch (plan.getStrategy()) {
+        case preview:
+            text.append(": previews first");
+            break;
+        case previewOnly:
+            text.append(": too large, previews only");
+            break;
+        default:
+            break;
+        }
+        loadPlan.setText(text.toString());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -466,7 +571,7 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
     }
 
     protected void fireEvent(final EventType type, final Object obj) {
-        event(new EventArgs(this, type, obj));
+        events.publish(new EventArgs(this, type, obj));
     }
 
     /**
@@ -487,6 +592,7 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
 
         // TODO is this necessary?
         graphGrid.updateGlobalOptions();
+        fireEvent(EventType.isolatedNodesChanged, globalDisplayOptions.isRemoveIsolatedNodesWanted());
     }
 
     /**
@@ -558,15 +664,29 @@ public class Swing2DView extends JFrame implements ILogolyzeView, IEventHandler
      */
     @Override
     public void event(final EventArgs e) {
-        // Proxy the event to all known listeners.
-        for (IEventHandler handler : listeners.get(e.getType())) {
-            handler.event(e);
-        }
+        // Proxy the event to all known listeners. The component that triggered it already dispatched it.
+        events.forward(e);
     }
 
     @Override
     public void setResponseTime(final String time) {
         responseTime.setText(time);
+        setResponseMetrics(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setResponseMetrics(final IRequestMetrics metrics) {
+        responseMetrics = metrics;
+        if (metrics == null) {
+            responseTime.setToolTipText(null);
+            responseTime.setCursor(Cursor.getDefaultCursor());
+        } else {
+            responseTime.setToolTipText("Click for a breakdown of the request");
+            responseTime.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        }
     }
 
     @Override
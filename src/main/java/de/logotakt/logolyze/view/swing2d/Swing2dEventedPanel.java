@@ -1,9 +1,7 @@
 package de.logotakt.logolyze.view.swing2d;
 
 import java.awt.EventQueue;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -18,11 +16,15 @@ import de.logotakt.logolyze.view.interfaces.IEventHandler;
  */
 public class Swing2dEventedPanel extends JPanel implements IErrorReporter {
     private static final long serialVersionUID = 701924364695709086L;
-    private Map<EventType, Set<IEventHandler>> listeners;
-    private Integer eventsSuspended = 0;
+    private final EventBus events = new EventBus();
+    private final AtomicInteger eventsSuspended = new AtomicInteger();
 
-    protected Map<EventType, Set<IEventHandler>> getListeners() {
-        return listeners;
+    /**
+     * Declares that this component triggers events of a type, so listeners can be added for it.
+     * @param type The type of the triggered events.
+     */
+    protected void declareEvent(final EventType type) {
+        events.declare(type);
     }
 
     /**
@@ -30,7 +32,6 @@ public class Swing2dEventedPanel extends JPanel implements IErrorReporter {
      */
     public Swing2dEventedPanel() {
         super();
-        listeners = new HashMap<EventType, Set<IEventHandler>>();
     }
 
     /**
@@ -39,11 +40,7 @@ public class Swing2dEventedPanel extends JPanel implements IErrorReporter {
      * @param event The {@link EventType} this listener should be called on.
      */
     public void addEventListener(final IEventHandler l, final EventType event) {
-        if (listeners.containsKey(event)) {
-            listeners.get(event).add(l);
-        } else {
-            throw new IllegalArgumentException(event.toString() + " is not triggered by this module.");
-        }
+        events.addListener(l, event);
     }
 
     /**
@@ -52,40 +49,34 @@ public class Swing2dEventedPanel extends JPanel implements IErrorReporter {
      * @param event The {@link EventType} this listener was called on.
      */
     public void removeEventListener(final IEventHandler l, final EventType event) {
-        if (listeners.containsKey(event)) {
-            listeners.get(event).remove(l);
-        } else {
-            throw new IllegalArgumentException(event.toString() + " is not triggered by this module.");
-        }
-
+        events.removeListener(l, event);
     }
 
     /**
-     * Trigger an event to all listeners.
+     * Trigger an event to all listeners, unless events are suspended. How the listeners are called depends on the
+     * dispatch policy of the event type, see {@link EventBus}.
      * @param event The triggered event type.
+     * @param details The submitted details
      */
-    synchronized void fireEvent(final EventType event, final Object details) {
+    void fireEvent(final EventType event, final Object details) {
 
         // If events are suspended, ignore them.
-        if (eventsSuspended > 0) {
+        if (eventsSuspended.get() > 0) {
             return;
         }
 
         forceEvent(event, details);
     }
 
-    synchronized void forceEvent(final EventType event, final Object details) {
-        EventArgs e = new EventArgs(this, event, details);
-        for (IEventHandler handler : listeners.get(event)) {
-            handler.event(e);
-        }
+    void forceEvent(final EventType event, final Object details) {
+        events.publish(new EventArgs(this, event, details));
     }
 
     /**
      * Suspend all events that may be fired by fireEvent.
      */
-    protected synchronized void suspendEvents() {
-            eventsSuspended++;
+    protected void suspendEvents() {
+        eventsSuspended.incrementAndGet();
     }
 
     /**
@@ -95,9 +86,7 @@ public class Swing2dEventedPanel extends JPanel implements IErrorReporter {
         Runnable resume = new Runnable() {
             @Override
             public void run() {
-                synchronized (Swing2dEventedPanel.this) {
-                    eventsSuspended--;
-                }
+                eventsSuspended.decrementAndGet();
             }
         };
         // Discards all pending events
@@ -0,0 +1,388 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.JComponent;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A cache of pre-rendered tiles of a graph. The layout plane is scaled according to the zoom bucket and cut into
+ * square tiles of TILE_SIZE pixels, so a tile is identified by its zoom bucket and its x and y position. Missing tiles
+ * are painted on a background thread; until they are ready, tiles of neighbouring zoom buckets are scaled to fill in.
+ * The least recently used tiles are thrown away once the memory budget is used up, except for the tiles in view: they
+ * would only be requested again by the repaint their neighbours cause, so they are kept even beyond the budget.
+ */
+final class TileCache {
+    private static Logger logger = Logger.getLogger(TileCache.class);
+
+    /** Edge length of one tile, in pixels. */
+    static final int TILE_SIZE = 256;
+
+    /* Zoom levels within a factor of 2^(1/BUCKETS_PER_OCTAVE) share their tiles. */
+    private static final int BUCKETS_PER_OCTAVE = 2;
+    /* How many zoom buckets up and down are searched for a replacement of a missing tile. */
+    private static final int MAX_FALLBACK_DISTANCE = 4;
+    /* Memory one cache may use for its tiles, in bytes. */
+    private static final long MEMORY_BUDGET = 8L * 1024 * 1024;
+    private static final long TILE_BYTES = 4L * TILE_SIZE * TILE_SIZE;
+
+    /* All caches share the threads painting the tiles. */
+    private static final ExecutorService PAINTERS = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime()
+            .availableProcessors() - 1), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(r, "Tile painter");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+
+    /**
+     * Identifies one tile.
+     */
+    static final class TileKey {
+        private final int bucket;
+        private final int x;
+        private final int y;
+
+        /**
+         * Creates a new key.
+         * @param bucket The zoom bucket.
+         * @param x The column of the tile.
+         * @param y The row of the tile.
+         */
+        TileKey(final int bucket, final int x, final int y) {
+            this.bucket = bucket;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) o;
+            return bucket == other.bucket && x == other.x && y == other.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return (bucket * 31 + x) * 31 + y;
+        }
+    }
+
+    /**
+     * Everything needed to paint one tile, copied from the render context on the event dispatch thread, so the tile
+     * can be painted on another thread. Coordinates are in tile pixels.
+     */
+    static final class TileContent {
+        private final float shapeScale;
+        private final float[] edgeCoords;
+        private final Stroke[] edgeStrokes;
+        private final Paint[] edgePaints;
+        private final float[] vertexCoords;
+        private final Shape[] vertexShapes;
+        private final Paint[] vertexFills;
+        private final Paint[] vertexDraws;
+        private final Stroke[] vertexStrokes;
+        private int edgeCount = 0;
+        private int vertexCount = 0;
+
+        /**
+         * Creates an empty tile content.
+         * @param edges The maximum number of edges that will be added.
+         * @param vertices The maximum number of vertices that will be added.
+         * @param shapeScale The factor to scale shapes and strokes with.
+         */
+        TileContent(final int edges, final int vertices, final float shapeScale) {
+            this.shapeScale = shapeScale;
+            edgeCoords = new float[edges * 4];
+            edgeStrokes = new Stroke[edges];
+            edgePaints = new Paint[edges];
+            vertexCoords = new float[vertices * 2];
+            vertexShapes = new Shape[vertices];
+            vertexFills = new Paint[vertices];
+            vertexDraws = new Paint[vertices];
+            vertexStrokes = new Stroke[vertices];
+        }
+
+        void addEdge(final float x1, final float y1, final float x2, final float y2, final Stroke stroke,
+                final Paint paint) {
+            edgeCoords[edgeCount * 4] = x1;
+            edgeCoords[edgeCount * 4 + 1] = y1;
+            edgeCoords[edgeCount * 4 + 2] = x2;
+            edgeCoords[edgeCount * 4 + 3] = y2;
+            edgeStrokes[edgeCount] = stroke;
+            edgePaints[edgeCount] = paint;
+            edgeCount++;
+        }
+
+        void addVertex(final float x, final float y, final Shape shape, final Paint fill, final Paint draw,
+                final Stroke stroke) {
+            vertexCoords[vertexCount * 2] = x;
+            vertexCoords[vertexCount * 2 + 1] = y;
+            vertexShapes[vertexCount] = shape;
+            vertexFills[vertexCount] = fill;
+            vertexDraws[vertexCount] = draw;
+            vertexStrokes[vertexCount] = stroke;
+            vertexCount++;
+        }
+
+        /* Paints the tile. This may run on any thread. */
+        BufferedImage paint() {
+            BufferedImage img = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = img.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            Map<Stroke, Stroke> scaled = new IdentityHashMap<Stroke, Stroke>();
+            Line2D.Float line = new Line2D.Float();
+
+            for (int i = 0; i < edgeCount; i++) {
+                line.setLine(edgeCoords[i * 4], edgeCoords[i * 4 + 1], edgeCoords[i * 4 + 2], edgeCoords[i * 4 + 3]);
+                g.setStroke(scale(edgeStrokes[i], scaled));
+                g.setPaint(edgePaints[i]);
+                g.draw(line);
+            }
+
+            for (int i = 0; i < vertexCount; i++) {
+                AffineTransform at = AffineTransform.getTranslateInstance(vertexCoords[i * 2],
+                        vertexCoords[i * 2 + 1]);
+                at.scale(shapeScale, shapeScale);
+                Shape s = at.createTransformedShape(vertexShapes[i]);
+                if (vertexFills[i] != null) {
+                    g.setPaint(vertexFills[i]);
+                    g.fill(s);
+                }
+                if (vertexDraws[i] != null) {
+                    g.setStroke(scale(vertexStrokes[i], scaled));
+                    g.setPaint(vertexDraws[i]);
+                    g.draw(s);
+                }
+            }
+
+            g.dispose();
+            return img;
+        }
+
+        private Stroke scale(final Stroke stroke, final Map<Stroke, Stroke> scaled) {
+            if (shapeScale == 1.0f || !(stroke instanceof BasicStroke)) {
+                return stroke;
+            }
+
+            Stroke result = scaled.get(stroke);
+            if (result == null) {
+                BasicStroke b = (BasicStroke) stroke;
+                float[] dash = b.getDashArray();
+                if (dash != null) {
+                    dash = dash.clone();
+                    for (int i = 0; i < dash.length; i++) {
+                        dash[i] *= shapeScale;
+                    }
+                }
+                result = new BasicStroke(b.getLineWidth() * shapeScale, b.getEndCap(), b.getLineJoin(),
+                        b.getMiterLimit(), dash, b.getDashPhase() * shapeScale);
+                scaled.put(stroke, result);
+            }
+            return result;
+        }
+    }
+
+    /* Tiles in least recently used order. */
+    private final LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<TileKey, BufferedImage>(16, 0.75f,
+            true);
+    private final Map<TileKey, Future<?>> pending = new HashMap<TileKey, Future<?>>();
+    /* The tiles in view, which are never evicted. */
+    private int visibleBucket = 0;
+    private final Rectangle visible = new Rectangle();
+    /* Incremented on every clear(), so tiles painted for an outdated graph are dropped. */
+    private int generation = 0;
+
+    /**
+     * Returns the zoom bucket a scale factor belongs to.
+     * @param scale The scale factor from layout coordinates to screen pixels.
+     * @return The zoom bucket.
+     */
+    static int bucketOf(final double scale) {
+        return (int) Math.floor(Math.log(scale) / Math.log(2) * BUCKETS_PER_OCTAVE + 0.5);
+    }
+
+    /**
+     * Returns the scale factor tiles of a zoom bucket are painted with.
+     * @param bucket The zoom bucket.
+     * @return The scale factor from layout coordinates to tile pixels.
+     */
+    static double scaleOf(final int bucket) {
+        return Math.pow(2, bucket / (double) BUCKETS_PER_OCTAVE);
+    }
+
+    /**
+     * Returns a tile, if it is cached.
+     * @param key The tile to look for.
+     * @return The tile's image, or null if it is not ready yet.
+     */
+    synchronized BufferedImage get(final TileKey key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Returns whether a tile is being painted right now.
+     * @param key The tile in question.
+     * @return true if the tile has been requested, but is not ready yet.
+     */
+    synchronized boolean isPending(final TileKey key) {
+        return pending.containsKey(key);
+    }
+
+    /**
+     * Sets the tiles currently in view. They are kept in the cache until they are out of view again.
+     * @param bucket The zoom bucket of the tiles in view.
+     * @param x0 The first column in view.
+     * @param y0 The first row in view.
+     * @param x1 The last column in view.
+     * @param y1 The last row in view.
+     */
+    synchronized void setVisible(final int bucket, final int x0, final int y0, final int x1, final int y1) {
+        visibleBucket = bucket;
+        visible.setBounds(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+    }
+
+    private boolean isVisible(final TileKey key) {
+        return key.bucket == visibleBucket && visible.contains(key.x, key.y);
+    }
+
+    /**
+     * Paints a tile on a background thread. The screen device is repainted when it is ready.
+     * @param key The tile to paint.
+     * @param content What to paint on the tile.
+     * @param screen The component to repaint afterwards.
+     */
+    synchronized void request(final TileKey key, final TileContent content, final JComponent screen) {
+        if (pending.containsKey(key) || tiles.containsKey(key)) {
+            return;
+        }
+
+        final int requestGeneration = generation;
+        pending.put(key, PAINTERS.submit(new Runnable() {
+            @Override
+            public void run() {
+                BufferedImage img = null;
+                try {
+                    img = content.paint();
+                } catch (RuntimeException e) {
+                    logger.error("Painting a tile failed.", e);
+                } finally {
+                    // Even a tile that failed is not pending anymore, so it is requested again on the next paint.
+                    if (put(key, img, requestGeneration)) {
+                        screen.repaint();
+                    }
+                }
+            }
+        }));
+    }
+
+    private synchronized boolean put(final TileKey key, final BufferedImage img, final int requestGeneration) {
+        if (requestGeneration != generation) {
+            return false;
+        }
+
+        pending.remove(key);
+        if (img == null) {
+            return false;
+        }
+        tiles.put(key, img);
+
+        int size = tiles.size();
+        Iterator<TileKey> it = tiles.keySet().iterator();
+        while (size * TILE_BYTES > MEMORY_BUDGET && it.hasNext()) {
+            if (!isVisible(it.next())) {
+                it.remove();
+                size--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills in for a missing tile with tiles of neighbouring zoom buckets, scaled to the requested bucket. Lower
+     * resolutions are tried first, since they cover more area with fewer tiles.
+     * @param g The graphics context, set up to draw in tile pixels of the requested bucket.
+     * @param key The missing tile.
+     */
+    synchronized void paintFallback(final Graphics2D g, final TileKey key) {
+        double scale = scaleOf(key.bucket);
+
+        for (int distance = 1; distance <= MAX_FALLBACK_DISTANCE * 2; distance++) {
+            // -1, -2, ... -MAX, then +1, +2, ... +MAX
+            int other = distance <= MAX_FALLBACK_DISTANCE ? key.bucket - distance : key.bucket + distance
+                    - MAX_FALLBACK_DISTANCE;
+            double ratio = scaleOf(other) / scale;
+
+            int x0 = (int) Math.floor(key.x * ratio);
+            int x1 = (int) Math.floor(((key.x + 1) * ratio * TILE_SIZE - 1) / TILE_SIZE);
+            int y0 = (int) Math.floor(key.y * ratio);
+            int y1 = (int) Math.floor(((key.y + 1) * ratio * TILE_SIZE - 1) / TILE_SIZE);
+
+            Graphics2D g2 = null;
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    BufferedImage img = tiles.get(new TileKey(other, x, y));
+                    if (img == null) {
+                        continue;
+                    }
+                    if (g2 == null) {
+                        g2 = (Graphics2D) g.create();
+                        g2.clip(new Rectangle(key.x * TILE_SIZE, key.y * TILE_SIZE, TILE_SIZE, TILE_SIZE));
+                        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                        g2.scale(1 / ratio, 1 / ratio);
+                    }
+                    g2.drawImage(img, x * TILE_SIZE, y * TILE_SIZE, null);
+                }
+            }
+
+            if (g2 != null) {
+                g2.dispose();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Throws away all tiles and cancels the pending ones, because the graph or its layout changed.
+     */
+    synchronized void clear() {
+        if (tiles.isEmpty() && pending.isEmpty()) {
+            return;
+        }
+
+        logger.debug("Clearing " + tiles.size() + " tiles, cancelling " + pending.size());
+
+        generation++;
+        for (Future<?> f : pending.values()) {
+            f.cancel(false);
+        }
+        pending.clear();
+        tiles.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * A list model over an array of values. Unlike a {@link javax.swing.DefaultListModel}, setting the values copies them
+ * into the array at once and tells the list about all of them in one event, and the position of a value is found
+ * without searching the list.
+ */
+@SuppressWarnings("serial")
+final class ValueListModel extends AbstractListModel {
+    private String[] values = new String[0];
+    /* The position of every value, built when the first one is asked for. */
+    private Map<String, Integer> positions;
+
+    /**
+     * Replaces the values of the model.
+     * @param v The new values.
+     */
+    void setValues(final List<String> v) {
+        clear();
+        values = v.toArray(new String[v.size()]);
+        if (values.length > 0) {
+            fireIntervalAdded(this, 0, values.length - 1);
+        }
+    }
+
+    /**
+     * Removes all values of the model.
+     */
+    void clear() {
+        int size = values.length;
+        values = new String[0];
+        positions = null;
+        if (size > 0) {
+            fireIntervalRemoved(this, 0, size - 1);
+        }
+    }
+
+    /**
+     * @return The values of the model, as an unmodifiable list.
+     */
+    List<String> getValues() {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    /**
+     * @return The longest value of the model, or null if there are none.
+     */
+    String getLongestValue() {
+        String longest = null;
+        for (String v : values) {
+            if (longest == null || v.length() > longest.length()) {
+                longest = v;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Finds the position of a value.
+     * @param value The value.
+     * @return The position of the first occurrence of the value, or -1 if it is not in the model.
+     */
+    int indexOf(final String value) {
+        if (positions == null) {
+            positions = new HashMap<String, Integer>(values.length * 2);
+            for (int i = values.length - 1; i >= 0; i--) {
+                positions.put(values[i], i);
+            }
+        }
+        Integer position = positions.get(value);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize() {
+        return values.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getElementAt(final int index) {
+        return values[index];
+    }
+}
@@ -0,0 +1,240 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds the values of a hierarchy level by what the user typed, ignoring case. Values starting with the query are
+ * found by a binary search in the sorted values, values containing it by an index of the trigrams of the values. The
+ * index is only built when the first query is made, in the background; until it is done, queries scan the values,
+ * which finds the same values in the same order, only slower.
+ */
+final class ValueSearchIndex {
+    /* The length of the n-grams indexed for substring queries. */
+    private static final int GRAM = 3;
+
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread t = new Thread(r, "Index values");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+
+    private final List<Object> values;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private volatile Index index;
+
+    /**
+     * Creates the index of some values. This does not index them yet.
+     * @param values The values, searched by their string representation. The list is copied.
+     */
+    ValueSearchIndex(final List<?> values) {
+        this.values = new ArrayList<Object>(values);
+    }
+
+    /**
+     * @param position The position of a value, as returned by {@link #find(String, int)}.
+     * @return The value at that position.
+     */
+    Object get(final int position) {
+        return values.get(position);
+    }
+
+    /**
+     * Finds the values matching a query. The values starting with the query come first, then the ones only containing
+     * it, both in the order of the values.
+     * @param query What the user typed.
+     * @param limit How many values to find at most.
+     * @return The positions of the values found.
+     */
+    int[] find(final String query, final int limit) {
+        String key = normalize(query);
+        if (key.length() == 0) {
+            return new int[0];
+        }
+
+        Index i = index;
+        if (i == null) {
+            if (building.compareAndSet(false, true)) {
+                BUILDER.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        index = new Index(values);
+                    }
+                });
+            }
+            return scan(key, limit);
+        }
+        return i.find(key, limit);
+    }
+
+    private int[] scan(final String key, final int limit) {
+        IntList prefixed = new IntList();
+        IntList containing = new IntList();
+        for (int pos = 0; pos < values.size() && prefixed.size < limit; pos++) {
+            String v = normalize(values.get(pos).toString());
+            if (v.startsWith(key)) {
+                prefixed.add(pos);
+            } else if (containing.size < limit && v.indexOf(key) >= 0) {
+                containing.add(pos);
+            }
+        }
+        return concat(prefixed, containing, limit);
+    }
+
+    private static String normalize(final String s) {
+        return s.trim().toLowerCase(Locale.getDefault());
+    }
+
+    private static int[] concat(final IntList first, final IntList second, final int limit) {
+        int[] ret = new int[Math.min(first.size + second.size, limit)];
+        int n = Math.min(first.size, ret.length);
+        System.arraycopy(first.items, 0, ret, 0, n);
+        System.arraycopy(second.items, 0, ret, n, ret.length - n);
+        return ret;
+    }
+
+    /**
+     * The sorted values and the trigrams of the values.
+     */
+    private static final class Index {
+        private final String[] keys;
+        private final String[] sortedKeys;
+        private final int[] sortedPositions;
+        private final Map<String, int[]> grams = new HashMap<String, int[]>();
+
+        Index(final List<Object> values) {
+            keys = new String[values.size()];
+            Integer[] order = new Integer[keys.length];
+            Map<String, IntList> postings = new HashMap<String, IntList>();
+            for (int pos = 0; pos < keys.length; pos++) {
+                keys[pos] = normalize(values.get(pos).toString());
+                order[pos] = pos;
+                for (int g = 0; g + GRAM <= keys[pos].length(); g++) {
+                    String gram = keys[pos].substring(g, g + GRAM);
+                    IntList posting = postings.get(gram);
+                    if (posting == null) {
+                        posting = new IntList();
+                        postings.put(gram, posting);
+                    }
+                    // A value containing a gram more than once is only listed once.
+                    if (posting.size == 0 || posting.items[posting.size - 1] != pos) {
+                        posting.add(pos);
+                    }
+                }
+            }
+            for (Map.Entry<String, IntList> e : postings.entrySet()) {
+                grams.put(e.getKey(), e.getValue().toArray());
+            }
+
+            // Sort stably, so that equal values keep their order.
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer a, final Integer b) {
+                    return keys[a].compareTo(keys[b]);
+                }
+            });
+            sortedKeys = new String[keys.length];
+            sortedPositions = new int[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedKeys[i] = keys[order[i]];
+                sortedPositions[i] = order[i];
+            }
+        }
+
+        int[] find(final String key, final int limit) {
+            // All values starting with the key are in one run of the sorted values, starting where the key would be.
+            int from = Arrays.binarySearch(sortedKeys, key);
+            if (from < 0) {
+                from = -from - 1;
+            }
+            while (from > 0 && sortedKeys[from - 1].equals(key)) {
+                from--;
+            }
+            int to = from;
+            while (to < sortedKeys.length && sortedKeys[to].startsWith(key)) {
+                to++;
+            }
+            // The run is in the order of the keys; marking its positions puts them back into the order of the values.
+            BitSet prefixed = new BitSet(keys.length);
+            for (int i = from; i < to; i++) {
+                prefixed.set(sortedPositions[i]);
+            }
+            IntList first = new IntList();
+            for (int pos = prefixed.nextSetBit(0); pos >= 0 && first.size < limit; pos = prefixed.nextSetBit(pos + 1)) {
+                first.add(pos);
+            }
+
+            IntList containing = new IntList();
+            if (first.size < limit) {
+                for (int pos : candidates(key)) {
+                    if (containing.size + first.size >= limit) {
+                        break;
+                    }
+                    if (!keys[pos].startsWith(key) && keys[pos].indexOf(key) >= 0) {
+                        containing.add(pos);
+                    }
+                }
+            }
+            return concat(first, containing, limit);
+        }
+
+        /*
+         * The values that may contain the key: those listed for its rarest trigram. Keys too short to have a trigram
+         * are checked against all values.
+         */
+        private int[] candidates(final String key) {
+            if (key.length() < GRAM) {
+                int[] all = new int[keys.length];
+                for (int pos = 0; pos < all.length; pos++) {
+                    all[pos] = pos;
+                }
+                return all;
+            }
+
+            int[] rarest = null;
+            for (int g = 0; g + GRAM <= key.length(); g++) {
+                int[] posting = grams.get(key.substring(g, g + GRAM));
+                if (posting == null) {
+                    return new int[0];
+                }
+                if (rarest == null || posting.length < rarest.length) {
+                    rarest = posting;
+                }
+            }
+            return rarest;
+        }
+    }
+
+    /**
+     * A growing array of ints.
+     */
+    private static final class IntList {
+        private int[] items = new int[8];
+        private int size = 0;
+
+        void add(final int i) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = i;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
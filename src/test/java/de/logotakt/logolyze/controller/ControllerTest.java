@@ -2,22 +2,34 @@ package de.logotakt.logolyze.controller;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.awt.EventQueue;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.security.Permission;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.google.inject.Guice;
 import com.google.inject.Inject;
@@ -25,12 +37,19 @@ import com.google.inject.name.Named;
 
 import de.logotakt.logolyze.model.config.ConfigManager;
 import de.logotakt.logolyze.model.config.ConnectionConfig;
+import de.logotakt.logolyze.model.interfaces.BogusDbConnectionException;
 import de.logotakt.logolyze.model.interfaces.DbMalformedException;
 import de.logotakt.logolyze.model.interfaces.IDimension;
 import de.logotakt.logolyze.model.interfaces.IHierarchy;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevel;
+import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.ILogolyzeModel;
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.IRequest;
+import de.logotakt.logolyze.model.interfaces.IResponse;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
 import de.logotakt.logolyze.view.interfaces.EventType;
 import de.logotakt.logolyze.view.interfaces.IHierarchyTreeView;
 import de.logotakt.logolyze.view.interfaces.ILogolyzeView;
@@ -197,6 +216,48 @@ public class ControllerTest extends ControllerTestTemplate {
         verify(view, never()).displayError(anyString());
     }
 
+    /**
+     * Tests that restoring a view state with several selected tree nodes requests the graphs once, for all of them.
+     * Like the tree view does, the mocked view selects the saved nodes one by one.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void viewStateLoadRequestsGraphsOnce() throws Exception {
+        cubeSelected();
+        when(model.isConnected()).thenReturn(true);
+
+        final List<Object> selectedNodes = new ArrayList<Object>();
+        when(hierarchyTreeView.getSelected()).thenAnswer(new Answer<List<Object>>() {
+            @Override
+            public List<Object> answer(final InvocationOnMock invocation) {
+                return new ArrayList<Object>(selectedNodes);
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                for (Object node : new Object[] {v12, lRail }) {
+                    selectedNodes.add(node);
+                    fireEvent(hierarchyTreeView, EventType.treeNodeSelected, hierarchyTreeView);
+                }
+                return null;
+            }
+        }).when(view).setViewState(any(IViewState.class));
+
+        fireEvent(view, EventType.viewStateLoad, Constants.VIEWSTATE_PATH);
+        // The graphs are requested on the event thread, after the changes queued by the restore.
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        verify(view, never()).displayError(anyString());
+        verify(hierarchyTreeView, never()).displayError(anyString());
+        verify(model, times(1)).planRequest(any(IRequest.class));
+        verify(model, times(1)).handleRequest(any(IRequest.class));
+    }
+
     /**
      * Tests the reaction of the Controller to the cubeSelected event.
      */
@@ -216,17 +277,18 @@ public class ControllerTest extends ControllerTestTemplate {
         cubeSelected();
 
         fireEvent(hierarchyTreeView, EventType.treeLoad, hierarchyTreeView);
+        // The values of the levels are added lazily, by the view.
+        Collection<IHierarchyLevelValue> dayValues = lDay.getValues();
+        Collection<IHierarchyLevelValue> weekValues = lWeek.getValues();
+        Collection<IHierarchyLevelValue> wdValues = lWd.getValues();
         verify(hierarchyTreeView).clear();
         verify(hierarchyTreeView).addNode(null, dTim, false, false);
         verify(hierarchyTreeView).addNode(dTim, hTimW, false, false);
-        verify(hierarchyTreeView).addNode(hTimW, lDay, false, false);
-        verify(hierarchyTreeView).addNode(lDay, v12, true, false);
-        verify(hierarchyTreeView).addNode(lDay, v13, true, false);
-        verify(hierarchyTreeView).addNode(hTimW, lWeek, false, false);
-        verify(hierarchyTreeView).addNode(lWeek, v20, true, false);
+        verify(hierarchyTreeView).addLazyNode(hTimW, lDay, dayValues);
+        verify(hierarchyTreeView, never()).addNode(lDay, v12, true, false);
+        verify(hierarchyTreeView).addLazyNode(hTimW, lWeek, weekValues);
         verify(hierarchyTreeView).addNode(dTim, hTimWd, false, false);
-        verify(hierarchyTreeView).addNode(hTimWd, lWd, false, false);
-        verify(hierarchyTreeView).addNode(lWd, vSun, true, false);
+        verify(hierarchyTreeView).addLazyNode(hTimWd, lWd, wdValues);
         verify(hierarchyTreeView).addNode(null, dLoc, false, false);
         verify(hierarchyTreeView).addNode(dLoc, hHub, false, false);
         verify(hierarchyTreeView).addNode(hHub, lRail, true, false);
@@ -267,4 +329,124 @@ public class ControllerTest extends ControllerTestTemplate {
         fireEvent(measureConfView, EventType.measuresChanging, measureConfView);
         // TODO Don't just do coverage, also do some assertions.
     }
+
+    /**
+     * Tests that the graphs are shown again when the measures are changed, even if the request is the same: the
+     * measures also decide how the graphs are drawn. Other changes leading to the same request are skipped.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void measuresChangedRedisplaysSameGraphs() throws Exception {
+        cubeSelected();
+        IRequest req = model.getDataFactory().makeRequest(null);
+        when(req.selectsSameGraphs(any(IRequest.class))).thenReturn(true);
+
+        fireEvent(measureConfView, EventType.measuresChanged, measureConfView);
+        // Wait for the quiet period, so that every change is answered right away.
+        Thread.sleep(RequestScheduler.QUIET_PERIOD + 50);
+        fireEvent(measureConfView, EventType.measuresChanged, measureConfView);
+        Thread.sleep(RequestScheduler.QUIET_PERIOD + 50);
+        fireEvent(hierarchyTreeView, EventType.treeNodeSelected, hierarchyTreeView);
+
+        verify(measureConfView, never()).displayError(anyString());
+        verify(model, times(2)).planRequest(any(IRequest.class));
+    }
+
+    /**
+     * Tests that the graphs of opened overview cells are loaded in the background and then added to the overview.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void overviewCellsOpenedLoadsInBackground() throws Exception {
+        cubeSelected();
+        final List<IOLAPGraph> graphs = Collections.singletonList(mock(IOLAPGraph.class));
+        final AtomicBoolean loadedOnEventThread = new AtomicBoolean();
+        when(model.handleRequest(any(IRequest.class), any(AtomicBoolean.class))).thenAnswer(new Answer<IResponse>() {
+            @Override
+            public IResponse answer(final InvocationOnMock invocation) {
+                loadedOnEventThread.set(EventQueue.isDispatchThread());
+                return makeResponse(graphs);
+            }
+        });
+        CountDownLatch added = new CountDownLatch(1);
+        doAnswer(countDown(added)).when(view).addGraphs(any(Collection.class));
+
+        fireEvent(view, EventType.overviewCellsOpened, Collections.singletonList(makeCell()));
+
+        assertThat(added.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(loadedOnEventThread.get()).isFalse();
+        verify(model).planRequest(any(IRequest.class));
+        verify(view).addGraphs(graphs);
+        verify(view, never()).displayError(anyString());
+    }
+
+    /**
+     * Tests that the previews of opened overview cells are replaced by the complete graphs, if the plan says so.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void overviewCellsOpenedRefinesPreviews() throws Exception {
+        cubeSelected();
+        ILoadPlan plan = mock(ILoadPlan.class);
+        when(plan.getStrategy()).thenReturn(LoadStrategy.preview);
+        when(model.planRequest(any(IRequest.class))).thenReturn(plan);
+
+        IOLAPGraph preview = mock(IOLAPGraph.class);
+        IRequest sampled = mock(IRequest.class);
+        when(sampled.getEdgeSampleRate()).thenReturn(4);
+        when(preview.getResultOf()).thenReturn(sampled);
+        final List<IOLAPGraph> previews = Collections.singletonList(preview);
+        final List<IOLAPGraph> complete = Collections.singletonList(mock(IOLAPGraph.class));
+        when(model.handleRequest(any(IRequest.class), any(AtomicBoolean.class))).thenReturn(makeResponse(previews),
+                makeResponse(complete));
+        CountDownLatch refined = new CountDownLatch(1);
+        doAnswer(countDown(refined)).when(view).refineGraphs(any(Collection.class));
+
+        fireEvent(view, EventType.overviewCellsOpened, Collections.singletonList(makeCell()));
+
+        assertThat(refined.await(2, TimeUnit.SECONDS)).isTrue();
+        verify(view).addGraphs(previews);
+        verify(view).refineGraphs(complete);
+    }
+
+    /**
+     * Tests that nothing is added to the overview if loading the graphs of its cells fails.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void overviewCellsOpenedFailing() throws Exception {
+        cubeSelected();
+        when(model.handleRequest(any(IRequest.class), any(AtomicBoolean.class))).thenThrow(
+                new BogusDbConnectionException("Connection lost"));
+        CountDownLatch reported = new CountDownLatch(1);
+        doAnswer(countDown(reported)).when(view).displayError(anyString());
+
+        fireEvent(view, EventType.overviewCellsOpened, Collections.singletonList(makeCell()));
+
+        assertThat(reported.await(2, TimeUnit.SECONDS)).isTrue();
+        verify(view, never()).addGraphs(any(Collection.class));
+    }
+
+    // Counts down a latch, to wait for a call made by another thread.
+    private static Answer<Void> countDown(final CountDownLatch latch) {
+        return new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                latch.countDown();
+                return null;
+            }
+        };
+    }
+
+    private IRequest makeCell() {
+        IRequest cell = mock(IRequest.class);
+        when(cell.iterator()).thenAnswer(new IteratorAnswer<IConstraint>(new ArrayList<IConstraint>()));
+        return cell;
+    }
+
+    private static IResponse makeResponse(final Collection<IOLAPGraph> graphs) {
+        IResponse response = mock(IResponse.class);
+        when(response.getGraphs()).thenReturn(graphs);
+        return response;
+    }
 }
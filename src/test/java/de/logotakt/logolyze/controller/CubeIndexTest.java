@@ -0,0 +1,122 @@
+package de.logotakt.logolyze.controller;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.ICube;
+import de.logotakt.logolyze.model.interfaces.IDimension;
+import de.logotakt.logolyze.model.interfaces.IHierarchy;
+import de.logotakt.logolyze.model.interfaces.IHierarchyLevel;
+import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
+
+/**
+ * Tests the lookups of the {@link CubeIndex}.
+ */
+public class CubeIndexTest {
+    private IDimension dimension;
+    private IHierarchy hierarchy;
+    private IHierarchyLevel day;
+    private IHierarchyLevel month;
+    private IHierarchyLevelValue may;
+    private IHierarchyLevelValue june;
+    private IHierarchyLevelValue mayAgain;
+    private CubeIndex index;
+
+    private static IHierarchyLevelValue makeValue(final String name) {
+        IHierarchyLevelValue value = mock(IHierarchyLevelValue.class);
+        when(value.getValue()).thenReturn(name);
+        return value;
+    }
+
+    /**
+     * Builds a cube with one dimension, one hierarchy and two levels, the second of which has the values of a month,
+     * one of them twice by name.
+     */
+    @Before
+    public void setUp() {
+        day = mock(IHierarchyLevel.class);
+        when(day.getValues()).thenReturn(Collections.<IHierarchyLevelValue>emptyList());
+        month = mock(IHierarchyLevel.class);
+        may = makeValue("2010-05");
+        june = makeValue("2010-06");
+        mayAgain = makeValue("2010-05");
+        List<IHierarchyLevelValue> values = Arrays.asList(may, june, mayAgain);
+        when(month.getValues()).thenReturn(values);
+
+        hierarchy = mock(IHierarchy.class);
+        when(hierarchy.iterator()).thenAnswer(new IteratorAnswer<IHierarchyLevel>(Arrays.asList(day, month)));
+        dimension = mock(IDimension.class);
+        when(dimension.iterator()).thenAnswer(new IteratorAnswer<IHierarchy>(Arrays.asList(hierarchy)));
+        ICube cube = mock(ICube.class);
+        when(cube.iterator()).thenAnswer(new IteratorAnswer<IDimension>(Arrays.asList(dimension)));
+
+        index = new CubeIndex(cube);
+    }
+
+    /**
+     * Every level knows its hierarchy and dimension; levels of other cubes are unknown.
+     */
+    @Test
+    public void hierarchiesAndDimensions() {
+        assertThat(index.getHierarchy(day)).isSameAs(hierarchy);
+        assertThat(index.getHierarchy(month)).isSameAs(hierarchy);
+        assertThat(index.getDimension(month)).isSameAs(dimension);
+
+        IHierarchyLevel other = mock(IHierarchyLevel.class);
+        assertThat(index.getHierarchy(other)).isNull();
+        assertThat(index.getDimension(other)).isNull();
+    }
+
+    /**
+     * Values are found by name, the first one winning if names repeat.
+     */
+    @Test
+    public void valuesByName() {
+        assertThat(index.getValue(month, "2010-05")).isSameAs(may);
+        assertThat(index.getValue(month, "2010-06")).isSameAs(june);
+        assertThat(index.getValue(month, "2010-07")).isNull();
+        assertThat(index.getValue(day, "2010-05")).isNull();
+    }
+
+    /**
+     * Values are found by position and the other way round.
+     */
+    @Test
+    public void valuesByPosition() {
+        assertThat(index.getPosition(month, may)).isEqualTo(0);
+        assertThat(index.getPosition(month, june)).isEqualTo(1);
+        assertThat(index.getPosition(month, mayAgain)).isEqualTo(2);
+        assertThat(index.getPosition(month, makeValue("2010-06"))).isEqualTo(-1);
+
+        assertThat(index.getValueAt(month, 0)).isSameAs(may);
+        assertThat(index.getValueAt(month, 2)).isSameAs(mayAgain);
+        assertThat(index.getValueAt(month, 3)).isNull();
+        assertThat(index.getValueAt(month, -1)).isNull();
+    }
+
+    /**
+     * The values of a level are read when one of them is looked up first, and only then.
+     */
+    @Test
+    public void valuesAreIndexedLazily() {
+        verify(month, never()).getValues();
+
+        index.getValue(month, "2010-06");
+        index.getPosition(month, june);
+        index.getValueAt(month, 1);
+
+        verify(month, times(1)).getValues();
+        verify(day, never()).getValues();
+    }
+}
@@ -29,11 +29,13 @@ import de.logotakt.logolyze.model.interfaces.IDimension;
 import de.logotakt.logolyze.model.interfaces.IHierarchy;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevel;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.ILogolyzeModel;
 import de.logotakt.logolyze.model.interfaces.IMeasureType;
 import de.logotakt.logolyze.model.interfaces.IModelDataFactory;
 import de.logotakt.logolyze.model.interfaces.IRequest;
 import de.logotakt.logolyze.model.interfaces.IResponse;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
 import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
 import de.logotakt.logolyze.model.interfaces.MeasureClass;
 import de.logotakt.logolyze.model.interfaces.RequestValidationFailedException;
@@ -88,6 +90,11 @@ public class ModelMockModule extends AbstractModule {
         when(lWd.getValues()).thenReturn(wdValues);
         bind(IHierarchyLevel.class).annotatedWith(Names.named("hierarchylevel WEEKDAY")).toInstance(lWd);
 
+        when(v12.getLevel()).thenReturn(lDay);
+        when(v13.getLevel()).thenReturn(lDay);
+        when(v20.getLevel()).thenReturn(lWeek);
+        when(vSun.getLevel()).thenReturn(lWd);
+
         // Hierarchies
         IHierarchy hTimW = mock(IHierarchy.class);
         when(hTimW.getName()).thenReturn(Constants.DBS_TIM_W);
@@ -192,6 +199,10 @@ public class ModelMockModule extends AbstractModule {
 
         IResponse response = mock(IResponse.class);
 
+        // The mocked graphs are small enough to be loaded completely.
+        ILoadPlan plan = mock(ILoadPlan.class);
+        when(plan.getStrategy()).thenReturn(LoadStrategy.full);
+
         // For now, Requests made by the mocked factory are write-only dummies.
         // That's enough to make the simple tests work.
         IRequest dummy = mock(IRequest.class);
@@ -203,6 +214,7 @@ public class ModelMockModule extends AbstractModule {
         when(model.getDataFactory()).thenReturn(factory);
         try {
             when(model.handleRequest(any(IRequest.class))).thenReturn(response);
+            when(model.planRequest(any(IRequest.class))).thenReturn(plan);
         } catch (BogusDbConnectionException e) {
             e.printStackTrace();
         } catch (DbMalformedException e) {
@@ -259,6 +271,7 @@ public class ModelMockModule extends AbstractModule {
         when(lRail.iterator()).thenAnswer(new IteratorAnswer<IHierarchyLevelValue>(railValues));
         when(lRail.getValues()).thenReturn(railValues);
         bind(IHierarchyLevel.class).annotatedWith(Names.named("hierarchylevel RAIL")).toInstance(lRail);
+        when(vTop.getLevel()).thenReturn(lRail);
 
         // Hierarchy
         IHierarchy hHub = mock(IHierarchy.class);
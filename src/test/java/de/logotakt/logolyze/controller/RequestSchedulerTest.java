@@ -0,0 +1,110 @@
+package de.logotakt.logolyze.controller;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the coalescing of graph requests by the {@link RequestScheduler}.
+ */
+public class RequestSchedulerTest {
+    private final List<Boolean> runs = new CopyOnWriteArrayList<Boolean>();
+    private RequestScheduler scheduler;
+
+    /**
+     * Creates a scheduler recording whether its request runs on the event dispatch thread.
+     */
+    @Before
+    public void setUp() {
+        scheduler = new RequestScheduler(new Runnable() {
+            @Override
+            public void run() {
+                runs.add(EventQueue.isDispatchThread());
+            }
+        });
+    }
+
+    private void schedule() throws InterruptedException, InvocationTargetException {
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.schedule();
+            }
+        });
+    }
+
+    private void cancel() throws InterruptedException, InvocationTargetException {
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.cancel();
+            }
+        });
+    }
+
+    /**
+     * The first change after a quiet period is answered right away, every time.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void firstChangeRunsRightAway() throws Exception {
+        schedule();
+        assertThat(runs).containsExactly(true);
+
+        Thread.sleep(RequestScheduler.QUIET_PERIOD + 50);
+        schedule();
+        assertThat(runs).containsExactly(true, true);
+    }
+
+    /**
+     * Changes following the first one are answered once, after they settled down, on the event dispatch thread.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void burstIsCoalesced() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            schedule();
+        }
+        assertThat(runs).hasSize(1);
+
+        Thread.sleep(RequestScheduler.QUIET_PERIOD * 2);
+        assertThat(runs).containsExactly(true, true);
+    }
+
+    /**
+     * Every change restarts the quiet period.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void changesDelayTheRequest() throws Exception {
+        schedule();
+        schedule();
+        Thread.sleep(RequestScheduler.QUIET_PERIOD * 3 / 5);
+        schedule();
+        Thread.sleep(RequestScheduler.QUIET_PERIOD * 3 / 5);
+        assertThat(runs).hasSize(1);
+
+        Thread.sleep(RequestScheduler.QUIET_PERIOD);
+        assertThat(runs).hasSize(2);
+    }
+
+    /**
+     * A cancelled request is not run.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void cancelDropsTheDeferredRequest() throws Exception {
+        schedule();
+        schedule();
+        cancel();
+
+        Thread.sleep(RequestScheduler.QUIET_PERIOD * 2);
+        assertThat(runs).hasSize(1);
+    }
+}
@@ -1,11 +1,30 @@
 package de.logotakt.logolyze.model.config;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.Writer;
 import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
+import com.thoughtworks.xstream.XStream;
+
 import de.logotakt.logolyze.view.swing2d.Swing2DState;
 
 
@@ -13,6 +32,223 @@ import de.logotakt.logolyze.view.swing2d.Swing2DState;
  * This class tests the ConfigManager.
  */
 public class ConfigTest {
+    /* A directory of its own for every test, so that left over files can be told. */
+    private File dir;
+
+    /**
+     * A configuration that cannot be written, to make saving fail halfway.
+     */
+    private static final class UnwritableConfig implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private void writeObject(final ObjectOutputStream out) throws IOException {
+            throw new IOException("This configuration cannot be written");
+        }
+    }
+
+    @Before
+    public void makeDirectory() throws IOException {
+        dir = File.createTempFile("logolyze_test", "dir");
+        assertTrue(dir.delete() && dir.mkdir());
+    }
+
+    @After
+    public void deleteDirectory() {
+        delete(dir);
+    }
+
+    private static void delete(final File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static Swing2DState makeState(final String cube, final double x, final double y) {
+        Swing2DState state = new Swing2DState();
+        state.setCube(cube);
+        state.setXSpinner(x);
+        state.setYSpinner(y);
+        return state;
+    }
+
+    private static void assertSameState(final Swing2DState expected, final Swing2DState actual) {
+        assertEquals(expected.getCube(), actual.getCube());
+        assertEquals(expected.getXSpinner(), actual.getXSpinner());
+        assertEquals(expected.getYSpinner(), actual.getYSpinner());
+    }
+
+    @Test
+    public void roundTripLeavesOnlyTheTarget() throws IOException {
+        ConfigManager manager = ConfigManager.getInstance();
+        File file = new File(dir, "state.xml");
+
+        Swing2DState state = makeState("h\u00e9llo w\u00f6rld", 5.0, 99.0);
+        manager.saveViewConfig(file.getPath(), state);
+        assertSameState(state, (Swing2DState) manager.loadViewConfig(file.getPath()));
+
+        // Saving again replaces the file.
+        state = makeState("again", 1.0, 2.0);
+        manager.saveViewConfig(file.getPath(), state);
+        assertSameState(state, (Swing2DState) manager.loadViewConfig(file.getPath()));
+
+        assertArrayEquals(new String[] {file.getName() }, dir.list());
+    }
+
+    @Test
+    public void compressedFilesAreRead() throws IOException {
+        File file = new File(dir, "state.xml.gz");
+        Swing2DState state = makeState("compressed", 3.0, 4.0);
+
+        Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), "UTF-8");
+        try {
+            new XStream().toXML(state, writer);
+        } finally {
+            writer.close();
+        }
+
+        assertSameState(state, (Swing2DState) ConfigManager.getInstance().loadViewConfig(file.getPath()));
+    }
+
+    @Test
+    public void failedWriteKeepsTheOldFile() throws IOException {
+        ConfigManager manager = ConfigManager.getInstance();
+        File file = new File(dir, "state.xml");
+        Swing2DState state = makeState("old", 5.0, 99.0);
+        manager.saveViewConfig(file.getPath(), state);
+
+        try {
+            manager.saveViewConfig(file.getPath(), new UnwritableConfig());
+            fail("Saving an unwritable configuration succeeded");
+        } catch (RuntimeException expected) {
+            // XStream reports the failure unchecked.
+        }
+
+        assertSameState(state, (Swing2DState) manager.loadViewConfig(file.getPath()));
+        // The temporary file is gone.
+        assertArrayEquals(new String[] {file.getName() }, dir.list());
+    }
+
+    /**
+     * A file that cannot be renamed to some destinations, like on platforms where renaming does not replace existing
+     * files.
+     */
+    @SuppressWarnings("serial")
+    private static class StubbornFile extends File {
+        private final boolean renamesOverExisting;
+        private final boolean renames;
+
+        StubbornFile(final File file, final boolean renamesOverExisting, final boolean renames) {
+            super(file.getPath());
+            this.renamesOverExisting = renamesOverExisting;
+            this.renames = renames;
+        }
+
+        @Override
+        public boolean renameTo(final File dest) {
+            if (!renames || (!renamesOverExisting && dest.exists())) {
+                return false;
+            }
+            return super.renameTo(dest);
+        }
+    }
+
+    private static void writeText(final File file, final String text) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String readText(final File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[256];
+            for (int n = reader.read(buf); n >= 0; n = reader.read(buf)) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void replaceWhereRenamingDoesNotReplace() throws IOException {
+        File target = new File(dir, "state.xml");
+        File backup = new File(dir, "state.xml.bak");
+        File source = new File(dir, "state.xml.tmp");
+        writeText(target, "old");
+        writeText(source, "new");
+
+        ConfigManager.replace(new StubbornFile(source, false, true), target, backup);
+
+        assertEquals("new", readText(target));
+        assertArrayEquals(new String[] {target.getName() }, dir.list());
+    }
+
+    @Test
+    public void failedReplaceRestoresTheOldFile() throws IOException {
+        File target = new File(dir, "state.xml");
+        File backup = new File(dir, "state.xml.bak");
+        File source = new File(dir, "state.xml.tmp");
+        writeText(target, "old");
+        writeText(source, "new");
+
+        try {
+            ConfigManager.replace(new StubbornFile(source, false, false), target, backup);
+            fail("A file that cannot be renamed replaced another one");
+        } catch (IOException expected) {
+            // This is what should happen.
+        }
+
+        // The old file is back, so the new one was not needed anymore.
+        assertEquals("old", readText(target));
+        assertArrayEquals(new String[] {target.getName() }, dir.list());
+    }
+
+    @Test
+    public void failedRestoreKeepsBothFiles() throws IOException {
+        File target = new File(dir, "state.xml");
+        File backup = new File(dir, "state.xml.bak");
+        File source = new File(dir, "state.xml.tmp");
+        writeText(target, "old");
+        writeText(source, "new");
+
+        try {
+            ConfigManager.replace(new StubbornFile(source, false, false), target, new StubbornFile(backup, false,
+                    false));
+            fail("A file that cannot be renamed replaced another one");
+        } catch (IOException expected) {
+            // This is what should happen.
+        }
+
+        assertFalse(target.exists());
+        assertEquals("old", readText(backup));
+        assertEquals("new", readText(source));
+    }
+
+    @Test
+    public void staleBackupIsReplaced() throws IOException {
+        File target = new File(dir, "state.xml");
+        File backup = new File(dir, "state.xml.bak");
+        File source = new File(dir, "state.xml.tmp");
+        writeText(target, "old");
+        writeText(backup, "older");
+        writeText(source, "new");
+
+        ConfigManager.replace(new StubbornFile(source, false, true), target, backup);
+
+        assertEquals("new", readText(target));
+        assertArrayEquals(new String[] {target.getName() }, dir.list());
+    }
+
     @Test
     public void tryWritingAndReading() throws IOException {
         ConfigManager manager = ConfigManager.getInstance();
@@ -0,0 +1,142 @@
+package de.logotakt.logolyze.model.olap;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+
+/**
+ * Tests cancelling the statement a {@link DataAbstraction} is executing.
+ */
+public class DataAbstractionTest {
+    private static final long TIMEOUT = 10;
+
+    private final CountDownLatch executing = new CountDownLatch(1);
+    private final CountDownLatch statementCancelled = new CountDownLatch(1);
+    private PreparedStatement stmt;
+    private DataAbstraction dataAbstraction;
+
+    /**
+     * Creates a data abstraction whose graph query blocks until its statement is cancelled.
+     * @throws SQLException Should not happen.
+     */
+    @Before
+    public void setUp() throws SQLException {
+        stmt = mock(PreparedStatement.class);
+        when(stmt.executeQuery()).thenAnswer(new Answer<ResultSet>() {
+            @Override
+            public ResultSet answer(final InvocationOnMock invocation) throws Throwable {
+                executing.countDown();
+                statementCancelled.await(TIMEOUT, TimeUnit.SECONDS);
+                throw new SQLException("Statement cancelled");
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) {
+                statementCancelled.countDown();
+                return null;
+            }
+        }).when(stmt).cancel();
+
+        Connection c = mock(Connection.class);
+        when(c.prepareStatement(anyString())).thenReturn(stmt);
+        dataAbstraction = new DataAbstraction(c);
+    }
+
+    /* Loads the graphs of an empty request on a thread of its own. */
+    private Thread load(final AtomicBoolean token, final AtomicReference<Object> result) {
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.set(dataAbstraction.loadGraphs(new Request(new Cube("logolyze", false),
+                            new ArrayList<Validator>()), token));
+                } catch (Exception e) {
+                    result.set(e);
+                }
+            }
+        });
+        t.start();
+        return t;
+    }
+
+    /**
+     * Cancelling a load cancels the statement it is executing, so it stops right away and returns no graphs.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void cancelStopsTheRunningStatement() throws Exception {
+        AtomicBoolean token = new AtomicBoolean();
+        AtomicReference<Object> result = new AtomicReference<Object>("not done");
+        Thread t = load(token, result);
+
+        assertThat(executing.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+        dataAbstraction.cancel(token);
+        t.join(TIMEOUT * 1000);
+
+        assertThat(t.isAlive()).isFalse();
+        assertThat(token.get()).isTrue();
+        assertThat(result.get()).isNull();
+        verify(stmt).cancel();
+    }
+
+    /**
+     * Cancelling another load leaves the running statement alone.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void otherTokensDoNotCancel() throws Exception {
+        AtomicBoolean token = new AtomicBoolean();
+        AtomicReference<Object> result = new AtomicReference<Object>("not done");
+        Thread t = load(token, result);
+
+        assertThat(executing.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+        AtomicBoolean other = new AtomicBoolean();
+        dataAbstraction.cancel(other);
+        assertThat(other.get()).isTrue();
+        verify(stmt, never()).cancel();
+
+        // A failing statement of a load not cancelled is an error.
+        statementCancelled.countDown();
+        t.join(TIMEOUT * 1000);
+        assertThat(result.get() instanceof Exception).isTrue();
+    }
+
+    /**
+     * A load cancelled before its first statement does not execute it.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void cancelledLoadsDoNotStart() throws Exception {
+        AtomicBoolean token = new AtomicBoolean();
+        dataAbstraction.cancel(token);
+
+        Collection<IOLAPGraph> graphs = dataAbstraction.loadGraphs(new Request(new Cube("logolyze", false),
+                new ArrayList<Validator>()), token);
+
+        assertThat(graphs).isNull();
+        verify(stmt, never()).executeQuery();
+    }
+}
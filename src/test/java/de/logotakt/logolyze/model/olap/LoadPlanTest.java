@@ -0,0 +1,148 @@
+package de.logotakt.logolyze.model.olap;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.LoadBudget;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
+
+/**
+ * Tests the choice of a load strategy by a {@link LoadPlan} and the {@link LoadBudget} it is made by.
+ */
+public class LoadPlanTest {
+    private static final String[] PROPERTIES = {"logolyze.fullEdges", "logolyze.previewEdges", "logolyze.maxEdges" };
+
+    /**
+     * Removes the properties set by a test.
+     */
+    @After
+    public void tearDown() {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+
+    private static Map<String, Long> graphs(final long... edges) {
+        Map<String, Long> ret = new HashMap<String, Long>();
+        for (int i = 0; i < edges.length; i++) {
+            ret.put(String.valueOf(i), edges[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Graphs fitting into the budget together are loaded completely, without samples.
+     */
+    @Test
+    public void smallGraphsAreLoadedFully() {
+        LoadPlan plan = new LoadPlan(new LoadBudget(100, 10, 1000), graphs(40, 60), 7);
+
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.full);
+        assertThat(plan.getGraphCount()).isEqualTo(2);
+        assertThat(plan.getEdgeCount()).isEqualTo(100);
+        assertThat(plan.getLargestGraphEdges()).isEqualTo(60);
+        assertThat(plan.getNodeCount()).isEqualTo(7);
+        assertThat(plan.getPreviewEdges()).isEqualTo(0);
+        assertThat(plan.getSampleRate("0")).isEqualTo(1);
+        assertThat(plan.getSampleRate("1")).isEqualTo(1);
+    }
+
+    /**
+     * Larger graphs are previewed first, each sampled so that its preview has about the preview size.
+     */
+    @Test
+    public void largerGraphsArePreviewed() {
+        LoadPlan plan = new LoadPlan(new LoadBudget(100, 10, 1000), graphs(95, 100, 5), 0);
+
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.preview);
+        assertThat(plan.getEdgeCount()).isEqualTo(200);
+        assertThat(plan.getPreviewEdges()).isEqualTo(10);
+        // The sample rate is rounded up, so that no preview is larger than wanted.
+        assertThat(plan.getSampleRate("0")).isEqualTo(10);
+        assertThat(plan.getSampleRate("1")).isEqualTo(10);
+        // A graph smaller than a preview is loaded completely.
+        assertThat(plan.getSampleRate("2")).isEqualTo(1);
+        // So is one that was not planned.
+        assertThat(plan.getSampleRate("unknown")).isEqualTo(1);
+    }
+
+    /**
+     * Graphs exceeding the maximum are only ever previewed.
+     */
+    @Test
+    public void hugeGraphsAreOnlyPreviewed() {
+        LoadPlan plan = new LoadPlan(new LoadBudget(100, 10, 1000), graphs(600, 600), 0);
+
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.previewOnly);
+        assertThat(plan.getLargestGraphEdges()).isEqualTo(600);
+        assertThat(plan.getSampleRate("0")).isEqualTo(60);
+    }
+
+    /**
+     * All previews together fit into the maximum as well, so many graphs get smaller previews.
+     */
+    @Test
+    public void previewsShareTheMaximum() {
+        LoadPlan plan = new LoadPlan(new LoadBudget(0, 10, 20), graphs(100, 100, 100, 100), 0);
+
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.previewOnly);
+        assertThat(plan.getPreviewEdges()).isEqualTo(5);
+        assertThat(plan.getSampleRate("0")).isEqualTo(20);
+
+        // Even with more graphs than edges in the maximum, every preview has one edge at least.
+        plan = new LoadPlan(new LoadBudget(0, 10, 2), graphs(100, 100, 100, 100), 0);
+        assertThat(plan.getPreviewEdges()).isEqualTo(1);
+        assertThat(plan.getSampleRate("0")).isEqualTo(100);
+    }
+
+    /**
+     * A request without any graphs is loaded fully.
+     */
+    @Test
+    public void noGraphs() {
+        LoadPlan plan = new LoadPlan(new LoadBudget(0, 10, 20), graphs(), 0);
+
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.full);
+        assertThat(plan.getGraphCount()).isEqualTo(0);
+        assertThat(plan.getLargestGraphEdges()).isEqualTo(0);
+    }
+
+    /**
+     * A budget whose preview is empty is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void budgetNeedsPreviewEdges() {
+        new LoadBudget(100, 0, 1000);
+    }
+
+    /**
+     * A budget whose maximum is below what is loaded fully is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void budgetMaximumCoversFullEdges() {
+        new LoadBudget(100, 10, 99);
+    }
+
+    /**
+     * The budget is read from the system properties, with defaults for those not set.
+     */
+    @Test
+    public void budgetFromSystemProperties() {
+        LoadBudget budget = LoadBudget.fromSystemProperties();
+        assertThat(budget.getFullEdges()).isEqualTo(LoadBudget.DEFAULT_FULL_EDGES);
+        assertThat(budget.getPreviewEdges()).isEqualTo(LoadBudget.DEFAULT_PREVIEW_EDGES);
+        assertThat(budget.getMaxEdges()).isEqualTo(LoadBudget.DEFAULT_MAX_EDGES);
+
+        System.setProperty("logolyze.fullEdges", "5");
+        System.setProperty("logolyze.previewEdges", "3");
+        budget = LoadBudget.fromSystemProperties();
+        assertThat(budget.getFullEdges()).isEqualTo(5);
+        assertThat(budget.getPreviewEdges()).isEqualTo(3);
+        assertThat(budget.getMaxEdges()).isEqualTo(LoadBudget.DEFAULT_MAX_EDGES);
+    }
+}
@@ -4,9 +4,12 @@ import static org.fest.assertions.Assertions.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.fest.assertions.Delta;
 import org.junit.Test;
@@ -21,22 +24,30 @@ import de.logotakt.logolyze.model.interfaces.BogusDbConnectionException;
 import de.logotakt.logolyze.model.interfaces.DbConnectFailedException;
 import de.logotakt.logolyze.model.interfaces.DbMalformedException;
 import de.logotakt.logolyze.model.interfaces.DimensionType;
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
 import de.logotakt.logolyze.model.interfaces.IConstraint;
 import de.logotakt.logolyze.model.interfaces.ICube;
 import de.logotakt.logolyze.model.interfaces.IDbStructure;
 import de.logotakt.logolyze.model.interfaces.IDimension;
 import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.IGraphMetrics;
+import de.logotakt.logolyze.model.interfaces.IGraphSummary;
 import de.logotakt.logolyze.model.interfaces.IHierarchy;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevel;
 import de.logotakt.logolyze.model.interfaces.IHierarchyLevelValue;
+import de.logotakt.logolyze.model.interfaces.ILoadPlan;
 import de.logotakt.logolyze.model.interfaces.IMeasureType;
 import de.logotakt.logolyze.model.interfaces.IModelDataFactory;
 import de.logotakt.logolyze.model.interfaces.INode;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
 import de.logotakt.logolyze.model.interfaces.IRequest;
+import de.logotakt.logolyze.model.interfaces.IRequestMetrics;
 import de.logotakt.logolyze.model.interfaces.IResponse;
+import de.logotakt.logolyze.model.interfaces.LoadBudget;
+import de.logotakt.logolyze.model.interfaces.LoadStrategy;
 import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
 import de.logotakt.logolyze.model.interfaces.MeasureClass;
+import de.logotakt.logolyze.model.interfaces.RequestPhase;
 import de.logotakt.logolyze.model.interfaces.RequestValidationFailedException;
 
 /**
@@ -354,6 +365,13 @@ public class OLAPEngineTest {
         assertThat(response.getRequestDuration()).isGreaterThanOrEqualTo(0);
         Collection<IOLAPGraph> graphs = response.getGraphs();
         assertThat(graphs).hasSize(1);
+
+        // One query for the graphs, one for the nodes and one for the edges of the single graph.
+        IRequestMetrics metrics = response.getMetrics();
+        assertThat(metrics.isCacheHit()).isFalse();
+        assertThat(metrics.getStatementCount()).isEqualTo(3);
+        assertThat(metrics.getGraphMetrics()).hasSize(1);
+        assertThat(metrics.getGraphMetrics().get(0).getEdgeRows()).isEqualTo(5);
         for (IOLAPGraph iolapGraph : graphs) {
             assertThat(iolapGraph.getResultOf().getCube()).isSameAs(cube);
             for (IConstraint constraint : iolapGraph.getResultOf()) {
@@ -427,6 +445,370 @@ public class OLAPEngineTest {
         disconnect();
     }
 
+    /**
+     * Tests that a cancelled request loads no graphs and that nothing of it is cached.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_measures.yml")
+    public void testCancelledRequest() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        assertThat(engine.handleRequest(request, new AtomicBoolean(true))).isNull();
+
+        IResponse response = engine.handleRequest(request, new AtomicBoolean());
+        assertThat(response.getMetrics().isCacheHit()).isFalse();
+        assertThat(response.getGraphs()).hasSize(1);
+
+        disconnect();
+    }
+
+    /**
+     * Tests that shutting down waits for the prefetching going on, so that none of its graphs are cached afterwards.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_measures.yml")
+    public void testShutdownWhilePrefetching() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        engine.prefetchRequests(Collections.singletonList(request));
+        engine.shutdown();
+        assertThat(engine.isConnected()).isFalse();
+
+        engine.openDbConnection(jdbcString, "");
+        IResponse response = engine.handleRequest(request);
+        assertThat(response.getMetrics().isCacheHit()).isFalse();
+        assertThat(response.getGraphs()).hasSize(1);
+
+        disconnect();
+    }
+
+    /**
+     * Tests summarizing the graphs of a request, with and without a measure to sum up.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_measures.yml")
+    public void testSummarizeRequest() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        Collection<IGraphSummary> summaries = engine.summarizeRequest(request, measureCargoAverage);
+        assertThat(summaries).hasSize(1);
+        IGraphSummary summary = summaries.iterator().next();
+        assertThat(summary.getEdgeCount()).isEqualTo(5);
+        assertThat(summary.getNodeCount()).isEqualTo(4);
+        assertThat(summary.getMeasure()).isSameAs(measureCargoAverage);
+        assertThat(summary.getMeasureSum()).isEqualTo(383, Delta.delta(0.1));
+        assertThat(summary.getMeasureAverage()).isEqualTo(76.6, Delta.delta(0.1));
+        assertThat(summary.getResultOf().getCube()).isSameAs(cube);
+
+        summaries = engine.summarizeRequest(request, null);
+        assertThat(summaries).hasSize(1);
+        summary = summaries.iterator().next();
+        assertThat(summary.getEdgeCount()).isEqualTo(5);
+        assertThat(summary.getNodeCount()).isEqualTo(4);
+        assertThat(summary.getMeasure()).isNull();
+
+        disconnect();
+    }
+
+    /**
+     * Tests that only numerical edge measures can be summed up.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    @CaramelFixture("/db-fixtures/fullmetadatatree_measures.yml")
+    public void testSummarizeRequestByNodeMeasure() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        try {
+            engine.summarizeRequest(request, measureStorageCapacity);
+        } finally {
+            disconnect();
+        }
+    }
+
+    /**
+     * Tests that the node query leaves out the nodes without an edge in the graph, but only if asked to.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_isolatednode.yml")
+    public void testOnlyConnectedNodes() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        IOLAPGraph graph = engine.handleRequest(request).getGraphs().iterator().next();
+        assertThat(graph.getVertexCount()).isEqualTo(5);
+
+        request.setOnlyConnectedNodes(true);
+        IResponse response = engine.handleRequest(request);
+        assertThat(response.getMetrics().isCacheHit()).isFalse();
+        assertThat(response.getMetrics().getGraphMetrics().get(0).getNodeRows()).isEqualTo(4);
+        graph = response.getGraphs().iterator().next();
+        assertThat(graph.getVertexCount()).isEqualTo(4);
+        assertThat(graph.getEdgeCount()).isEqualTo(5);
+        for (INode node : graph.getVertices()) {
+            assertThat(node.getLabel()).isNotEqualTo("Bibliothek");
+        }
+
+        disconnect();
+    }
+
+    /**
+     * Tests that a threshold filter loads only the edges whose value reaches it.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_measures.yml")
+    public void testThresholdFilter() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        request.setEdgeFilter(new EdgeFilter(measureCargoAverage, EdgeFilter.Mode.threshold, 64));
+        IResponse response = engine.handleRequest(request);
+        assertThat(response.getMetrics().getGraphMetrics().get(0).getEdgeRows()).isEqualTo(3);
+        IOLAPGraph graph = response.getGraphs().iterator().next();
+        assertThat(graph.getEdgeCount()).isEqualTo(3);
+        for (IEdge edge : graph.getEdges()) {
+            assertThat(edge.getMeasures().get("CARGO_AVG").getNumber()).isGreaterThanOrEqualTo(64);
+        }
+        // The nodes are not filtered.
+        assertThat(graph.getVertexCount()).isEqualTo(4);
+
+        disconnect();
+    }
+
+    /**
+     * Tests that a topK filter loads exactly K edges with the largest values, even if further edges have the same value
+     * as the smallest of them, and that the plan counts no more than K edges per graph.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_ties.yml")
+    public void testTopKFilter() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        // CARGO_AVG is 196 for one edge and 74 for two of them.
+        request.setEdgeFilter(new EdgeFilter(measureCargoAverage, EdgeFilter.Mode.topK, 2));
+        assertThat(engine.planRequest(request).getEdgeCount()).isEqualTo(2);
+        IResponse response = engine.handleRequest(request);
+        assertThat(response.getMetrics().getGraphMetrics().get(0).getEdgeRows()).isEqualTo(2);
+        IOLAPGraph graph = response.getGraphs().iterator().next();
+        assertThat(graph.getEdgeCount()).isEqualTo(2);
+        List<Double> values = new ArrayList<Double>();
+        for (IEdge edge : graph.getEdges()) {
+            values.add(edge.getMeasures().get("CARGO_AVG").getNumber());
+        }
+        Collections.sort(values);
+        assertThat(values).isEqualTo(Arrays.asList(74.0, 196.0));
+
+        request.setEdgeFilter(new EdgeFilter(measureCargoAverage, EdgeFilter.Mode.topK, 3));
+        graph = engine.handleRequest(request).getGraphs().iterator().next();
+        assertThat(graph.getEdgeCount()).isEqualTo(3);
+        values.clear();
+        for (IEdge edge : graph.getEdges()) {
+            values.add(edge.getMeasures().get("CARGO_AVG").getNumber());
+        }
+        Collections.sort(values);
+        assertThat(values).isEqualTo(Arrays.asList(74.0, 74.0, 196.0));
+
+        // More than there are.
+        request.setEdgeFilter(new EdgeFilter(measureCargoAverage, EdgeFilter.Mode.topK, 10));
+        assertThat(engine.planRequest(request).getEdgeCount()).isEqualTo(6);
+        assertThat(engine.handleRequest(request).getGraphs().iterator().next().getEdgeCount()).isEqualTo(6);
+
+        disconnect();
+    }
+
+    /**
+     * Tests that planning a request counts the edges and nodes of its graphs and chooses the strategy by the budget.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_ties.yml")
+    public void testPlanRequest() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        ILoadPlan plan = engine.planRequest(request);
+        assertThat(plan.getGraphCount()).isEqualTo(1);
+        assertThat(plan.getEdgeCount()).isEqualTo(6);
+        assertThat(plan.getLargestGraphEdges()).isEqualTo(6);
+        assertThat(plan.getNodeCount()).isEqualTo(4);
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.full);
+        assertThat(plan.getPreviewEdges()).isEqualTo(0);
+
+        engine.setLoadBudget(new LoadBudget(2, 2, 10));
+        plan = engine.planRequest(request);
+        assertThat(plan.getEdgeCount()).isEqualTo(6);
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.preview);
+        assertThat(plan.getPreviewEdges()).isEqualTo(2);
+
+        engine.setLoadBudget(new LoadBudget(2, 2, 4));
+        plan = engine.planRequest(request);
+        assertThat(plan.getStrategy()).isEqualTo(LoadStrategy.previewOnly);
+        assertThat(plan.getPreviewEdges()).isEqualTo(2);
+
+        disconnect();
+    }
+
+    /**
+     * Tests that a preview loads every k-th edge by its id and that it is not cached, while the complete graph is, and
+     * then answers the preview as well.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_ties.yml")
+    public void testPreview() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+        IRequest preview = request;
+        buildRequest();
+
+        // Six edges with a preview of two are sampled at a rate of three: the edges with the ids 3 and 6.
+        engine.setLoadBudget(new LoadBudget(2, 2, 10));
+        engine.planRequest(preview);
+        assertThat(preview.getPreviewEdges()).isEqualTo(2);
+        IOLAPGraph graph = engine.handleRequest(preview).getGraphs().iterator().next();
+        assertThat(graph.getResultOf().getEdgeSampleRate()).isEqualTo(3);
+        assertThat(graph.getEdgeCount()).isEqualTo(2);
+        List<Double> values = new ArrayList<Double>();
+        for (IEdge edge : graph.getEdges()) {
+            values.add(edge.getMeasures().get("CARGO_AVG").getNumber());
+        }
+        Collections.sort(values);
+        assertThat(values).isEqualTo(Arrays.asList(7.0, 74.0));
+        // The nodes are all loaded.
+        assertThat(graph.getVertexCount()).isEqualTo(4);
+
+        // Previews are not cached, a complete graph must never be answered by one.
+        IResponse response = engine.handleRequest(preview);
+        assertThat(response.getMetrics().isCacheHit()).isFalse();
+
+        // A preview asked for without planning is planned when it is loaded.
+        IRequest unplanned = request;
+        buildRequest();
+        unplanned.setPreviewEdges(3);
+        graph = engine.handleRequest(unplanned).getGraphs().iterator().next();
+        assertThat(graph.getResultOf().getEdgeSampleRate()).isEqualTo(2);
+        assertThat(graph.getEdgeCount()).isEqualTo(3);
+
+        graph = engine.handleRequest(request).getGraphs().iterator().next();
+        assertThat(graph.getResultOf().getEdgeSampleRate()).isEqualTo(1);
+        assertThat(graph.getEdgeCount()).isEqualTo(6);
+
+        // Once the complete graphs are cached, they answer a preview as well.
+        response = engine.handleRequest(preview);
+        assertThat(response.getMetrics().isCacheHit()).isTrue();
+        assertThat(response.getGraphs().iterator().next().getEdgeCount()).isEqualTo(6);
+
+        disconnect();
+    }
+
+    /**
+     * Tests the metrics of a request: what was read from the database for a preview, broken down by graph, and that a
+     * request answered from the cache reads nothing.
+     * @throws DbConnectFailedException Exception on a failed operation.
+     * @throws BogusDbConnectionException Exception on a failed operation.
+     * @throws DbMalformedException Exception on a failed operation.
+     * @throws RequestValidationFailedException Exception on a failed operation.
+     */
+    @Test
+    @CaramelFixture("/db-fixtures/fullmetadatatree_ties.yml")
+    public void testRequestMetrics() throws DbConnectFailedException, BogusDbConnectionException,
+            DbMalformedException, RequestValidationFailedException {
+        connect();
+        loadDbStructure();
+        buildRequest();
+
+        engine.setLoadBudget(new LoadBudget(2, 2, 10));
+        engine.planRequest(request);
+        IResponse response = engine.handleRequest(request);
+        IRequestMetrics metrics = response.getMetrics();
+        assertThat(metrics.isCacheHit()).isFalse();
+        // One row for the graph, four for its nodes and two for the sampled edges.
+        assertThat(metrics.getStatementCount()).isEqualTo(3);
+        assertThat(metrics.getRowCount()).isEqualTo(7);
+        assertThat(metrics.getBytesEstimate()).isGreaterThan(0);
+        long phases = 0;
+        for (RequestPhase phase : RequestPhase.values()) {
+            assertThat(metrics.getPhaseNanos(phase)).isGreaterThanOrEqualTo(0);
+            phases += metrics.getPhaseNanos(phase);
+        }
+        assertThat(phases).isLessThanOrEqualTo(metrics.getTotalNanos());
+        assertThat(response.getRequestDuration()).isEqualTo(metrics.getTotalNanos() / 1000000);
+
+        assertThat(metrics.getGraphMetrics()).hasSize(1);
+        IGraphMetrics graph = metrics.getGraphMetrics().get(0);
+        assertThat(graph.getGraphId()).isEqualTo("1");
+        assertThat(graph.getEdgeSampleRate()).isEqualTo(3);
+        assertThat(graph.getNodeRows()).isEqualTo(4);
+        assertThat(graph.getEdgeRows()).isEqualTo(2);
+        assertThat(graph.getNanos()).isLessThanOrEqualTo(metrics.getTotalNanos());
+
+        buildRequest();
+        engine.handleRequest(request);
+        metrics = engine.handleRequest(request).getMetrics();
+        assertThat(metrics.isCacheHit()).isTrue();
+        assertThat(metrics.getStatementCount()).isEqualTo(0);
+        assertThat(metrics.getRowCount()).isEqualTo(0);
+        assertThat(metrics.getGraphMetrics()).isEmpty();
+
+        disconnect();
+    }
+
     /**
      * Test if we could handle a new connection while there is still a connection enabled.
      * @throws DbConnectFailedException Exception on a failed operation.
@@ -0,0 +1,168 @@
+package de.logotakt.logolyze.model.olap;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
+import de.logotakt.logolyze.model.interfaces.IAggregatedEdge;
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
+import de.logotakt.logolyze.model.interfaces.MeasureClass;
+
+/**
+ * Tests the aggregation of parallel edges by an {@link OLAPGraph}.
+ */
+public class OLAPGraphTest {
+    private static final double DELTA = 1e-9;
+
+    private final MeasureType cargo = new MeasureType("CARGO_AVG", MeasureAssociation.edgeMeasure,
+            MeasureClass.NumeralMeasure, "CARGO_AVG");
+    private final MeasureType carrier = new MeasureType("CARRIER", MeasureAssociation.edgeMeasure,
+            MeasureClass.OtherMeasure, "CARRIER");
+    private final MeasureSet cargoSet = new MeasureSet(cargo);
+    private final MeasureSet carrierSet = new MeasureSet(carrier);
+
+    private final Request request = new Request(new Cube("logolyze", false), new ArrayList<Validator>());
+    private final Node karlsruhe = new Node("Karlsruhe");
+    private final Node berlin = new Node("Berlin");
+    private final Node bibliothek = new Node("Bibliothek");
+    private OLAPGraph graph;
+
+    private Edge makeEdge(final double cargoValue, final String carrierValue) {
+        Edge e = new Edge();
+        e.addMeasure(new DoubleMeasure(cargoSet, cargoValue));
+        e.addMeasure(new StringMeasure(carrierSet, carrierValue));
+        return e;
+    }
+
+    /**
+     * Builds a graph with three parallel edges from Karlsruhe to Berlin, one back, two loops at Karlsruhe and an
+     * isolated node.
+     */
+    @Before
+    public void setUp() {
+        graph = new OLAPGraph(request);
+        graph.addVertex(karlsruhe);
+        graph.addVertex(berlin);
+        graph.addVertex(bibliothek);
+        graph.addEdge(makeEdge(10, "rail"), karlsruhe, berlin);
+        graph.addEdge(makeEdge(20, "air"), karlsruhe, berlin);
+        graph.addEdge(makeEdge(60, "road"), karlsruhe, berlin);
+        graph.addEdge(makeEdge(5, "road"), berlin, karlsruhe);
+        graph.addEdge(makeEdge(1, "road"), karlsruhe, karlsruhe);
+        graph.addEdge(makeEdge(3, "rail"), karlsruhe, karlsruhe);
+    }
+
+    /* Returns the only edge from one node to another. */
+    private static IAggregatedEdge edgeBetween(final IOLAPGraph g, final INode source, final INode dest) {
+        IEdge found = null;
+        for (IEdge e : g.getOutEdges(source)) {
+            if (g.getDest(e) == dest) {
+                assertThat(found).as("parallel edges left").isNull();
+                found = e;
+            }
+        }
+        assertThat(found).isNotNull();
+        return (IAggregatedEdge) found;
+    }
+
+    /**
+     * Every pair of nodes, in either direction, keeps one edge standing for all its edges. All nodes are kept, also
+     * isolated ones, and so is the request.
+     */
+    @Test
+    public void oneEdgePerNodePair() {
+        IOLAPGraph aggregated = graph.aggregateParallelEdges(EdgeAggregation.sum);
+
+        assertThat(aggregated.getResultOf()).isSameAs(request);
+        assertThat(aggregated.getVertices()).containsOnly(karlsruhe, berlin, bibliothek);
+        assertThat(aggregated.getEdgeCount()).isEqualTo(3);
+
+        assertThat(edgeBetween(aggregated, karlsruhe, berlin).getCount()).isEqualTo(3);
+        assertThat(edgeBetween(aggregated, berlin, karlsruhe).getCount()).isEqualTo(1);
+        IAggregatedEdge loop = edgeBetween(aggregated, karlsruhe, karlsruhe);
+        assertThat(loop.getCount()).isEqualTo(2);
+        assertThat(aggregated.getSource(loop)).isSameAs(karlsruhe);
+        assertThat(aggregated.getIncidentEdges(bibliothek)).isEmpty();
+
+        // The graph itself is left alone.
+        assertThat(graph.getEdgeCount()).isEqualTo(6);
+    }
+
+    /**
+     * Aggregated edges know all aggregates of their numerical measures and the edges they stand for.
+     */
+    @Test
+    public void aggregatesOfParallelEdges() {
+        IAggregatedEdge edge = edgeBetween(graph.aggregateParallelEdges(EdgeAggregation.average), karlsruhe, berlin);
+
+        assertThat(edge.getAggregation()).isEqualTo(EdgeAggregation.average);
+        assertThat(edge.getAggregate("CARGO_AVG", EdgeAggregation.sum)).isEqualTo(90, DELTA);
+        assertThat(edge.getAggregate("CARGO_AVG", EdgeAggregation.average)).isEqualTo(30, DELTA);
+        assertThat(edge.getAggregate("CARGO_AVG", EdgeAggregation.minimum)).isEqualTo(10, DELTA);
+        assertThat(edge.getAggregate("CARGO_AVG", EdgeAggregation.maximum)).isEqualTo(60, DELTA);
+        assertThat(edge.getMeasures().get("CARGO_AVG").getNumber()).isEqualTo(30, DELTA);
+        assertThat(edge.getAggregatedEdges()).hasSize(3);
+
+        // Texts have no aggregates; the smallest one stands for all of them.
+        assertThat(edge.getAggregate("CARRIER", EdgeAggregation.sum)).isNull();
+        assertThat(edge.getMeasures().get("CARRIER").getText()).isEqualTo("air");
+    }
+
+    /**
+     * Loops are aggregated like any other edges.
+     */
+    @Test
+    public void aggregatesOfLoops() {
+        IAggregatedEdge loop = edgeBetween(graph.aggregateParallelEdges(EdgeAggregation.minimum), karlsruhe,
+                karlsruhe);
+
+        assertThat(loop.getMeasures().get("CARGO_AVG").getNumber()).isEqualTo(1, DELTA);
+        assertThat(loop.getAggregate("CARGO_AVG", EdgeAggregation.sum)).isEqualTo(4, DELTA);
+        assertThat(loop.getAggregate("CARGO_AVG", EdgeAggregation.maximum)).isEqualTo(3, DELTA);
+        assertThat(loop.getMeasures().get("CARRIER").getText()).isEqualTo("rail");
+    }
+
+    /**
+     * The aggregated measures form new sets, whose minimum and maximum are those of the aggregated values. The sets of
+     * the original measures do not change.
+     */
+    @Test
+    public void aggregatedMeasureSets() {
+        IOLAPGraph summed = graph.aggregateParallelEdges(EdgeAggregation.sum);
+        IAggregatedEdge edge = edgeBetween(summed, karlsruhe, berlin);
+        assertThat(edge.getMeasures().get("CARGO_AVG").getSet()).isNotSameAs(cargoSet);
+        assertThat(edge.getMeasures().get("CARGO_AVG").getSet().getMin()).isEqualTo(4, DELTA);
+        assertThat(edge.getMeasures().get("CARGO_AVG").getSet().getMax()).isEqualTo(90, DELTA);
+        // All edges of one aggregated graph share the set.
+        assertThat(edgeBetween(summed, berlin, karlsruhe).getMeasures().get("CARGO_AVG").getSet()).isSameAs(
+                edge.getMeasures().get("CARGO_AVG").getSet());
+
+        IOLAPGraph averaged = graph.aggregateParallelEdges(EdgeAggregation.average);
+        edge = edgeBetween(averaged, karlsruhe, berlin);
+        assertThat(edge.getMeasures().get("CARGO_AVG").getSet().getMin()).isEqualTo(2, DELTA);
+        assertThat(edge.getMeasures().get("CARGO_AVG").getSet().getMax()).isEqualTo(30, DELTA);
+
+        assertThat(cargoSet.getMin()).isEqualTo(1, DELTA);
+        assertThat(cargoSet.getMax()).isEqualTo(60, DELTA);
+    }
+
+    /**
+     * Aggregating an aggregated graph again keeps its edges.
+     */
+    @Test
+    public void aggregatingTwiceKeepsTheEdges() {
+        IOLAPGraph once = graph.aggregateParallelEdges(EdgeAggregation.sum);
+        IOLAPGraph twice = once.aggregateParallelEdges(EdgeAggregation.sum);
+
+        assertThat(twice.getEdgeCount()).isEqualTo(3);
+        assertThat(edgeBetween(twice, karlsruhe, berlin)).isSameAs(edgeBetween(once, karlsruhe, berlin));
+        assertThat(edgeBetween(twice, karlsruhe, karlsruhe)).isSameAs(edgeBetween(once, karlsruhe, karlsruhe));
+    }
+}
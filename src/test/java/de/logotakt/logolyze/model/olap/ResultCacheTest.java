@@ -0,0 +1,181 @@
+package de.logotakt.logolyze.model.olap;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.EdgeFilter;
+import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
+import de.logotakt.logolyze.model.interfaces.MeasureAssociation;
+import de.logotakt.logolyze.model.interfaces.MeasureClass;
+
+/**
+ * Tests the {@link ResultCache} and the {@link RequestKey}s it is indexed by.
+ */
+public class ResultCacheTest {
+    private final Cube cube = new Cube("logolyze", false);
+    private final MeasureType cargo = new MeasureType("CARGO_AVG", MeasureAssociation.edgeMeasure,
+            MeasureClass.NumeralMeasure, "CARGO_AVG");
+
+    private Request makeRequest(final Cube c) {
+        return new Request(c, new ArrayList<Validator>());
+    }
+
+    /* A key for a request of a cube of its own, so that it differs from all other keys. */
+    private RequestKey makeKey() {
+        return new RequestKey(makeRequest(new Cube("other", false)));
+    }
+
+    /* A single graph with the given number of edges, loaded completely or as a sample. */
+    private static Collection<IOLAPGraph> makeGraphs(final int edges, final int sampleRate) {
+        Request graphRequest = new Request(new Cube("graph", false), new ArrayList<Validator>());
+        graphRequest.setEdgeSampleRate(sampleRate);
+        IOLAPGraph graph = mock(IOLAPGraph.class);
+        when(graph.getEdgeCount()).thenReturn(edges);
+        when(graph.getResultOf()).thenReturn(graphRequest);
+        return Collections.singletonList(graph);
+    }
+
+    /**
+     * Requests selecting the same graphs have equal keys, whatever else differs.
+     */
+    @Test
+    public void keysOfEqualRequests() {
+        Request a = makeRequest(cube);
+        Request b = makeRequest(cube);
+        a.addMeasureType(cargo);
+        b.addMeasureType(cargo);
+        b.setPreviewEdges(10);
+
+        assertThat(new RequestKey(a)).isEqualTo(new RequestKey(b));
+        assertThat(new RequestKey(a).hashCode()).isEqualTo(new RequestKey(b).hashCode());
+    }
+
+    /**
+     * Requests selecting different graphs have different keys.
+     */
+    @Test
+    public void keysOfDifferentRequests() {
+        RequestKey plain = new RequestKey(makeRequest(cube));
+
+        assertThat(new RequestKey(makeRequest(new Cube("logolyze", false)))).isNotEqualTo(plain);
+
+        Request r = makeRequest(cube);
+        r.setOnlyConnectedNodes(true);
+        assertThat(new RequestKey(r)).isNotEqualTo(plain);
+
+        r = makeRequest(cube);
+        r.addMeasureType(cargo);
+        assertThat(new RequestKey(r)).isNotEqualTo(plain);
+
+        r = makeRequest(cube);
+        r.setEdgeFilter(new EdgeFilter(cargo, EdgeFilter.Mode.topK, 5));
+        RequestKey top5 = new RequestKey(r);
+        assertThat(top5).isNotEqualTo(plain);
+        r.setEdgeFilter(new EdgeFilter(cargo, EdgeFilter.Mode.topK, 6));
+        assertThat(new RequestKey(r)).isNotEqualTo(top5);
+    }
+
+    /**
+     * A key does not change with the request it was made of.
+     */
+    @Test
+    public void keysAreCopies() {
+        Request r = makeRequest(cube);
+        RequestKey key = new RequestKey(r);
+        r.addMeasureType(cargo);
+        r.setOnlyConnectedNodes(true);
+
+        assertThat(key).isEqualTo(new RequestKey(makeRequest(cube)));
+    }
+
+    /**
+     * Cached graphs are returned until the cache is cleared.
+     */
+    @Test
+    public void cachedGraphsAreReturned() {
+        ResultCache cache = new ResultCache(100);
+        RequestKey key = new RequestKey(makeRequest(cube));
+        Collection<IOLAPGraph> graphs = makeGraphs(10, 1);
+
+        assertThat(cache.get(key)).isNull();
+        cache.put(key, graphs);
+        assertThat(cache.contains(key)).isTrue();
+        assertThat(cache.get(new RequestKey(makeRequest(cube)))).isSameAs(graphs);
+
+        cache.clear();
+        assertThat(cache.contains(key)).isFalse();
+        assertThat(cache.get(key)).isNull();
+    }
+
+    /**
+     * Previews are never cached, neither are graphs larger than the whole cache.
+     */
+    @Test
+    public void previewsAndHugeGraphsAreNotCached() {
+        ResultCache cache = new ResultCache(100);
+        RequestKey preview = makeKey();
+        RequestKey huge = makeKey();
+
+        cache.put(preview, makeGraphs(10, 4));
+        cache.put(huge, makeGraphs(101, 1));
+
+        assertThat(cache.contains(preview)).isFalse();
+        assertThat(cache.contains(huge)).isFalse();
+    }
+
+    /**
+     * Once the edges exceed the maximum, the graphs used least recently are dropped until they fit again.
+     */
+    @Test
+    public void leastRecentlyUsedAreEvictedByEdges() {
+        ResultCache cache = new ResultCache(100);
+        RequestKey a = makeKey();
+        RequestKey b = makeKey();
+        RequestKey c = makeKey();
+        RequestKey d = makeKey();
+
+        cache.put(a, makeGraphs(40, 1));
+        cache.put(b, makeGraphs(40, 1));
+        // Using a makes b the least recently used, contains() does not count as a use.
+        cache.get(a);
+        cache.contains(b);
+        cache.put(c, makeGraphs(20, 1));
+        assertThat(cache.contains(a) && cache.contains(b) && cache.contains(c)).isTrue();
+
+        cache.put(d, makeGraphs(30, 1));
+        assertThat(cache.contains(b)).isFalse();
+        assertThat(cache.contains(a)).isTrue();
+        assertThat(cache.contains(c)).isTrue();
+        assertThat(cache.contains(d)).isTrue();
+
+        // A huge request evicts several.
+        RequestKey e = makeKey();
+        cache.put(e, makeGraphs(90, 1));
+        assertThat(cache.contains(e)).isTrue();
+        assertThat(cache.contains(a) || cache.contains(c) || cache.contains(d)).isFalse();
+    }
+
+    /**
+     * Replacing the graphs of a key counts only the new ones.
+     */
+    @Test
+    public void replacingGraphsFreesTheOldOnes() {
+        ResultCache cache = new ResultCache(100);
+        RequestKey a = makeKey();
+        RequestKey b = makeKey();
+
+        cache.put(a, makeGraphs(60, 1));
+        cache.put(a, makeGraphs(30, 1));
+        cache.put(b, makeGraphs(70, 1));
+
+        assertThat(cache.contains(a)).isTrue();
+        assertThat(cache.contains(b)).isTrue();
+    }
+}
@@ -1,9 +1,11 @@
 package de.logotakt.logolyze.view;
 
+import de.logotakt.logolyze.model.interfaces.EdgeAggregation;
 import de.logotakt.logolyze.model.interfaces.IEdge;
 import de.logotakt.logolyze.model.interfaces.INode;
 import de.logotakt.logolyze.model.interfaces.IOLAPGraph;
 import de.logotakt.logolyze.model.interfaces.IRequest;
+import de.logotakt.logolyze.model.olap.OLAPGraph;
 import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
 
 /**
@@ -32,4 +34,27 @@ public class MockedGraph extends DirectedSparseMultigraph<INode, IEdge> implemen
         this.request = req;
     }
 
+    @Override
+    public IOLAPGraph aggregateParallelEdges(final EdgeAggregation aggregation) {
+        // Let the real graph do the aggregation, then copy its result back so that it belongs to the same request.
+        OLAPGraph copy = new OLAPGraph();
+        for (INode n : getVertices()) {
+            copy.addVertex(n);
+        }
+        for (IEdge e : getEdges()) {
+            copy.addEdge(e, getSource(e), getDest(e));
+        }
+
+        IOLAPGraph aggregated = copy.aggregateParallelEdges(aggregation);
+        MockedGraph result = new MockedGraph();
+        result.setRequest(request);
+        for (INode n : aggregated.getVertices()) {
+            result.addVertex(n);
+        }
+        for (IEdge e : aggregated.getEdges()) {
+            result.addEdge(e, aggregated.getSource(e), aggregated.getDest(e));
+        }
+        return result;
+    }
+
 }
@@ -0,0 +1,188 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * Tests the force-directed {@link BarnesHutLayout}.
+ */
+public class BarnesHutLayoutTest {
+    private static final Dimension SIZE = new Dimension(600, 600);
+
+    private int edges = 0;
+
+    private void connect(final Graph<String, Integer> graph, final String a, final String b) {
+        graph.addEdge(edges++, a, b);
+    }
+
+    /* Two triangles that are not connected to each other. */
+    private Graph<String, Integer> twoTriangles() {
+        Graph<String, Integer> graph = new DirectedSparseMultigraph<String, Integer>();
+        connect(graph, "a", "b");
+        connect(graph, "b", "c");
+        connect(graph, "c", "a");
+        connect(graph, "d", "e");
+        connect(graph, "e", "f");
+        connect(graph, "f", "d");
+        return graph;
+    }
+
+    /* Runs the layout until it stops, and returns the number of iterations it took. */
+    private static int run(final BarnesHutLayout<String, Integer> layout) {
+        int steps = 0;
+        while (!layout.done()) {
+            layout.step();
+            steps++;
+        }
+        return steps;
+    }
+
+    private static Map<String, Point2D> positions(final BarnesHutLayout<String, Integer> layout) {
+        Map<String, Point2D> ret = new HashMap<String, Point2D>();
+        for (String v : layout.getGraph().getVertices()) {
+            ret.put(v, (Point2D) layout.transform(v).clone());
+        }
+        return ret;
+    }
+
+    private static void assertInside(final BarnesHutLayout<String, Integer> layout) {
+        for (String v : layout.getGraph().getVertices()) {
+            Point2D p = layout.transform(v);
+            assertThat(Double.isNaN(p.getX()) || Double.isNaN(p.getY())).isFalse();
+            assertThat(p.getX()).isGreaterThanOrEqualTo(0).isLessThanOrEqualTo(SIZE.width);
+            assertThat(p.getY()).isGreaterThanOrEqualTo(0).isLessThanOrEqualTo(SIZE.height);
+        }
+    }
+
+    /**
+     * The layout does nothing until it knows its size.
+     */
+    @Test
+    public void doneWithoutSize() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(twoTriangles());
+        assertThat(layout.done()).isTrue();
+        layout.step();
+    }
+
+    /**
+     * An empty graph needs no layout.
+     */
+    @Test
+    public void emptyGraph() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(
+                new DirectedSparseMultigraph<String, Integer>());
+        layout.setSize(SIZE);
+        assertThat(layout.done()).isTrue();
+    }
+
+    /**
+     * Connected vertices end up close to each other and far from vertices they are not connected to, all of them
+     * inside the layout area.
+     */
+    @Test
+    public void connectedVerticesStayTogether() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(twoTriangles());
+        layout.setSize(SIZE);
+        assertThat(run(layout)).isLessThanOrEqualTo(BarnesHutLayout.DEFAULT_MAX_ITERATIONS);
+        assertInside(layout);
+
+        double within = 0;
+        double between = 0;
+        for (String a : new String[] {"a", "b", "c" }) {
+            for (String b : new String[] {"a", "b", "c" }) {
+                within += layout.transform(a).distance(layout.transform(b));
+            }
+            for (String b : new String[] {"d", "e", "f" }) {
+                between += layout.transform(a).distance(layout.transform(b));
+            }
+        }
+        // Three of the nine pairs within a triangle are a vertex and itself.
+        assertThat(within / 6).isLessThan(between / 9);
+    }
+
+    /**
+     * The layout stops after the given number of iterations at the latest.
+     */
+    @Test
+    public void stopsAfterMaxIterations() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(twoTriangles(), 3, true);
+        layout.setSize(SIZE);
+        assertThat(run(layout)).isLessThanOrEqualTo(3);
+    }
+
+    /**
+     * Locked vertices are not moved.
+     */
+    @Test
+    public void lockedVerticesStay() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(twoTriangles());
+        layout.setSize(SIZE);
+        layout.setLocation("a", new Point2D.Double(10, 20));
+        layout.lock("a", true);
+        layout.reset();
+
+        run(layout);
+        assertThat(layout.transform("a")).isEqualTo(new Point2D.Double(10, 20));
+    }
+
+    /**
+     * Without streaming, the positions are only published once the layout is done.
+     */
+    @Test
+    public void withoutStreamingOnlyTheResultIsPublished() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(twoTriangles(),
+                BarnesHutLayout.DEFAULT_MAX_ITERATIONS, false);
+        layout.setSize(SIZE);
+        Map<String, Point2D> start = positions(layout);
+
+        layout.step();
+        assertThat(positions(layout)).isEqualTo(start);
+
+        run(layout);
+        assertThat(positions(layout)).isNotEqualTo(start);
+    }
+
+    /**
+     * Vertices placed on the same spot are pushed apart instead of producing infinite forces.
+     */
+    @Test
+    public void coincidentVerticesAreSeparated() {
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(twoTriangles());
+        layout.setSize(SIZE);
+        for (String v : layout.getGraph().getVertices()) {
+            layout.setLocation(v, new Point2D.Double(300, 300));
+        }
+        layout.reset();
+
+        run(layout);
+        assertInside(layout);
+        assertThat(layout.transform("a").distance(layout.transform("d"))).isGreaterThan(1);
+    }
+
+    /**
+     * A graph large enough to have its forces computed in chunks is laid out as well.
+     */
+    @Test
+    public void largeRing() {
+        Graph<String, Integer> graph = new DirectedSparseMultigraph<String, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            connect(graph, "v" + i, "v" + ((i + 1) % 1000));
+        }
+        // A self-loop exerts no force.
+        connect(graph, "v0", "v0");
+
+        BarnesHutLayout<String, Integer> layout = new BarnesHutLayout<String, Integer>(graph, 20, true);
+        layout.setSize(SIZE);
+        run(layout);
+        assertInside(layout);
+    }
+}
@@ -0,0 +1,143 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.JComponent;
+
+import org.apache.commons.collections15.Transformer;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import edu.uci.ics.jung.algorithms.layout.StaticLayout;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.VisualizationViewer;
+import edu.uci.ics.jung.visualization.renderers.DefaultVertexLabelRenderer;
+import edu.uci.ics.jung.visualization.renderers.VertexLabelAsShapeRenderer;
+import edu.uci.ics.jung.visualization.renderers.VertexLabelRenderer;
+
+/**
+ * Tests the label sizes remembered by the {@link CachedLabelShapeRenderer}.
+ */
+public class CachedLabelShapeRendererTest {
+    private static final Font SMALL = new Font(Font.SANS_SERIF, Font.PLAIN, 10);
+    private static final Font LARGE = new Font(Font.SANS_SERIF, Font.PLAIN, 30);
+
+    /* The cache is shared by all renderers, so every test uses labels of its own. */
+    private static int tests = 0;
+
+    private final Map<INode, String> labels = new HashMap<INode, String>();
+    private final Map<INode, Font> fonts = new HashMap<INode, Font>();
+    private RenderContext<INode, IEdge> rc;
+    private CachedLabelShapeRenderer renderer;
+    private String prefix;
+    /* How often a label was measured. */
+    private int measured = 0;
+
+    /**
+     * Creates a renderer whose labels and fonts are looked up in maps, and counts how often a label is measured.
+     */
+    @Before
+    public void setUp() {
+        prefix = "test " + (tests++) + " ";
+        VisualizationViewer<INode, IEdge> vv = new VisualizationViewer<INode, IEdge>(
+                new StaticLayout<INode, IEdge>(new DirectedSparseMultigraph<INode, IEdge>()));
+        rc = vv.getRenderContext();
+        rc.setVertexLabelTransformer(new Transformer<INode, String>() {
+            public String transform(final INode v) {
+                return labels.get(v);
+            }
+        });
+        rc.setVertexFontTransformer(new Transformer<INode, Font>() {
+            public Font transform(final INode v) {
+                return fonts.containsKey(v) ? fonts.get(v) : SMALL;
+            }
+        });
+        final VertexLabelRenderer measuring = new DefaultVertexLabelRenderer(Color.blue);
+        rc.setVertexLabelRenderer(new VertexLabelRenderer() {
+            public <T> Component getVertexLabelRendererComponent(final JComponent vv, final Object value,
+                    final Font font, final boolean isSelected, final T vertex) {
+                measured++;
+                return measuring.getVertexLabelRendererComponent(vv, value, font, isSelected, vertex);
+            }
+        });
+        renderer = new CachedLabelShapeRenderer(rc);
+    }
+
+    private INode vertex(final String label) {
+        INode v = mock(INode.class);
+        labels.put(v, prefix + label);
+        return v;
+    }
+
+    /**
+     * A label is measured once; vertices with the same label and font get the same size without measuring again.
+     */
+    @Test
+    public void sameLabelIsMeasuredOnce() {
+        INode a = vertex("Karlsruhe");
+        INode b = vertex("Karlsruhe");
+
+        Shape first = renderer.transform(a);
+        assertThat(measured).isEqualTo(1);
+        assertThat(renderer.transform(a)).isEqualTo(first);
+        assertThat(renderer.transform(b)).isEqualTo(first);
+        assertThat(measured).isEqualTo(1);
+
+        // The size is the one JUNG measures.
+        assertThat(first).isEqualTo(new VertexLabelAsShapeRenderer<INode, IEdge>(rc).transform(a));
+    }
+
+    /**
+     * Other labels and other fonts are measured on their own.
+     */
+    @Test
+    public void otherLabelsAndFonts() {
+        INode shortLabel = vertex("KA");
+        INode longLabel = vertex("Karlsruhe Hauptbahnhof");
+        INode large = vertex("KA");
+        fonts.put(large, LARGE);
+
+        Rectangle small = renderer.transform(shortLabel).getBounds();
+        assertThat(renderer.transform(longLabel).getBounds().width).isGreaterThan(small.width);
+        Rectangle big = renderer.transform(large).getBounds();
+        assertThat(big.width).isGreaterThan(small.width);
+        assertThat(big.height).isGreaterThan(small.height);
+        assertThat(measured).isEqualTo(3);
+    }
+
+    /**
+     * Changing a returned shape does not change the cached size.
+     */
+    @Test
+    public void shapesAreCopies() {
+        INode v = vertex("Berlin");
+        Rectangle first = (Rectangle) renderer.transform(v);
+        Rectangle expected = new Rectangle(first);
+
+        first.setBounds(0, 0, 1, 1);
+        assertThat(renderer.transform(v)).isEqualTo(expected);
+    }
+
+    /**
+     * Vertices without labels are measured every time, like JUNG does it.
+     */
+    @Test
+    public void verticesWithoutLabels() {
+        INode v = mock(INode.class);
+        assertThat(renderer.transform(v)).isNotNull();
+        renderer.transform(v);
+        assertThat(measured).isEqualTo(2);
+    }
+}
@@ -0,0 +1,167 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.logotakt.logolyze.view.interfaces.EventArgs;
+import de.logotakt.logolyze.view.interfaces.EventType;
+import de.logotakt.logolyze.view.interfaces.IEventHandler;
+
+/**
+ * Tests the delivery of events by the {@link EventBus}.
+ */
+public class EventBusTest {
+    private EventBus bus;
+    private final List<EventArgs> received = new CopyOnWriteArrayList<EventArgs>();
+    private final List<Boolean> onEventThread = new CopyOnWriteArrayList<Boolean>();
+    private final IEventHandler handler = new IEventHandler() {
+        @Override
+        public void event(final EventArgs e) {
+            received.add(e);
+            onEventThread.add(EventQueue.isDispatchThread());
+        }
+    };
+    private EventBus.Policy isolatedNodesPolicy;
+
+    /**
+     * Creates a bus with a listener for some types.
+     */
+    @Before
+    public void setUp() {
+        isolatedNodesPolicy = EventBus.getPolicy(EventType.isolatedNodesChanged);
+        bus = new EventBus();
+        for (EventType type : new EventType[] {EventType.treeNodeSelected, EventType.measuresChanged,
+            EventType.isolatedNodesChanged }) {
+            bus.declare(type);
+            bus.addListener(handler, type);
+        }
+    }
+
+    /**
+     * Restores the policy changed by a test, since it is shared by all buses.
+     */
+    @After
+    public void tearDown() {
+        EventBus.setPolicy(EventType.isolatedNodesChanged, isolatedNodesPolicy);
+    }
+
+    /**
+     * Every selection in the hierarchy tree has to reach the controller on its own, as does every change of the
+     * measures.
+     */
+    @Test
+    public void selectionsAndMeasuresAreInline() {
+        assertThat(EventBus.getPolicy(EventType.treeNodeSelected)).isEqualTo(EventBus.Policy.inline);
+        assertThat(EventBus.getPolicy(EventType.measuresChanged)).isEqualTo(EventBus.Policy.inline);
+    }
+
+    /**
+     * Inline events are delivered one by one, before publishing returns.
+     */
+    @Test
+    public void inlineDeliversEveryEventRightAway() {
+        EventArgs first = new EventArgs(this, EventType.treeNodeSelected, "first");
+        EventArgs second = new EventArgs(this, EventType.treeNodeSelected, "second");
+
+        bus.publish(first);
+        assertThat(received).containsExactly(first);
+        bus.publish(second);
+        assertThat(received).containsExactly(first, second);
+    }
+
+    /**
+     * Coalesced events are delivered later on the event dispatch thread, and only the latest of a burst is.
+     * @throws InterruptedException If the test is interrupted.
+     * @throws InvocationTargetException If publishing fails.
+     */
+    @Test
+    public void coalescedDeliversTheLatestEventLater() throws InterruptedException, InvocationTargetException {
+        EventBus.setPolicy(EventType.isolatedNodesChanged, EventBus.Policy.coalesced);
+        final EventArgs first = new EventArgs(this, EventType.isolatedNodesChanged, Boolean.TRUE);
+        final EventArgs second = new EventArgs(this, EventType.isolatedNodesChanged, Boolean.FALSE);
+
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                bus.publish(first);
+                bus.publish(second);
+                // Nothing is delivered while the component is still busy.
+                assertThat(received).isEmpty();
+            }
+        });
+        // The delivery was queued before this, so it is done once this has run.
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        assertThat(received).containsExactly(second);
+        assertThat(onEventThread).containsExactly(true);
+    }
+
+    /**
+     * Coalescing only merges events of the same type.
+     * @throws InterruptedException If the test is interrupted.
+     * @throws InvocationTargetException If publishing fails.
+     */
+    @Test
+    public void coalescedKeepsInlineEventsOfOtherTypes() throws InterruptedException, InvocationTargetException {
+        EventBus.setPolicy(EventType.isolatedNodesChanged, EventBus.Policy.coalesced);
+        final EventArgs coalesced = new EventArgs(this, EventType.isolatedNodesChanged, Boolean.TRUE);
+        final EventArgs inline = new EventArgs(this, EventType.treeNodeSelected, "node");
+
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                bus.publish(coalesced);
+                bus.publish(inline);
+            }
+        });
+        EventQueue.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        assertThat(received).containsExactly(inline, coalesced);
+    }
+
+    /**
+     * Forwarded events are delivered right away, whatever the policy of their type.
+     */
+    @Test
+    public void forwardIgnoresThePolicy() {
+        EventBus.setPolicy(EventType.isolatedNodesChanged, EventBus.Policy.coalesced);
+        EventArgs e = new EventArgs(this, EventType.isolatedNodesChanged, Boolean.TRUE);
+
+        bus.forward(e);
+        assertThat(received).containsExactly(e);
+    }
+
+    /**
+     * Removed listeners are not called anymore.
+     */
+    @Test
+    public void removedListenersAreNotCalled() {
+        bus.removeListener(handler, EventType.measuresChanged);
+        bus.publish(new EventArgs(this, EventType.measuresChanged, null));
+        assertThat(received).isEmpty();
+    }
+
+    /**
+     * Listeners can only be added for the types declared.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void undeclaredTypesAreRejected() {
+        bus.addListener(handler, EventType.cubeSelected);
+    }
+}
@@ -0,0 +1,173 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.awt.Dimension;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.QuadCurve2D;
+import java.awt.geom.Rectangle2D;
+
+import org.apache.commons.collections15.Predicate;
+import org.apache.commons.collections15.Transformer;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import edu.uci.ics.jung.algorithms.layout.StaticLayout;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.visualization.VisualizationViewer;
+
+/**
+ * Tests picking vertices and edges with the {@link IndexedPickSupport}.
+ */
+public class IndexedPickSupportTest {
+    /* How far (in pixels) the curved edges bulge out of the line between their endpoints. */
+    private static final double BULGE = 20;
+
+    private final Graph<INode, IEdge> graph = new DirectedSparseMultigraph<INode, IEdge>();
+    private final INode left = mock(INode.class);
+    private final INode right = mock(INode.class);
+    private final INode close = mock(INode.class);
+    private final INode looped = mock(INode.class);
+    private final IEdge curved = mock(IEdge.class);
+    private final IEdge loop = mock(IEdge.class);
+
+    private StaticLayout<INode, IEdge> layout;
+    private VisualizationViewer<INode, IEdge> vv;
+    private IndexedPickSupport pickSupport;
+    /* Half the side length of the square vertex shapes. */
+    private double vertexSize = 10;
+
+    private void place(final INode v, final double x, final double y) {
+        graph.addVertex(v);
+        layout.setLocation(v, new Point2D.Double(x, y));
+    }
+
+    /**
+     * Lays out a curved edge from (100, 100) to (300, 100), a vertex overlapping the one at its start, and a vertex
+     * with a self-loop at (100, 300). Vertices are squares; edges are drawn like JUNG's QuadCurve and Loop shapes.
+     */
+    @Before
+    public void setUp() {
+        layout = new StaticLayout<INode, IEdge>(graph);
+        layout.setSize(new Dimension(400, 400));
+        place(left, 100, 100);
+        place(right, 300, 100);
+        place(close, 112, 100);
+        place(looped, 100, 300);
+        graph.addEdge(curved, left, right);
+        graph.addEdge(loop, looped, looped);
+
+        vv = new VisualizationViewer<INode, IEdge>(layout);
+        vv.getRenderContext().setVertexShapeTransformer(new Transformer<INode, Shape>() {
+            public Shape transform(final INode v) {
+                return new Rectangle2D.Double(-vertexSize, -vertexSize, 2 * vertexSize, 2 * vertexSize);
+            }
+        });
+        vv.getRenderContext().setEdgeShapeTransformer(new Transformer<Context<Graph<INode, IEdge>, IEdge>, Shape>() {
+            public Shape transform(final Context<Graph<INode, IEdge>, IEdge> context) {
+                Graph<INode, IEdge> g = context.graph;
+                if (g.getSource(context.element) == g.getDest(context.element)) {
+                    return new Ellipse2D.Double(-0.5, -0.5, 1, 1);
+                }
+                return new QuadCurve2D.Double(0, 0, 0.5, 2 * BULGE, 1, 0);
+            }
+        });
+        pickSupport = new IndexedPickSupport(vv, new LayoutSpatialIndex());
+    }
+
+    /**
+     * A vertex is picked inside its shape; of overlapping vertices, the one whose center is closest.
+     */
+    @Test
+    public void vertexWithClosestCenter() {
+        assertThat(pickSupport.getVertex(layout, 100, 100)).isSameAs(left);
+        assertThat(pickSupport.getVertex(layout, 104, 95)).isSameAs(left);
+        assertThat(pickSupport.getVertex(layout, 108, 105)).isSameAs(close);
+        assertThat(pickSupport.getVertex(layout, 121, 100)).isSameAs(close);
+        assertThat(pickSupport.getVertex(layout, 123, 100)).isNull();
+        assertThat(pickSupport.getVertex(layout, 200, 200)).isNull();
+    }
+
+    /**
+     * Vertices that are not drawn are not picked.
+     */
+    @Test
+    public void hiddenVerticesAreNotPicked() {
+        vv.getRenderContext().setVertexIncludePredicate(new Predicate<Context<Graph<INode, IEdge>, INode>>() {
+            public boolean evaluate(final Context<Graph<INode, IEdge>, INode> context) {
+                return context.element != close;
+            }
+        });
+
+        assertThat(pickSupport.getVertex(layout, 108, 100)).isSameAs(left);
+        assertThat(pickSupport.getVertex(layout, 118, 100)).isNull();
+    }
+
+    /**
+     * A rectangle picks the vertices whose centers are inside it.
+     */
+    @Test
+    public void verticesInRectangle() {
+        assertThat(pickSupport.getVertices(layout, new Rectangle2D.Double(90, 90, 30, 20))).containsOnly(left, close);
+        assertThat(pickSupport.getVertices(layout, new Rectangle2D.Double(105, 0, 300, 200))).containsOnly(close,
+                right);
+        assertThat(pickSupport.getVertices(layout, new Rectangle2D.Double(150, 150, 100, 100))).isEmpty();
+    }
+
+    /**
+     * A curved edge is picked where it is drawn, although that is outside the box spanned by its endpoints.
+     */
+    @Test
+    public void curvedEdges() {
+        assertThat(pickSupport.getEdge(layout, 200, 100 + BULGE)).isSameAs(curved);
+        assertThat(pickSupport.getEdge(layout, 150, 100 + BULGE * 3 / 4)).isSameAs(curved);
+        assertThat(pickSupport.getEdge(layout, 200, 100 + BULGE + 10)).isNull();
+        assertThat(pickSupport.getEdge(layout, 200, 100 - 10)).isNull();
+    }
+
+    /**
+     * A self-loop is drawn as big as its vertex, above it, and is picked there.
+     */
+    @Test
+    public void selfLoops() {
+        assertThat(pickSupport.getEdge(layout, 100, 290)).isSameAs(loop);
+        assertThat(pickSupport.getEdge(layout, 100, 282)).isSameAs(loop);
+        assertThat(pickSupport.getEdge(layout, 100, 270)).isNull();
+        assertThat(pickSupport.getEdge(layout, 130, 290)).isNull();
+    }
+
+    /**
+     * Edges that are not drawn are not picked.
+     */
+    @Test
+    public void hiddenEdgesAreNotPicked() {
+        vv.getRenderContext().setEdgeIncludePredicate(new Predicate<Context<Graph<INode, IEdge>, IEdge>>() {
+            public boolean evaluate(final Context<Graph<INode, IEdge>, IEdge> context) {
+                return context.element != loop;
+            }
+        });
+
+        assertThat(pickSupport.getEdge(layout, 100, 290)).isNull();
+        assertThat(pickSupport.getEdge(layout, 200, 100 + BULGE)).isSameAs(curved);
+    }
+
+    /**
+     * Vertices that grew are picked in their new size once the pick support is told about it.
+     */
+    @Test
+    public void invalidateAfterShapesChange() {
+        assertThat(pickSupport.getVertex(layout, 100, 300)).isSameAs(looped);
+        vertexSize = 60;
+        pickSupport.invalidate();
+
+        assertThat(pickSupport.getVertex(layout, 150, 300)).isSameAs(looped);
+        assertThat(pickSupport.getVertex(layout, 100, 250)).isSameAs(looped);
+    }
+}
@@ -0,0 +1,106 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tinloaf.snbreadtree.SnTreeNode;
+
+/**
+ * Tests adding the children of a {@link LazyTreeModel}'s nodes when they are needed.
+ */
+public class LazyTreeModelTest {
+    private final Object root = new Object();
+    private LazyTreeModel model;
+
+    /**
+     * Creates a tree with a lazy node for the cities of a country and one for a country without cities.
+     */
+    @Before
+    public void setUp() {
+        model = new LazyTreeModel();
+        model.addNode(null, root);
+        model.addNode(root, "Staat");
+        model.addLazyNode("Staat", "Deutschland", Arrays.asList("Karlsruhe", "Berlin"));
+        model.addLazyNode("Staat", "Vatikanstadt", Collections.emptyList());
+    }
+
+    /* The user objects of the children of a node, in order. */
+    private List<Object> children(final SnTreeNode node) {
+        List<Object> ret = new ArrayList<Object>();
+        for (int i = 0; i < model.getChildCount(node); i++) {
+            ret.add(((SnTreeNode) model.getChild(node, i)).getUserObject());
+        }
+        return ret;
+    }
+
+    /**
+     * A lazy node has no children until they are materialized, but can be expanded anyway. Nodes without children to
+     * add are leafs.
+     */
+    @Test
+    public void lazyNodesAreNoLeafs() {
+        SnTreeNode germany = model.findNode("Deutschland");
+        assertThat(model.isLeaf(germany)).isFalse();
+        assertThat(model.getChildCount(germany)).isEqualTo(0);
+        assertThat(model.isLeaf(model.findNode("Vatikanstadt"))).isTrue();
+
+        model.materialize("Deutschland");
+        assertThat(model.isLeaf(germany)).isFalse();
+        assertThat(children(germany)).isEqualTo(Arrays.<Object>asList("Karlsruhe", "Berlin"));
+        assertThat(model.isLeaf(model.findNode("Karlsruhe"))).isTrue();
+    }
+
+    /**
+     * Materializing a node again, or a node that is not lazy, changes nothing.
+     */
+    @Test
+    public void materializeOnce() {
+        model.materialize("Deutschland");
+        model.materialize("Deutschland");
+        model.materialize("Staat");
+        model.materialize("Atlantis");
+
+        assertThat(children(model.findNode("Deutschland"))).hasSize(2);
+        assertThat(children(model.findNode("Staat"))).isEqualTo(Arrays.<Object>asList("Deutschland",
+                "Vatikanstadt"));
+    }
+
+    /**
+     * Finding a node that was not added yet adds it and its siblings; finding a node that was added does not
+     * materialize its children.
+     */
+    @Test
+    public void findNodeMaterializes() {
+        SnTreeNode germany = model.findNode("Deutschland");
+        assertThat(germany.getUserObject()).isEqualTo("Deutschland");
+        assertThat(model.getChildCount(germany)).isEqualTo(0);
+
+        SnTreeNode berlin = model.findNode("Berlin");
+        assertThat(berlin).isNotNull();
+        assertThat(berlin.getUserObject()).isEqualTo("Berlin");
+        assertThat(children(germany)).isEqualTo(Arrays.<Object>asList("Karlsruhe", "Berlin"));
+        assertThat(model.findNode("Berlin")).isSameAs(berlin);
+
+        assertThat(model.findNode("Atlantis")).isNull();
+    }
+
+    /**
+     * The children of lazy nodes are known in the order the nodes were added, whether they were added or not.
+     */
+    @Test
+    public void lazyNodesAreKept() {
+        model.addLazyNode("Staat", "Frankreich", Arrays.asList("Paris"));
+        model.materialize("Deutschland");
+
+        assertThat(new ArrayList<Object>(model.getLazyNodes().keySet())).isEqualTo(Arrays.<Object>asList(
+                "Deutschland", "Frankreich"));
+        assertThat(model.getLazyNodes().get("Deutschland")).containsOnly("Karlsruhe", "Berlin");
+    }
+}
@@ -0,0 +1,201 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.logotakt.logolyze.model.interfaces.IEdge;
+import de.logotakt.logolyze.model.interfaces.INode;
+import de.logotakt.logolyze.view.swing2d.LevelOfDetailRenderer.Detail;
+import edu.uci.ics.jung.algorithms.layout.StaticLayout;
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.VisualizationViewer;
+import edu.uci.ics.jung.visualization.transform.shape.GraphicsDecorator;
+
+/**
+ * Tests how the {@link LevelOfDetailRenderer} chooses its level of detail and composites dragged vertices.
+ */
+public class LevelOfDetailRendererTest {
+    /* A screen of 80x60 pixels has 4800 pixels, i.e. 16 for each of 300 vertices and 100 for each of 48. */
+    private static final int WIDTH = 80;
+    private static final int HEIGHT = 60;
+
+    private final Graph<INode, IEdge> graph = new DirectedSparseMultigraph<INode, IEdge>();
+    private StaticLayout<INode, IEdge> layout;
+    private VisualizationViewer<INode, IEdge> vv;
+    private RecordingRenderer renderer;
+    private BufferedImage screen;
+
+    /**
+     * Creates a renderer for an empty graph on a small screen.
+     */
+    @Before
+    public void setUp() {
+        layout = new StaticLayout<INode, IEdge>(graph);
+        layout.setSize(new Dimension(WIDTH, HEIGHT));
+        vv = new VisualizationViewer<INode, IEdge>(layout);
+        vv.setSize(WIDTH, HEIGHT);
+        screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        vv.getRenderContext().setGraphicsContext(new GraphicsDecorator(screen.createGraphics()));
+        renderer = new RecordingRenderer(new LayoutSpatialIndex(), new QualityGovernor(vv));
+    }
+
+    /* Remembers the vertices and edges it paints in full. */
+    private static class RecordingRenderer extends LevelOfDetailRenderer {
+        private final List<Object> painted = new ArrayList<Object>();
+
+        RecordingRenderer(final LayoutSpatialIndex index, final QualityGovernor governor) {
+            super(index, governor);
+        }
+
+        @Override
+        public void renderVertex(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+                final INode v) {
+            painted.add(v);
+            super.renderVertex(rc, layout, v);
+        }
+
+        @Override
+        public void renderEdge(final RenderContext<INode, IEdge> rc, final Layout<INode, IEdge> layout,
+                final IEdge e) {
+            painted.add(e);
+            super.renderEdge(rc, layout, e);
+        }
+
+        /* Returns what was painted since the last call. */
+        List<Object> takePainted() {
+            List<Object> ret = new ArrayList<Object>(painted);
+            painted.clear();
+            return ret;
+        }
+    }
+
+    /* Adds vertices spread over the part of the layout shown on the screen. */
+    private void addVisible(final int count) {
+        for (int i = 0; i < count; i++) {
+            INode v = mock(INode.class);
+            graph.addVertex(v);
+            layout.setLocation(v, new Point2D.Double(i % WIDTH, (i / WIDTH) % HEIGHT));
+        }
+    }
+
+    /**
+     * The level of detail switches to the density raster below 16 pixels per visible vertex and drops labels and
+     * tiny edges below 100.
+     */
+    @Test
+    public void tierThresholds() {
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 0, false)).isEqualTo(Detail.near);
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 4800, false)).isEqualTo(Detail.near);
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 4801, false)).isEqualTo(Detail.medium);
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 30000, false)).isEqualTo(Detail.medium);
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 30001, false)).isEqualTo(Detail.far);
+
+        // A bigger screen has room for more vertices.
+        assertThat(LevelOfDetailRenderer.detailFor(1600, 1200, 30001, false)).isEqualTo(Detail.medium);
+    }
+
+    /**
+     * Forced labels skip medium detail, but not the density raster.
+     */
+    @Test
+    public void forcedLabels() {
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 4801, true)).isEqualTo(Detail.near);
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 30000, true)).isEqualTo(Detail.near);
+        assertThat(LevelOfDetailRenderer.detailFor(800, 600, 30001, true)).isEqualTo(Detail.far);
+    }
+
+    /**
+     * Too many vertices on the screen are painted as a density raster.
+     */
+    @Test
+    public void crowdedScreenIsFar() {
+        addVisible(301);
+        renderer.render(vv.getRenderContext(), layout);
+
+        assertThat(renderer.getLastDetail()).isEqualTo(Detail.far);
+        // The raster cell of the first vertex is shaded.
+        assertThat(screen.getRGB(0, 0) >>> 24).isGreaterThan(0);
+    }
+
+    /**
+     * Only the vertices on the screen count, not those of the whole graph.
+     */
+    @Test
+    public void verticesOffScreenDoNotCount() {
+        addVisible(48);
+        for (int i = 0; i < 1000; i++) {
+            INode v = mock(INode.class);
+            graph.addVertex(v);
+            layout.setLocation(v, new Point2D.Double(5000 + i, 5000));
+        }
+        renderer.render(vv.getRenderContext(), layout);
+
+        assertThat(renderer.getLastDetail()).isEqualTo(Detail.near);
+    }
+
+    /**
+     * While vertices are dragged, everything else is painted once into the static layer, and only the dragged vertices
+     * and their edges are painted in every frame.
+     */
+    @Test
+    public void overlayRepaintsOnlyDraggedElements() {
+        INode a = mock(INode.class);
+        INode b = mock(INode.class);
+        INode c = mock(INode.class);
+        IEdge ab = mock(IEdge.class);
+        IEdge bc = mock(IEdge.class);
+        graph.addEdge(ab, a, b);
+        graph.addEdge(bc, b, c);
+        layout.setLocation(a, new Point2D.Double(10, 10));
+        layout.setLocation(b, new Point2D.Double(40, 30));
+        layout.setLocation(c, new Point2D.Double(70, 50));
+
+        renderer.beginOverlay(graph, Arrays.asList(a, mock(INode.class)));
+        assertThat(renderer.isOverlayActive()).isTrue();
+
+        renderer.render(vv.getRenderContext(), layout);
+        List<Object> painted = renderer.takePainted();
+        assertThat(painted).containsOnly(a, b, c, ab, bc);
+        assertThat(painted).hasSize(5);
+
+        layout.setLocation(a, new Point2D.Double(20, 10));
+        renderer.render(vv.getRenderContext(), layout);
+        assertThat(renderer.takePainted()).containsOnly(a, ab);
+
+        // Moving the view makes the static layer outdated.
+        vv.getRenderContext().getMultiLayerTransformer().getTransformer(Layer.VIEW).translate(5, 0);
+        renderer.render(vv.getRenderContext(), layout);
+        assertThat(renderer.takePainted()).hasSize(5);
+        renderer.render(vv.getRenderContext(), layout);
+        assertThat(renderer.takePainted()).hasSize(2);
+
+        renderer.endOverlay();
+        assertThat(renderer.isOverlayActive()).isFalse();
+        renderer.render(vv.getRenderContext(), layout);
+        assertThat(renderer.takePainted()).containsOnly(a, b, c, ab, bc);
+    }
+
+    /**
+     * Vertices that are not in the graph are not put on the overlay.
+     */
+    @Test
+    public void overlayOnlyForVerticesOfTheGraph() {
+        addVisible(3);
+        renderer.beginOverlay(graph, Arrays.asList(mock(INode.class)));
+        assertThat(renderer.isOverlayActive()).isFalse();
+    }
+}
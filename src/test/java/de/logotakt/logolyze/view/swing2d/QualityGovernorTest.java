@@ -0,0 +1,123 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests when the {@link QualityGovernor} asks for the fast path, and that it restores full quality afterwards.
+ */
+public class QualityGovernorTest {
+    /* Longer than the governor waits for more interaction, in milliseconds. */
+    private static final long IDLE = 1000;
+    /* A frame too slow to be repainted continuously, in nanoseconds. */
+    private static final long SLOW_FRAME = 100L * 1000 * 1000;
+    /* A frame fast enough, in nanoseconds. */
+    private static final long QUICK_FRAME = 1000 * 1000;
+
+    private final AtomicInteger repaints = new AtomicInteger();
+    private QualityGovernor governor;
+
+    /**
+     * Creates a governor for a panel that counts how often it is repainted.
+     */
+    @Before
+    public void setUp() {
+        governor = new QualityGovernor(new JPanel() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void repaint() {
+                repaints.incrementAndGet();
+            }
+        });
+        // Setting up the panel repaints it, too.
+        repaints.set(0);
+    }
+
+    /* Asks the governor on the event dispatch thread, where it lives. */
+    private boolean isFast() throws InterruptedException, InvocationTargetException {
+        final boolean[] ret = new boolean[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                ret[0] = governor.isFast();
+            }
+        });
+        return ret[0];
+    }
+
+    /* Waits until the idle timer had its chance to fire. */
+    private void idle() throws InterruptedException, InvocationTargetException {
+        Thread.sleep(IDLE);
+        isFast();
+    }
+
+    /**
+     * Without interaction, frames are painted in full quality.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void fullQualityByDefault() throws Exception {
+        assertThat(isFast()).isFalse();
+        governor.frameRendered(QUICK_FRAME, false);
+        assertThat(isFast()).isFalse();
+    }
+
+    /**
+     * While the mouse is held down, frames take the fast path, and shortly after it is released, the screen is
+     * repainted in full quality.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void fastDuringInteraction() throws Exception {
+        governor.beginInteraction();
+        assertThat(isFast()).isTrue();
+        governor.frameRendered(QUICK_FRAME, true);
+        idle();
+        // Still pressed: no full quality yet.
+        assertThat(isFast()).isTrue();
+        assertThat(repaints.get()).isEqualTo(0);
+
+        governor.endInteraction();
+        assertThat(isFast()).isTrue();
+        idle();
+        assertThat(isFast()).isFalse();
+        assertThat(repaints.get()).isEqualTo(1);
+    }
+
+    /**
+     * Single interactions like zoom steps take the fast path for a short while, too.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void fastAfterSingleInteraction() throws Exception {
+        governor.interacted();
+        assertThat(isFast()).isTrue();
+        idle();
+        assertThat(isFast()).isFalse();
+        assertThat(repaints.get()).isEqualTo(1);
+    }
+
+    /**
+     * After a frame that was too slow in full quality, the next frames take the fast path, until things calm down.
+     * @throws Exception Should not happen.
+     */
+    @Test
+    public void fastAfterSlowFrames() throws Exception {
+        governor.frameRendered(SLOW_FRAME, false);
+        assertThat(isFast()).isTrue();
+
+        governor.frameRendered(QUICK_FRAME, true);
+        idle();
+        assertThat(isFast()).isFalse();
+        assertThat(repaints.get()).isEqualTo(1);
+    }
+}
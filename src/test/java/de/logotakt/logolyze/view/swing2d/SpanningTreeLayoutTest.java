@@ -0,0 +1,202 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
+import edu.uci.ics.jung.graph.Graph;
+
+/**
+ * Tests the {@link SpanningTreeLayout}.
+ */
+public class SpanningTreeLayoutTest {
+    private static final int DIST = 50;
+    /* The y coordinate of the roots. */
+    private static final double ROOTS = 70;
+
+    private final Graph<String, Integer> graph = new DirectedSparseMultigraph<String, Integer>();
+    private int edges = 0;
+
+    private void connect(final String a, final String b) {
+        graph.addEdge(edges++, a, b);
+    }
+
+    private SpanningTreeLayout<String, Integer> layout() {
+        return new SpanningTreeLayout<String, Integer>(graph, DIST, DIST);
+    }
+
+    private static double y(final SpanningTreeLayout<String, Integer> layout, final String v) {
+        return layout.transform(v).getY();
+    }
+
+    private static double x(final SpanningTreeLayout<String, Integer> layout, final String v) {
+        return layout.transform(v).getX();
+    }
+
+    /* Every vertex has a position of its own, inside the size of the layout. */
+    private static void assertSeparated(final SpanningTreeLayout<String, Integer> layout) {
+        Dimension size = layout.getSize();
+        Set<Point2D> seen = new HashSet<Point2D>();
+        for (String v : layout.getGraph().getVertices()) {
+            Point2D p = layout.transform(v);
+            assertThat(p).isNotNull();
+            assertThat(seen.add(p)).as(v + " shares its position").isTrue();
+            assertThat(p.getX()).isGreaterThan(0).isLessThan(size.width);
+            assertThat(p.getY()).isGreaterThan(0).isLessThan(size.height);
+        }
+    }
+
+    /**
+     * An empty graph has nothing to lay out.
+     */
+    @Test
+    public void emptyGraph() {
+        SpanningTreeLayout<String, Integer> layout = layout();
+        assertThat(layout.getSize().width).isLessThanOrEqualTo(DIST);
+        assertThat(layout.getSize().height).isLessThanOrEqualTo(DIST);
+    }
+
+    /**
+     * The vertex with the most edges is the root; its neighbours are its children, next to each other, and theirs are
+     * below them.
+     */
+    @Test
+    public void highestDegreeIsTheRoot() {
+        connect("a", "hub");
+        connect("hub", "b");
+        connect("c", "hub");
+        connect("c", "d");
+        SpanningTreeLayout<String, Integer> layout = layout();
+
+        assertThat(y(layout, "hub")).isEqualTo(ROOTS);
+        assertThat(y(layout, "a")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "b")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "c")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "d")).isEqualTo(ROOTS + 2 * DIST);
+
+        // The root is above the middle of its children, and a single child below its parent.
+        double left = Math.min(x(layout, "a"), Math.min(x(layout, "b"), x(layout, "c")));
+        double right = Math.max(x(layout, "a"), Math.max(x(layout, "b"), x(layout, "c")));
+        assertThat(right - left).isEqualTo(2 * DIST);
+        assertThat(x(layout, "hub")).isEqualTo((left + right) / 2);
+        assertThat(x(layout, "d")).isEqualTo(x(layout, "c"));
+        assertSeparated(layout);
+    }
+
+    /**
+     * Of vertices with the same degree, one becomes the root, and the tree is the same either way.
+     */
+    @Test
+    public void tiesMakeOneRoot() {
+        connect("a", "b");
+        SpanningTreeLayout<String, Integer> layout = layout();
+
+        double top = Math.min(y(layout, "a"), y(layout, "b"));
+        double bottom = Math.max(y(layout, "a"), y(layout, "b"));
+        assertThat(top).isEqualTo(ROOTS);
+        assertThat(bottom).isEqualTo(ROOTS + DIST);
+        assertThat(x(layout, "a")).isEqualTo(x(layout, "b"));
+    }
+
+    /**
+     * Every connected component is a tree of its own, and the trees are put next to each other without overlapping.
+     */
+    @Test
+    public void forestOfComponents() {
+        connect("a", "b");
+        connect("a", "c");
+        connect("a", "d");
+        connect("x", "y");
+        connect("x", "z");
+        connect("x", "w");
+        graph.addVertex("alone");
+        SpanningTreeLayout<String, Integer> layout = layout();
+
+        assertThat(y(layout, "a")).isEqualTo(ROOTS);
+        assertThat(y(layout, "x")).isEqualTo(ROOTS);
+        assertThat(y(layout, "alone")).isEqualTo(ROOTS);
+
+        double[] first = range(layout, "a", "b", "c", "d");
+        double[] second = range(layout, "x", "y", "z", "w");
+        assertThat(first[1] < second[0] || second[1] < first[0]).isTrue();
+        double lone = x(layout, "alone");
+        assertThat(lone < first[0] || lone > first[1]).isTrue();
+        assertThat(lone < second[0] || lone > second[1]).isTrue();
+        assertSeparated(layout);
+    }
+
+    private static double[] range(final SpanningTreeLayout<String, Integer> layout, final String... vertices) {
+        double[] ret = {Double.MAX_VALUE, -Double.MAX_VALUE };
+        for (String v : vertices) {
+            ret[0] = Math.min(ret[0], x(layout, v));
+            ret[1] = Math.max(ret[1], x(layout, v));
+        }
+        return ret;
+    }
+
+    /**
+     * Cycles, parallel edges and self-loops do not make vertices appear twice in the tree.
+     */
+    @Test
+    public void cyclesAndLoops() {
+        connect("a", "b");
+        connect("b", "c");
+        connect("c", "a");
+        connect("a", "b");
+        connect("c", "c");
+        connect("c", "d");
+        connect("loop", "loop");
+        SpanningTreeLayout<String, Integer> layout = layout();
+
+        // c has the most edges, a self-loop counting once.
+        assertThat(y(layout, "c")).isEqualTo(ROOTS);
+        assertThat(y(layout, "a")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "b")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "d")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "loop")).isEqualTo(ROOTS);
+        assertSeparated(layout);
+    }
+
+    /**
+     * Vertices added to the graph after the layout was computed get positions as well, and so do vertices that are not
+     * in the graph at all.
+     */
+    @Test
+    public void unknownVerticesHavePositions() {
+        connect("a", "b");
+        SpanningTreeLayout<String, Integer> layout = layout();
+        assertThat(layout.transform("b")).isNotNull();
+
+        connect("b", "c");
+        connect("b", "d");
+        assertThat(y(layout, "c")).isEqualTo(ROOTS + DIST);
+        assertThat(y(layout, "b")).isEqualTo(ROOTS);
+        assertSeparated(layout);
+
+        Point2D unknown = layout.transform("unknown");
+        assertThat(unknown).isNotNull();
+        assertThat(layout.transform("unknown")).isSameAs(unknown);
+    }
+
+    /**
+     * Positions that were set are kept until the layout is reset.
+     */
+    @Test
+    public void setLocationUntilReset() {
+        connect("a", "b");
+        SpanningTreeLayout<String, Integer> layout = layout();
+        Point2D computed = (Point2D) layout.transform("a").clone();
+
+        layout.setLocation("a", new Point2D.Double(1, 2));
+        assertThat(layout.transform("a")).isEqualTo(new Point2D.Double(1, 2));
+
+        layout.reset();
+        assertThat(layout.transform("a")).isEqualTo(computed);
+    }
+}
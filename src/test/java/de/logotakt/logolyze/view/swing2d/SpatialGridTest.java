@@ -0,0 +1,207 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the lookup of items by area in a {@link SpatialGrid}.
+ */
+public class SpatialGridTest {
+    private SpatialGrid<String> grid;
+
+    /**
+     * Creates an empty grid with cells of 10 by 10.
+     */
+    @Before
+    public void setUp() {
+        grid = new SpatialGrid<String>(10);
+    }
+
+    private static Rectangle2D rect(final double x, final double y, final double w, final double h) {
+        return new Rectangle2D.Double(x, y, w, h);
+    }
+
+    /**
+     * A grid without a sensible cell size cannot be made.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void cellSizeMustBePositive() {
+        new SpatialGrid<String>(0);
+    }
+
+    /**
+     * Neither can one with a cell size that is not a number.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void cellSizeMustBeANumber() {
+        new SpatialGrid<String>(Double.NaN);
+    }
+
+    /**
+     * Only the items overlapping the area are found.
+     */
+    @Test
+    public void queryFindsOverlappingItems() {
+        grid.insert("a", rect(1, 1, 2, 2));
+        grid.insert("b", rect(25, 25, 2, 2));
+        grid.insert("c", rect(8, 8, 4, 4));
+
+        assertThat(grid.query(rect(0, 0, 5, 5))).containsOnly("a");
+        assertThat(grid.query(rect(0, 0, 10, 10))).containsOnly("a", "c");
+        assertThat(grid.query(rect(20, 20, 10, 10))).containsOnly("b");
+        assertThat(grid.query(rect(50, 50, 10, 10))).isEmpty();
+        assertThat(grid.size()).isEqualTo(3);
+    }
+
+    /**
+     * An item covering several cells is found once, whichever of its cells the area covers.
+     */
+    @Test
+    public void itemsSpanningCellsAreFoundOnce() {
+        grid.insert("wide", rect(5, 5, 30, 30));
+
+        assertThat(grid.query(rect(0, 0, 50, 50))).containsExactly("wide");
+        assertThat(grid.query(rect(15, 15, 10, 10))).containsExactly("wide");
+        assertThat(grid.query(rect(34, 34, 10, 10))).containsExactly("wide");
+    }
+
+    /**
+     * Items and areas lying on the border between two cells belong to both of them.
+     */
+    @Test
+    public void cellBordersBelongToBothCells() {
+        grid.insert("edge", rect(10, 10, 0, 0));
+        grid.insert("touching", rect(0, 0, 10, 5));
+
+        assertThat(grid.query(rect(0, 0, 10, 10))).containsOnly("edge", "touching");
+        assertThat(grid.query(rect(10, 10, 5, 5))).containsOnly("edge");
+        assertThat(grid.query(rect(10, 0, 5, 5))).containsOnly("touching");
+        assertThat(grid.query(rect(10.5, 10.5, 5, 5))).isEmpty();
+    }
+
+    /**
+     * The cells of negative coordinates are rounded down, not towards zero.
+     */
+    @Test
+    public void negativeCoordinates() {
+        grid.insert("neg", rect(-5, -5, 1, 1));
+        grid.insert("pos", rect(5, 5, 1, 1));
+
+        assertThat(grid.query(rect(-6, -6, 2, 2))).containsOnly("neg");
+        assertThat(grid.query(rect(-1, -1, 2, 2))).isEmpty();
+        assertThat(grid.query(rect(-10, -10, 20, 20))).containsOnly("neg", "pos");
+    }
+
+    /**
+     * Inserting an item again moves it; removing it leaves nothing behind.
+     */
+    @Test
+    public void insertMovesAndRemoveForgets() {
+        grid.insert("a", rect(1, 1, 1, 1));
+        grid.insert("a", rect(31, 31, 1, 1));
+
+        assertThat(grid.size()).isEqualTo(1);
+        assertThat(grid.query(rect(0, 0, 5, 5))).isEmpty();
+        assertThat(grid.query(rect(30, 30, 5, 5))).containsExactly("a");
+        assertThat(grid.getBounds("a")).isEqualTo(rect(31, 31, 1, 1));
+
+        grid.remove("a");
+        grid.remove("unknown");
+        assertThat(grid.size()).isEqualTo(0);
+        assertThat(grid.getBounds("a")).isNull();
+        assertThat(grid.query(rect(30, 30, 5, 5))).isEmpty();
+    }
+
+    /**
+     * Items too large to be stored in their cells are still found, and removed.
+     */
+    @Test
+    public void oversizedItems() {
+        grid.insert("huge", rect(-1000, -1000, 2000, 2000));
+        grid.insert("small", rect(1, 1, 1, 1));
+
+        assertThat(grid.query(rect(500, 500, 1, 1))).containsExactly("huge");
+        assertThat(grid.query(rect(0, 0, 5, 5))).containsOnly("huge", "small");
+        assertThat(grid.query(rect(2000, 2000, 1, 1))).isEmpty();
+
+        grid.remove("huge");
+        assertThat(grid.query(rect(500, 500, 1, 1))).isEmpty();
+    }
+
+    /**
+     * The grid keeps a copy of the bounds, so changing the rectangle afterwards changes nothing.
+     */
+    @Test
+    public void boundsAreCopied() {
+        Rectangle2D r = rect(1, 1, 1, 1);
+        grid.insert("a", r);
+        r.setRect(50, 50, 1, 1);
+
+        assertThat(grid.query(rect(0, 0, 5, 5))).containsExactly("a");
+    }
+
+    /**
+     * An area covering far more cells than hold items, as when zoomed far out, is answered from the items' cells, each
+     * item once.
+     */
+    @Test(timeout = 5000)
+    public void hugeAreas() {
+        SpatialGrid<String> fine = new SpatialGrid<String>(0.001);
+        fine.insert("a", rect(1, 1, 0, 0));
+        fine.insert("b", rect(-3, 2, 0.002, 0.002));
+        fine.insert("c", rect(1e6, 1e6, 0, 0));
+
+        assertThat(fine.query(rect(-1e9, -1e9, 2e9, 2e9))).containsOnly("a", "b", "c");
+        assertThat(fine.query(rect(-10, -10, 20, 20))).containsOnly("a", "b");
+        assertThat(fine.query(rect(-2.999, -10, 1e9, 20))).containsOnly("a", "b");
+        assertThat(fine.query(rect(2, -1e9, 1e9, 2e9))).containsOnly("c");
+
+        fine.remove("a");
+        fine.remove("b");
+        fine.remove("c");
+        assertThat(fine.query(rect(-1e9, -1e9, 2e9, 2e9))).isEmpty();
+    }
+
+    /**
+     * Whether the cells of the area or the occupied cells are walked, the items found are those overlapping the area,
+     * each once.
+     */
+    @Test
+    public void queriesMatchBruteForce() {
+        Random random = new Random(42);
+        List<Rectangle2D> items = new ArrayList<Rectangle2D>();
+        for (int i = 0; i < 200; i++) {
+            Rectangle2D r = rect(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+                    random.nextDouble() * 15, random.nextDouble() * 15);
+            items.add(r);
+            grid.insert(String.valueOf(i), r);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double size = q < 100 ? random.nextDouble() * 30 : random.nextDouble() * 1000;
+            Rectangle2D area = rect(random.nextDouble() * 300 - 150 - size / 2, random.nextDouble() * 300 - 150
+                    - size / 2, size, size);
+            Collection<String> expected = new HashSet<String>();
+            for (int i = 0; i < items.size(); i++) {
+                Rectangle2D r = items.get(i);
+                if (r.getMinX() <= area.getMaxX() && r.getMaxX() >= area.getMinX() && r.getMinY() <= area.getMaxY()
+                        && r.getMaxY() >= area.getMinY()) {
+                    expected.add(String.valueOf(i));
+                }
+            }
+
+            Collection<String> found = grid.query(area);
+            assertThat(found).hasSize(expected.size());
+            assertThat(new HashSet<String>(found)).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JComponent;
+
+import org.fest.assertions.Delta;
+import org.junit.Test;
+
+/**
+ * Tests the painting, eviction and replacement of tiles by a {@link TileCache}.
+ */
+public class TileCacheTest {
+    private static final long TIMEOUT = 10;
+
+    /**
+     * A component counting how often it is asked to repaint, i.e. how many tiles became ready.
+     */
+    @SuppressWarnings("serial")
+    private static final class Screen extends JComponent {
+        private final Semaphore repaints = new Semaphore(0);
+
+        @Override
+        public void repaint() {
+            repaints.release();
+        }
+
+        void awaitRepaints(final int count) throws InterruptedException {
+            assertThat(repaints.tryAcquire(count, TIMEOUT, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    /**
+     * A stroke that blocks the painting of a tile until it is released, and then covers the whole tile.
+     */
+    private static final class BlockingStroke implements Stroke {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public Shape createStrokedShape(final Shape p) {
+            started.countDown();
+            try {
+                released.await(TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Rectangle(0, 0, TileCache.TILE_SIZE, TileCache.TILE_SIZE);
+        }
+    }
+
+    /* A tile filled completely with one colour. */
+    private static TileCache.TileContent filled(final Color color) {
+        TileCache.TileContent content = new TileCache.TileContent(0, 1, 1.0f);
+        content.addVertex(0, 0, new Rectangle(0, 0, TileCache.TILE_SIZE, TileCache.TILE_SIZE), color, null, null);
+        return content;
+    }
+
+    /**
+     * Zoom levels are grouped into buckets of half an octave each.
+     */
+    @Test
+    public void zoomBuckets() {
+        assertThat(TileCache.bucketOf(1)).isEqualTo(0);
+        assertThat(TileCache.bucketOf(Math.sqrt(2))).isEqualTo(1);
+        assertThat(TileCache.bucketOf(2)).isEqualTo(2);
+        assertThat(TileCache.bucketOf(0.5)).isEqualTo(-2);
+        // Scales close to a bucket's scale belong to it.
+        assertThat(TileCache.bucketOf(1.1)).isEqualTo(0);
+        assertThat(TileCache.bucketOf(0.9)).isEqualTo(0);
+
+        for (int bucket = -6; bucket <= 6; bucket++) {
+            assertThat(TileCache.bucketOf(TileCache.scaleOf(bucket))).isEqualTo(bucket);
+        }
+        assertThat(TileCache.scaleOf(2)).isEqualTo(2, Delta.delta(1e-9));
+    }
+
+    /**
+     * Tiles are identified by their bucket and position.
+     */
+    @Test
+    public void tileKeys() {
+        assertThat(new TileCache.TileKey(1, 2, 3)).isEqualTo(new TileCache.TileKey(1, 2, 3));
+        assertThat(new TileCache.TileKey(1, 2, 3).hashCode()).isEqualTo(new TileCache.TileKey(1, 2, 3).hashCode());
+        assertThat(new TileCache.TileKey(1, 2, 3)).isNotEqualTo(new TileCache.TileKey(1, 3, 2));
+        assertThat(new TileCache.TileKey(1, 2, 3)).isNotEqualTo(new TileCache.TileKey(0, 2, 3));
+    }
+
+    /**
+     * A requested tile is painted in the background and the screen is repainted once it is ready.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void requestedTilesArePainted() throws InterruptedException {
+        TileCache cache = new TileCache();
+        Screen screen = new Screen();
+        TileCache.TileKey key = new TileCache.TileKey(0, 0, 0);
+        BlockingStroke stroke = new BlockingStroke();
+        TileCache.TileContent content = new TileCache.TileContent(1, 0, 1.0f);
+        content.addEdge(0, 0, TileCache.TILE_SIZE, TileCache.TILE_SIZE, stroke, Color.RED);
+
+        cache.request(key, content, screen);
+        assertThat(stroke.started.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+        assertThat(cache.isPending(key)).isTrue();
+        assertThat(cache.get(key)).isNull();
+        // Asking again while it is painted does not paint it twice.
+        cache.request(key, filled(Color.BLUE), screen);
+
+        stroke.released.countDown();
+        screen.awaitRepaints(1);
+        assertThat(cache.isPending(key)).isFalse();
+        BufferedImage img = cache.get(key);
+        assertThat(img.getWidth()).isEqualTo(TileCache.TILE_SIZE);
+        assertThat(img.getHeight()).isEqualTo(TileCache.TILE_SIZE);
+        assertThat(img.getRGB(0, 0)).isEqualTo(Color.RED.getRGB());
+    }
+
+    /**
+     * A tile painted for a graph that was cleared meanwhile is thrown away.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void clearDropsTilesBeingPainted() throws InterruptedException {
+        TileCache cache = new TileCache();
+        Screen outdated = new Screen();
+        Screen screen = new Screen();
+        TileCache.TileKey key = new TileCache.TileKey(0, 0, 0);
+        BlockingStroke stroke = new BlockingStroke();
+        TileCache.TileContent content = new TileCache.TileContent(1, 0, 1.0f);
+        content.addEdge(0, 0, TileCache.TILE_SIZE, TileCache.TILE_SIZE, stroke, Color.RED);
+
+        cache.request(key, content, outdated);
+        assertThat(stroke.started.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+        cache.clear();
+        assertThat(cache.isPending(key)).isFalse();
+
+        cache.request(key, filled(Color.BLUE), screen);
+        stroke.released.countDown();
+        screen.awaitRepaints(1);
+        assertThat(cache.get(key).getRGB(0, 0)).isEqualTo(Color.BLUE.getRGB());
+        assertThat(outdated.repaints.availablePermits()).isEqualTo(0);
+
+        cache.clear();
+        assertThat(cache.get(key)).isNull();
+    }
+
+    /**
+     * Once the memory budget of 32 tiles is used up, the least recently used tile is thrown away.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void leastRecentlyUsedTilesAreEvicted() throws InterruptedException {
+        TileCache cache = new TileCache();
+        Screen screen = new Screen();
+        TileCache.TileContent content = filled(Color.RED);
+
+        for (int x = 0; x < 32; x++) {
+            cache.request(new TileCache.TileKey(0, x, 0), content, screen);
+        }
+        screen.awaitRepaints(32);
+        assertThat(cache.get(new TileCache.TileKey(0, 0, 0))).isNotNull();
+
+        cache.request(new TileCache.TileKey(0, 32, 0), content, screen);
+        screen.awaitRepaints(1);
+        assertThat(cache.get(new TileCache.TileKey(0, 32, 0))).isNotNull();
+        assertThat(cache.get(new TileCache.TileKey(0, 0, 0))).isNotNull();
+        assertThat(cache.get(new TileCache.TileKey(0, 1, 0))).isNull();
+        for (int x = 2; x < 32; x++) {
+            assertThat(cache.get(new TileCache.TileKey(0, x, 0))).isNotNull();
+        }
+    }
+
+    /**
+     * Tiles in view are kept even beyond the memory budget, so a large screen does not evict what it shows. Tiles out
+     * of view are evicted first.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void visibleTilesAreNotEvicted() throws InterruptedException {
+        TileCache cache = new TileCache();
+        Screen screen = new Screen();
+        TileCache.TileContent content = filled(Color.RED);
+
+        cache.request(new TileCache.TileKey(0, 0, 10), content, screen);
+        cache.request(new TileCache.TileKey(1, 0, 0), content, screen);
+        screen.awaitRepaints(2);
+
+        // 8 x 6 tiles, as a maximized window shows them.
+        cache.setVisible(0, 0, 0, 7, 5);
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 6; y++) {
+                cache.request(new TileCache.TileKey(0, x, y), content, screen);
+            }
+        }
+        screen.awaitRepaints(48);
+
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 6; y++) {
+                assertThat(cache.get(new TileCache.TileKey(0, x, y))).as(x + ", " + y).isNotNull();
+            }
+        }
+        assertThat(cache.get(new TileCache.TileKey(0, 0, 10))).isNull();
+        assertThat(cache.get(new TileCache.TileKey(1, 0, 0))).isNull();
+
+        // Once out of view, they are evicted as usual.
+        cache.setVisible(0, 100, 100, 100, 100);
+        cache.request(new TileCache.TileKey(0, 100, 100), content, screen);
+        screen.awaitRepaints(1);
+        int kept = 0;
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 6; y++) {
+                if (cache.get(new TileCache.TileKey(0, x, y)) != null) {
+                    kept++;
+                }
+            }
+        }
+        assertThat(kept).isEqualTo(31);
+        assertThat(cache.get(new TileCache.TileKey(0, 100, 100))).isNotNull();
+    }
+
+    /**
+     * A tile that could not be painted is not pending anymore, so it can be requested again.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void failedTilesCanBeRequestedAgain() throws InterruptedException {
+        TileCache cache = new TileCache();
+        Screen screen = new Screen();
+        TileCache.TileKey key = new TileCache.TileKey(0, 0, 0);
+        final CountDownLatch failed = new CountDownLatch(1);
+        TileCache.TileContent content = new TileCache.TileContent(1, 0, 1.0f);
+        content.addEdge(0, 0, 1, 1, new Stroke() {
+            @Override
+            public Shape createStrokedShape(final Shape p) {
+                failed.countDown();
+                throw new IllegalStateException("Broken stroke");
+            }
+        }, Color.RED);
+
+        cache.request(key, content, screen);
+        assertThat(failed.await(TIMEOUT, TimeUnit.SECONDS)).isTrue();
+        long end = System.currentTimeMillis() + TIMEOUT * 1000;
+        while (cache.isPending(key) && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.isPending(key)).isFalse();
+        assertThat(cache.get(key)).isNull();
+        assertThat(screen.repaints.availablePermits()).isEqualTo(0);
+
+        cache.request(key, filled(Color.BLUE), screen);
+        screen.awaitRepaints(1);
+        assertThat(cache.get(key).getRGB(0, 0)).isEqualTo(Color.BLUE.getRGB());
+    }
+
+    /**
+     * A missing tile is filled in from a tile of a neighbouring bucket, scaled to fit.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void fallbackScalesNeighbouringBuckets() throws InterruptedException {
+        TileCache cache = new TileCache();
+        Screen screen = new Screen();
+        cache.request(new TileCache.TileKey(0, 0, 0), filled(Color.RED), screen);
+        screen.awaitRepaints(1);
+
+        // Tile (0, 0) of the bucket below covers more than tile (0, 0) of bucket 1, so scaled up it fills all of it.
+        BufferedImage img = new BufferedImage(TileCache.TILE_SIZE, TileCache.TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        cache.paintFallback(g, new TileCache.TileKey(1, 0, 0));
+        g.dispose();
+        assertThat(img.getRGB(128, 128)).isEqualTo(Color.RED.getRGB());
+
+        // Nothing is there to fill in for a tile far away.
+        img = new BufferedImage(TileCache.TILE_SIZE, TileCache.TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        g = img.createGraphics();
+        g.translate(-10 * TileCache.TILE_SIZE, 0);
+        cache.paintFallback(g, new TileCache.TileKey(1, 10, 0));
+        g.dispose();
+        assertThat(img.getRGB(128, 128)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,131 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ValueListModel}.
+ */
+public class ValueListModelTest {
+    private ValueListModel model;
+    private final List<String> events = new ArrayList<String>();
+
+    /**
+     * Creates an empty model recording the events it fires.
+     */
+    @Before
+    public void setUp() {
+        model = new ValueListModel();
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(final ListDataEvent e) {
+                events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void intervalRemoved(final ListDataEvent e) {
+                events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void contentsChanged(final ListDataEvent e) {
+                events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+    }
+
+    /**
+     * Setting the values replaces the old ones, each in a single event.
+     */
+    @Test
+    public void setValuesFiresOneEventEach() {
+        model.setValues(Arrays.asList("a", "b", "c"));
+        assertThat(events).containsExactly("added 0-2");
+        assertThat(model.getSize()).isEqualTo(3);
+        assertThat(model.getElementAt(1)).isEqualTo("b");
+
+        model.setValues(Arrays.asList("d", "e"));
+        assertThat(events).containsExactly("added 0-2", "removed 0-2", "added 0-1");
+        assertThat(model.getValues()).containsExactly("d", "e");
+    }
+
+    /**
+     * An empty model fires no events.
+     */
+    @Test
+    public void emptyModelFiresNothing() {
+        model.clear();
+        model.setValues(new ArrayList<String>());
+        assertThat(events).isEmpty();
+        assertThat(model.getSize()).isEqualTo(0);
+        assertThat(model.getLongestValue()).isNull();
+    }
+
+    /**
+     * Clearing removes all values.
+     */
+    @Test
+    public void clear() {
+        model.setValues(Arrays.asList("a", "b"));
+        model.clear();
+        assertThat(events).containsExactly("added 0-1", "removed 0-1");
+        assertThat(model.getSize()).isEqualTo(0);
+        assertThat(model.getValues()).isEmpty();
+    }
+
+    /**
+     * Changing the list the values were set from does not change the model.
+     */
+    @Test
+    public void valuesAreCopied() {
+        List<String> values = new ArrayList<String>(Arrays.asList("a", "b"));
+        model.setValues(values);
+        values.set(0, "z");
+        assertThat(model.getElementAt(0)).isEqualTo("a");
+    }
+
+    /**
+     * The values cannot be changed through the list returned.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void valuesAreUnmodifiable() {
+        model.setValues(Arrays.asList("a", "b"));
+        model.getValues().set(0, "z");
+    }
+
+    /**
+     * The position of a value is the one of its first occurrence, also after the values were replaced.
+     */
+    @Test
+    public void indexOf() {
+        model.setValues(Arrays.asList("a", "b", "a", "c"));
+        assertThat(model.indexOf("a")).isEqualTo(0);
+        assertThat(model.indexOf("c")).isEqualTo(3);
+        assertThat(model.indexOf("x")).isEqualTo(-1);
+
+        model.setValues(Arrays.asList("c", "a"));
+        assertThat(model.indexOf("a")).isEqualTo(1);
+        assertThat(model.indexOf("b")).isEqualTo(-1);
+
+        model.clear();
+        assertThat(model.indexOf("a")).isEqualTo(-1);
+    }
+
+    /**
+     * The longest value is the first one of the greatest length.
+     */
+    @Test
+    public void longestValue() {
+        model.setValues(Arrays.asList("ab", "abcd", "x", "efgh"));
+        assertThat(model.getLongestValue()).isEqualTo("abcd");
+    }
+}
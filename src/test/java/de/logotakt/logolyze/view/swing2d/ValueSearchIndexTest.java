@@ -0,0 +1,139 @@
+package de.logotakt.logolyze.view.swing2d;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests finding values by a {@link ValueSearchIndex}, before and after the index is built.
+ */
+public class ValueSearchIndexTest {
+    private static final long TIMEOUT = 10000;
+
+    private static final String[] NAMES = {"Karlsruhe", "Berlin", "karlsbad", "Oberkarl", "KARL", "Stuttgart",
+        " Karlstadt ", "Karlsruhe", "Ka" };
+
+    private static final String[] QUERIES = {"karl", " KARL ", "ka", "k", "ruhe", "arl", "karlsruhe", "berlin",
+        "xyz", "tt", "a" };
+
+    /**
+     * A value counting how often it is asked for its string, which is when it is scanned or indexed.
+     */
+    private static final class Value {
+        private final String name;
+        private final AtomicInteger reads;
+
+        Value(final String name, final AtomicInteger reads) {
+            this.name = name;
+            this.reads = reads;
+        }
+
+        @Override
+        public String toString() {
+            reads.incrementAndGet();
+            return name;
+        }
+    }
+
+    private static List<Value> makeValues(final AtomicInteger reads) {
+        List<Value> ret = new ArrayList<Value>();
+        for (String name : NAMES) {
+            ret.add(new Value(name, reads));
+        }
+        return ret;
+    }
+
+    private static ValueSearchIndex makeIndex() {
+        return new ValueSearchIndex(Arrays.asList(NAMES));
+    }
+
+    /*
+     * Waits until queries are answered by the index, which does not read the values anymore, and returns the answer of
+     * the first such query.
+     */
+    private static int[] awaitIndex(final ValueSearchIndex index, final AtomicInteger reads, final String query,
+            final int limit) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < end) {
+            int before = reads.get();
+            int[] ret = index.find(query, limit);
+            if (reads.get() == before) {
+                return ret;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("The index was not built in time");
+    }
+
+    /**
+     * Values starting with the query come first, then those containing it, both in the order of the values. Case and
+     * surrounding blanks do not matter.
+     */
+    @Test
+    public void prefixedBeforeContaining() {
+        assertThat(makeIndex().find("karl", 100)).isEqualTo(new int[] {0, 2, 4, 6, 7, 3 });
+        assertThat(makeIndex().find(" KARL ", 100)).isEqualTo(new int[] {0, 2, 4, 6, 7, 3 });
+        assertThat(makeIndex().find("ruhe", 100)).isEqualTo(new int[] {0, 7 });
+        assertThat(makeIndex().find("xyz", 100)).isEqualTo(new int[0]);
+    }
+
+    /**
+     * No more values than asked for are found, prefixed ones first.
+     */
+    @Test
+    public void limit() {
+        assertThat(makeIndex().find("karl", 3)).isEqualTo(new int[] {0, 2, 4 });
+        assertThat(makeIndex().find("karl", 5)).isEqualTo(new int[] {0, 2, 4, 6, 7 });
+    }
+
+    /**
+     * An empty query finds nothing.
+     */
+    @Test
+    public void emptyQuery() {
+        assertThat(makeIndex().find("", 100)).isEqualTo(new int[0]);
+        assertThat(makeIndex().find("   ", 100)).isEqualTo(new int[0]);
+    }
+
+    /**
+     * The values are not read until the first query, which scans them and has the index built in the background.
+     * Once it is built, queries do not read the values anymore.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void indexedLazily() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        ValueSearchIndex index = new ValueSearchIndex(makeValues(reads));
+        assertThat(reads.get()).isEqualTo(0);
+
+        assertThat(index.find("karl", 100)).isEqualTo(new int[] {0, 2, 4, 6, 7, 3 });
+        assertThat(reads.get()).isGreaterThanOrEqualTo(NAMES.length);
+
+        assertThat(awaitIndex(index, reads, "karl", 100)).isEqualTo(new int[] {0, 2, 4, 6, 7, 3 });
+        assertThat(index.get(3).toString()).isEqualTo("Oberkarl");
+    }
+
+    /**
+     * The index finds the same values in the same order as scanning them does.
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void indexFindsWhatScanningFinds() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        ValueSearchIndex index = new ValueSearchIndex(makeValues(reads));
+        awaitIndex(index, reads, "karl", 100);
+
+        for (String query : QUERIES) {
+            for (int limit : new int[] {1, 2, 5, 100 }) {
+                // The first query of a new index always scans.
+                assertThat(index.find(query, limit)).as(query + ", " + limit).isEqualTo(
+                        makeIndex().find(query, limit));
+            }
+        }
+    }
+}